@@ -0,0 +1,93 @@
+package co.com.runtime.kmeans.benchmarks;
+
+import co.com.runtime.kmeans.ClusterAccumulators;
+import co.com.runtime.kmeans.KmeansCluster;
+import co.com.runtime.kmeans.KmeansEngine;
+import co.com.runtime.kmeans.datatypes.Baloto;
+import co.com.runtime.kmeans.datatypes.Keyword;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one assignment pass of <tt>ClusteringTask</tt> over the whole data
+ * set. The throughput per core is <tt>corpusSize / (score * parallelism)</tt>
+ * items per millisecond, comparing it across the <tt>parallelism</tt> values
+ * shows how the assignment scales.
+ *
+ * @author Camilo Sarmiento
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmarks.xml")
+@State(Scope.Benchmark)
+public class ClusteringTaskBenchmark {
+
+    @Param({"100000"})
+    public int corpusSize;
+
+    @Param({"100"})
+    public int numberOfClusters;
+
+    @Param({"1", "2", "4"})
+    public int parallelism;
+
+    @Param({"8"})
+    public int wordsPerKeyword;
+
+    @Param({"50000"})
+    public int vocabulary;
+
+    private Keyword[]                    keywords;
+    private List<KmeansCluster<Keyword>> keywordClusters;
+    private int[]                        keywordAssignment;
+    private KmeansEngine<Keyword>        keywordEngine;
+
+    private Baloto[]                    balotos;
+    private List<KmeansCluster<Baloto>> balotoClusters;
+    private int[]                       balotoAssignment;
+    private KmeansEngine<Baloto>        balotoEngine;
+
+    @Setup
+    public void setUp() {
+        keywords = SyntheticData.keywords(corpusSize, vocabulary, wordsPerKeyword, 3L);
+        keywordClusters = SyntheticData.list(SyntheticData.clusters(keywords, numberOfClusters));
+        keywordAssignment = new int[corpusSize];
+        keywordEngine = new KmeansEngine<>(parallelism);
+
+        balotos = SyntheticData.balotos(corpusSize, 3L);
+        balotoClusters = SyntheticData.list(SyntheticData.clusters(balotos, numberOfClusters));
+        balotoAssignment = new int[corpusSize];
+        balotoEngine = new KmeansEngine<>(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        keywordEngine.close();
+        balotoEngine.close();
+    }
+
+    @Benchmark
+    public ClusterAccumulators<Keyword> keywordAssignment() {
+        return keywordEngine.assign(keywords, keywordClusters, keywordAssignment);
+    }
+
+    @Benchmark
+    public ClusterAccumulators<Baloto> balotoAssignment() {
+        return balotoEngine.assign(balotos, balotoClusters, balotoAssignment);
+    }
+}
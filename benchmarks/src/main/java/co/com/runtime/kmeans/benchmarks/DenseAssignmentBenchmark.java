@@ -0,0 +1,87 @@
+package co.com.runtime.kmeans.benchmarks;
+
+import co.com.runtime.kmeans.dense.DenseAssignmentMode;
+import co.com.runtime.kmeans.dense.DenseCentroids;
+import co.com.runtime.kmeans.dense.DenseDataset;
+import co.com.runtime.kmeans.dense.DenseKmeansEngine;
+import co.com.runtime.kmeans.dense.DenseSums;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one assignment pass of the dense engine for every assignment mode,
+ * as K and the dimension vary, to find where the k-d tree and the blocked
+ * product overtake the pairwise scan. The rows are drawn around the
+ * centroids and keep the clusters of a previous pass, as in the late
+ * iterations of a run.
+ *
+ * @author Camilo Sarmiento
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmarks.xml")
+@State(Scope.Benchmark)
+public class DenseAssignmentBenchmark {
+
+    @Param({"100000"})
+    public int size;
+
+    @Param({"16", "128", "1024"})
+    public int numberOfClusters;
+
+    @Param({"2", "6", "16", "64"})
+    public int dimension;
+
+    @Param({"PAIRWISE", "BLOCKED", "KD_TREE"})
+    public DenseAssignmentMode mode;
+
+    private DenseDataset      dataset;
+    private DenseCentroids    centroids;
+    private int[]             assignment;
+    private DenseKmeansEngine engine;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(6L);
+        centroids = new DenseCentroids(numberOfClusters, dimension);
+        for (int i = 0; i < centroids.getValues().length; i++) {
+            centroids.getValues()[i] = 100 * random.nextDouble();
+        }
+        dataset = new DenseDataset(size, dimension);
+        for (int i = 0; i < size; i++) {
+            int centroid = random.nextInt(numberOfClusters);
+            for (int j = 0; j < dimension; j++) {
+                dataset.set(i, j, centroids.get(centroid, j) + random.nextGaussian());
+            }
+        }
+        engine = new DenseKmeansEngine();
+        engine.setAssignmentMode(mode);
+        assignment = new int[size];
+        engine.assign(dataset, centroids, assignment);
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    public DenseSums assign() {
+        return engine.assign(dataset, centroids, assignment);
+    }
+}
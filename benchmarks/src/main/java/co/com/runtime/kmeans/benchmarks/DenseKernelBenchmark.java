@@ -0,0 +1,94 @@
+package co.com.runtime.kmeans.benchmarks;
+
+import co.com.runtime.kmeans.dense.DistanceKernels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the dense distance kernels: a single squared distance, a dot
+ * product and the distances from a row to a block of centroids, for the
+ * scalar, the unrolled and the Vector API implementations. The forks resolve
+ * the <tt>jdk.incubator.vector</tt> module, so they need Java 17 or newer.
+ *
+ * @author Camilo Sarmiento
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j.configurationFile=log4j2-benchmarks.xml",
+        "--add-modules=jdk.incubator.vector"})
+@State(Scope.Thread)
+public class DenseKernelBenchmark {
+    private static final int ROWS = 1024;
+
+    @Param({"scalar", "unrolled", "vector"})
+    public String kernels;
+
+    @Param({"6", "64", "512"})
+    public int dimension;
+
+    @Param({"64"})
+    public int numberOfClusters;
+
+    private DistanceKernels implementation;
+    private double[]        rows;
+    private double[]        centroids;
+    private double[]        distances;
+    private int             next;
+
+    @Setup
+    public void setUp() {
+        if ("vector".equals(kernels)) {
+            implementation = DistanceKernels.vector();
+            if (implementation == null) {
+                throw new IllegalStateException("Vector distance kernels not available");
+            }
+        } else {
+            implementation = "scalar".equals(kernels) ? DistanceKernels.SCALAR : DistanceKernels.UNROLLED;
+        }
+        Random random = new Random(1L);
+        rows = new double[ROWS * dimension];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = random.nextDouble();
+        }
+        centroids = new double[numberOfClusters * dimension];
+        for (int i = 0; i < centroids.length; i++) {
+            centroids[i] = random.nextDouble();
+        }
+        distances = new double[numberOfClusters];
+    }
+
+    private int nextRow() {
+        next = (next + 1) & (ROWS - 1);
+        return next * dimension;
+    }
+
+    @Benchmark
+    public double squaredDistance() {
+        return implementation.squaredDistance(rows, nextRow(), centroids, 0, dimension);
+    }
+
+    @Benchmark
+    public double dot() {
+        return implementation.dot(rows, nextRow(), centroids, 0, dimension);
+    }
+
+    @Benchmark
+    public double[] centroidBlock() {
+        implementation.squaredDistances(rows, nextRow(), centroids, 0, numberOfClusters, dimension, distances);
+        return distances;
+    }
+}
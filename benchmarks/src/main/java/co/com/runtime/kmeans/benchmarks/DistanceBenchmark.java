@@ -0,0 +1,79 @@
+package co.com.runtime.kmeans.benchmarks;
+
+import co.com.runtime.kmeans.datatypes.Baloto;
+import co.com.runtime.kmeans.datatypes.Keyword;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a single distance between two items, the kernel of the assignment
+ * step. The pairs are taken in turn from a pool of items, so the caches see a
+ * realistic mix of items.
+ *
+ * @author Camilo Sarmiento
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmarks.xml")
+@State(Scope.Thread)
+public class DistanceBenchmark {
+    private static final int POOL_SIZE = 4096;
+
+    @Param({"4", "16"})
+    public int wordsPerKeyword;
+
+    @Param({"50000"})
+    public int vocabulary;
+
+    private Keyword[] keywords;
+    private Baloto[]  balotos;
+    private int       next;
+
+    @Setup
+    public void setUp() {
+        keywords = SyntheticData.keywords(POOL_SIZE, vocabulary, wordsPerKeyword, 1L);
+        balotos = SyntheticData.balotos(POOL_SIZE, 1L);
+    }
+
+    private int nextPair() {
+        next = (next + 1) & (POOL_SIZE - 1);
+        return next;
+    }
+
+    @Benchmark
+    public double keywordDistance() {
+        int i = nextPair();
+        return keywords[i].distance(keywords[(i + 1) & (POOL_SIZE - 1)]);
+    }
+
+    @Benchmark
+    public double keywordComparisonDistance() {
+        int i = nextPair();
+        return keywords[i].comparisonDistance(keywords[(i + 1) & (POOL_SIZE - 1)]);
+    }
+
+    @Benchmark
+    public double balotoDistance() {
+        int i = nextPair();
+        return balotos[i].distance(balotos[(i + 1) & (POOL_SIZE - 1)]);
+    }
+
+    @Benchmark
+    public double balotoComparisonDistance() {
+        int i = nextPair();
+        return balotos[i].comparisonDistance(balotos[(i + 1) & (POOL_SIZE - 1)]);
+    }
+}
@@ -0,0 +1,93 @@
+package co.com.runtime.kmeans.benchmarks;
+
+import co.com.runtime.kmeans.ConvergencePolicy;
+import co.com.runtime.kmeans.KmeansCluster;
+import co.com.runtime.kmeans.KmeansEngine;
+import co.com.runtime.kmeans.datatypes.Baloto;
+import co.com.runtime.kmeans.datatypes.Keyword;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one full K-means iteration as run by <tt>doClustering</tt>: the
+ * first assignment, the centroid update and the second assignment. The
+ * clusters are recreated from the same centroids before every invocation.
+ *
+ * @author Camilo Sarmiento
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmarks.xml")
+@State(Scope.Benchmark)
+public class IterationBenchmark {
+
+    @Param({"100000"})
+    public int corpusSize;
+
+    @Param({"100"})
+    public int numberOfClusters;
+
+    @Param({"8"})
+    public int wordsPerKeyword;
+
+    @Param({"50000"})
+    public int vocabulary;
+
+    private Keyword[]                           keywords;
+    private Map<KmeansCluster<Keyword>, Boolean> keywordClusters;
+    private Baloto[]                            balotos;
+    private Map<KmeansCluster<Baloto>, Boolean>  balotoClusters;
+
+    private KmeansEngine<Keyword> keywordEngine;
+    private KmeansEngine<Baloto>  balotoEngine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keywords = SyntheticData.keywords(corpusSize, vocabulary, wordsPerKeyword, 4L);
+        balotos = SyntheticData.balotos(corpusSize, 4L);
+
+        ConvergencePolicy oneIteration = new ConvergencePolicy(-1, 0D, 0D, 1);
+        keywordEngine = new KmeansEngine<>();
+        keywordEngine.setConvergencePolicy(oneIteration);
+        balotoEngine = new KmeansEngine<>();
+        balotoEngine.setConvergencePolicy(oneIteration);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetClusters() {
+        keywordClusters = SyntheticData.clusters(keywords, numberOfClusters);
+        balotoClusters = SyntheticData.clusters(balotos, numberOfClusters);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        keywordEngine.close();
+        balotoEngine.close();
+    }
+
+    @Benchmark
+    public Map<KmeansCluster<Keyword>, Boolean> keywordIteration() {
+        return keywordEngine.cluster(keywords, keywordClusters);
+    }
+
+    @Benchmark
+    public Map<KmeansCluster<Baloto>, Boolean> balotoIteration() {
+        return balotoEngine.cluster(balotos, balotoClusters);
+    }
+}
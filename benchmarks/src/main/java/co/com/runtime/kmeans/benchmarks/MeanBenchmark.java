@@ -0,0 +1,79 @@
+package co.com.runtime.kmeans.benchmarks;
+
+import co.com.runtime.kmeans.datatypes.Baloto;
+import co.com.runtime.kmeans.datatypes.Keyword;
+import co.com.runtime.kmeans.interfaces.CentroidAccumulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of computing the centroid of a cluster, with <tt>mean(T[])</tt> and
+ * with the running sum accumulators used by the engine
+ *
+ * @author Camilo Sarmiento
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmarks.xml")
+@State(Scope.Benchmark)
+public class MeanBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int clusterSize;
+
+    @Param({"8"})
+    public int wordsPerKeyword;
+
+    @Param({"50000"})
+    public int vocabulary;
+
+    private Keyword[] keywords;
+    private Baloto[]  balotos;
+
+    @Setup
+    public void setUp() {
+        keywords = SyntheticData.keywords(clusterSize, vocabulary, wordsPerKeyword, 2L);
+        balotos = SyntheticData.balotos(clusterSize, 2L);
+    }
+
+    @Benchmark
+    public Keyword keywordMean() {
+        return keywords[0].mean(keywords);
+    }
+
+    @Benchmark
+    public Keyword keywordAccumulator() {
+        CentroidAccumulator<Keyword> sum = keywords[0].newAccumulator();
+        for (Keyword keyword : keywords) {
+            sum.add(keyword);
+        }
+        return sum.mean();
+    }
+
+    @Benchmark
+    public Baloto balotoMean() {
+        return balotos[0].mean(balotos);
+    }
+
+    @Benchmark
+    public Baloto balotoAccumulator() {
+        CentroidAccumulator<Baloto> sum = balotos[0].newAccumulator();
+        for (Baloto baloto : balotos) {
+            sum.add(baloto);
+        }
+        return sum.mean();
+    }
+}
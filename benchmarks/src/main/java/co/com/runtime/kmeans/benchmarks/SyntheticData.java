@@ -0,0 +1,101 @@
+package co.com.runtime.kmeans.benchmarks;
+
+import co.com.runtime.kmeans.KmeansCluster;
+import co.com.runtime.kmeans.datatypes.Baloto;
+import co.com.runtime.kmeans.datatypes.Keyword;
+import co.com.runtime.kmeans.interfaces.KmeansClusterItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reproducible synthetic corpora for the benchmarks
+ *
+ * @author Camilo Sarmiento
+ */
+final class SyntheticData {
+    private static final int BALOTO_NUMBERS = 45;
+    private static final int BALOTO_SIZE    = 6;
+
+    private SyntheticData() {
+    }
+
+    /**
+     * Creates keywords whose words follow a skewed distribution over the
+     * vocabulary, a few words are found in most of the keywords as in the
+     * real corpus
+     *
+     * @param size            Number of keywords
+     * @param vocabulary      Number of distinct words
+     * @param wordsPerKeyword Number of words of each keyword
+     * @param seed            Seed of the generator
+     * @return The keywords
+     */
+    static Keyword[] keywords(int size, int vocabulary, int wordsPerKeyword, long seed) {
+        Random random = new Random(seed);
+        Keyword[] keywords = new Keyword[size];
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            phrase.setLength(0);
+            for (int w = 0; w < wordsPerKeyword; w++) {
+                double u = random.nextDouble();
+                phrase.append("w").append((int) (vocabulary * u * u * u)).append(' ');
+            }
+            keywords[i] = new Keyword(phrase.toString());
+        }
+        return keywords;
+    }
+
+    /**
+     * Creates Baloto draws of six distinct numbers between 1 and 45
+     *
+     * @param size Number of draws
+     * @param seed Seed of the generator
+     * @return The draws
+     */
+    static Baloto[] balotos(int size, long seed) {
+        Random random = new Random(seed);
+        Baloto[] balotos = new Baloto[size];
+        StringBuilder draw = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            boolean[] drawn = new boolean[BALOTO_NUMBERS + 1];
+            draw.setLength(0);
+            for (int n = 0; n < BALOTO_SIZE; n++) {
+                int number;
+                do {
+                    number = 1 + random.nextInt(BALOTO_NUMBERS);
+                } while (drawn[number]);
+                drawn[number] = true;
+                draw.append(number).append(' ');
+            }
+            balotos[i] = new Baloto(draw.toString());
+        }
+        return balotos;
+    }
+
+    /**
+     * Creates clusters whose centroids are items spread over the data set
+     *
+     * @param items            The data set
+     * @param numberOfClusters Number of clusters (K)
+     * @return The clusters
+     */
+    static <T extends KmeansClusterItem<T>> Map<KmeansCluster<T>, Boolean> clusters(T[] items,
+                                                                                    int numberOfClusters) {
+        Map<KmeansCluster<T>, Boolean> clusters = new ConcurrentHashMap<>();
+        for (int j = 0; j < numberOfClusters; j++) {
+            clusters.put(new KmeansCluster<>(items[(int) ((long) j * items.length / numberOfClusters)]), true);
+        }
+        return clusters;
+    }
+
+    /**
+     * @return The clusters in a list, the order used by the assignment
+     */
+    static <T extends KmeansClusterItem<T>> List<KmeansCluster<T>> list(Map<KmeansCluster<T>, Boolean> clusters) {
+        return new ArrayList<>(clusters.keySet());
+    }
+}
@@ -0,0 +1,116 @@
+package co.com.runtime.kmeans;
+
+import co.com.runtime.kmeans.interfaces.ClusteringListener;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Base class of the K-means engines, manages the life cycle of the
+ * <tt>ForkJoinPool</tt> where the clustering tasks are executed.
+ * <p/>
+ * An engine either owns its pool (created from a parallelism level) or
+ * borrows one supplied by the caller; only an owned pool is shut down by
+ * {@link #close()}.
+ * <p/>
+ * The progress of every run is reported to the registered
+ * <tt>ClusteringListener</tt>s.
+ *
+ * @author Camilo Sarmiento
+ */
+public abstract class AbstractKmeansEngine implements AutoCloseable {
+
+    /**
+     * Number of leaf tasks created per worker thread, gives the pool room to
+     * balance uneven ranges by work stealing
+     */
+    private static final int TASKS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    private final boolean      ownsPool;
+
+    private final List<ClusteringListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates an engine with its own pool
+     *
+     * @param parallelism Number of worker threads
+     */
+    protected AbstractKmeansEngine(int parallelism) {
+        this(new ForkJoinPool(parallelism), true);
+    }
+
+    /**
+     * Creates an engine that runs on a pool managed by the caller
+     *
+     * @param pool The pool used to execute the clustering tasks
+     */
+    protected AbstractKmeansEngine(ForkJoinPool pool) {
+        this(pool, false);
+    }
+
+    private AbstractKmeansEngine(ForkJoinPool pool, boolean ownsPool) {
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
+
+    /**
+     * @param size Number of items to be processed
+     * @return Maximum number of items processed by a leaf task
+     */
+    protected int granularity(int size) {
+        return Math.max(1, size / (pool.getParallelism() * TASKS_PER_THREAD));
+    }
+
+    /**
+     * @return the pool
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Registers a listener of the progress of the runs
+     *
+     * @param listener The listener
+     */
+    public void addListener(ClusteringListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener A registered listener
+     */
+    public void removeListener(ClusteringListener listener) {
+        listeners.remove(listener);
+    }
+
+    protected void fireClusteringStarted(int size, int numberOfClusters) {
+        for (ClusteringListener listener : listeners) {
+            listener.clusteringStarted(size, numberOfClusters);
+        }
+    }
+
+    protected void fireIterationCompleted(IterationStats stats) {
+        for (ClusteringListener listener : listeners) {
+            listener.iterationCompleted(stats);
+        }
+    }
+
+    protected void fireClusteringEnded(int iterations, double inertia) {
+        for (ClusteringListener listener : listeners) {
+            listener.clusteringEnded(iterations, inertia);
+        }
+    }
+
+    /**
+     * Shuts down the pool if it was created by this engine
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package co.com.runtime.kmeans;
+
+/**
+ * Strategies to assign the items to their nearest cluster
+ *
+ * @author Camilo Sarmiento
+ */
+public enum AssignmentMode {
+    /**
+     * Computes the distance from every item to every centroid
+     */
+    LLOYD,
+    /**
+     * Keeps an upper bound of the distance to the assigned centroid and a
+     * single lower bound of the distance to the other centroids. Needs two
+     * numbers per item.
+     */
+    HAMERLY,
+    /**
+     * Keeps an upper bound of the distance to the assigned centroid and a
+     * lower bound of the distance to every centroid. Needs K + 1 numbers per
+     * item and prunes more distances than <tt>HAMERLY</tt>.
+     */
+    ELKAN;
+
+    /**
+     * Selects the bounded mode that prunes most distance computations within
+     * a memory budget
+     *
+     * @param size             Number of items
+     * @param numberOfClusters Number of clusters (K)
+     * @param bytes            Memory available for the distance bounds
+     * @return <tt>ELKAN</tt> if its bounds fit in the budget,
+     * <tt>HAMERLY</tt> otherwise
+     */
+    public static AssignmentMode forMemoryBudget(int size, int numberOfClusters, long bytes) {
+        long elkanBytes = (long) size * (numberOfClusters + 1) * 8L;
+        return (elkanBytes <= bytes) ? ELKAN : HAMERLY;
+    }
+}
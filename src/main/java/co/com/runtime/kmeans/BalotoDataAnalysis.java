@@ -1,15 +1,24 @@
 package co.com.runtime.kmeans;
 
 import co.com.runtime.kmeans.datatypes.Baloto;
+import co.com.runtime.kmeans.dense.DenseBlockSource;
+import co.com.runtime.kmeans.dense.DenseCentroids;
+import co.com.runtime.kmeans.dense.DenseDataset;
+import co.com.runtime.kmeans.dense.DenseKmeansEngine;
+import co.com.runtime.kmeans.dense.LabelFile;
+import co.com.runtime.kmeans.io.DatasetFile;
+import co.com.runtime.kmeans.io.DenseTextSource;
+import co.com.runtime.kmeans.io.MappedLineLoader;
+import co.com.runtime.kmeans.io.ParallelShuffle;
+import co.com.runtime.kmeans.seeding.KmeansParallelSeeding;
+import co.com.runtime.kmeans.seeding.PointMetrics;
+import co.com.runtime.kmeans.seeding.SeedingStrategies;
+import co.com.runtime.kmeans.seeding.SeedingStrategy;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
@@ -17,10 +26,13 @@ import java.util.concurrent.ForkJoinPool;
 
 public class BalotoDataAnalysis {
 
-    private final static int MAX_THREADS = Runtime.getRuntime().availableProcessors();
-
     private static Logger logger = LogManager.getLogger();
 
+    /**
+     * Rows read at once by the out-of-core clustering
+     */
+    private static final int OUT_OF_CORE_BLOCK_ROWS = 1 << 16;
+
     /**
      * Pseudo-random number generator
      */
@@ -32,176 +44,163 @@ public class BalotoDataAnalysis {
     }
 
     /**
-     * Load Baloto results from a file and stores in an array
+     * Load Baloto results from a file, parsing it in parallel, and stores in an
+     * array
      *
      * @param f Input file containing all the Baloto results
      * @return An array of Baloto results
      * @throws IOException
      */
     public static Baloto[] loadBalotoResults(File f) throws IOException {
-        List<Baloto> resultList = new ArrayList<>();
-        FileReader fr = new FileReader(f);
-        BufferedReader br = new BufferedReader(fr);
-
-        String line = br.readLine();
-        while (line != null) {
-            resultList.add(new Baloto(line));
-            line = br.readLine();
-        }
-        br.close();
-        fr.close();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        Baloto[] results = MappedLineLoader.load(f, Baloto::new, Baloto[]::new, pool);
 
-        Baloto[] results = resultList.toArray(new Baloto[resultList.size()]);
-
-        shuffle(results);
+        ParallelShuffle.shuffle(results, random.nextLong(), pool);
 
         return results;
     }
 
     /**
-     * Rearrange the elements of an array in random order.
+     * Load Baloto results from a file and stores them in a dense data set, one
+     * row per result. A file written by <tt>DatasetFile</tt> is reloaded
+     * without parsing, keeping the order of its rows.
      *
-     * @param a an array
+     * @param f Input file containing all the Baloto results, as text or as a
+     *          data set file
+     * @return A data set with the Baloto results in random order
+     * @throws IOException
      */
-    private static void shuffle(Object[] a) {
-        int N = a.length;
-        for (int i = 0; i < N; i++) {
-            int r = i + uniform(N - i); // between i and N-1
-            Object temp = a[i];
-            a[i] = a[r];
-            a[r] = temp;
+    public static DenseDataset loadBalotoDataset(File f) throws IOException {
+        if (DatasetFile.isDatasetFile(f)) {
+            return DatasetFile.readDense(f, true);
         }
+        return DenseDataset.of(loadBalotoResults(f));
     }
 
     /**
-     * Returns an integer uniformly between 0 (inclusive) and n (exclusive).
+     * Clusters the Baloto results, seeding the centroids with k-means||
      *
-     * @param n max range value
-     * @return an integer uniformly between 0 (inclusive) and n (exclusive).
-     * @throws IllegalArgumentException if <tt>n <= 0</tt>
+     * @param input              Input file containing all the Baloto results
+     * @param desiredClusterSize Average number of results per cluster
+     * @return The clusters with the results assigned
+     * @throws IOException
      */
-    private static int uniform(int n) {
-        if (n <= 0)
-            throw new IllegalArgumentException("Parameter n must be positive");
-        return random.nextInt(n);
+    public static Map<KmeansCluster<Baloto>, Boolean> doClustering
+            (File input, int desiredClusterSize) throws IOException {
+        return doClustering(input, desiredClusterSize, new KmeansParallelSeeding());
     }
 
+    /**
+     * Clusters the Baloto results
+     *
+     * @param input              Input file containing all the Baloto results
+     * @param desiredClusterSize Average number of results per cluster
+     * @param seeding            Selection method of the initial centroids
+     * @return The clusters with the results assigned
+     * @throws IOException
+     */
     public static Map<KmeansCluster<Baloto>, Boolean> doClustering
-            (File input, int desiredClusterSize) throws IOException, InterruptedException {
-        // Dummy baloto for mean calculation
-        Baloto dummy = new Baloto();
-
+            (File input, int desiredClusterSize, SeedingStrategy seeding) throws IOException {
         // Load the results
         Baloto[] results = loadBalotoResults(input);
 
         // Number of clusters K
-        int numberOfClusters = results.length / desiredClusterSize;
+        int numberOfClusters = Math.max(1, results.length / desiredClusterSize);
 
         // Map to hold the clusters
         Map<KmeansCluster<Baloto>, Boolean> clusters = new ConcurrentHashMap<>();
 
-        // Centroid selection method
-        selectCentroids(dummy, results, numberOfClusters, clusters, 42.925);
-
-        ForkJoinPool pool = new ForkJoinPool(MAX_THREADS);
-
-        // Kmeans algorithm for clustering
-        // Create sub-tasks for parallel execution
-        executeTasks(pool, createTasks(results, clusters));
-        waitUntillTasksEnd(pool);
-        Double changedCentroidsPercentage = 100D;
-        while (changedCentroidsPercentage > 0) {
-            int changedCentroids = 0;
-            for (KmeansCluster<Baloto> cluster : clusters.keySet()) {
-                boolean centroidChanged = false;
-                if (cluster.getElements().size() > 0) {
-                    centroidChanged = cluster.clearCluster(dummy.mean(cluster
-                            .getElements()));
-                }
-                changedCentroids += (centroidChanged) ? 1 : 0;
+        try (KmeansEngine<Baloto> engine = new KmeansEngine<>()) {
+            // Centroid selection method
+            int[] positions = SeedingStrategies.selectCentroids(PointMetrics.of(results), numberOfClusters, seeding,
+                    engine.getPool());
+            for (int position : positions) {
+                clusters.put(new KmeansCluster<>(results[position]), true);
             }
-            changedCentroidsPercentage = 100 * (double) changedCentroids /
-                    (double) clusters.size();
-            logger.info("Changed centroids: " + changedCentroids + " from "
-                    + clusters.size() + " ("
-                    + String.format("%.3f", changedCentroidsPercentage) + "%)");
-            executeTasks(pool, createTasks(results, clusters));
-            waitUntillTasksEnd(pool);
+
+            // Kmeans algorithm for clustering
+            engine.cluster(results, clusters);
         }
 
         return clusters;
     }
 
-    private static void selectCentroids(Baloto dummy, Baloto[] results,
-                                        int numberOfClusters, Map<KmeansCluster<Baloto>, Boolean> clusters,
-                                        double minDistanceFromOthers) {
-        logger.info("Starting the selection of distant centroids");
-        long startTime = System.currentTimeMillis();
-
-        // From n objects calculate a point whose attribute values are average
-        // of n-objects attribute values.so first initial centroid is average on
-        // n-objects.
-        Baloto mean = dummy.mean(results);
-        clusters.put(new KmeansCluster<>(mean), true);
-        logger.info("Firs centroid (mean): " + mean);
-
-        // select next initial centroids from n-objects in such a way that the
-        // Euclidean distance of that object is maximum from other selected
-        // initial centroids.
-        int i = 0;
-        while (clusters.size() < numberOfClusters) {
-            // Average distance from current keyword to cluster centroids
-            Double avgDistance = 0D;
-            for (KmeansCluster<Baloto> cluster : clusters.keySet()) {
-                avgDistance += results[i].distance(cluster.getCentroid());
-            }
-            avgDistance = avgDistance / clusters.size();
-
-            // Here is used the following heuristic: In a six dimensions space
-            // limited by the range [0-45] the maximum Euclidean distance from
-            // the origin is 110,22703842 = Math.sqrt(45*45*6), so we are going
-            // to use points apart from other centroids by a minimum distance
-            // from others
-            if (avgDistance > minDistanceFromOthers) {
-                clusters.put(new KmeansCluster<>(results[i]), true);
-                logger.info("Centroid found! - distance: " + avgDistance
-                        + " - position: " + i + " - Baloto: " + results[i]);
-            }
-            i++;
-            if (i >= results.length) {
-                i = 0;
-            }
-        }
+    /**
+     * Clusters the Baloto results using the dense data set representation
+     *
+     * @param input              Input file containing all the Baloto results
+     * @param desiredClusterSize Average number of results per cluster
+     * @param maxIterations      Maximum number of iterations
+     * @return The centroids and the cluster of each result
+     * @throws IOException
+     */
+    public static ClusteringResult<DenseCentroids> doDenseClustering(File input, int desiredClusterSize,
+                                                                     int maxIterations) throws IOException {
+        DenseDataset dataset = loadBalotoDataset(input);
 
-        logger.info("Selection process of distant centroids ended. Time elapsed: "
-                + (System.currentTimeMillis() - startTime)
-                + ". Keywords analysed: " + i);
-    }
+        // Number of clusters K
+        int numberOfClusters = Math.max(1, dataset.size() / desiredClusterSize);
 
-    private static void waitUntillTasksEnd(ForkJoinPool pool) {
-        while (pool.getActiveThreadCount() > 0)
-            ;
+        try (DenseKmeansEngine engine = new DenseKmeansEngine()) {
+            int[] rows = SeedingStrategies.selectCentroids(PointMetrics.of(dataset), numberOfClusters,
+                    new KmeansParallelSeeding(), engine.getPool());
+            return engine.cluster(dataset, DenseCentroids.fromRows(dataset, rows), maxIterations);
+        }
     }
 
-    private static List<ClusteringTask<Baloto>> createTasks(Baloto[] results, Map<KmeansCluster<Baloto>, Boolean> clusters) {
-        int factor = results.length / MAX_THREADS;
+    /**
+     * Clusters the Baloto results on a weighted sample first, and refines the
+     * centroids with a few iterations over all the results
+     *
+     * @param input              Input file containing all the Baloto results
+     * @param desiredClusterSize Average number of results per cluster
+     * @param policy             Size of the sample and number of refinement
+     *                           iterations
+     * @return The centroids and the cluster of each result
+     * @throws IOException
+     */
+    public static ClusteringResult<DenseCentroids> doCoresetClustering(File input, int desiredClusterSize,
+                                                                       CoresetPolicy policy) throws IOException {
+        DenseDataset dataset = loadBalotoDataset(input);
 
-        List<ClusteringTask<Baloto>> tasks = new ArrayList<>();
-        int startIndex, endIndex = 0;
-        for (int i = 0; i < MAX_THREADS; i++) {
-            startIndex = i * factor;
-            endIndex = (i + 1) * factor;
-            tasks.add(new ClusteringTask<>(results, clusters, startIndex, endIndex));
-        }
-        if (endIndex < results.length) {
-            tasks.add(new ClusteringTask<>(results, clusters, endIndex, results.length));
+        // Number of clusters K
+        int numberOfClusters = Math.max(1, dataset.size() / desiredClusterSize);
+
+        try (DenseKmeansEngine engine = new DenseKmeansEngine()) {
+            return engine.cluster(dataset, numberOfClusters, new KmeansParallelSeeding(), policy);
         }
-        return tasks;
     }
 
-    private static void executeTasks(ForkJoinPool pool, List<ClusteringTask<Baloto>> tasks) {
-        for (ClusteringTask<Baloto> task : tasks) {
-            pool.execute(task);
+    /**
+     * Clusters the Baloto results without loading them in memory, reading the
+     * file in blocks on every iteration. The initial centroids are selected
+     * from the first block.
+     *
+     * @param input            Input file containing all the Baloto results, as
+     *                         text or as a data set file
+     * @param numberOfClusters Number of clusters K
+     * @param maxIterations    Maximum number of iterations
+     * @param labelFile        Receives the cluster of each result, in the
+     *                         order of the file, <tt>null</tt> to not keep it
+     * @return The centroids and the size of each cluster
+     * @throws IOException
+     */
+    public static ClusteringResult<DenseCentroids> doOutOfCoreClustering(File input, int numberOfClusters,
+                                                                         int maxIterations, File labelFile)
+            throws IOException {
+        try (DenseBlockSource source = DatasetFile.isDatasetFile(input) ? DatasetFile.openDense(input, false)
+                : new DenseTextSource(input, new Baloto().dimension(), Baloto::new);
+             LabelFile labels = (labelFile == null) ? null : new LabelFile(labelFile);
+             DenseKmeansEngine engine = new DenseKmeansEngine()) {
+            DenseDataset first = source.next(OUT_OF_CORE_BLOCK_ROWS);
+            if (first == null) {
+                throw new IOException("No results in " + input);
+            }
+            int[] rows = SeedingStrategies.selectCentroids(PointMetrics.of(first),
+                    Math.min(numberOfClusters, first.size()), new KmeansParallelSeeding(), engine.getPool());
+            ConvergencePolicy policy = new ConvergencePolicy((labels == null) ? -1 : 0, 1e-6, 0D, maxIterations);
+            return engine.cluster(source, DenseCentroids.fromRows(first, rows), policy, OUT_OF_CORE_BLOCK_ROWS,
+                    labels);
         }
     }
 
@@ -220,9 +219,8 @@ public class BalotoDataAnalysis {
                     logger.info(cluster);
                     logger.info(clusterSeparator);
                 }
-            } catch (IOException | InterruptedException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
+            } catch (IOException e) {
+                logger.error("Could not cluster " + input, e);
             }
         }
     }
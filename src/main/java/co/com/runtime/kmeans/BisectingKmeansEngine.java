@@ -0,0 +1,545 @@
+package co.com.runtime.kmeans;
+
+import co.com.runtime.kmeans.interfaces.CentroidAccumulator;
+import co.com.runtime.kmeans.interfaces.KmeansClusterItem;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bisecting K-means engine. Starts with a single cluster holding every item
+ * and repeatedly splits a cluster in two with 2-means, chosen by the split
+ * criterion, until there are K clusters. Every item is compared with two
+ * centroids per split iteration, so building K clusters costs about
+ * <tt>n log K</tt> distance computations per split iteration instead of the
+ * <tt>n K</tt> of every Lloyd iteration.
+ * <p/>
+ * The clusters to split are taken from the top of the criterion order, as
+ * many at once as worker threads, and split in parallel; the assignment
+ * passes of a large split run in parallel as well. The splits are recorded in
+ * a <tt>ClusterTree</tt>.
+ *
+ * @param <T> A generic object that implements the <tt>KmeansClusterItem</tt>
+ *            interface
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.ClusterTree
+ */
+public class BisectingKmeansEngine<T extends KmeansClusterItem<T>> extends AbstractKmeansEngine {
+    public static final int DEFAULT_SPLIT_ITERATIONS = 20;
+
+    private static Logger logger = LogManager.getLogger();
+
+    /**
+     * Fewest items assigned by a leaf task of a split
+     */
+    private static final int MIN_GRANULARITY = 256;
+
+    /**
+     * Items among which the second initial centroid of a split is drawn
+     */
+    private static final int SEED_SAMPLE = 1024;
+
+    private SplitCriterion splitCriterion  = SplitCriterion.HIGHEST_SSE;
+    private int            splitIterations = DEFAULT_SPLIT_ITERATIONS;
+    private long           seed            = System.nanoTime();
+
+    /**
+     * Applied to every new centroid, <tt>null</tt> to keep the means as they
+     * are
+     */
+    private UnaryOperator<T> centroidTransform;
+
+    /**
+     * Distance computations of the last run
+     */
+    private long distanceEvaluations;
+
+    /**
+     * Creates an engine with its own pool, one thread per available processor
+     */
+    public BisectingKmeansEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an engine with its own pool
+     *
+     * @param parallelism Number of worker threads
+     */
+    public BisectingKmeansEngine(int parallelism) {
+        super(parallelism);
+    }
+
+    /**
+     * Creates an engine that runs on a pool managed by the caller
+     *
+     * @param pool The pool used to execute the clustering tasks
+     */
+    public BisectingKmeansEngine(ForkJoinPool pool) {
+        super(pool);
+    }
+
+    /**
+     * Splits the items in clusters until there are <tt>numberOfClusters</tt>
+     * of them, or no cluster can be split because all its items are equal.
+     * Every batch of parallel splits is reported to the listeners as an
+     * iteration.
+     *
+     * @param dataSet          The items to be clustered
+     * @param numberOfClusters Number of clusters (K)
+     * @return The tree of the splits, its leaves are the clusters
+     */
+    public ClusterTree<T> cluster(T[] dataSet, int numberOfClusters) {
+        if (dataSet.length == 0) {
+            throw new IllegalArgumentException("No items to cluster");
+        }
+        // The items of every node are a range of the positions
+        int[] positions = new int[dataSet.length];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = i;
+        }
+        byte[] sides = new byte[dataSet.length];
+
+        Partial<T> all = getPool().invoke(new AssignTask<>(dataSet, positions, sides, dataSet[0], null, 0,
+                dataSet.length, Math.max(MIN_GRANULARITY, granularity(dataSet.length))));
+        fireClusteringStarted(dataSet.length, numberOfClusters);
+        ClusterTree.Node<T> root = new ClusterTree.Node<>(newCentroid(all.sums[0]), 0, dataSet.length);
+        distanceEvaluations = 0;
+        if (splitCriterion == SplitCriterion.HIGHEST_SSE) {
+            distanceEvaluations += dataSet.length;
+            root.sse = getPool().invoke(sseTask(dataSet, positions, root));
+        }
+
+        // Largest size or SSE first
+        Comparator<ClusterTree.Node<T>> order = (splitCriterion == SplitCriterion.LARGEST)
+                ? (a, b) -> Integer.compare(b.size(), a.size())
+                : (a, b) -> Double.compare(b.getSse(), a.getSse());
+        PriorityQueue<ClusterTree.Node<T>> candidates = new PriorityQueue<>(order);
+        if (root.size() > 1) {
+            candidates.add(root);
+        }
+
+        int leaves = 1;
+        int batches = 0;
+        while (leaves < numberOfClusters && !candidates.isEmpty()) {
+            List<SplitTask> splits = new ArrayList<>();
+            while (splits.size() < getPool().getParallelism() && splits.size() < numberOfClusters - leaves
+                    && !candidates.isEmpty()) {
+                splits.add(new SplitTask(dataSet, positions, sides, candidates.poll()));
+            }
+            long started = System.nanoTime();
+            getPool().invoke(new SplitBatch(splits));
+            long batchNanos = System.nanoTime() - started;
+            long evaluations = 0;
+            long splitItems = 0;
+            long taskNanos = 0;
+            long maxTaskNanos = 0;
+            for (SplitTask split : splits) {
+                evaluations += split.evaluations;
+                taskNanos += split.nanos;
+                maxTaskNanos = Math.max(maxTaskNanos, split.nanos);
+                ClusterTree.Node<T> node = split.node;
+                if (node.isLeaf()) {
+                    // All the items are equal, the node stays a leaf
+                    continue;
+                }
+                splitItems += node.size();
+                leaves++;
+                if (node.left.size() > 1) {
+                    candidates.add(node.left);
+                }
+                if (node.right.size() > 1) {
+                    candidates.add(node.right);
+                }
+            }
+            distanceEvaluations += evaluations;
+            batches++;
+            // A batch has no global inertia nor centroid shift, and every item
+            // of a split node is reassigned to one of the children
+            fireIterationCompleted(new IterationStats(batches, 0, batchNanos, splitItems, Double.NaN, Double.NaN,
+                    evaluations, 0, taskNanos, maxTaskNanos, splits.size()));
+            logger.info("Clusters: " + leaves + " of " + numberOfClusters);
+        }
+
+        List<ClusterTree.Node<T>> leafList = new ArrayList<>();
+        collectLeaves(root, leafList);
+        int[] assignment = new int[dataSet.length];
+        for (int c = 0; c < leafList.size(); c++) {
+            ClusterTree.Node<T> leaf = leafList.get(c);
+            leaf.cluster = c;
+            for (int i = leaf.start; i < leaf.end; i++) {
+                assignment[positions[i]] = c;
+            }
+        }
+        logger.info("Distance evaluations: " + distanceEvaluations);
+        fireClusteringEnded(batches, Double.NaN);
+        return new ClusterTree<>(root, leafList, new ClusterMembership<>(dataSet, assignment, leafList.size()));
+    }
+
+    private static <T> void collectLeaves(ClusterTree.Node<T> node, List<ClusterTree.Node<T>> leaves) {
+        if (node.isLeaf()) {
+            leaves.add(node);
+        } else {
+            collectLeaves(node.left, leaves);
+            collectLeaves(node.right, leaves);
+        }
+    }
+
+    private T newCentroid(CentroidAccumulator<T> sum) {
+        T mean = sum.mean();
+        return (centroidTransform == null) ? mean : centroidTransform.apply(mean);
+    }
+
+    /**
+     * @return A task that sums the squared distances from the items of a node
+     * to its centroid
+     */
+    private SseTask<T> sseTask(T[] dataSet, int[] positions, ClusterTree.Node<T> node) {
+        return new SseTask<>(dataSet, positions, node.centroid, node.start, node.end,
+                Math.max(MIN_GRANULARITY, granularity(node.size())));
+    }
+
+    /**
+     * Splits a node with 2-means. The first initial centroid is a random item
+     * of the node, the second one is drawn among a sample of its items with
+     * probability proportional to the squared distance to the first one.
+     */
+    private class SplitTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final T[]                 dataSet;
+        private final int[]               positions;
+        private final byte[]              sides;
+        private final ClusterTree.Node<T> node;
+        private long                      evaluations;
+        private long                      nanos;
+
+        SplitTask(T[] dataSet, int[] positions, byte[] sides, ClusterTree.Node<T> node) {
+            this.dataSet = dataSet;
+            this.positions = positions;
+            this.sides = sides;
+            this.node = node;
+        }
+
+        @Override
+        protected void compute() {
+            long started = System.nanoTime();
+            try {
+                split();
+            } finally {
+                nanos = System.nanoTime() - started;
+            }
+        }
+
+        private void split() {
+            int start = node.start;
+            int end = node.end;
+            int size = end - start;
+            SplittableRandom random = new SplittableRandom(seed ^ (31L * start + end));
+            T first = dataSet[positions[start + random.nextInt(size)]];
+            T second = drawSecond(first, random);
+            if (second == null) {
+                return;
+            }
+
+            int granularity = Math.max(MIN_GRANULARITY, granularity(size));
+            for (int j = start; j < end; j++) {
+                sides[j] = -1;
+            }
+            Partial<T> partial = null;
+            for (int iteration = 0; iteration < splitIterations; iteration++) {
+                partial = new AssignTask<>(dataSet, positions, sides, first, second, start, end, granularity)
+                        .invoke();
+                evaluations += 2L * size;
+                if (partial.sums[0].count() == 0 || partial.sums[1].count() == 0) {
+                    return;
+                }
+                first = newCentroid(partial.sums[0]);
+                second = newCentroid(partial.sums[1]);
+                if (partial.changed == 0) {
+                    break;
+                }
+            }
+
+            // Items of the first child before the ones of the second child
+            int i = start;
+            int j = end - 1;
+            while (i <= j) {
+                if (sides[i] == 0) {
+                    i++;
+                } else {
+                    int position = positions[i];
+                    positions[i] = positions[j];
+                    positions[j] = position;
+                    byte side = sides[i];
+                    sides[i] = sides[j];
+                    sides[j] = side;
+                    j--;
+                }
+            }
+            ClusterTree.Node<T> left = new ClusterTree.Node<>(first, start, i);
+            ClusterTree.Node<T> right = new ClusterTree.Node<>(second, i, end);
+            if (splitCriterion == SplitCriterion.HIGHEST_SSE) {
+                SseTask<T> leftSse = sseTask(dataSet, positions, left);
+                leftSse.fork();
+                right.sse = sseTask(dataSet, positions, right).invoke();
+                left.sse = leftSse.join();
+                evaluations += size;
+            }
+            node.left = left;
+            node.right = right;
+        }
+
+        /**
+         * @return The second initial centroid, <tt>null</tt> if every item of
+         * the node is at distance zero from the first one
+         */
+        private T drawSecond(T first, SplittableRandom random) {
+            int size = node.size();
+            int samples = Math.min(size, SEED_SAMPLE);
+            int[] sample = new int[samples];
+            double[] weights = new double[samples];
+            double total = 0;
+            for (int s = 0; s < samples; s++) {
+                sample[s] = positions[node.start + ((samples == size) ? s : random.nextInt(size))];
+                double distance = first.distance(dataSet[sample[s]]);
+                weights[s] = distance * distance;
+                total += weights[s];
+            }
+            evaluations += samples;
+            if (total <= 0) {
+                return (samples == size) ? null : firstDistinct(first);
+            }
+            double target = random.nextDouble() * total;
+            for (int s = 0; s < samples; s++) {
+                target -= weights[s];
+                if (target < 0 && weights[s] > 0) {
+                    return dataSet[sample[s]];
+                }
+            }
+            for (int s = samples - 1; ; s--) {
+                if (weights[s] > 0) {
+                    return dataSet[sample[s]];
+                }
+            }
+        }
+
+        /**
+         * Scans the whole node when its sample only has duplicates of the
+         * first centroid, so a few distinct items are not lost
+         * @return The first item at non-zero distance from the centroid,
+         * <tt>null</tt> if there is none
+         */
+        private T firstDistinct(T first) {
+            for (int j = node.start; j < node.end; j++) {
+                evaluations++;
+                if (first.distance(dataSet[positions[j]]) > 0) {
+                    return dataSet[positions[j]];
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Runs a group of splits in parallel
+     */
+    private class SplitBatch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<SplitTask> splits;
+
+        SplitBatch(List<SplitTask> splits) {
+            this.splits = splits;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(splits);
+        }
+    }
+
+    /**
+     * Sums of the items sent to each side of a split, and the number of items
+     * whose side changed
+     */
+    private static class Partial<T extends KmeansClusterItem<T>> {
+        final CentroidAccumulator<T>[] sums;
+        long                           changed;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Partial(T prototype) {
+            sums = new CentroidAccumulator[]{prototype.newAccumulator(), prototype.newAccumulator()};
+        }
+
+        Partial<T> merge(Partial<T> other) {
+            sums[0].merge(other.sums[0]);
+            sums[1].merge(other.sums[1]);
+            changed += other.changed;
+            return this;
+        }
+    }
+
+    /**
+     * Sends every item of a range of positions to the side of the nearest of
+     * two centroids. Without a second centroid every item is sent to the
+     * first side, which sums the range.
+     */
+    private static class AssignTask<T extends KmeansClusterItem<T>> extends RecursiveTask<Partial<T>> {
+        private static final long serialVersionUID = 1L;
+
+        private final T[]    dataSet;
+        private final int[]  positions;
+        private final byte[] sides;
+        private final T      first;
+        private final T      second;
+        private final int    startIndex;
+        private final int    endIndex;
+        private final int    granularity;
+
+        AssignTask(T[] dataSet, int[] positions, byte[] sides, T first, T second, int startIndex, int endIndex,
+                   int granularity) {
+            this.dataSet = dataSet;
+            this.positions = positions;
+            this.sides = sides;
+            this.first = first;
+            this.second = second;
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
+            this.granularity = granularity;
+        }
+
+        @Override
+        protected Partial<T> compute() {
+            if (endIndex - startIndex > granularity) {
+                int middle = (startIndex + endIndex) >>> 1;
+                AssignTask<T> left = new AssignTask<>(dataSet, positions, sides, first, second, startIndex, middle,
+                        granularity);
+                left.fork();
+                Partial<T> right = new AssignTask<>(dataSet, positions, sides, first, second, middle, endIndex,
+                        granularity).compute();
+                return left.join().merge(right);
+            }
+            Partial<T> partial = new Partial<>(first);
+            for (int i = startIndex; i < endIndex; i++) {
+                T item = dataSet[positions[i]];
+                byte side = 0;
+                if (second != null && item.comparisonDistance(second) < item.comparisonDistance(first)) {
+                    side = 1;
+                }
+                if (sides[i] != side) {
+                    sides[i] = side;
+                    partial.changed++;
+                }
+                partial.sums[side].add(item);
+            }
+            return partial;
+        }
+    }
+
+    /**
+     * Sums the squared distances from a range of positions to a centroid
+     */
+    private static class SseTask<T extends KmeansClusterItem<T>> extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final T[]   dataSet;
+        private final int[] positions;
+        private final T     centroid;
+        private final int   startIndex;
+        private final int   endIndex;
+        private final int   granularity;
+
+        SseTask(T[] dataSet, int[] positions, T centroid, int startIndex, int endIndex, int granularity) {
+            this.dataSet = dataSet;
+            this.positions = positions;
+            this.centroid = centroid;
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
+            this.granularity = granularity;
+        }
+
+        @Override
+        protected Double compute() {
+            if (endIndex - startIndex > granularity) {
+                int middle = (startIndex + endIndex) >>> 1;
+                SseTask<T> left = new SseTask<>(dataSet, positions, centroid, startIndex, middle, granularity);
+                left.fork();
+                double right = new SseTask<>(dataSet, positions, centroid, middle, endIndex, granularity).compute();
+                return left.join() + right;
+            }
+            double sse = 0;
+            for (int i = startIndex; i < endIndex; i++) {
+                double distance = centroid.distance(dataSet[positions[i]]);
+                sse += distance * distance;
+            }
+            return sse;
+        }
+    }
+
+    /**
+     * @return the criterion that selects the next cluster split
+     */
+    public SplitCriterion getSplitCriterion() {
+        return splitCriterion;
+    }
+
+    public void setSplitCriterion(SplitCriterion splitCriterion) {
+        this.splitCriterion = splitCriterion;
+    }
+
+    /**
+     * @return the maximum number of 2-means iterations of every split
+     */
+    public int getSplitIterations() {
+        return splitIterations;
+    }
+
+    public void setSplitIterations(int splitIterations) {
+        this.splitIterations = splitIterations;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sets the seed of the initial centroids of every split. The same seed
+     * and parallelism give the same tree.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public UnaryOperator<T> getCentroidTransform() {
+        return centroidTransform;
+    }
+
+    /**
+     * Sets a transformation applied to every new centroid, e.g. to truncate
+     * sparse centroids
+     *
+     * @param centroidTransform the transformation, <tt>null</tt> for none
+     */
+    public void setCentroidTransform(UnaryOperator<T> centroidTransform) {
+        this.centroidTransform = centroidTransform;
+    }
+
+    /**
+     * @return the distance computations of the last run
+     */
+    public long getDistanceEvaluations() {
+        return distanceEvaluations;
+    }
+}
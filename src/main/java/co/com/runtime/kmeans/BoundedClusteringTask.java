@@ -0,0 +1,219 @@
+package co.com.runtime.kmeans;
+
+import co.com.runtime.kmeans.interfaces.KmeansClusterItem;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Represents a parallel task for the K-means algorithm that assigns a range
+ * of items to the nearest cluster, skipping the distances that the
+ * <tt>DistanceBounds</tt> prove unnecessary (Elkan and Hamerly algorithms).
+ * Like <tt>ClusteringTask</tt>, each item is added to the centroid
+ * accumulator of its cluster in the buffer of the worker thread. The bounds
+ * do not give the exact distance to the centroid, so the inertia costs one
+ * more distance per item and is only computed on demand. That distance is
+ * not part of the assignment, so it is counted neither as evaluated nor as
+ * pruned.
+ *
+ * @param <T> A generic object that implements the <tt>KmeansClusterItem</tt>
+ *            interface
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.DistanceBounds
+ */
+public class BoundedClusteringTask<T extends KmeansClusterItem<T>> extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private T[]                                   completeDataSet;
+    private DistanceBounds<T>                     bounds;
+    private WorkerBuffers<ClusterAccumulators<T>> buffers;
+    private boolean                               inertia;
+    private int                                   startIndex;
+    private int                                   endIndex;
+    private int                                   granularity;
+
+    /**
+     * @param completeDataSet The whole data set
+     * @param bounds          The distance bounds, prepared for the current
+     *                        centroids
+     * @param buffers         Centroid accumulators of each worker thread
+     * @param inertia         Whether to compute the inertia
+     * @param startIndex      First item assigned by this task (inclusive)
+     * @param endIndex        Last item assigned by this task (exclusive)
+     * @param granularity     Maximum number of items assigned without
+     *                        splitting the task in two halves
+     */
+    public BoundedClusteringTask(T[] completeDataSet, DistanceBounds<T> bounds,
+                                 WorkerBuffers<ClusterAccumulators<T>> buffers, boolean inertia, int startIndex,
+                                 int endIndex, int granularity) {
+        this.completeDataSet = completeDataSet;
+        this.bounds = bounds;
+        this.buffers = buffers;
+        this.inertia = inertia;
+        this.startIndex = startIndex;
+        this.endIndex = endIndex;
+        this.granularity = Math.max(1, granularity);
+    }
+
+    @Override
+    protected void compute() {
+        if (endIndex - startIndex > granularity) {
+            int middle = (startIndex + endIndex) >>> 1;
+            invokeAll(new BoundedClusteringTask<>(completeDataSet, bounds, buffers, inertia, startIndex, middle,
+                            granularity),
+                    new BoundedClusteringTask<>(completeDataSet, bounds, buffers, inertia, middle, endIndex,
+                            granularity));
+            return;
+        }
+
+        long started = System.nanoTime();
+        ClusterAccumulators<T> accumulators = buffers.get();
+        long evaluated = 0;
+        long pruned = 0;
+        long reassigned = 0;
+        double sum = 0;
+        int k = bounds.numberOfClusters();
+        int[] labels = bounds.labels();
+        for (int i = startIndex; i < endIndex; i++) {
+            int previous = labels[i];
+            int distances;
+            if (previous < 0) {
+                distances = initialize(i);
+            } else if (bounds.getMode() == AssignmentMode.ELKAN) {
+                distances = elkan(i);
+            } else {
+                distances = hamerly(i);
+            }
+            evaluated += distances;
+            // Pruned distances are counted against a Lloyd assignment, the
+            // Hamerly fallback may compute one more than it
+            pruned += Math.max(0, k - distances);
+            if (labels[i] != previous) {
+                reassigned++;
+            }
+            accumulators.add(labels[i], completeDataSet[i]);
+            if (inertia) {
+                sum += completeDataSet[i].comparisonDistance(bounds.centroid(labels[i]));
+            }
+        }
+        accumulators.addReassigned(reassigned);
+        accumulators.addInertia(sum);
+        bounds.record(evaluated, pruned);
+        accumulators.addTaskNanos(System.nanoTime() - started);
+    }
+
+    /**
+     * Computes the distance to every centroid and sets exact bounds
+     *
+     * @return Number of distances computed
+     */
+    private int initialize(int i) {
+        int k = bounds.numberOfClusters();
+        T item = completeDataSet[i];
+        double[] lower = bounds.lower();
+        int nearest = 0;
+        double first = Double.POSITIVE_INFINITY;
+        double second = Double.POSITIVE_INFINITY;
+        for (int j = 0; j < k; j++) {
+            double distance = item.distance(bounds.centroid(j));
+            if (bounds.getMode() == AssignmentMode.ELKAN) {
+                lower[i * k + j] = distance;
+            }
+            if (distance < first) {
+                second = first;
+                first = distance;
+                nearest = j;
+            } else if (distance < second) {
+                second = distance;
+            }
+        }
+        bounds.labels()[i] = nearest;
+        bounds.upper()[i] = first;
+        if (bounds.getMode() == AssignmentMode.HAMERLY) {
+            lower[i] = second;
+        }
+        return k;
+    }
+
+    /**
+     * Elkan's assignment of an item, with one lower bound per centroid
+     *
+     * @return Number of distances computed
+     */
+    private int elkan(int i) {
+        int k = bounds.numberOfClusters();
+        int[] labels = bounds.labels();
+        double[] upper = bounds.upper();
+        double[] lower = bounds.lower();
+        double[] drift = bounds.drift();
+        T item = completeDataSet[i];
+
+        // Move the bounds with the centroids
+        int label = labels[i];
+        double u = upper[i] + drift[label];
+        int base = i * k;
+        for (int j = 0; j < k; j++) {
+            lower[base + j] = Math.max(0, lower[base + j] - drift[j]);
+        }
+
+        int evaluated = 0;
+        if (u > bounds.halfSeparation(label)) {
+            boolean tight = false;
+            for (int j = 0; j < k; j++) {
+                if (j == label || u <= lower[base + j] || u <= bounds.centroidDistance(label, j) / 2) {
+                    continue;
+                }
+                if (!tight) {
+                    u = item.distance(bounds.centroid(label));
+                    lower[base + label] = u;
+                    tight = true;
+                    evaluated++;
+                    if (u <= lower[base + j] || u <= bounds.centroidDistance(label, j) / 2) {
+                        continue;
+                    }
+                }
+                double distance = item.distance(bounds.centroid(j));
+                lower[base + j] = distance;
+                evaluated++;
+                if (distance < u) {
+                    label = j;
+                    u = distance;
+                }
+            }
+        }
+        labels[i] = label;
+        upper[i] = u;
+        return evaluated;
+    }
+
+    /**
+     * Hamerly's assignment of an item, with a single lower bound for all the
+     * centroids but the assigned one
+     *
+     * @return Number of distances computed
+     */
+    private int hamerly(int i) {
+        int[] labels = bounds.labels();
+        double[] upper = bounds.upper();
+        double[] lower = bounds.lower();
+        double[] drift = bounds.drift();
+
+        // Move the bounds with the centroids
+        int label = labels[i];
+        double u = upper[i] + drift[label];
+        double l = lower[i] - bounds.maxDriftExcept(label);
+
+        double bound = Math.max(bounds.halfSeparation(label), l);
+        if (u <= bound) {
+            upper[i] = u;
+            lower[i] = l;
+            return 0;
+        }
+        u = completeDataSet[i].distance(bounds.centroid(label));
+        if (u <= bound) {
+            upper[i] = u;
+            lower[i] = l;
+            return 1;
+        }
+        return 1 + initialize(i);
+    }
+}
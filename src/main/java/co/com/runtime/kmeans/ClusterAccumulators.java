@@ -0,0 +1,139 @@
+package co.com.runtime.kmeans;
+
+import co.com.runtime.kmeans.interfaces.CentroidAccumulator;
+import co.com.runtime.kmeans.interfaces.KmeansClusterItem;
+
+/**
+ * Partial results of an assignment pass: one centroid accumulator per
+ * cluster, the number of items whose cluster changed, the inertia and the
+ * time of the tasks
+ *
+ * @param <T> The type of the items
+ * @author Camilo Sarmiento
+ */
+public class ClusterAccumulators<T extends KmeansClusterItem<T>> {
+    private final CentroidAccumulator<T>[] accumulators;
+    private long                           reassigned;
+    private double                         inertia;
+    private long                           taskNanos;
+    private long                           maxWorkerNanos;
+    private int                            workers;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ClusterAccumulators(int numberOfClusters) {
+        this.accumulators = new CentroidAccumulator[numberOfClusters];
+    }
+
+    /**
+     * Adds an item to the accumulator of a cluster
+     *
+     * @param cluster Index of the cluster
+     * @param item    The item
+     */
+    public void add(int cluster, T item) {
+        CentroidAccumulator<T> accumulator = accumulators[cluster];
+        if (accumulator == null) {
+            accumulator = accumulators[cluster] = item.newAccumulator();
+        }
+        accumulator.add(item);
+    }
+
+    /**
+     * Counts the items whose cluster changed
+     *
+     * @param count Number of items
+     */
+    public void addReassigned(long count) {
+        reassigned += count;
+    }
+
+    /**
+     * Adds the comparison distances from some items to their centroids
+     *
+     * @param distance Sum of the distances
+     */
+    public void addInertia(double distance) {
+        inertia += distance;
+    }
+
+    /**
+     * Adds the time of a task. Must be called on the buffer of the worker
+     * thread that ran the task.
+     *
+     * @param nanos Time of the task
+     */
+    public void addTaskNanos(long nanos) {
+        taskNanos += nanos;
+        maxWorkerNanos = taskNanos;
+        workers = 1;
+    }
+
+    /**
+     * Adds the partial results of another pass to these ones
+     *
+     * @param other The other partial results
+     * @return This object
+     */
+    public ClusterAccumulators<T> merge(ClusterAccumulators<T> other) {
+        for (int j = 0; j < accumulators.length; j++) {
+            if (other.accumulators[j] != null) {
+                if (accumulators[j] == null) {
+                    accumulators[j] = other.accumulators[j];
+                } else {
+                    accumulators[j].merge(other.accumulators[j]);
+                }
+            }
+        }
+        reassigned += other.reassigned;
+        inertia += other.inertia;
+        taskNanos += other.taskNanos;
+        maxWorkerNanos = Math.max(maxWorkerNanos, other.maxWorkerNanos);
+        workers += other.workers;
+        return this;
+    }
+
+    /**
+     * @param cluster Index of the cluster
+     * @return The accumulator of the cluster, <tt>null</tt> if no item was
+     * assigned to it
+     */
+    public CentroidAccumulator<T> get(int cluster) {
+        return accumulators[cluster];
+    }
+
+    /**
+     * @return the number of items whose cluster changed
+     */
+    public long getReassigned() {
+        return reassigned;
+    }
+
+    /**
+     * @return the sum of the comparison distances from every item to its
+     * centroid
+     */
+    public double getInertia() {
+        return inertia;
+    }
+
+    /**
+     * @return the time of all the tasks
+     */
+    public long getTaskNanos() {
+        return taskNanos;
+    }
+
+    /**
+     * @return the time of the tasks of the busiest worker thread
+     */
+    public long getMaxWorkerNanos() {
+        return maxWorkerNanos;
+    }
+
+    /**
+     * @return the number of worker threads that ran tasks
+     */
+    public int getWorkers() {
+        return workers;
+    }
+}
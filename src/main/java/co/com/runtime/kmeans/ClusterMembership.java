@@ -0,0 +1,137 @@
+package co.com.runtime.kmeans;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Membership of every item of a data set, kept as the index of the cluster
+ * assigned to each item position. Items that are <tt>equals</tt> keep their
+ * own positions, so duplicates are never merged.
+ * <p/>
+ * The members of each cluster are exposed as list views. The positions of
+ * the members, grouped by cluster, are only sorted out the first time a view
+ * is used.
+ *
+ * @param <T> The type of the items
+ * @author Camilo Sarmiento
+ */
+public class ClusterMembership<T> {
+    private final T[]   dataSet;
+    private final int[] assignment;
+    private final int   numberOfClusters;
+
+    /**
+     * Positions of the members of each cluster, grouped by cluster, and the
+     * start of each group. Created on demand.
+     */
+    private volatile int[] members;
+    private volatile int[] offsets;
+
+    /**
+     * @param dataSet          The items
+     * @param assignment       Index of the cluster assigned to each item
+     * @param numberOfClusters Number of clusters
+     */
+    public ClusterMembership(T[] dataSet, int[] assignment, int numberOfClusters) {
+        if (dataSet.length != assignment.length) {
+            throw new IllegalArgumentException("Assignment of " + assignment.length + " items for " + dataSet.length
+                    + " items");
+        }
+        this.dataSet = dataSet;
+        this.assignment = assignment;
+        this.numberOfClusters = numberOfClusters;
+    }
+
+    /**
+     * @return Index of the cluster assigned to each item
+     */
+    public int[] getAssignment() {
+        return assignment;
+    }
+
+    /**
+     * @return The number of clusters
+     */
+    public int numberOfClusters() {
+        return numberOfClusters;
+    }
+
+    /**
+     * @param cluster Index of the cluster
+     * @return The number of members of the cluster
+     */
+    public int size(int cluster) {
+        index();
+        return offsets[cluster + 1] - offsets[cluster];
+    }
+
+    /**
+     * @param cluster Index of the cluster
+     * @return A read only view of the members of the cluster
+     */
+    public List<T> members(int cluster) {
+        index();
+        return new Members(cluster);
+    }
+
+    /**
+     * Groups the positions of the items by cluster (counting sort)
+     */
+    private void index() {
+        if (members != null) {
+            return;
+        }
+        synchronized (this) {
+            if (members != null) {
+                return;
+            }
+            int[] starts = new int[numberOfClusters + 1];
+            for (int label : assignment) {
+                starts[label + 1]++;
+            }
+            for (int c = 0; c < numberOfClusters; c++) {
+                starts[c + 1] += starts[c];
+            }
+            int[] positions = new int[assignment.length];
+            int[] next = new int[numberOfClusters];
+            System.arraycopy(starts, 0, next, 0, numberOfClusters);
+            for (int i = 0; i < assignment.length; i++) {
+                positions[next[assignment[i]]++] = i;
+            }
+            offsets = starts;
+            members = positions;
+        }
+    }
+
+    /**
+     * @return An empty list of members, for clusters without assignment
+     */
+    static <T> List<T> none() {
+        return Collections.emptyList();
+    }
+
+    private class Members extends AbstractList<T> implements RandomAccess {
+        private final int start;
+        private final int size;
+
+        Members(int cluster) {
+            this.start = offsets[cluster];
+            this.size = offsets[cluster + 1] - start;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return dataSet[members[start + index]];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package co.com.runtime.kmeans;
+
+import co.com.runtime.kmeans.interfaces.KmeansClusterItem;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binary tree of clusters built by the bisecting K-means. Every internal node
+ * was split in its two children, the leaves are the final clusters, numbered
+ * from left to right.
+ * <p/>
+ * Besides the membership of the clustered items, the tree finds a cluster
+ * for a new item by descending from the root to the nearest child at every
+ * level, which takes about <tt>2 log K</tt> distance computations instead of
+ * <tt>K</tt>. The leaf found is not always the one with the nearest
+ * centroid.
+ *
+ * @param <T> The type of the items
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.BisectingKmeansEngine
+ */
+public class ClusterTree<T extends KmeansClusterItem<T>> {
+    private final Node<T>              root;
+    private final List<Node<T>>        leaves;
+    private final ClusterMembership<T> membership;
+
+    ClusterTree(Node<T> root, List<Node<T>> leaves, ClusterMembership<T> membership) {
+        this.root = root;
+        this.leaves = Collections.unmodifiableList(leaves);
+        this.membership = membership;
+    }
+
+    /**
+     * @return the root, the cluster of all the items
+     */
+    public Node<T> getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the final clusters, in the order of their indexes
+     */
+    public List<Node<T>> getLeaves() {
+        return leaves;
+    }
+
+    /**
+     * @return the number of final clusters
+     */
+    public int numberOfClusters() {
+        return leaves.size();
+    }
+
+    /**
+     * @return the final cluster of every clustered item
+     */
+    public ClusterMembership<T> getMembership() {
+        return membership;
+    }
+
+    /**
+     * Finds a cluster for an item by descending the tree
+     *
+     * @param item The item
+     * @return Index of the leaf reached
+     */
+    public int nearestCluster(T item) {
+        Node<T> node = root;
+        while (!node.isLeaf()) {
+            double left = item.comparisonDistance(node.left.centroid);
+            double right = item.comparisonDistance(node.right.centroid);
+            node = (left <= right) ? node.left : node.right;
+        }
+        return node.cluster;
+    }
+
+    /**
+     * Creates a flat cluster per leaf, linked with the membership of the
+     * clustered items
+     *
+     * @return The clusters
+     */
+    public Map<KmeansCluster<T>, Boolean> toClusters() {
+        Map<KmeansCluster<T>, Boolean> clusters = new ConcurrentHashMap<>();
+        for (Node<T> leaf : leaves) {
+            KmeansCluster<T> cluster = new KmeansCluster<>(leaf.centroid);
+            cluster.setMembership(membership, leaf.cluster);
+            clusters.put(cluster, true);
+        }
+        return clusters;
+    }
+
+    /**
+     * A cluster of the tree. The items of a node are found in a range of the
+     * positions sorted out by the splits.
+     *
+     * @param <T> The type of the items
+     */
+    public static class Node<T> {
+        final T   centroid;
+        final int start;
+        final int end;
+        double    sse     = Double.NaN;
+        Node<T>   left;
+        Node<T>   right;
+        int       cluster = -1;
+
+        Node(T centroid, int start, int end) {
+            this.centroid = centroid;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * @return the mean of the items of the cluster
+         */
+        public T getCentroid() {
+            return centroid;
+        }
+
+        /**
+         * @return the number of items of the cluster
+         */
+        public int size() {
+            return end - start;
+        }
+
+        /**
+         * @return the sum of squared distances from the items to the
+         * centroid, <tt>NaN</tt> if not measured
+         */
+        public double getSse() {
+            return sse;
+        }
+
+        public Node<T> getLeft() {
+            return left;
+        }
+
+        public Node<T> getRight() {
+            return right;
+        }
+
+        public boolean isLeaf() {
+            return left == null;
+        }
+
+        /**
+         * @return Index of the final cluster, -1 if the node was split
+         */
+        public int getCluster() {
+            return cluster;
+        }
+    }
+}
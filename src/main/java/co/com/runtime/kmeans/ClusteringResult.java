@@ -0,0 +1,83 @@
+package co.com.runtime.kmeans;
+
+/**
+ * Result of clustering a data set whose membership is kept as the index of
+ * the cluster assigned to each row
+ *
+ * @param <C> The type of the centroids matrix
+ * @author Camilo Sarmiento
+ */
+public class ClusteringResult<C> {
+    private final C     centroids;
+    private final int   numberOfClusters;
+    private final int[] assignment;
+    private final int[] sizes;
+    private final int   iterations;
+
+    public ClusteringResult(C centroids, int numberOfClusters, int[] assignment, int iterations) {
+        this.centroids = centroids;
+        this.numberOfClusters = numberOfClusters;
+        this.assignment = assignment;
+        this.sizes = null;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Creates the result of a clustering whose assignment is not kept in
+     * memory
+     *
+     * @param centroids  The final centroids
+     * @param sizes      The number of rows assigned to each cluster
+     * @param iterations The number of iterations performed
+     */
+    public ClusteringResult(C centroids, int[] sizes, int iterations) {
+        this.centroids = centroids;
+        this.numberOfClusters = sizes.length;
+        this.assignment = null;
+        this.sizes = sizes;
+        this.iterations = iterations;
+    }
+
+    /**
+     * @return the final centroids
+     */
+    public C getCentroids() {
+        return centroids;
+    }
+
+    /**
+     * @return the number of clusters (K)
+     */
+    public int getNumberOfClusters() {
+        return numberOfClusters;
+    }
+
+    /**
+     * @return the cluster assigned to each row of the data set, <tt>null</tt>
+     * if the assignment is not kept in memory
+     */
+    public int[] getAssignment() {
+        return assignment;
+    }
+
+    /**
+     * @return the number of iterations performed
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the number of rows assigned to each cluster
+     */
+    public int[] clusterSizes() {
+        if (this.sizes != null) {
+            return this.sizes.clone();
+        }
+        int[] sizes = new int[numberOfClusters];
+        for (int label : assignment) {
+            sizes[label]++;
+        }
+        return sizes;
+    }
+}
@@ -1,15 +1,16 @@
 package co.com.runtime.kmeans;
 
 import co.com.runtime.kmeans.interfaces.KmeansClusterItem;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
-import java.util.Map;
+import java.util.List;
 import java.util.concurrent.RecursiveAction;
 
 /**
  * Represents a parallel task for the K-means algorithm for clustering, by
  * assigning a subset of items of the whole data set, to the nearest cluster.
+ * Each item is also added to the centroid accumulator of its cluster, in the
+ * buffer of the worker thread running the task, so the new centroids are
+ * known as soon as the assignment ends.
  *
  * @param <T> A generic object that implements the <tt>KmeansClusterItem</tt>
  *            interface
@@ -19,45 +20,78 @@ import java.util.concurrent.RecursiveAction;
 public class ClusteringTask<T extends KmeansClusterItem<T>> extends RecursiveAction {
     private static final long serialVersionUID = 1L;
 
-    private static Logger logger = LogManager.getLogger();
+    private T[]                                   completeDataSet;
+    private List<KmeansCluster<T>>                clusters;
+    private int[]                                 assignment;
+    private WorkerBuffers<ClusterAccumulators<T>> buffers;
+    private int                                   startIndex;
+    private int                                   endIndex;
+    private int                                   granularity;
 
-    private T[]                            completeDataSet;
-    private Map<KmeansCluster<T>, Boolean> clusters;
-    private int                            startIndex;
-    private int                            endIndex;
-
-    public ClusteringTask(T[] completeDataSet, Map<KmeansCluster<T>, Boolean> clusters, int startIndex, int endIndex) {
+    /**
+     * @param completeDataSet The whole data set
+     * @param clusters        The clusters
+     * @param assignment      Index of the cluster assigned to each item,
+     *                        updated by the task
+     * @param buffers         Centroid accumulators of each worker thread
+     * @param startIndex      First item assigned by this task (inclusive)
+     * @param endIndex        Last item assigned by this task (exclusive)
+     * @param granularity     Maximum number of items assigned without splitting
+     *                        the task in two halves
+     */
+    public ClusteringTask(T[] completeDataSet, List<KmeansCluster<T>> clusters, int[] assignment,
+                          WorkerBuffers<ClusterAccumulators<T>> buffers, int startIndex, int endIndex,
+                          int granularity) {
         this.completeDataSet = completeDataSet;
         this.clusters = clusters;
+        this.assignment = assignment;
+        this.buffers = buffers;
         this.startIndex = startIndex;
         this.endIndex = endIndex;
+        this.granularity = Math.max(1, granularity);
     }
 
     @Override
     protected void compute() {
-        logger.info("Task started [" + startIndex + " ," + endIndex + "]");
+        if (endIndex - startIndex > granularity) {
+            int middle = (startIndex + endIndex) >>> 1;
+            invokeAll(new ClusteringTask<>(completeDataSet, clusters, assignment, buffers, startIndex, middle,
+                            granularity),
+                    new ClusteringTask<>(completeDataSet, clusters, assignment, buffers, middle, endIndex,
+                            granularity));
+            return;
+        }
 
-        // Assign each object to the cluster with the minimum distance.
+        long started = System.nanoTime();
+
+        ClusterAccumulators<T> accumulators = buffers.get();
+        int k = clusters.size();
+        long reassigned = 0;
+        double inertia = 0;
+        // Assign each object to the cluster with the minimum distance. The
+        // comparison distance preserves the order of the distances.
         for (int i = startIndex; i < endIndex; i++) {
-            Double minDistance = null;
-            KmeansCluster<T> nearestCluster = null;
-            for (KmeansCluster<T> cluster : clusters.keySet()) {
-                double distance = completeDataSet[i].distance(cluster.getCentroid());
-                if (minDistance == null) {
+            double minDistance = Double.POSITIVE_INFINITY;
+            int nearest = -1;
+            for (int j = 0; j < k; j++) {
+                double distance = completeDataSet[i].comparisonDistance(clusters.get(j).getCentroid());
+                if (nearest < 0 || minDistance > distance) {
                     minDistance = distance;
-                    nearestCluster = cluster;
-                } else {
-                    if (minDistance > distance) {
-                        minDistance = distance;
-                        nearestCluster = cluster;
-                    }
+                    nearest = j;
                 }
             }
-            if (nearestCluster != null) {
-                nearestCluster.add(completeDataSet[i]);
+            if (nearest >= 0) {
+                if (assignment[i] != nearest) {
+                    assignment[i] = nearest;
+                    reassigned++;
+                }
+                accumulators.add(nearest, completeDataSet[i]);
+                inertia += minDistance;
             }
         }
-        logger.info("Task ended [" + startIndex + " ," + endIndex + "]");
+        accumulators.addReassigned(reassigned);
+        accumulators.addInertia(inertia);
+        accumulators.addTaskNanos(System.nanoTime() - started);
     }
 
 }
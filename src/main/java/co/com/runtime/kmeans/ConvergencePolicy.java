@@ -0,0 +1,115 @@
+package co.com.runtime.kmeans;
+
+/**
+ * Decides when the K-means iterations stop. The algorithm converges as soon
+ * as any of the enabled criteria holds:
+ * <ul>
+ * <li>No more than <tt>maxReassigned</tt> items changed of cluster in the last
+ * assignment (negative disables)</li>
+ * <li>The inertia improved by less than <tt>relativeInertiaTolerance</tt>
+ * times the previous inertia (zero disables)</li>
+ * <li>No centroid moved more than <tt>centroidShiftTolerance</tt> in the last
+ * update (zero disables)</li>
+ * <li><tt>maxIterations</tt> centroid updates have been made</li>
+ * </ul>
+ * The inertia is the sum of the comparison distances from every item to its
+ * centroid, the sum of squared errors for Euclidean data. Every value is a
+ * by-product of the assignment and update steps.
+ *
+ * @author Camilo Sarmiento
+ */
+public class ConvergencePolicy {
+    public static final int DEFAULT_MAX_ITERATIONS = 300;
+
+    private long   maxReassigned            = 0;
+    private double relativeInertiaTolerance = 0D;
+    private double centroidShiftTolerance   = 0D;
+    private int    maxIterations            = DEFAULT_MAX_ITERATIONS;
+
+    /**
+     * Creates a policy that stops when no item changes of cluster, or after
+     * <tt>DEFAULT_MAX_ITERATIONS</tt> iterations
+     */
+    public ConvergencePolicy() {
+    }
+
+    /**
+     * @param maxReassigned            Maximum number of reassigned items
+     * @param relativeInertiaTolerance Minimum relative inertia improvement
+     * @param centroidShiftTolerance   Maximum centroid shift
+     * @param maxIterations            Maximum number of iterations
+     */
+    public ConvergencePolicy(long maxReassigned, double relativeInertiaTolerance, double centroidShiftTolerance,
+                             int maxIterations) {
+        this.maxReassigned = maxReassigned;
+        this.relativeInertiaTolerance = relativeInertiaTolerance;
+        this.centroidShiftTolerance = centroidShiftTolerance;
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * @param iterations       Centroid updates made so far
+     * @param reassigned       Items that changed of cluster in the last
+     *                         assignment
+     * @param previousInertia  Inertia of the previous assignment, <tt>NaN</tt>
+     *                         if there was none
+     * @param inertia          Inertia of the last assignment
+     * @param maxCentroidShift Largest distance moved by a centroid in the last
+     *                         update, <tt>POSITIVE_INFINITY</tt> if there was
+     *                         none
+     * @return <tt>true</tt> if the iterations must stop
+     */
+    public boolean hasConverged(int iterations, long reassigned, double previousInertia, double inertia,
+                                double maxCentroidShift) {
+        if (iterations >= maxIterations) {
+            return true;
+        }
+        if (maxReassigned >= 0 && reassigned <= maxReassigned) {
+            return true;
+        }
+        if (usesInertia() && !Double.isNaN(previousInertia)
+                && previousInertia - inertia < relativeInertiaTolerance * Math.abs(previousInertia)) {
+            return true;
+        }
+        return centroidShiftTolerance > 0 && maxCentroidShift <= centroidShiftTolerance;
+    }
+
+    /**
+     * @return <tt>true</tt> if the inertia must be computed
+     */
+    public boolean usesInertia() {
+        return relativeInertiaTolerance > 0;
+    }
+
+    public long getMaxReassigned() {
+        return maxReassigned;
+    }
+
+    public void setMaxReassigned(long maxReassigned) {
+        this.maxReassigned = maxReassigned;
+    }
+
+    public double getRelativeInertiaTolerance() {
+        return relativeInertiaTolerance;
+    }
+
+    public void setRelativeInertiaTolerance(double relativeInertiaTolerance) {
+        this.relativeInertiaTolerance = relativeInertiaTolerance;
+    }
+
+    public double getCentroidShiftTolerance() {
+        return centroidShiftTolerance;
+    }
+
+    public void setCentroidShiftTolerance(double centroidShiftTolerance) {
+        this.centroidShiftTolerance = centroidShiftTolerance;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+}
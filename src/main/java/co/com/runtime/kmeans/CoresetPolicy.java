@@ -0,0 +1,116 @@
+package co.com.runtime.kmeans;
+
+/**
+ * Settings of the coreset K-means. A weighted sample of <tt>size</tt> items
+ * is drawn from the data set, clustered until <tt>coresetConvergence</tt>
+ * stops, and the centroids found are refined with
+ * <tt>refinementIterations</tt> iterations over the whole data set.
+ * <p/>
+ * When no size is set, it is derived from the error of the lightweight
+ * coreset bound: with probability at least <tt>1 - delta</tt>, the cost of
+ * any set of K centroids over the coreset is within <tt>epsilon</tt> times
+ * the cost over the data set, plus <tt>epsilon</tt> times the cost of the
+ * mean, once the coreset has <tt>(d K log K + log(1 / delta)) /
+ * epsilon^2</tt> items, up to the constant of the bound.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.dense.Coreset
+ */
+public class CoresetPolicy {
+    public static final double DEFAULT_EPSILON               = 0.1;
+    public static final double DEFAULT_DELTA                 = 0.01;
+    public static final int    DEFAULT_REFINEMENT_ITERATIONS = 3;
+
+    private int               size                 = 0;
+    private double            epsilon              = DEFAULT_EPSILON;
+    private double            delta                = DEFAULT_DELTA;
+    private int               refinementIterations = DEFAULT_REFINEMENT_ITERATIONS;
+    private ConvergencePolicy coresetConvergence   = new ConvergencePolicy();
+    private long              seed                 = System.nanoTime();
+
+    /**
+     * Creates a policy with the coreset size given by the default error, and
+     * the default refinement iterations
+     */
+    public CoresetPolicy() {
+    }
+
+    /**
+     * @param size                 Number of items of the coreset, zero to
+     *                             derive it from the error
+     * @param refinementIterations Iterations over the whole data set once the
+     *                             coreset is clustered
+     * @param seed                 Seed of the sampling
+     */
+    public CoresetPolicy(int size, int refinementIterations, long seed) {
+        if (size < 0) {
+            throw new IllegalArgumentException("The coreset size cannot be negative");
+        }
+        this.size = size;
+        this.refinementIterations = refinementIterations;
+        this.seed = seed;
+    }
+
+    /**
+     * @param items            Number of items of the data set
+     * @param numberOfClusters Number of clusters (K)
+     * @param dimension        Number of components of each item
+     * @return Number of items of the coreset, never more than the data set
+     */
+    public int coresetSize(int items, int numberOfClusters, int dimension) {
+        if (size > 0) {
+            return Math.min(items, size);
+        }
+        double logK = Math.log(Math.max(2, numberOfClusters));
+        double bound = ((double) dimension * numberOfClusters * logK + Math.log(1 / delta)) / (epsilon * epsilon);
+        return (int) Math.min(items, Math.ceil(bound));
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    public void setEpsilon(double epsilon) {
+        this.epsilon = epsilon;
+    }
+
+    public double getDelta() {
+        return delta;
+    }
+
+    public void setDelta(double delta) {
+        this.delta = delta;
+    }
+
+    public int getRefinementIterations() {
+        return refinementIterations;
+    }
+
+    public void setRefinementIterations(int refinementIterations) {
+        this.refinementIterations = refinementIterations;
+    }
+
+    public ConvergencePolicy getCoresetConvergence() {
+        return coresetConvergence;
+    }
+
+    public void setCoresetConvergence(ConvergencePolicy coresetConvergence) {
+        this.coresetConvergence = coresetConvergence;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
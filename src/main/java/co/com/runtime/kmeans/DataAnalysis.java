@@ -1,6 +1,17 @@
 package co.com.runtime.kmeans;
 
 import co.com.runtime.kmeans.datatypes.Keyword;
+import co.com.runtime.kmeans.datatypes.Vocabulary;
+import co.com.runtime.kmeans.io.DatasetFile;
+import co.com.runtime.kmeans.io.MappedLineLoader;
+import co.com.runtime.kmeans.io.ParallelShuffle;
+import co.com.runtime.kmeans.seeding.KmeansParallelSeeding;
+import co.com.runtime.kmeans.seeding.PointMetrics;
+import co.com.runtime.kmeans.seeding.SeedingStrategies;
+import co.com.runtime.kmeans.seeding.SeedingStrategy;
+import co.com.runtime.kmeans.sparse.CentroidTruncation;
+import co.com.runtime.kmeans.sparse.SparseDataset;
+import co.com.runtime.kmeans.sparse.SparseKmeansEngine;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -14,9 +25,6 @@ import java.util.concurrent.ForkJoinPool;
 
 public class DataAnalysis {
 
-    private final static int MAX_THREADS = Runtime.getRuntime()
-            .availableProcessors();
-
     private static Logger logger = LogManager.getLogger();
 
     /**
@@ -24,26 +32,15 @@ public class DataAnalysis {
      */
     private static Random random;
 
-    /**
-     * Words that can distort the semantic matching between keywords
-     */
-    private final static String[] cleanningSet = {"@", "#", "-", "*", "&",
-            "%", ".", "0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "_",
-            "0f", "a", "in", "of", "for", "and", "the", "to", "at", "on", "or",
-            "by"};
-    private final static Set<String> removableStrings;
-
     static {
         //Pseudo-random number generator seed
         long seed = System.currentTimeMillis();
         random = new Random(seed);
-
-        removableStrings = new TreeSet<>();
-        removableStrings.addAll(Arrays.asList(cleanningSet));
     }
 
     /**
-     * Method that creates a dictionary of the unique words in a keywords file
+     * Method that creates a dictionary of the unique words in a keywords file,
+     * numbered by a vocabulary of the file
      *
      * @param f Input file containing all the keywords
      * @return A Map representing the unique words in a keywords file associated
@@ -51,24 +48,29 @@ public class DataAnalysis {
      * @throws IOException
      */
     public static Map<String, Integer> createPositionDictionary(File f) throws IOException {
+        return createPositionDictionary(f, new Vocabulary());
+    }
+
+    /**
+     * Method that creates a dictionary of the unique words in a keywords file,
+     * using the ids of a vocabulary as positions
+     *
+     * @param f          Input file containing all the keywords
+     * @param vocabulary The vocabulary where the words are interned
+     * @return A Map representing the unique words in a keywords file associated
+     * with their id in the vocabulary
+     * @throws IOException
+     */
+    public static Map<String, Integer> createPositionDictionary(File f, Vocabulary vocabulary)
+            throws IOException {
         Map<String, Integer> dictionary = new HashMap<>();
-        Integer position = 0;
 
         FileReader fr = new FileReader(f);
         BufferedReader br = new BufferedReader(fr);
 
         String line = br.readLine();
         while (line != null) {
-            StringTokenizer st = new StringTokenizer(line);
-            while (st.hasMoreTokens()) {
-                String word = st.nextToken().toLowerCase();
-                if (!removableStrings.contains(word)) {
-                    Integer temp = dictionary.get(word);
-                    if (temp == null) {
-                        dictionary.put(word, position++);
-                    }
-                }
-            }
+            vocabulary.tokenize(line, id -> dictionary.put(vocabulary.term(id), id));
             line = br.readLine();
         }
         br.close();
@@ -86,195 +88,248 @@ public class DataAnalysis {
      */
     public static Map<String, Integer> createOccurrencesDictionary(File f)
             throws IOException {
-        Map<String, Integer> dictionary = new HashMap<>();
+        return createOccurrencesDictionary(f, new Vocabulary());
+    }
+
+    /**
+     * Method that creates a histogram of the words in a keywords file, counting
+     * the occurrences by vocabulary id
+     *
+     * @param f          Input file containing all the keywords
+     * @param vocabulary The vocabulary where the words are interned
+     * @return A Map representing the histogram of the words in a keywords file
+     * @throws IOException
+     */
+    public static Map<String, Integer> createOccurrencesDictionary(File f, Vocabulary vocabulary)
+            throws IOException {
+        int[][] counters = {new int[Math.max(16, vocabulary.size())]};
 
         FileReader fr = new FileReader(f);
         BufferedReader br = new BufferedReader(fr);
 
         String line = br.readLine();
         while (line != null) {
-            StringTokenizer st = new StringTokenizer(line);
-            while (st.hasMoreTokens()) {
-                String word = st.nextToken().toLowerCase();
-                if (!removableStrings.contains(word)) {
-                    Integer counter = dictionary.get(word);
-                    if (counter != null) {
-                        dictionary.put(word, counter + 1);
-                    } else {
-                        dictionary.put(word, 1);
-                    }
+            vocabulary.tokenize(line, id -> {
+                if (id >= counters[0].length) {
+                    counters[0] = Arrays.copyOf(counters[0], Math.max(id + 1, 2 * counters[0].length));
                 }
-            }
+                counters[0][id]++;
+            });
             line = br.readLine();
         }
         br.close();
         fr.close();
+
+        Map<String, Integer> dictionary = new HashMap<>();
+        for (int id = 0; id < counters[0].length; id++) {
+            if (counters[0][id] > 0) {
+                dictionary.put(vocabulary.term(id), counters[0][id]);
+            }
+        }
         return dictionary;
     }
 
     /**
-     * Load keywords from a file and stores in an array
+     * Load keywords from a file, parsing it in parallel, and stores in an array.
+     * The keywords share a vocabulary of the file.
      *
      * @param f Input file containing all the keywords
      * @return An array of Keyword objects
      * @throws IOException
      */
     public static Keyword[] loadKeywords(File f) throws IOException {
-        List<Keyword> kwList = new ArrayList<>();
-        FileReader fr = new FileReader(f);
-        BufferedReader br = new BufferedReader(fr);
-
-        String line = br.readLine();
-        while (line != null) {
-            kwList.add(new Keyword(line));
-            line = br.readLine();
-        }
-        br.close();
-        fr.close();
+        return loadKeywords(f, new Vocabulary());
+    }
 
-        Keyword[] keywords = kwList.toArray(new Keyword[kwList.size()]);
+    /**
+     * Load keywords from a file, parsing it in parallel, and stores in an array
+     *
+     * @param f          Input file containing all the keywords
+     * @param vocabulary The vocabulary where the words are interned
+     * @return An array of Keyword objects
+     * @throws IOException
+     */
+    public static Keyword[] loadKeywords(File f, Vocabulary vocabulary) throws IOException {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        Keyword[] keywords = MappedLineLoader.load(f, line -> new Keyword(line, vocabulary), Keyword[]::new, pool);
 
-        shuffle(keywords);
+        ParallelShuffle.shuffle(keywords, random.nextLong(), pool);
 
         return keywords;
     }
 
     /**
-     * Rearrange the elements of an array in random order.
+     * Load keywords from a file and stores them in a sparse matrix, one row
+     * per keyword, using the ids of a vocabulary of the file as term ids
      *
-     * @param a an array
+     * @param f Input file containing all the keywords
+     * @return The keywords in random order as a sparse matrix
+     * @throws IOException
      */
-    private static void shuffle(Object[] a) {
-        int N = a.length;
-        for (int i = 0; i < N; i++) {
-            int r = i + uniform(N - i); // between i and N-1
-            Object temp = a[i];
-            a[i] = a[r];
-            a[r] = temp;
-        }
+    public static SparseDataset loadKeywordDataset(File f) throws IOException {
+        return loadKeywordDataset(f, new Vocabulary());
     }
 
     /**
-     * Returns an integer uniformly between 0 (inclusive) and N (exclusive).
+     * Load keywords from a file and stores them in a sparse matrix, one row
+     * per keyword. A file written by <tt>DatasetFile</tt> is reloaded without
+     * parsing, keeping the order of its rows.
      *
-     * @param N max range value
-     * @return an integer uniformly between 0 (inclusive) and N (exclusive).
-     * @throws IllegalArgumentException if <tt>N <= 0</tt>
+     * @param f          Input file containing all the keywords, as text or as
+     *                   a data set file
+     * @param vocabulary Receives the words, its ids are the term ids of the
+     *                   matrix
+     * @return The keywords in random order as a sparse matrix
+     * @throws IOException
      */
-    private static int uniform(int N) {
-        if (N <= 0)
-            throw new IllegalArgumentException("Parameter N must be positive");
-        return random.nextInt(N);
+    public static SparseDataset loadKeywordDataset(File f, Vocabulary vocabulary) throws IOException {
+        if (DatasetFile.isDatasetFile(f)) {
+            return DatasetFile.readSparse(f, vocabulary, true);
+        }
+        return SparseDataset.of(loadKeywords(f, vocabulary));
     }
 
+    /**
+     * Clusters the keywords, seeding the centroids with k-means||
+     *
+     * @param input              Input file containing all the keywords
+     * @param desiredClusterSize Average number of keywords per cluster
+     * @return The clusters with the keywords assigned
+     * @throws IOException
+     */
     public static Map<KmeansCluster<Keyword>, Boolean> doClustering(File input,
-                                                                    int desiredClusterSize) throws IOException, InterruptedException {
-        // Dummy keyword for mean calculation
-        Keyword dummy = new Keyword();
+                                                                    int desiredClusterSize) throws IOException {
+        return doClustering(input, desiredClusterSize, new KmeansParallelSeeding());
+    }
+
+    /**
+     * Clusters the keywords
+     *
+     * @param input              Input file containing all the keywords
+     * @param desiredClusterSize Average number of keywords per cluster
+     * @param seeding            Selection method of the initial centroids
+     * @return The clusters with the keywords assigned
+     * @throws IOException
+     */
+    public static Map<KmeansCluster<Keyword>, Boolean> doClustering(File input, int desiredClusterSize,
+                                                                    SeedingStrategy seeding) throws IOException {
+        return doClustering(input, desiredClusterSize, seeding, null);
+    }
 
+    /**
+     * Clusters the keywords, bounding the number of words of the centroids
+     *
+     * @param input              Input file containing all the keywords
+     * @param desiredClusterSize Average number of keywords per cluster
+     * @param seeding            Selection method of the initial centroids
+     * @param truncation         Selects the words kept by the centroids,
+     *                           <tt>null</tt> to keep them all
+     * @return The clusters with the keywords assigned
+     * @throws IOException
+     */
+    public static Map<KmeansCluster<Keyword>, Boolean> doClustering(File input, int desiredClusterSize,
+                                                                    SeedingStrategy seeding,
+                                                                    CentroidTruncation truncation)
+            throws IOException {
         // Load the keywords
         Keyword[] keywords = loadKeywords(input);
 
         // Number of clusters K
-        int numberOfClusters = keywords.length / desiredClusterSize;
+        int numberOfClusters = Math.max(1, keywords.length / desiredClusterSize);
 
         // List to hold the clusters
         Map<KmeansCluster<Keyword>, Boolean> clusters = new ConcurrentHashMap<>();
 
-        // TODO use a better centroid selection method
-        selectCentroids(keywords, numberOfClusters, clusters, 89.9D);
-
-        ForkJoinPool pool = new ForkJoinPool(MAX_THREADS);
-
-        // Kmeans algorithm for clustering
-        // Create sub-tasks for parallel execution
-        executeTasks(pool, createTasks(keywords, clusters));
-        waitUntillTasksEnd(pool);
-        Double changedCentroidsPercentage = 100D;
-        while (changedCentroidsPercentage > 2) {
-            int changedCentroids = 0;
-            for (KmeansCluster<Keyword> cluster : clusters.keySet()) {
-                boolean centroidChanged = cluster.clearCluster(dummy
-                        .mean(cluster.getElements()));
-                changedCentroids += (centroidChanged) ? 1 : 0;
+        try (KmeansEngine<Keyword> engine = new KmeansEngine<>()) {
+            int[] positions = SeedingStrategies.selectCentroids(PointMetrics.of(keywords), numberOfClusters,
+                    seeding, engine.getPool());
+            for (int position : positions) {
+                clusters.put(new KmeansCluster<>(keywords[position]), true);
+            }
+
+            // Kmeans algorithm for clustering, stops once the inertia improves
+            // less than 0.01% or 0.1% of the keywords are reassigned
+            engine.setConvergencePolicy(new ConvergencePolicy(keywords.length / 1000, 1e-4, 0D,
+                    ConvergencePolicy.DEFAULT_MAX_ITERATIONS));
+            if (truncation != null) {
+                engine.setCentroidTransform(centroid -> centroid.truncate(truncation));
             }
-            changedCentroidsPercentage = 100 * (double) changedCentroids
-                    / (double) clusters.size();
-            logger.info("Changed centroids: " + changedCentroids + " from "
-                    + clusters.size() + " ("
-                    + String.format("%.3f", changedCentroidsPercentage) + "%)");
-            executeTasks(pool, createTasks(keywords, clusters));
-            waitUntillTasksEnd(pool);
+            engine.cluster(keywords, clusters);
+        }
+        if (truncation != null) {
+            logger.info("Dropped centroid mass: " + String.format("%.3f", 100 * truncation.getDroppedMassFraction())
+                    + "%");
         }
 
         return clusters;
     }
 
     /**
-     * Method that performs the selection of distant centroids based on a
-     * minimum distance parameter as an heuristic to improve K-means algorithm
+     * Clusters the keywords with the bisecting K-means, splitting the cluster
+     * with the highest sum of squared distances until there are enough
+     * clusters
      *
-     * @param keywords              The keywords to be analyzed
-     * @param numberOfClusters      Desired number of clusters (K)
-     * @param clusters              A Map where the clusters are going to be stored
-     * @param minDistanceFromOthers Minimum distance between centroids
+     * @param input              Input file containing all the keywords
+     * @param desiredClusterSize Average number of keywords per cluster
+     * @return The tree of the splits, its leaves are the clusters
+     * @throws IOException
      */
-    private static void selectCentroids(Keyword[] keywords,
-                                        int numberOfClusters, Map<KmeansCluster<Keyword>, Boolean> clusters,
-                                        double minDistanceFromOthers) {
-        logger.info("Starting the selection of mid-distant centroids");
-        long startTime = System.currentTimeMillis();
-        clusters.put(new KmeansCluster<>(keywords[0]), true);
-
-        // Try to select mid-distance centroids from each other
-        int i = 0;
-        while (i < keywords.length && clusters.size() < numberOfClusters) {
-            // Average distance from current keyword to cluster centroids
-            Double avgDistance = 0D;
-            for (KmeansCluster<Keyword> cluster : clusters.keySet()) {
-                avgDistance += keywords[i].distance(cluster.getCentroid());
-            }
-            avgDistance = avgDistance / clusters.size();
-            // Just an heuristic to choose mid-distance centroids
-            if (avgDistance > minDistanceFromOthers) {
-                clusters.put(new KmeansCluster<>(keywords[i]), true);
-                logger.info("Centroid found! - distance: " + avgDistance
-                        + " - position: " + i + " - keyword: " + keywords[i]);
-            }
-            i++;
+    public static ClusterTree<Keyword> doBisectingClustering(File input, int desiredClusterSize)
+            throws IOException {
+        Keyword[] keywords = loadKeywords(input);
+
+        // Number of clusters K
+        int numberOfClusters = Math.max(1, keywords.length / desiredClusterSize);
+
+        try (BisectingKmeansEngine<Keyword> engine = new BisectingKmeansEngine<>()) {
+            return engine.cluster(keywords, numberOfClusters);
         }
-        logger.info("Selection process of mid-distant centroids ended. Time elapsed: "
-                + (System.currentTimeMillis() - startTime)
-                + ". Keywords analysed: " + i);
     }
 
-    private static void waitUntillTasksEnd(ForkJoinPool pool) {
-        while (pool.getActiveThreadCount() > 0) ;
+    /**
+     * Clusters the keywords using the sparse matrix representation, with the
+     * convergence criteria of {@link #doClustering(File, int)}
+     *
+     * @param input              Input file containing all the keywords
+     * @param desiredClusterSize Average number of keywords per cluster
+     * @param maxIterations      Maximum number of iterations
+     * @return The centroids and the cluster of each keyword
+     * @throws IOException
+     */
+    public static ClusteringResult<SparseDataset> doSparseClustering(File input, int desiredClusterSize,
+                                                                     int maxIterations) throws IOException {
+        return doSparseClustering(input, desiredClusterSize, maxIterations, null);
     }
 
-    private static List<ClusteringTask<Keyword>> createTasks(
-            Keyword[] keywords, Map<KmeansCluster<Keyword>, Boolean> clusters) {
-        int factor = keywords.length / MAX_THREADS;
-
-        List<ClusteringTask<Keyword>> tasks = new ArrayList<>();
-        int startIndex, endIndex = 0;
-        for (int i = 0; i < MAX_THREADS; i++) {
-            startIndex = i * factor;
-            endIndex = (i + 1) * factor;
-            tasks.add(new ClusteringTask<>(keywords, clusters,
-                    startIndex, endIndex));
-        }
-        if (endIndex < keywords.length) {
-            tasks.add(new ClusteringTask<>(keywords, clusters, endIndex,
-                    keywords.length));
-        }
-        return tasks;
-    }
+    /**
+     * Clusters the keywords using the sparse matrix representation, bounding
+     * the number of terms of the centroids
+     *
+     * @param input              Input file containing all the keywords
+     * @param desiredClusterSize Average number of keywords per cluster
+     * @param maxIterations      Maximum number of iterations
+     * @param truncation         Selects the terms kept by the centroids,
+     *                           <tt>null</tt> to keep them all
+     * @return The centroids and the cluster of each keyword
+     * @throws IOException
+     */
+    public static ClusteringResult<SparseDataset> doSparseClustering(File input, int desiredClusterSize,
+                                                                     int maxIterations,
+                                                                     CentroidTruncation truncation)
+            throws IOException {
+        SparseDataset dataset = loadKeywordDataset(input);
 
-    private static void executeTasks(ForkJoinPool pool,
-                                     List<ClusteringTask<Keyword>> tasks) {
-        for (ClusteringTask<Keyword> task : tasks) {
-            pool.execute(task);
+        // Number of clusters K
+        int numberOfClusters = Math.max(1, dataset.size() / desiredClusterSize);
+
+        try (SparseKmeansEngine engine = new SparseKmeansEngine()) {
+            int[] rows = SeedingStrategies.selectCentroids(PointMetrics.of(dataset), numberOfClusters,
+                    new KmeansParallelSeeding(), engine.getPool());
+            engine.setCentroidTruncation(truncation);
+            // Same criteria as the keyword clustering: stops once the inertia
+            // improves less than 0.01% or 0.1% of the keywords are reassigned
+            return engine.cluster(dataset, dataset.rows(rows), new ConvergencePolicy(dataset.size() / 1000, 1e-4,
+                    0D, maxIterations));
         }
     }
 
@@ -293,9 +348,8 @@ public class DataAnalysis {
                     logger.info(cluster);
                     logger.info(clusterSeparator);
                 }
-            } catch (IOException | InterruptedException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
+            } catch (IOException e) {
+                logger.error("Could not cluster " + input, e);
             }
         }
     }
@@ -0,0 +1,241 @@
+package co.com.runtime.kmeans;
+
+import co.com.runtime.kmeans.interfaces.KmeansClusterItem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distance bounds kept between iterations by the <tt>ELKAN</tt> and
+ * <tt>HAMERLY</tt> assignment modes. By the triangle inequality, a centroid
+ * can not be nearer to an item than its lower bound, so the distance to it
+ * is only computed when the lower bound is smaller than the upper bound of
+ * the distance to the assigned centroid.
+ * <p/>
+ * Requires a <tt>distance</tt> that is a true metric.
+ *
+ * @param <T> A generic object that implements the <tt>KmeansClusterItem</tt>
+ *            interface
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.BoundedClusteringTask
+ */
+public class DistanceBounds<T extends KmeansClusterItem<T>> {
+
+    private final AssignmentMode         mode;
+    private final List<KmeansCluster<T>> clusters;
+    private final int                    numberOfClusters;
+
+    /**
+     * Cluster assigned to each item, -1 before the first assignment. Shared
+     * with the engine.
+     */
+    private final int[]    labels;
+    /**
+     * Upper bound of the distance from each item to its centroid
+     */
+    private final double[] upper;
+    /**
+     * Lower bounds of the distance from each item to each centroid (ELKAN) or
+     * to the second nearest centroid (HAMERLY)
+     */
+    private final double[] lower;
+
+    /**
+     * Distances between centroids, row-major K x K
+     */
+    private final double[] centroidDistances;
+    /**
+     * Half the distance from each centroid to its nearest centroid
+     */
+    private final double[] halfSeparation;
+    /**
+     * Distance moved by each centroid in the last update
+     */
+    private final double[] drift;
+    /**
+     * The centroid that moved most in the last update, and the two largest
+     * drifts
+     */
+    private int    maxDriftCluster;
+    private double maxDrift;
+    private double secondMaxDrift;
+
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder pruned      = new LongAdder();
+
+    /**
+     * @param mode     <tt>ELKAN</tt> or <tt>HAMERLY</tt>
+     * @param labels   Cluster assigned to each item, all -1 before the first
+     *                 assignment
+     * @param clusters The clusters, their order is fixed for the whole run
+     */
+    public DistanceBounds(AssignmentMode mode, int[] labels, Collection<KmeansCluster<T>> clusters) {
+        int size = labels.length;
+        if (mode == AssignmentMode.LLOYD) {
+            throw new IllegalArgumentException("Lloyd assignment does not keep distance bounds");
+        }
+        this.mode = mode;
+        if (mode == AssignmentMode.ELKAN && (long) size * clusters.size() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many lower bounds for Elkan assignment, use Hamerly");
+        }
+        this.clusters = new ArrayList<>(clusters);
+        this.numberOfClusters = this.clusters.size();
+        this.labels = labels;
+        this.upper = new double[size];
+        this.lower = new double[(mode == AssignmentMode.ELKAN) ? size * numberOfClusters : size];
+        this.centroidDistances = new double[numberOfClusters * numberOfClusters];
+        this.halfSeparation = new double[numberOfClusters];
+        this.drift = new double[numberOfClusters];
+    }
+
+    /**
+     * Computes the distances between the current centroids. Must be called
+     * before every assignment.
+     *
+     * @param pool The pool where the distances are computed
+     */
+    public void prepare(ForkJoinPool pool) {
+        pool.invoke(new CentroidDistancesTask(0, numberOfClusters));
+        for (int j = 0; j < numberOfClusters; j++) {
+            double min = Double.POSITIVE_INFINITY;
+            for (int other = 0; other < numberOfClusters; other++) {
+                if (other != j) {
+                    min = Math.min(min, centroidDistances[j * numberOfClusters + other]);
+                }
+            }
+            halfSeparation[j] = min / 2;
+        }
+        evaluations.add((long) numberOfClusters * (numberOfClusters - 1) / 2);
+
+        maxDriftCluster = -1;
+        maxDrift = 0;
+        secondMaxDrift = 0;
+        for (int j = 0; j < numberOfClusters; j++) {
+            if (drift[j] > maxDrift) {
+                secondMaxDrift = maxDrift;
+                maxDrift = drift[j];
+                maxDriftCluster = j;
+            } else if (drift[j] > secondMaxDrift) {
+                secondMaxDrift = drift[j];
+            }
+        }
+    }
+
+    /**
+     * Records the distance moved by a centroid in the last update
+     *
+     * @param cluster Index of the cluster
+     * @param moved   Distance between the previous and the new centroid
+     */
+    public void setDrift(int cluster, double moved) {
+        drift[cluster] = moved;
+    }
+
+    public AssignmentMode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return The clusters, in the order used by the bounds
+     */
+    public List<KmeansCluster<T>> getClusters() {
+        return clusters;
+    }
+
+    /**
+     * @return Number of distances computed
+     */
+    public long getEvaluations() {
+        return evaluations.sum();
+    }
+
+    /**
+     * @return Number of item to centroid distances skipped thanks to the
+     * bounds
+     */
+    public long getPruned() {
+        return pruned.sum();
+    }
+
+    void record(long evaluated, long skipped) {
+        evaluations.add(evaluated);
+        pruned.add(skipped);
+    }
+
+    int numberOfClusters() {
+        return numberOfClusters;
+    }
+
+    int[] labels() {
+        return labels;
+    }
+
+    double[] upper() {
+        return upper;
+    }
+
+    double[] lower() {
+        return lower;
+    }
+
+    double[] drift() {
+        return drift;
+    }
+
+    /**
+     * @return The largest distance moved by a centroid other than the given
+     * one
+     */
+    double maxDriftExcept(int cluster) {
+        return (cluster == maxDriftCluster) ? secondMaxDrift : maxDrift;
+    }
+
+    double halfSeparation(int cluster) {
+        return halfSeparation[cluster];
+    }
+
+    double centroidDistance(int a, int b) {
+        return centroidDistances[a * numberOfClusters + b];
+    }
+
+    T centroid(int cluster) {
+        return clusters.get(cluster).getCentroid();
+    }
+
+    /**
+     * Computes the upper triangle of the centroid distances matrix for a
+     * range of rows and mirrors it
+     */
+    private class CentroidDistancesTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int startIndex;
+        private final int endIndex;
+
+        CentroidDistancesTask(int startIndex, int endIndex) {
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
+        }
+
+        @Override
+        protected void compute() {
+            if (endIndex - startIndex > 1) {
+                int middle = (startIndex + endIndex) >>> 1;
+                invokeAll(new CentroidDistancesTask(startIndex, middle), new CentroidDistancesTask(middle, endIndex));
+                return;
+            }
+            for (int a = startIndex; a < endIndex; a++) {
+                T centroid = centroid(a);
+                for (int b = a + 1; b < numberOfClusters; b++) {
+                    double distance = centroid.distance(centroid(b));
+                    centroidDistances[a * numberOfClusters + b] = distance;
+                    centroidDistances[b * numberOfClusters + a] = distance;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package co.com.runtime.kmeans;
+
+/**
+ * Measures of a K-means iteration: a centroid update followed by an
+ * assignment pass, or only the assignment pass for the iteration zero. The
+ * times are wall clock nanoseconds, the task time is the sum over the leaf
+ * tasks of the assignment.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.interfaces.ClusteringListener
+ */
+public class IterationStats {
+    private final int    iteration;
+    private final long   updateNanos;
+    private final long   assignmentNanos;
+    private final long   reassigned;
+    private final double inertia;
+    private final double maxCentroidShift;
+    private final long   distanceEvaluations;
+    private final long   prunedDistanceEvaluations;
+    private final long   taskNanos;
+    private final long   maxWorkerNanos;
+    private final int    workers;
+
+    /**
+     * @param iteration                 Number of centroid updates made so far
+     * @param updateNanos               Time of the centroid update
+     * @param assignmentNanos           Time of the assignment pass
+     * @param reassigned                Items whose cluster changed
+     * @param inertia                   Inertia of the assignment,
+     *                                  <tt>NaN</tt> if the engine does not
+     *                                  measure it
+     * @param maxCentroidShift          Largest distance moved by a centroid,
+     *                                  <tt>POSITIVE_INFINITY</tt> for the
+     *                                  iteration zero, <tt>NaN</tt> if the
+     *                                  engine does not measure it
+     * @param distanceEvaluations       Distances computed by the assignment
+     * @param prunedDistanceEvaluations Distances avoided by the assignment
+     * @param taskNanos                 Time of all the assignment tasks
+     * @param maxWorkerNanos            Time of the assignment tasks of the
+     *                                  busiest worker thread
+     * @param workers                   Worker threads that ran assignment
+     *                                  tasks
+     */
+    public IterationStats(int iteration, long updateNanos, long assignmentNanos, long reassigned, double inertia,
+                          double maxCentroidShift, long distanceEvaluations, long prunedDistanceEvaluations,
+                          long taskNanos, long maxWorkerNanos, int workers) {
+        this.iteration = iteration;
+        this.updateNanos = updateNanos;
+        this.assignmentNanos = assignmentNanos;
+        this.reassigned = reassigned;
+        this.inertia = inertia;
+        this.maxCentroidShift = maxCentroidShift;
+        this.distanceEvaluations = distanceEvaluations;
+        this.prunedDistanceEvaluations = prunedDistanceEvaluations;
+        this.taskNanos = taskNanos;
+        this.maxWorkerNanos = maxWorkerNanos;
+        this.workers = workers;
+    }
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    public long getUpdateNanos() {
+        return updateNanos;
+    }
+
+    public long getAssignmentNanos() {
+        return assignmentNanos;
+    }
+
+    /**
+     * @return the wall clock time of the update and the assignment
+     */
+    public long getWallNanos() {
+        return updateNanos + assignmentNanos;
+    }
+
+    public long getReassigned() {
+        return reassigned;
+    }
+
+    public double getInertia() {
+        return inertia;
+    }
+
+    public double getMaxCentroidShift() {
+        return maxCentroidShift;
+    }
+
+    public long getDistanceEvaluations() {
+        return distanceEvaluations;
+    }
+
+    public long getPrunedDistanceEvaluations() {
+        return prunedDistanceEvaluations;
+    }
+
+    public long getTaskNanos() {
+        return taskNanos;
+    }
+
+    public long getMaxWorkerNanos() {
+        return maxWorkerNanos;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * @return the task time of the busiest worker over the mean task time of
+     * the workers, one when the work is balanced
+     */
+    public double getWorkerSkew() {
+        return (taskNanos == 0) ? 1D : (double) maxWorkerNanos * workers / taskNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Iteration " + iteration + " - update: " + updateNanos / 1000 + " us, assignment: "
+                + assignmentNanos / 1000 + " us, reassigned: " + reassigned + ", inertia: " + inertia
+                + ", distance evaluations: " + distanceEvaluations + ", pruned: " + prunedDistanceEvaluations
+                + ", worker skew: " + String.format("%.2f", getWorkerSkew());
+    }
+}
@@ -1,22 +1,28 @@
 package co.com.runtime.kmeans;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
 
 import co.com.runtime.kmeans.interfaces.KmeansClusterItem;
 
 public class KmeansCluster<T extends KmeansClusterItem<T>> {
-    private T               centroid;
-    private Map<T, Boolean> elements;
+    private T                    centroid;
+    private ClusterMembership<T> membership;
+    private int                  index;
 
     public KmeansCluster(T centroid) {
-        this.elements = new ConcurrentHashMap<>();
         this.centroid = centroid;
 
     }
 
-    public void add(T elememt) {
-        getElements().put(elememt, true);
+    /**
+     * Links the cluster with the membership of a data set
+     *
+     * @param membership The membership of every item
+     * @param index      Index of this cluster in the membership
+     */
+    void setMembership(ClusterMembership<T> membership, int index) {
+        this.membership = membership;
+        this.index = index;
     }
 
     /**
@@ -33,27 +39,28 @@ public class KmeansCluster<T extends KmeansClusterItem<T>> {
      */
     public boolean clearCluster(T newCentroid) {
         boolean centroidChanged = !this.centroid.equals(newCentroid);
-        this.elements.clear();
+        this.membership = null;
         this.centroid = newCentroid;
         return centroidChanged;
     }
 
     /**
-     * @return the elements
+     * @return a read only view of the elements, repeated items included
      */
-    public Map<T, Boolean> getElements() {
-        return elements;
+    public List<T> getElements() {
+        return (membership == null) ? ClusterMembership.<T>none() : membership.members(index);
     }
 
     @Override
     public String toString() {
+        List<T> elements = getElements();
         StringBuilder sb = new StringBuilder();
         sb.append("Centroid: ");
         sb.append(centroid);
         sb.append(", Elements: ");
         sb.append(elements.size());
         sb.append(System.getProperty("line.separator"));
-        for (T item : getElements().keySet()) {
+        for (T item : elements) {
             sb.append(item.toString());
             sb.append(System.getProperty("line.separator"));
         }
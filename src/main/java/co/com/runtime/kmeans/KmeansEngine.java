@@ -0,0 +1,402 @@
+package co.com.runtime.kmeans;
+
+import co.com.runtime.kmeans.interfaces.CentroidAccumulator;
+import co.com.runtime.kmeans.interfaces.KmeansClusterItem;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.UnaryOperator;
+
+/**
+ * Reusable K-means engine. Runs the assignment step of every iteration as a
+ * single fork/join computation over the whole data set, so an iteration never
+ * starts recomputing centroids before every item has been assigned.
+ *
+ * @param <T> A generic object that implements the <tt>KmeansClusterItem</tt>
+ *            interface
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.ClusteringTask
+ */
+public class KmeansEngine<T extends KmeansClusterItem<T>> extends AbstractKmeansEngine {
+
+    private static Logger logger = LogManager.getLogger();
+
+    private AssignmentMode    assignmentMode    = AssignmentMode.LLOYD;
+    private ConvergencePolicy convergencePolicy = new ConvergencePolicy();
+
+    /**
+     * Applied to every new centroid before it replaces the previous one,
+     * <tt>null</tt> to keep the means as they are
+     */
+    private UnaryOperator<T> centroidTransform;
+
+    /**
+     * Centroid updates and inertia of the last run. The inertia is
+     * <tt>NaN</tt> for the bounded modes when the convergence policy does not
+     * use it.
+     */
+    private int    iterations;
+    private double inertia;
+
+    /**
+     * Distance computations of the last run, and the ones avoided by the
+     * bounded assignment modes
+     */
+    private long distanceEvaluations;
+    private long prunedDistanceEvaluations;
+
+    /**
+     * Cluster of every item in the last run
+     */
+    private ClusterMembership<T> membership;
+
+    /**
+     * Creates an engine with its own pool, one thread per available processor
+     */
+    public KmeansEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an engine with its own pool
+     *
+     * @param parallelism Number of worker threads
+     */
+    public KmeansEngine(int parallelism) {
+        super(parallelism);
+    }
+
+    /**
+     * Creates an engine that runs on a pool managed by the caller
+     *
+     * @param pool The pool used to execute the clustering tasks
+     */
+    public KmeansEngine(ForkJoinPool pool) {
+        super(pool);
+    }
+
+    /**
+     * Runs the K-means algorithm until the convergence policy of the engine
+     * stops it. The new centroids are accumulated while the items are
+     * assigned, the clusters are linked with the final assignment once the
+     * algorithm converges.
+     *
+     * @param dataSet  The items to be clustered
+     * @param clusters The clusters holding the initial centroids
+     * @return The clusters with the items assigned
+     * @see co.com.runtime.kmeans.ConvergencePolicy
+     */
+    public Map<KmeansCluster<T>, Boolean> cluster(T[] dataSet, Map<KmeansCluster<T>, Boolean> clusters) {
+        // Fixed order of the clusters, the assignment holds their indexes
+        List<KmeansCluster<T>> clusterList = new ArrayList<>(clusters.keySet());
+        int[] assignment = new int[dataSet.length];
+        Arrays.fill(assignment, -1);
+        DistanceBounds<T> bounds = (assignmentMode == AssignmentMode.LLOYD) ? null
+                : new DistanceBounds<>(assignmentMode, assignment, clusterList);
+        long lloydEvaluations = (long) dataSet.length * clusterList.size();
+        int assignments = 0;
+        fireClusteringStarted(dataSet.length, clusterList.size());
+
+        long started = System.nanoTime();
+        ClusterAccumulators<T> sums = assign(dataSet, clusterList, assignment, bounds);
+        long assignmentNanos = System.nanoTime() - started;
+        assignments++;
+        int iterations = 0;
+        double previousInertia = Double.NaN;
+        double maxCentroidShift = Double.POSITIVE_INFINITY;
+        // Totals of the bounds before the last pass
+        long evaluations = 0;
+        long pruned = 0;
+        fireIterationCompleted(statistics(iterations, 0, assignmentNanos, sums, maxCentroidShift, bounds,
+                lloydEvaluations, evaluations, pruned));
+        while (!convergencePolicy.hasConverged(iterations, sums.getReassigned(), previousInertia,
+                sums.getInertia(), maxCentroidShift)) {
+            started = System.nanoTime();
+            maxCentroidShift = 0;
+            for (int j = 0; j < clusterList.size(); j++) {
+                KmeansCluster<T> cluster = clusterList.get(j);
+                CentroidAccumulator<T> sum = sums.get(j);
+                T previous = cluster.getCentroid();
+                double moved = 0;
+                // An empty cluster keeps its centroid, the mean of nothing is
+                // not a valid item
+                if (sum != null && sum.count() > 0 && cluster.clearCluster(newCentroid(sum))) {
+                    moved = previous.distance(cluster.getCentroid());
+                    maxCentroidShift = Math.max(maxCentroidShift, moved);
+                }
+                if (bounds != null) {
+                    bounds.setDrift(j, moved);
+                }
+            }
+            previousInertia = sums.getInertia();
+            long updateNanos = System.nanoTime() - started;
+            if (bounds != null) {
+                evaluations = bounds.getEvaluations();
+                pruned = bounds.getPruned();
+            }
+            started = System.nanoTime();
+            sums = assign(dataSet, clusterList, assignment, bounds);
+            assignmentNanos = System.nanoTime() - started;
+            assignments++;
+            iterations++;
+            fireIterationCompleted(statistics(iterations, updateNanos, assignmentNanos, sums, maxCentroidShift,
+                    bounds, lloydEvaluations, evaluations, pruned));
+            logger.info("Iteration " + iterations + " - Reassigned items: " + sums.getReassigned() + " from "
+                    + dataSet.length + ", inertia: " + sums.getInertia() + ", max centroid shift: "
+                    + String.format("%.6f", maxCentroidShift));
+        }
+        this.iterations = iterations;
+        this.inertia = (bounds == null || convergencePolicy.usesInertia()) ? sums.getInertia() : Double.NaN;
+
+        membership = new ClusterMembership<>(dataSet, assignment, clusterList.size());
+        for (int j = 0; j < clusterList.size(); j++) {
+            clusterList.get(j).setMembership(membership, j);
+        }
+
+        if (bounds != null) {
+            distanceEvaluations = bounds.getEvaluations();
+            prunedDistanceEvaluations = bounds.getPruned();
+        } else {
+            distanceEvaluations = lloydEvaluations * assignments;
+            prunedDistanceEvaluations = 0;
+        }
+        logger.info("Distance evaluations: " + distanceEvaluations + " - pruned: " + prunedDistanceEvaluations);
+        fireClusteringEnded(iterations, this.inertia);
+        return clusters;
+    }
+
+    /**
+     * Measures of the last pass. The bounds count the distances of all the
+     * passes, the ones of the last pass are the increase from the totals
+     * taken before it.
+     */
+    private IterationStats statistics(int iteration, long updateNanos, long assignmentNanos,
+                                      ClusterAccumulators<T> sums, double maxCentroidShift, DistanceBounds<T> bounds,
+                                      long lloydEvaluations, long evaluations, long pruned) {
+        long evaluated = (bounds == null) ? lloydEvaluations : bounds.getEvaluations() - evaluations;
+        long avoided = (bounds == null) ? 0 : bounds.getPruned() - pruned;
+        return new IterationStats(iteration, updateNanos, assignmentNanos, sums.getReassigned(), sums.getInertia(),
+                maxCentroidShift, evaluated, avoided, sums.getTaskNanos(), sums.getMaxWorkerNanos(),
+                sums.getWorkers());
+    }
+
+    /**
+     * Runs the mini-batch K-means algorithm. Every step assigns a random
+     * sample of the data set and adds it to a running accumulator per
+     * cluster, the new centroid is the mean of all the items ever assigned to
+     * the cluster. This is the update with a per-cluster learning rate of one
+     * over the number of items seen by the cluster. The clusters are linked
+     * with a final assignment of the whole data set. Every step is reported
+     * to the listeners as an iteration over its batch.
+     *
+     * @param dataSet  The items to be clustered
+     * @param clusters The clusters holding the initial centroids
+     * @param policy   The batch size, number of steps and patience
+     * @return The clusters with the items assigned
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Map<KmeansCluster<T>, Boolean> clusterMiniBatch(T[] dataSet, Map<KmeansCluster<T>, Boolean> clusters,
+                                                           MiniBatchPolicy policy) {
+        List<KmeansCluster<T>> clusterList = new ArrayList<>(clusters.keySet());
+        int k = clusterList.size();
+        int batchSize = Math.min(policy.getBatchSize(), dataSet.length);
+        T[] batch = Arrays.copyOf(dataSet, batchSize);
+        int[] batchAssignment = new int[batchSize];
+        CentroidAccumulator<T>[] seen = new CentroidAccumulator[k];
+        SplittableRandom random = new SplittableRandom(policy.getSeed());
+
+        // Exponentially weighted average of the inertia per item of the batches
+        double alpha = Math.min(1D, 2D * batchSize / (dataSet.length + 1D));
+        double smoothedInertia = Double.NaN;
+        double bestInertia = Double.POSITIVE_INFINITY;
+        int stepsWithoutImprovement = 0;
+        int steps = 0;
+        fireClusteringStarted(dataSet.length, k);
+        while (steps < policy.getMaxSteps() && batchSize > 0) {
+            for (int i = 0; i < batchSize; i++) {
+                batch[i] = dataSet[random.nextInt(dataSet.length)];
+            }
+            Arrays.fill(batchAssignment, -1);
+            long started = System.nanoTime();
+            ClusterAccumulators<T> sums = assign(batch, clusterList, batchAssignment);
+            long assignmentNanos = System.nanoTime() - started;
+
+            started = System.nanoTime();
+            for (int j = 0; j < k; j++) {
+                CentroidAccumulator<T> sum = sums.get(j);
+                if (sum == null || sum.count() == 0) {
+                    continue;
+                }
+                if (seen[j] == null) {
+                    seen[j] = sum;
+                } else {
+                    seen[j].merge(sum);
+                }
+                clusterList.get(j).clearCluster(newCentroid(seen[j]));
+            }
+            // Steps are numbered from 0 like the iterations. The inertia is
+            // the one of the batch, the running means give no centroid shift
+            fireIterationCompleted(statistics(steps, System.nanoTime() - started, assignmentNanos, sums,
+                    Double.NaN, null, (long) batchSize * k, 0, 0));
+            steps++;
+
+            double batchInertia = sums.getInertia() / batchSize;
+            smoothedInertia = Double.isNaN(smoothedInertia) ? batchInertia
+                    : (1 - alpha) * smoothedInertia + alpha * batchInertia;
+            if (smoothedInertia < bestInertia) {
+                bestInertia = smoothedInertia;
+                stepsWithoutImprovement = 0;
+            } else if (policy.getPatience() > 0 && ++stepsWithoutImprovement >= policy.getPatience()) {
+                logger.info("Step " + steps + " - No improvement of the smoothed inertia in "
+                        + stepsWithoutImprovement + " steps");
+                break;
+            }
+        }
+
+        int[] assignment = new int[dataSet.length];
+        Arrays.fill(assignment, -1);
+        ClusterAccumulators<T> sums = assign(dataSet, clusterList, assignment);
+        this.iterations = steps;
+        this.inertia = sums.getInertia();
+        membership = new ClusterMembership<>(dataSet, assignment, k);
+        for (int j = 0; j < k; j++) {
+            clusterList.get(j).setMembership(membership, j);
+        }
+        distanceEvaluations = ((long) steps * batchSize + dataSet.length) * k;
+        prunedDistanceEvaluations = 0;
+        logger.info("Mini-batch steps: " + steps + ", inertia: " + inertia + ", distance evaluations: "
+                + distanceEvaluations);
+        fireClusteringEnded(steps, inertia);
+        return clusters;
+    }
+
+    private T newCentroid(CentroidAccumulator<T> sum) {
+        T mean = sum.mean();
+        return (centroidTransform == null) ? mean : centroidTransform.apply(mean);
+    }
+
+    /**
+     * Assigns every item of the data set to its nearest cluster, accumulating
+     * the mean of the items of each cluster. Returns only when all the items
+     * have been assigned.
+     *
+     * @param dataSet    The items to be assigned
+     * @param clusters   The clusters
+     * @param assignment Index of the cluster assigned to each item, -1 if
+     *                   none, updated with the new assignment
+     * @return The accumulated items of each cluster and the number of items
+     * whose cluster changed
+     */
+    public ClusterAccumulators<T> assign(T[] dataSet, List<KmeansCluster<T>> clusters, int[] assignment) {
+        return assign(dataSet, clusters, assignment, null);
+    }
+
+    private ClusterAccumulators<T> assign(T[] dataSet, List<KmeansCluster<T>> clusters, int[] assignment,
+                                          DistanceBounds<T> bounds) {
+        WorkerBuffers<ClusterAccumulators<T>> buffers =
+                new WorkerBuffers<>(() -> new ClusterAccumulators<>(clusters.size()));
+        if (bounds == null) {
+            getPool().invoke(new ClusteringTask<>(dataSet, clusters, assignment, buffers, 0, dataSet.length,
+                    granularity(dataSet.length)));
+        } else {
+            bounds.prepare(getPool());
+            getPool().invoke(new BoundedClusteringTask<>(dataSet, bounds, buffers, convergencePolicy.usesInertia(),
+                    0, dataSet.length, granularity(dataSet.length)));
+        }
+        return buffers.reduce(getPool(), ClusterAccumulators::merge);
+    }
+
+    /**
+     * @return the assignment mode
+     */
+    public AssignmentMode getAssignmentMode() {
+        return assignmentMode;
+    }
+
+    /**
+     * Sets the assignment mode. The bounded modes (<tt>ELKAN</tt> and
+     * <tt>HAMERLY</tt>) require a <tt>distance</tt> that is a true metric.
+     *
+     * @param assignmentMode the assignment mode
+     */
+    public void setAssignmentMode(AssignmentMode assignmentMode) {
+        this.assignmentMode = assignmentMode;
+    }
+
+    /**
+     * @return the convergence policy
+     */
+    public ConvergencePolicy getConvergencePolicy() {
+        return convergencePolicy;
+    }
+
+    /**
+     * @param convergencePolicy the convergence policy
+     */
+    public void setConvergencePolicy(ConvergencePolicy convergencePolicy) {
+        this.convergencePolicy = convergencePolicy;
+    }
+
+    /**
+     * @return the transformation applied to the new centroids, <tt>null</tt>
+     * if none
+     */
+    public UnaryOperator<T> getCentroidTransform() {
+        return centroidTransform;
+    }
+
+    /**
+     * Sets a transformation applied to every new centroid, e.g. to keep only
+     * the heaviest words of a <tt>Keyword</tt> centroid
+     *
+     * @param centroidTransform the transformation, <tt>null</tt> for none
+     */
+    public void setCentroidTransform(UnaryOperator<T> centroidTransform) {
+        this.centroidTransform = centroidTransform;
+    }
+
+    /**
+     * @return the number of centroid updates of the last run, the number of
+     * steps for a mini-batch run
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the sum of the comparison distances from every item to its
+     * centroid at the end of the last run
+     */
+    public double getInertia() {
+        return inertia;
+    }
+
+    /**
+     * @return the membership of every item in the last run, in the order of
+     * the clusters of the last run
+     */
+    public ClusterMembership<T> getMembership() {
+        return membership;
+    }
+
+    /**
+     * @return the number of distances computed by the last run
+     */
+    public long getDistanceEvaluations() {
+        return distanceEvaluations;
+    }
+
+    /**
+     * @return the number of item to centroid distances skipped by the last
+     * run, compared with a Lloyd assignment
+     */
+    public long getPrunedDistanceEvaluations() {
+        return prunedDistanceEvaluations;
+    }
+}
@@ -0,0 +1,78 @@
+package co.com.runtime.kmeans;
+
+/**
+ * Settings of the mini-batch K-means. Every step samples <tt>batchSize</tt>
+ * items, assigns them and moves each centroid towards the items assigned to
+ * it. The steps stop after <tt>maxSteps</tt>, or when the smoothed inertia
+ * of the batches has not improved for <tt>patience</tt> steps (zero
+ * disables).
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.KmeansEngine
+ */
+public class MiniBatchPolicy {
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+    public static final int DEFAULT_MAX_STEPS  = 100;
+    public static final int DEFAULT_PATIENCE   = 10;
+
+    private int  batchSize = DEFAULT_BATCH_SIZE;
+    private int  maxSteps  = DEFAULT_MAX_STEPS;
+    private int  patience  = DEFAULT_PATIENCE;
+    private long seed      = System.nanoTime();
+
+    /**
+     * Creates a policy with the default batch size, steps and patience
+     */
+    public MiniBatchPolicy() {
+    }
+
+    /**
+     * @param batchSize Number of items sampled on every step
+     * @param maxSteps  Maximum number of steps
+     * @param patience  Steps without improvement of the smoothed inertia
+     *                  before stopping, zero to always make
+     *                  <tt>maxSteps</tt> steps
+     * @param seed      Seed of the sampling
+     */
+    public MiniBatchPolicy(int batchSize, int maxSteps, int patience, long seed) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The batch size must be positive");
+        }
+        this.batchSize = batchSize;
+        this.maxSteps = maxSteps;
+        this.patience = patience;
+        this.seed = seed;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getMaxSteps() {
+        return maxSteps;
+    }
+
+    public void setMaxSteps(int maxSteps) {
+        this.maxSteps = maxSteps;
+    }
+
+    public int getPatience() {
+        return patience;
+    }
+
+    public void setPatience(int patience) {
+        this.patience = patience;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
@@ -0,0 +1,20 @@
+package co.com.runtime.kmeans;
+
+/**
+ * Selects the next cluster split by the bisecting K-means
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.BisectingKmeansEngine
+ */
+public enum SplitCriterion {
+    /**
+     * Splits the cluster with the most items
+     */
+    LARGEST,
+    /**
+     * Splits the cluster with the highest sum of squared distances from its
+     * items to its centroid. Needs one more pass over the items of every new
+     * cluster.
+     */
+    HIGHEST_SSE
+}
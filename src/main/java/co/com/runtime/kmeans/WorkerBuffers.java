@@ -0,0 +1,80 @@
+package co.com.runtime.kmeans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * One buffer per worker thread, so the tasks running on a thread accumulate
+ * their partial results without contention. Once the tasks end, the buffers
+ * are merged by a parallel tree reduction.
+ *
+ * @param <B> The type of the buffers
+ * @author Camilo Sarmiento
+ */
+public class WorkerBuffers<B> {
+    private final ConcurrentHashMap<Thread, B> buffers = new ConcurrentHashMap<>();
+    private final Supplier<B>                  factory;
+
+    /**
+     * @param factory Creates an empty buffer
+     */
+    public WorkerBuffers(Supplier<B> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * @return The buffer of the current thread
+     */
+    public B get() {
+        return buffers.computeIfAbsent(Thread.currentThread(), thread -> factory.get());
+    }
+
+    /**
+     * Merges all the buffers. Must be called once the tasks using the buffers
+     * have ended.
+     *
+     * @param pool  Pool where the merges run
+     * @param merge Adds the second buffer to the first one and returns it
+     * @return The merged buffer, an empty buffer if none was used
+     */
+    public B reduce(ForkJoinPool pool, BinaryOperator<B> merge) {
+        List<B> values = new ArrayList<>(buffers.values());
+        if (values.isEmpty()) {
+            return factory.get();
+        }
+        return pool.invoke(new ReduceTask<>(values, merge, 0, values.size()));
+    }
+
+    private static class ReduceTask<B> extends RecursiveTask<B> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<B>           values;
+        private final BinaryOperator<B> merge;
+        private final int               startIndex;
+        private final int               endIndex;
+
+        ReduceTask(List<B> values, BinaryOperator<B> merge, int startIndex, int endIndex) {
+            this.values = values;
+            this.merge = merge;
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
+        }
+
+        @Override
+        protected B compute() {
+            if (endIndex - startIndex == 1) {
+                return values.get(startIndex);
+            }
+            int middle = (startIndex + endIndex) >>> 1;
+            ReduceTask<B> left = new ReduceTask<>(values, merge, startIndex, middle);
+            left.fork();
+            B right = new ReduceTask<>(values, merge, middle, endIndex).compute();
+            return merge.apply(left.join(), right);
+        }
+    }
+}
@@ -1,34 +1,36 @@
 package co.com.runtime.kmeans.datatypes;
 
+import co.com.runtime.kmeans.interfaces.CentroidAccumulator;
+import co.com.runtime.kmeans.interfaces.DenseVector;
 import co.com.runtime.kmeans.interfaces.KmeansClusterItem;
 
 import java.util.*;
 
-public class Baloto implements KmeansClusterItem<Baloto> {
+public class Baloto implements KmeansClusterItem<Baloto>, DenseVector {
     private static final int BALOTO_SIZE = 6;
 
     public final Comparator<Baloto> DISTANCE_ORDER = new DistanceOrder();
     /**
      * Stores the Baloto results
      */
-    private Double[] numbers;
+    private double[] numbers;
 
     public Baloto(String s) {
-        this.numbers = new Double[BALOTO_SIZE];
+        this.numbers = new double[BALOTO_SIZE];
         StringTokenizer st = new StringTokenizer(s);
         for (int i = 0; i < this.numbers.length && st.hasMoreTokens(); i++) {
-            this.numbers[i] = Double.valueOf(st.nextToken());
+            this.numbers[i] = Double.parseDouble(st.nextToken());
         }
         Arrays.sort(this.numbers);
     }
 
-    private Baloto(Double[] average) {
+    private Baloto(double[] average) {
         this.numbers = Arrays.copyOf(average, average.length);
         Arrays.sort(this.numbers);
     }
 
     public Baloto() {
-        this.numbers = initializeArray();
+        this.numbers = new double[BALOTO_SIZE];
     }
 
     @Override
@@ -36,6 +38,15 @@ public class Baloto implements KmeansClusterItem<Baloto> {
         return euclideanDistance(other);
     }
 
+    /**
+     * Returns the squared Euclidean distance, which orders the results as the
+     * Euclidean distance does without the square root
+     */
+    @Override
+    public double comparisonDistance(Baloto other) {
+        return squaredEuclideanDistance(other);
+    }
+
     @Override
     public Baloto mean(Map<Baloto, Boolean> elements) {
         Set<Baloto> results = elements.keySet();
@@ -44,11 +55,10 @@ public class Baloto implements KmeansClusterItem<Baloto> {
 
     @Override
     public Baloto mean(Baloto[] elements) {
-        Double[] average = initializeArray();
+        double[] average = new double[BALOTO_SIZE];
         for (Baloto baloto : elements) {
             for (int i = 0; i < average.length; i++) {
-                average[i] = (average[i] == null) ? baloto.numbers[i]
-                        : average[i] + baloto.numbers[i];
+                average[i] += baloto.numbers[i];
             }
         }
         if (elements.length != 0) {
@@ -59,12 +69,22 @@ public class Baloto implements KmeansClusterItem<Baloto> {
         return new Baloto(average);
     }
 
-    private Double[] initializeArray() {
-        Double[] average = new Double[BALOTO_SIZE];
-        for (int i = 0; i < average.length; i++) {
-            average[i] = 0D;
-        }
-        return average;
+    /**
+     * Returns an accumulator that only keeps the sum of the numbers
+     */
+    @Override
+    public CentroidAccumulator<Baloto> newAccumulator() {
+        return new Sum();
+    }
+
+    @Override
+    public int dimension() {
+        return numbers.length;
+    }
+
+    @Override
+    public void copyTo(double[] destination, int offset) {
+        System.arraycopy(numbers, 0, destination, offset, numbers.length);
     }
 
     /**
@@ -74,18 +94,23 @@ public class Baloto implements KmeansClusterItem<Baloto> {
      * @return The Euclidean distance between the two Baloto instances
      */
     private double euclideanDistance(Baloto other) {
+        return Math.sqrt(squaredEuclideanDistance(other));
+    }
+
+    private double squaredEuclideanDistance(Baloto other) {
         double d = 0;
         for (int i = 0; i < numbers.length; i++) {
-            d += Math.pow(numbers[i] - other.numbers[i], 2);
+            double difference = numbers[i] - other.numbers[i];
+            d += difference * difference;
         }
-        return Math.sqrt(d);
+        return d;
     }
 
     @Override
     public int hashCode() {
         int h = 0;
-        for (Double number : this.numbers) {
-            h += number.hashCode();
+        for (double number : this.numbers) {
+            h += Double.hashCode(number);
         }
         return h;
     }
@@ -96,7 +121,7 @@ public class Baloto implements KmeansClusterItem<Baloto> {
         if (other instanceof Baloto) {
             if (this.numbers.length == ((Baloto) other).numbers.length) {
                 for (int i = 0; i < this.numbers.length && eq; i++) {
-                    if (!this.numbers[i].equals(((Baloto) other).numbers[i])) {
+                    if (Double.compare(this.numbers[i], ((Baloto) other).numbers[i]) != 0) {
                         eq = false;
                     }
                 }
@@ -121,10 +146,46 @@ public class Baloto implements KmeansClusterItem<Baloto> {
         return sb.toString();
     }
 
+    private static class Sum implements CentroidAccumulator<Baloto> {
+        private final double[] sum = new double[BALOTO_SIZE];
+        private long           count;
+
+        @Override
+        public void add(Baloto baloto) {
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += baloto.numbers[i];
+            }
+            count++;
+        }
+
+        @Override
+        public void merge(CentroidAccumulator<Baloto> other) {
+            Sum partial = (Sum) other;
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += partial.sum[i];
+            }
+            count += partial.count;
+        }
+
+        @Override
+        public long count() {
+            return count;
+        }
+
+        @Override
+        public Baloto mean() {
+            double[] average = new double[BALOTO_SIZE];
+            for (int i = 0; i < average.length && count != 0; i++) {
+                average[i] = sum[i] / count;
+            }
+            return new Baloto(average);
+        }
+    }
+
     private class DistanceOrder implements Comparator<Baloto> {
         @Override
         public int compare(Baloto b1, Baloto b2) {
-            Double difference = distance(b2) - distance(b1);
+            double difference = comparisonDistance(b2) - comparisonDistance(b1);
             if (difference > 0D) {
                 return -1;
             } else if (difference < 0D) {
@@ -1,39 +1,37 @@
 package co.com.runtime.kmeans.datatypes;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.StringTokenizer;
-import java.util.TreeSet;
 
+import co.com.runtime.kmeans.interfaces.CentroidAccumulator;
 import co.com.runtime.kmeans.interfaces.KmeansClusterItem;
-
+import co.com.runtime.kmeans.sparse.CentroidTruncation;
+
+/**
+ * Phrase represented as a sparse vector of word occurrences. The words are
+ * stored as the ids of a <tt>Vocabulary</tt>, sorted, so two keywords are
+ * compared by merging their ids. Keywords are only comparable when they share
+ * the vocabulary.
+ */
 public class Keyword implements KmeansClusterItem<Keyword> {
-    private static final boolean ALLOW_ALL_WORDS = false;
-    private static final double  LOG2            = Math.log(2);
+    private static final double LOG2 = Math.log(2);
+
+    private static final int[]    NO_TERMS   = new int[0];
+    private static final double[] NO_WEIGHTS = new double[0];
 
     public final Comparator<Keyword> DISTANCE_ORDER = new DistanceOrder();
 
-    /**
-     * Words that can distort the semantic matching between keywords
-     */
-    private final static String[] cleanningSet = {"@", "#", "-", "*", "&",
-            "%", ".", "0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "_",
-            "0f", "a", "in", "of", "for", "and", "the", "to", "at", "on", "or",
-            "by"};
-    private final static Set<String> removableStrings;
-
-    static {
-        removableStrings = new TreeSet<>();
-        removableStrings.addAll(Arrays.asList(cleanningSet));
-    }
+    private final Vocabulary vocabulary;
 
     /**
-     * Stores words and occurrences of each word
+     * Stores the ids of the words, sorted, and the occurrences of each word
      */
-    private HashMap<String, Double> words;
+    private int[]    termIds;
+    private double[] weights;
 
     /**
      * Stores the original phrase before cleanning, used only in the
@@ -41,54 +39,187 @@ public class Keyword implements KmeansClusterItem<Keyword> {
      */
     private String originalPhrase;
 
+    /**
+     * Cached magnitude of the words vector, <tt>NaN</tt> until computed
+     */
+    private volatile double magnitude = Double.NaN;
+
+    /**
+     * Creates a keyword without words, over an empty vocabulary of its own.
+     * Enough to compute the mean of other keywords, which takes their
+     * vocabulary.
+     */
     public Keyword() {
-        words = new HashMap<>();
+        this(new Vocabulary());
+    }
+
+    /**
+     * Creates a keyword without words
+     *
+     * @param vocabulary The vocabulary of the words
+     */
+    public Keyword(Vocabulary vocabulary) {
+        this(vocabulary, NO_TERMS, NO_WEIGHTS);
     }
 
+    /**
+     * Creates a keyword with the words of a phrase, interned in the shared
+     * vocabulary so keywords created this way can be compared. The shared
+     * vocabulary is never cleared and holds at most
+     * <tt>Vocabulary.DEFAULT_MAX_TERMS</tt> terms, so it only suits ad hoc
+     * keywords; a corpus or a long-running caller should use
+     * {@link #Keyword(String, Vocabulary)} with a vocabulary of its own.
+     *
+     * @param phrase The phrase
+     * @throws IllegalStateException if the phrase has a new word and the
+     *                               shared vocabulary is full
+     * @see co.com.runtime.kmeans.datatypes.Vocabulary#getDefault()
+     */
     public Keyword(String phrase) {
-        originalPhrase = phrase;
-        words = new HashMap<>();
-        StringTokenizer st = new StringTokenizer(phrase);
-        while (st.hasMoreTokens()) {
-            addWord(st.nextToken().toLowerCase());
+        this(phrase, Vocabulary.getDefault());
+    }
+
+    /**
+     * Creates a keyword with the words of a phrase
+     *
+     * @param phrase     The phrase
+     * @param vocabulary The vocabulary where the words are interned
+     */
+    public Keyword(String phrase, Vocabulary vocabulary) {
+        this.vocabulary = vocabulary;
+        this.originalPhrase = phrase;
+
+        // Ids of every occurrence, sorted and then counted
+        int[][] ids = {new int[8]};
+        int[] count = {0};
+        vocabulary.tokenize(phrase, id -> {
+            if (count[0] == ids[0].length) {
+                ids[0] = Arrays.copyOf(ids[0], 2 * count[0]);
+            }
+            ids[0][count[0]++] = id;
+        });
+        int[] occurrences = ids[0];
+        int n = count[0];
+        Arrays.sort(occurrences, 0, n);
+
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || occurrences[i] != occurrences[i - 1]) {
+                distinct++;
+            }
+        }
+        termIds = new int[distinct];
+        weights = new double[distinct];
+        int position = -1;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || occurrences[i] != occurrences[i - 1]) {
+                termIds[++position] = occurrences[i];
+            }
+            weights[position]++;
         }
     }
 
-    private Keyword(HashMap<String, Double> words) {
-        this.words = words;
+    private Keyword(Vocabulary vocabulary, int[] termIds, double[] weights) {
+        this.vocabulary = vocabulary;
+        this.termIds = termIds;
+        this.weights = weights;
     }
 
     public void addWord(String word) {
-        if (ALLOW_ALL_WORDS) {
-            add(word);
-        } else if (!removableStrings.contains(word)) {
-            add(word);
+        if (!Vocabulary.isRemovable(word)) {
+            add(vocabulary.id(word));
         }
     }
 
-    private void add(String word) {
-        Double occurrences = words.get(word);
-        if (occurrences != null) {
-            words.put(word, occurrences + 1);
-        } else {
-            words.put(word, 1D);
+    private void add(int term) {
+        magnitude = Double.NaN;
+        int position = Arrays.binarySearch(termIds, term);
+        if (position >= 0) {
+            weights[position]++;
+            return;
+        }
+        position = -position - 1;
+        int[] ids = new int[termIds.length + 1];
+        double[] values = new double[ids.length];
+        System.arraycopy(termIds, 0, ids, 0, position);
+        System.arraycopy(weights, 0, values, 0, position);
+        ids[position] = term;
+        values[position] = 1D;
+        System.arraycopy(termIds, position, ids, position + 1, termIds.length - position);
+        System.arraycopy(weights, position, values, position + 1, weights.length - position);
+        termIds = ids;
+        weights = values;
+    }
+
+    /**
+     * @return the vocabulary of the words
+     */
+    public Vocabulary getVocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * @return the number of distinct words
+     */
+    public int size() {
+        return termIds.length;
+    }
+
+    /**
+     * @param i A position between zero and <tt>size()</tt> (exclusive)
+     * @return The id of the word at the position, ids grow with the position
+     */
+    public int termId(int i) {
+        return termIds[i];
+    }
+
+    /**
+     * @param i A position between zero and <tt>size()</tt> (exclusive)
+     * @return The weight of the word at the position
+     */
+    public double weight(int i) {
+        return weights[i];
+    }
+
+    /**
+     * @return An unmodifiable copy of the words and their weights, in order of
+     * term id
+     */
+    public Map<String, Double> getWords() {
+        Map<String, Double> words = new LinkedHashMap<>();
+        for (int i = 0; i < termIds.length; i++) {
+            words.put(vocabulary.term(termIds[i]), weights[i]);
         }
+        return Collections.unmodifiableMap(words);
     }
 
     private double magnitude() {
-        double mag = 0;
-        for (String word : words.keySet()) {
-            mag += Math.pow(words.get(word), 2);
+        double mag = magnitude;
+        if (Double.isNaN(mag)) {
+            mag = 0;
+            for (double weight : weights) {
+                mag += weight * weight;
+            }
+            mag = Math.sqrt(mag);
+            magnitude = mag;
         }
-        return Math.sqrt(mag);
+        return mag;
     }
 
     private double dotProduct(Keyword other) {
+        // Merge the sorted ids of both vectors
         double result = 0;
-        for (String word : words.keySet()) {
-            Double occursInOther = other.words.get(word);
-            if (occursInOther != null) {
-                result += words.get(word) * occursInOther;
+        int i = 0;
+        int j = 0;
+        while (i < termIds.length && j < other.termIds.length) {
+            int a = termIds[i];
+            int b = other.termIds[j];
+            if (a == b) {
+                result += weights[i++] * other.weights[j++];
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
             }
         }
         return result;
@@ -96,13 +227,30 @@ public class Keyword implements KmeansClusterItem<Keyword> {
 
     /*
      * (non-Javadoc)
-     * 
+     *
      * @see com.insidevault.exercise6.KmeansClusterItem#distance(java.lang.Object)
      */
     public double distance(Keyword other) {
         return angle(other);
     }
 
+    /**
+     * Returns the negative cosine of the angle between two keywords, which
+     * orders the keywords as the angle does without the arc cosine. Keywords
+     * without words are considered orthogonal to every other keyword.
+     *
+     * @param other The keyword against the distance is compared
+     * @return The negative cosine [-1, 1]
+     */
+    @Override
+    public double comparisonDistance(Keyword other) {
+        double magnitudes = this.magnitude() * other.magnitude();
+        if (magnitudes == 0) {
+            return 0;
+        }
+        return -dotProduct(other) / magnitudes;
+    }
+
     /**
      * Returns the Euclidean distance between two keywords(represented as
      * n-dimensional vectors)
@@ -113,15 +261,13 @@ public class Keyword implements KmeansClusterItem<Keyword> {
     @SuppressWarnings("unused")
     private double euclideanDistance(Keyword other) {
         double d = 0;
-        TreeSet<String> keys = new TreeSet<>();
-        keys.addAll(words.keySet());
-        keys.addAll(other.words.keySet());
-
-        for (String word : keys) {
-            Double val1 = words.get(word);
-            Double val2 = other.words.get(word);
-            val1 = (val1 == null) ? 0 : val1;
-            val2 = (val2 == null) ? 0 : val2;
+        int i = 0;
+        int j = 0;
+        while (i < termIds.length || j < other.termIds.length) {
+            int a = (i < termIds.length) ? termIds[i] : Integer.MAX_VALUE;
+            int b = (j < other.termIds.length) ? other.termIds[j] : Integer.MAX_VALUE;
+            double val1 = (a <= b) ? weights[i++] : 0;
+            double val2 = (b <= a) ? other.weights[j++] : 0;
 
             d += Math.pow(val1 - val2, 2D);
         }
@@ -151,21 +297,14 @@ public class Keyword implements KmeansClusterItem<Keyword> {
      */
     @SuppressWarnings("unused")
     private double jensenShannonDivergence(Keyword other) {
-        TreeSet<String> keys = new TreeSet<>();
-        keys.addAll(words.keySet());
-        keys.addAll(other.words.keySet());
-        HashMap<String, Double> average = new HashMap<>();
-
-        for (String word : keys) {
-            Double val1 = words.get(word);
-            Double val2 = other.words.get(word);
-            val1 = (val1 == null) ? 0 : val1;
-            val2 = (val2 == null) ? 0 : val2;
-
-            average.put(word, (val1 + val2) / 2D);
+        TermWeights sum = new TermWeights();
+        for (int i = 0; i < termIds.length; i++) {
+            sum.add(termIds[i], weights[i]);
         }
-
-        Keyword avgKeyword = new Keyword(average);
+        for (int j = 0; j < other.termIds.length; j++) {
+            sum.add(other.termIds[j], other.weights[j]);
+        }
+        Keyword avgKeyword = average(vocabulary, sum, 2D);
         return (kullbackLeiblerDivergence(avgKeyword) + other
                 .kullbackLeiblerDivergence(avgKeyword)) / 2;
     }
@@ -179,12 +318,10 @@ public class Keyword implements KmeansClusterItem<Keyword> {
      */
     private double kullbackLeiblerDivergence(Keyword other) {
         double klDiv = 0D;
-        Set<String> keys = other.words.keySet();
-        for (String word : keys) {
-            Double val1 = words.get(word);
-            Double val2 = other.words.get(word);
-            val1 = (val1 == null) ? 0 : val1;
-            val2 = (val2 == null) ? 0 : val2;
+        for (int j = 0; j < other.termIds.length; j++) {
+            int i = Arrays.binarySearch(termIds, other.termIds[j]);
+            double val1 = (i >= 0) ? weights[i] : 0;
+            double val2 = other.weights[j];
 
             if (val1 != 0D && val2 != 0D) {
                 klDiv += val1 * Math.log(val1 / val2);
@@ -197,10 +334,10 @@ public class Keyword implements KmeansClusterItem<Keyword> {
     public String toString() {
         if (originalPhrase == null) {
             StringBuilder sb = new StringBuilder();
-            for (String word : words.keySet()) {
-                sb.append(word);
+            for (int i = 0; i < termIds.length; i++) {
+                sb.append(vocabulary.term(termIds[i]));
                 sb.append(':');
-                sb.append(words.get(word));
+                sb.append(weights[i]);
                 sb.append(' ');
             }
             return sb.toString();
@@ -217,38 +354,119 @@ public class Keyword implements KmeansClusterItem<Keyword> {
 
     @Override
     public Keyword mean(Keyword[] elements) {
-        HashMap<String, Double> average = new HashMap<>();
+        TermWeights sum = new TermWeights();
         for (Keyword kw : elements) {
-            for (String word : kw.words.keySet()) {
-                Double val = kw.words.get(word);
-                Double avgVal = average.get(word);
-                val = (val == null) ? 0 : val;
-                avgVal = (avgVal == null) ? 0 : avgVal;
-                average.put(word, avgVal + val);
+            for (int i = 0; i < kw.termIds.length; i++) {
+                sum.add(kw.termIds[i], kw.weights[i]);
             }
         }
-        for (String word : average.keySet()) {
-            Double avgVal = average.get(word);
-            avgVal = (avgVal == null) ? 0 : avgVal;
-            average.put(word, avgVal / elements.length);
+        // The term ids belong to the vocabulary of the elements
+        return average((elements.length > 0) ? elements[0].vocabulary : vocabulary, sum, elements.length);
+    }
+
+    private static Keyword average(Vocabulary vocabulary, TermWeights sum, double count) {
+        int[] ids = new int[sum.size()];
+        double[] average = new double[ids.length];
+        sum.copySorted(ids, average, count);
+        return new Keyword(vocabulary, ids, average);
+    }
+
+    /**
+     * Returns a copy of this keyword with only the words selected by a
+     * truncation, used to bound the size of the centroids
+     *
+     * @param truncation Selects the words to keep
+     * @return This keyword if every word is kept, a truncated copy otherwise
+     */
+    public Keyword truncate(CentroidTruncation truncation) {
+        boolean[] keep = truncation.select(weights);
+        if (keep == null) {
+            return this;
+        }
+        int kept = 0;
+        for (boolean k : keep) {
+            kept += k ? 1 : 0;
+        }
+        int[] ids = new int[kept];
+        double[] values = new double[kept];
+        int position = 0;
+        for (int i = 0; i < keep.length; i++) {
+            if (keep[i]) {
+                ids[position] = termIds[i];
+                values[position++] = weights[i];
+            }
         }
-        return new Keyword(average);
+        return new Keyword(vocabulary, ids, values);
+    }
+
+    /**
+     * Returns an accumulator that only keeps the sum of the weights of each
+     * word
+     */
+    @Override
+    public CentroidAccumulator<Keyword> newAccumulator() {
+        return new Sum(vocabulary);
     }
 
     @Override
     public int hashCode() {
-        return words.hashCode();
+        return 31 * Arrays.hashCode(termIds) + Arrays.hashCode(weights);
     }
 
     @Override
     public boolean equals(Object other) {
-        return other instanceof Keyword && words.equals(((Keyword) other).words);
+        if (!(other instanceof Keyword)) {
+            return false;
+        }
+        Keyword keyword = (Keyword) other;
+        return vocabulary == keyword.vocabulary && Arrays.equals(termIds, keyword.termIds)
+                && Arrays.equals(weights, keyword.weights);
+    }
+
+    private static class Sum implements CentroidAccumulator<Keyword> {
+        private final Vocabulary  vocabulary;
+        private final TermWeights sum = new TermWeights();
+        private long              count;
+
+        Sum(Vocabulary vocabulary) {
+            this.vocabulary = vocabulary;
+        }
+
+        @Override
+        public void add(Keyword keyword) {
+            for (int i = 0; i < keyword.termIds.length; i++) {
+                sum.add(keyword.termIds[i], keyword.weights[i]);
+            }
+            count++;
+        }
+
+        @Override
+        public void merge(CentroidAccumulator<Keyword> other) {
+            Sum partial = (Sum) other;
+            int[] ids = new int[partial.sum.size()];
+            double[] values = new double[ids.length];
+            partial.sum.copySorted(ids, values, 1D);
+            for (int i = 0; i < ids.length; i++) {
+                sum.add(ids[i], values[i]);
+            }
+            count += partial.count;
+        }
+
+        @Override
+        public long count() {
+            return count;
+        }
+
+        @Override
+        public Keyword mean() {
+            return average(vocabulary, sum, count);
+        }
     }
 
     private class DistanceOrder implements Comparator<Keyword> {
         @Override
         public int compare(Keyword kw1, Keyword kw2) {
-            Double difference = distance(kw2) - distance(kw1);
+            double difference = comparisonDistance(kw2) - comparisonDistance(kw1);
             if (difference > 0D) {
                 return -1;
             } else if (difference < 0D) {
@@ -0,0 +1,95 @@
+package co.com.runtime.kmeans.datatypes;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map from term ids to weights, used to add up sparse
+ * vectors without boxing
+ *
+ * @author Camilo Sarmiento
+ */
+class TermWeights {
+    private static final int FREE = -1;
+
+    private int[]    keys;
+    private double[] values;
+    private int      size;
+
+    TermWeights() {
+        keys = new int[16];
+        values = new double[16];
+        Arrays.fill(keys, FREE);
+    }
+
+    /**
+     * Adds a weight to a term
+     */
+    void add(int term, double weight) {
+        int mask = keys.length - 1;
+        int slot = mix(term) & mask;
+        while (keys[slot] != FREE && keys[slot] != term) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == FREE) {
+            keys[slot] = term;
+            size++;
+        }
+        values[slot] += weight;
+        if (2 * size > keys.length) {
+            grow();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Copies the terms, sorted, and their weights divided by a number
+     *
+     * @param ids     Receives the sorted term ids, at least <tt>size()</tt>
+     *                long
+     * @param weights Receives the weights
+     * @param divisor Divisor of every weight
+     */
+    void copySorted(int[] ids, double[] weights, double divisor) {
+        int n = 0;
+        for (int key : keys) {
+            if (key != FREE) {
+                ids[n++] = key;
+            }
+        }
+        Arrays.sort(ids, 0, n);
+        for (int i = 0; i < n; i++) {
+            weights[i] = values[find(ids[i])] / divisor;
+        }
+    }
+
+    private int find(int term) {
+        int mask = keys.length - 1;
+        int slot = mix(term) & mask;
+        while (keys[slot] != term) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        double[] oldValues = values;
+        keys = new int[2 * oldKeys.length];
+        values = new double[keys.length];
+        Arrays.fill(keys, FREE);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                add(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int mix(int term) {
+        int h = term * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
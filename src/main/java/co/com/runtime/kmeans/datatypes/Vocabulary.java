@@ -0,0 +1,174 @@
+package co.com.runtime.kmeans.datatypes;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Terms of a corpus, each one stored once and identified by a dense
+ * <tt>int</tt> id in order of first appearance. The vocabulary is also the
+ * tokenizer of the phrases, so <tt>Keyword</tt> and the dictionaries built
+ * from a keywords file agree on the terms and their ids.
+ * <p/>
+ * Safe for concurrent use, an id never changes once assigned.
+ *
+ * @author Camilo Sarmiento
+ */
+public class Vocabulary {
+    private static final boolean ALLOW_ALL_WORDS = false;
+    private static final String  DELIMITERS      = " \t\n\r\f";
+
+    /**
+     * Words that can distort the semantic matching between keywords
+     */
+    private final static String[] cleanningSet = {"@", "#", "-", "*", "&",
+            "%", ".", "0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "_",
+            "0f", "a", "in", "of", "for", "and", "the", "to", "at", "on", "or",
+            "by"};
+    private final static Set<String> removableStrings;
+
+    static {
+        removableStrings = new TreeSet<>();
+        removableStrings.addAll(Arrays.asList(cleanningSet));
+    }
+
+    /**
+     * Maximum number of terms of the shared vocabulary
+     */
+    public static final int DEFAULT_MAX_TERMS = 1 << 16;
+
+    private static final Vocabulary DEFAULT = new Vocabulary(DEFAULT_MAX_TERMS);
+
+    private final ConcurrentHashMap<String, Integer> ids   = new ConcurrentHashMap<>();
+    private final int                                maxTerms;
+    private volatile String[]                        terms = new String[1024];
+    private volatile int                             size;
+
+    /**
+     * Creates an empty vocabulary without a limit on its number of terms
+     */
+    public Vocabulary() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates an empty vocabulary
+     *
+     * @param maxTerms Maximum number of terms
+     */
+    public Vocabulary(int maxTerms) {
+        this.maxTerms = maxTerms;
+    }
+
+    /**
+     * Returns the vocabulary shared by the keywords created from a phrase
+     * without an explicit vocabulary. Its terms live as long as the JVM, so
+     * it holds at most <tt>DEFAULT_MAX_TERMS</tt> of them; the files are
+     * loaded with a vocabulary of their own.
+     *
+     * @return The shared vocabulary
+     */
+    public static Vocabulary getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param word A lower case word
+     * @return <tt>true</tt> if the word is ignored by the tokenizer
+     */
+    public static boolean isRemovable(String word) {
+        return !ALLOW_ALL_WORDS && removableStrings.contains(word);
+    }
+
+    /**
+     * Returns the id of a term, adding the term if it is new
+     *
+     * @param term The term
+     * @return The id of the term
+     * @throws IllegalStateException if the term is new and the vocabulary
+     *                               is full
+     */
+    public int id(String term) {
+        Integer id = ids.get(term);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(term);
+            if (id != null) {
+                return id;
+            }
+            int newId = size;
+            if (newId == maxTerms) {
+                throw new IllegalStateException("Vocabulary full, " + maxTerms + " terms");
+            }
+            if (newId == terms.length) {
+                terms = Arrays.copyOf(terms, (int) Math.min(2L * newId, maxTerms));
+            }
+            terms[newId] = term;
+            // The size is published before the id, so term(id) accepts any
+            // id returned by the lock-free lookup
+            size = newId + 1;
+            ids.put(term, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * @param term The term
+     * @return The id of the term, -1 if the term is not in the vocabulary
+     */
+    public int find(String term) {
+        Integer id = ids.get(term);
+        return (id == null) ? -1 : id;
+    }
+
+    /**
+     * @param id The id of a term
+     * @return The term
+     */
+    public String term(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Unknown term id " + id);
+        }
+        return terms[id];
+    }
+
+    /**
+     * @return the number of terms, every id is smaller than it
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Splits a phrase in lower case words, skipping the removable ones, and
+     * passes the id of every word to a consumer, once per occurrence
+     *
+     * @param phrase   The phrase
+     * @param consumer Receives the ids of the words
+     */
+    public void tokenize(String phrase, IntConsumer consumer) {
+        String lowerCase = phrase.toLowerCase();
+        int length = lowerCase.length();
+        int start = 0;
+        while (start < length) {
+            while (start < length && DELIMITERS.indexOf(lowerCase.charAt(start)) >= 0) {
+                start++;
+            }
+            int end = start;
+            while (end < length && DELIMITERS.indexOf(lowerCase.charAt(end)) < 0) {
+                end++;
+            }
+            if (end > start) {
+                String word = lowerCase.substring(start, end);
+                if (!isRemovable(word)) {
+                    consumer.accept(id(word));
+                }
+            }
+            start = end;
+        }
+    }
+}
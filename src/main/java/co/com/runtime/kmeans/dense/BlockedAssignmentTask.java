@@ -0,0 +1,226 @@
+package co.com.runtime.kmeans.dense;
+
+import co.com.runtime.kmeans.WorkerBuffers;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Represents a parallel task for the K-means algorithm over a
+ * <tt>DenseDataset</tt> that assigns a range of rows as a blocked matrix
+ * product. The squared distance is expanded as
+ * <tt>||x||^2 + ||c||^2 - 2 x.c</tt>: the norms are computed beforehand and
+ * the cross terms of a tile of rows and a tile of centroids are computed
+ * together, two rows by four centroids at a time, so every component loaded
+ * is used by several products. A tile of centroids is sized to stay in the
+ * cache while every row of the tile of rows is multiplied by it, and the
+ * nearest centroid of each row is updated as each tile of centroids is
+ * finished.
+ * <p/>
+ * The expanded distance loses precision when a row is far from the origin
+ * compared to its distance to the centroids, so rows that are almost at the
+ * same distance of two centroids may be assigned differently than by
+ * <tt>DenseClusteringTask</tt>. The inertia is computed with the exact
+ * distance to the chosen centroid.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.dense.DenseClusteringTask
+ */
+public class BlockedAssignmentTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Rows multiplied by each tile of centroids
+     */
+    static final int ROW_TILE = 32;
+
+    /**
+     * Components of the centroids kept in the cache at once, 256 KB
+     */
+    static final int CENTROID_TILE_VALUES = 1 << 15;
+
+    private DenseDataset             dataset;
+    private double[]                 rowNorms;
+    private DenseCentroids           centroids;
+    private double[]                 centroidNorms;
+    private int[]                    assignment;
+    private WorkerBuffers<DenseSums> buffers;
+    private int                      startIndex;
+    private int                      endIndex;
+    private int                      granularity;
+
+    /**
+     * @param dataset       The whole data set
+     * @param rowNorms      Squared norm of every row of the data set,
+     *                      <tt>null</tt> to compute them as the rows are
+     *                      assigned
+     * @param centroids     The current centroids
+     * @param centroidNorms Squared norm of every centroid
+     * @param assignment    Cluster assigned to each row, updated by the task
+     * @param buffers       Sums of each worker thread
+     * @param startIndex    First row assigned by this task (inclusive)
+     * @param endIndex      Last row assigned by this task (exclusive)
+     * @param granularity   Maximum number of rows assigned without splitting
+     *                      the task in two halves
+     */
+    public BlockedAssignmentTask(DenseDataset dataset, double[] rowNorms, DenseCentroids centroids,
+                                 double[] centroidNorms, int[] assignment, WorkerBuffers<DenseSums> buffers,
+                                 int startIndex, int endIndex, int granularity) {
+        this.dataset = dataset;
+        this.rowNorms = rowNorms;
+        this.centroids = centroids;
+        this.centroidNorms = centroidNorms;
+        this.assignment = assignment;
+        this.buffers = buffers;
+        this.startIndex = startIndex;
+        this.endIndex = endIndex;
+        this.granularity = Math.max(1, granularity);
+    }
+
+    /**
+     * @return Number of centroids of each tile, a multiple of four unless all
+     * the centroids fit in one tile
+     */
+    static int centroidTile(int numberOfClusters, int dimension) {
+        int tile = Math.max(4, (CENTROID_TILE_VALUES / Math.max(1, dimension)) & ~3);
+        return Math.min(numberOfClusters, tile);
+    }
+
+    @Override
+    protected void compute() {
+        if (endIndex - startIndex > granularity) {
+            int middle = (startIndex + endIndex) >>> 1;
+            invokeAll(new BlockedAssignmentTask(dataset, rowNorms, centroids, centroidNorms, assignment, buffers,
+                            startIndex, middle, granularity),
+                    new BlockedAssignmentTask(dataset, rowNorms, centroids, centroidNorms, assignment, buffers,
+                            middle, endIndex, granularity));
+            return;
+        }
+
+        long started = System.nanoTime();
+        double[] data = dataset.getValues();
+        double[] centers = centroids.getValues();
+        int dimension = dataset.dimension();
+        int k = centroids.size();
+        int centroidTile = centroidTile(k, dimension);
+        DenseSums sums = buffers.get();
+        DistanceKernels kernels = DistanceKernels.get();
+
+        double[] cross = new double[ROW_TILE * centroidTile];
+        double[] norms = new double[ROW_TILE];
+        double[] best = new double[ROW_TILE];
+        int[] nearest = new int[ROW_TILE];
+        long changed = 0;
+        double inertia = 0;
+        for (int firstRow = startIndex; firstRow < endIndex; firstRow += ROW_TILE) {
+            int rows = Math.min(ROW_TILE, endIndex - firstRow);
+            for (int r = 0; r < rows; r++) {
+                int rowOffset = (firstRow + r) * dimension;
+                norms[r] = (rowNorms != null) ? rowNorms[firstRow + r]
+                        : kernels.dot(data, rowOffset, data, rowOffset, dimension);
+                best[r] = Double.POSITIVE_INFINITY;
+                nearest[r] = 0;
+            }
+
+            for (int firstCentroid = 0; firstCentroid < k; firstCentroid += centroidTile) {
+                int count = Math.min(centroidTile, k - firstCentroid);
+                multiply(data, firstRow, rows, centers, firstCentroid, count, dimension, cross, centroidTile,
+                        kernels);
+                for (int r = 0; r < rows; r++) {
+                    int crossOffset = r * centroidTile;
+                    for (int c = 0; c < count; c++) {
+                        double distance = norms[r] + centroidNorms[firstCentroid + c] - 2 * cross[crossOffset + c];
+                        if (distance < best[r]) {
+                            best[r] = distance;
+                            nearest[r] = firstCentroid + c;
+                        }
+                    }
+                }
+            }
+
+            for (int r = 0; r < rows; r++) {
+                int row = firstRow + r;
+                int rowOffset = row * dimension;
+                if (assignment[row] != nearest[r]) {
+                    assignment[row] = nearest[r];
+                    changed++;
+                }
+                sums.add(nearest[r], data, rowOffset);
+                inertia += kernels.squaredDistance(data, rowOffset, centers, nearest[r] * dimension, dimension);
+            }
+        }
+        sums.addReassigned(changed);
+        sums.addInertia(inertia);
+        sums.addEvaluations((long) (endIndex - startIndex) * k);
+        sums.addTaskNanos(System.nanoTime() - started);
+    }
+
+    /**
+     * Computes the dot products of a tile of rows and a tile of centroids,
+     * two rows by four centroids at a time
+     *
+     * @param cross  Receives the product of row <tt>r</tt> of the tile and
+     *               centroid <tt>c</tt> of the tile at
+     *               <tt>r * stride + c</tt>
+     * @param stride Length of each row of <tt>cross</tt>
+     */
+    static void multiply(double[] data, int firstRow, int rows, double[] centers, int firstCentroid, int count,
+                         int dimension, double[] cross, int stride, DistanceKernels kernels) {
+        int r = 0;
+        for (; r + 1 < rows; r += 2) {
+            int a0 = (firstRow + r) * dimension;
+            int a1 = a0 + dimension;
+            int out0 = r * stride;
+            int out1 = out0 + stride;
+            int c = 0;
+            for (; c + 3 < count; c += 4) {
+                int b0 = (firstCentroid + c) * dimension;
+                int b1 = b0 + dimension;
+                int b2 = b1 + dimension;
+                int b3 = b2 + dimension;
+                double s00 = 0;
+                double s01 = 0;
+                double s02 = 0;
+                double s03 = 0;
+                double s10 = 0;
+                double s11 = 0;
+                double s12 = 0;
+                double s13 = 0;
+                for (int j = 0; j < dimension; j++) {
+                    double x0 = data[a0 + j];
+                    double x1 = data[a1 + j];
+                    double y0 = centers[b0 + j];
+                    double y1 = centers[b1 + j];
+                    double y2 = centers[b2 + j];
+                    double y3 = centers[b3 + j];
+                    s00 += x0 * y0;
+                    s01 += x0 * y1;
+                    s02 += x0 * y2;
+                    s03 += x0 * y3;
+                    s10 += x1 * y0;
+                    s11 += x1 * y1;
+                    s12 += x1 * y2;
+                    s13 += x1 * y3;
+                }
+                cross[out0 + c] = s00;
+                cross[out0 + c + 1] = s01;
+                cross[out0 + c + 2] = s02;
+                cross[out0 + c + 3] = s03;
+                cross[out1 + c] = s10;
+                cross[out1 + c + 1] = s11;
+                cross[out1 + c + 2] = s12;
+                cross[out1 + c + 3] = s13;
+            }
+            for (; c < count; c++) {
+                int b = (firstCentroid + c) * dimension;
+                cross[out0 + c] = kernels.dot(data, a0, centers, b, dimension);
+                cross[out1 + c] = kernels.dot(data, a1, centers, b, dimension);
+            }
+        }
+        if (r < rows) {
+            int a = (firstRow + r) * dimension;
+            for (int c = 0; c < count; c++) {
+                cross[r * stride + c] = kernels.dot(data, a, centers, (firstCentroid + c) * dimension, dimension);
+            }
+        }
+    }
+}
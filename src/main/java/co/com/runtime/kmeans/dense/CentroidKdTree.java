@@ -0,0 +1,264 @@
+package co.com.runtime.kmeans.dense;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * K-d tree over a set of <tt>DenseCentroids</tt>, for exact nearest centroid
+ * queries. The centroids are copied in tree order to a row-major block: the
+ * centroid in the middle of a range splits it on the component of widest
+ * spread, the centroids before it are not above it on that component and the
+ * centroids after it are not below it. Ranges of a few centroids are
+ * scanned.
+ * <p/>
+ * A query descends first to the side of the row and visits the other side
+ * only if the splitting plane is not farther than the nearest centroid found
+ * so far. The search pays off for low dimensions, when K is large compared
+ * to the number of components; in high dimensions most of the tree is
+ * visited and a scan is cheaper.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.dense.IndexedClusteringTask
+ */
+public class CentroidKdTree {
+    /**
+     * Largest range of centroids scanned without splitting
+     */
+    static final int LEAF_SIZE = 8;
+
+    /**
+     * Largest range of centroids whose subtrees are built by a single thread
+     */
+    private static final int SEQUENTIAL_BUILD = 1024;
+
+    private final int      dimension;
+    private final double[] points;
+    private final int[]    ids;
+    private final int[]    splits;
+
+    private CentroidKdTree(int dimension, double[] points, int[] ids, int[] splits) {
+        this.dimension = dimension;
+        this.points = points;
+        this.ids = ids;
+        this.splits = splits;
+    }
+
+    /**
+     * Builds the tree, the subtrees of large ranges in parallel
+     *
+     * @param centroids The centroids
+     * @param pool      Pool where the tree is built
+     * @return The tree
+     */
+    public static CentroidKdTree build(DenseCentroids centroids, ForkJoinPool pool) {
+        int k = centroids.size();
+        int dimension = centroids.dimension();
+        int[] ids = new int[k];
+        for (int c = 0; c < k; c++) {
+            ids[c] = c;
+        }
+        int[] splits = new int[k];
+        BuildTask task = new BuildTask(centroids.getValues(), dimension, ids, splits, 0, k);
+        if (k > SEQUENTIAL_BUILD) {
+            pool.invoke(task);
+        } else {
+            task.compute();
+        }
+
+        double[] points = new double[k * dimension];
+        for (int i = 0; i < k; i++) {
+            System.arraycopy(centroids.getValues(), ids[i] * dimension, points, i * dimension, dimension);
+        }
+        return new CentroidKdTree(dimension, points, ids, splits);
+    }
+
+    /**
+     * Finds the nearest centroid of a row. Ties go to the centroid with the
+     * lowest index, as in a scan.
+     *
+     * @param row       Block holding the row
+     * @param rowOffset Position of the first component of the row
+     * @param query     Holds a known centroid and its squared distance, or
+     *                  <tt>-1</tt> and infinity; receives the nearest
+     *                  centroid and its squared distance
+     */
+    public void nearest(double[] row, int rowOffset, Query query) {
+        search(row, rowOffset, 0, ids.length, query, DistanceKernels.get());
+    }
+
+    private void search(double[] row, int rowOffset, int start, int end, Query query, DistanceKernels kernels) {
+        if (end - start <= LEAF_SIZE) {
+            for (int i = start; i < end; i++) {
+                visit(row, rowOffset, i, query, kernels);
+            }
+            return;
+        }
+        int middle = (start + end) >>> 1;
+        int split = splits[middle];
+        double difference = row[rowOffset + split] - points[middle * dimension + split];
+        visit(row, rowOffset, middle, query, kernels);
+        if (difference < 0) {
+            search(row, rowOffset, start, middle, query, kernels);
+            if (difference * difference <= query.distance) {
+                search(row, rowOffset, middle + 1, end, query, kernels);
+            }
+        } else {
+            search(row, rowOffset, middle + 1, end, query, kernels);
+            if (difference * difference <= query.distance) {
+                search(row, rowOffset, start, middle, query, kernels);
+            }
+        }
+    }
+
+    private void visit(double[] row, int rowOffset, int position, Query query, DistanceKernels kernels) {
+        double distance = kernels.squaredDistance(row, rowOffset, points, position * dimension, dimension);
+        query.evaluations++;
+        int id = ids[position];
+        if (distance < query.distance || (distance == query.distance && id < query.centroid)) {
+            query.distance = distance;
+            query.centroid = id;
+        }
+    }
+
+    /**
+     * State of a nearest centroid query, reused by the queries of a thread
+     */
+    public static class Query {
+        int    centroid;
+        double distance;
+        long   evaluations;
+
+        /**
+         * Starts a new query
+         *
+         * @param centroid A known centroid, <tt>-1</tt> if none
+         * @param distance Squared distance to the known centroid
+         */
+        public void reset(int centroid, double distance) {
+            this.centroid = centroid;
+            this.distance = (centroid < 0) ? Double.POSITIVE_INFINITY : distance;
+        }
+
+        /**
+         * @return the nearest centroid
+         */
+        public int getCentroid() {
+            return centroid;
+        }
+
+        /**
+         * @return the squared distance to the nearest centroid
+         */
+        public double getDistance() {
+            return distance;
+        }
+
+        /**
+         * @return the distances computed by all the queries
+         */
+        public long getEvaluations() {
+            return evaluations;
+        }
+    }
+
+    /**
+     * Sorts a range of centroids in tree order
+     */
+    private static class BuildTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] values;
+        private final int      dimension;
+        private final int[]    ids;
+        private final int[]    splits;
+        private final int      start;
+        private final int      end;
+
+        BuildTask(double[] values, int dimension, int[] ids, int[] splits, int start, int end) {
+            this.values = values;
+            this.dimension = dimension;
+            this.ids = ids;
+            this.splits = splits;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= LEAF_SIZE) {
+                return;
+            }
+            int split = widestComponent();
+            int middle = (start + end) >>> 1;
+            select(split, middle);
+            splits[middle] = split;
+            BuildTask left = new BuildTask(values, dimension, ids, splits, start, middle);
+            BuildTask right = new BuildTask(values, dimension, ids, splits, middle + 1, end);
+            if (end - start > SEQUENTIAL_BUILD) {
+                invokeAll(left, right);
+            } else {
+                left.compute();
+                right.compute();
+            }
+        }
+
+        private int widestComponent() {
+            int widest = 0;
+            double widestSpread = -1;
+            for (int j = 0; j < dimension; j++) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (int i = start; i < end; i++) {
+                    double value = values[ids[i] * dimension + j];
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                if (max - min > widestSpread) {
+                    widestSpread = max - min;
+                    widest = j;
+                }
+            }
+            return widest;
+        }
+
+        /**
+         * Moves the centroid of rank <tt>target</tt> on a component to that
+         * position, lower ones before and higher ones after (quickselect)
+         */
+        private void select(int component, int target) {
+            int low = start;
+            int high = end - 1;
+            while (low < high) {
+                double pivot = value(ids[(low + high) >>> 1], component);
+                int i = low;
+                int j = high;
+                while (i <= j) {
+                    while (value(ids[i], component) < pivot) {
+                        i++;
+                    }
+                    while (value(ids[j], component) > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        int id = ids[i];
+                        ids[i] = ids[j];
+                        ids[j] = id;
+                        i++;
+                        j--;
+                    }
+                }
+                if (target <= j) {
+                    high = j;
+                } else if (target >= i) {
+                    low = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private double value(int id, int component) {
+            return values[id * dimension + component];
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package co.com.runtime.kmeans.dense;
+
+import co.com.runtime.kmeans.WorkerBuffers;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Weighted sample of the rows of a <tt>DenseDataset</tt> whose clustering
+ * cost approximates the cost of the whole data set. The rows are drawn as a
+ * lightweight coreset: half of the probability of a row is uniform and half
+ * is proportional to its squared distance to the mean of the data set, so
+ * outlying rows that may form their own cluster are kept. Each drawn row is
+ * weighted by the inverse of its probability times the number of draws, and
+ * a row drawn several times is kept once with the sum of the weights.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.CoresetPolicy
+ */
+public class Coreset {
+    private final DenseDataset points;
+    private final double[]     weights;
+    private final int[]        rows;
+
+    private Coreset(DenseDataset points, double[] weights, int[] rows) {
+        this.points = points;
+        this.weights = weights;
+        this.rows = rows;
+    }
+
+    /**
+     * Draws a lightweight coreset. The mean and the distances to it are
+     * computed by two parallel passes over the data set, the second one also
+     * sums the probabilities of each block of rows. The draws are then
+     * distributed to the blocks and resolved to rows in parallel.
+     *
+     * @param dataset The data set
+     * @param draws   Number of rows drawn, with replacement
+     * @param seed    Seed of the draws
+     * @param pool    Pool where the passes over the data set run
+     * @return The coreset, with at most <tt>draws</tt> rows
+     */
+    public static Coreset lightweight(DenseDataset dataset, int draws, long seed, ForkJoinPool pool) {
+        int size = dataset.size();
+        int dimension = dataset.dimension();
+        if (size == 0 || draws <= 0) {
+            return new Coreset(new DenseDataset(0, dimension), new double[0], new int[0]);
+        }
+        int blockRows = Math.max(1024, size / (4 * pool.getParallelism()));
+        int blocks = (size + blockRows - 1) / blockRows;
+
+        // First pass: the mean
+        WorkerBuffers<double[]> buffers = new WorkerBuffers<>(() -> new double[dimension]);
+        pool.invoke(new PassTask(dataset, blockRows, null, null, null, buffers, 0, blocks));
+        double[] mean = buffers.reduce(pool, Coreset::add);
+        for (int j = 0; j < dimension; j++) {
+            mean[j] /= size;
+        }
+
+        // Second pass: the squared distance of every row to the mean, summed
+        // by block
+        double[] distances = new double[size];
+        double[] blockDistances = new double[blocks];
+        pool.invoke(new PassTask(dataset, blockRows, mean, distances, blockDistances, null, 0, blocks));
+        double total = 0;
+        for (double blockDistance : blockDistances) {
+            total += blockDistance;
+        }
+
+        // Unnormalized probability of a row: its distance plus the mean
+        // distance. starts[b] is the probability of the rows before block b.
+        double uniform = (total > 0) ? total / size : 1;
+        double[] starts = new double[blocks + 1];
+        for (int b = 0; b < blocks; b++) {
+            int blockSize = Math.min(blockRows, size - b * blockRows);
+            starts[b + 1] = starts[b] + blockDistances[b] + blockSize * uniform;
+        }
+        double sum = starts[blocks];
+
+        // Counting sort of the draws by block
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] drawn = new double[draws];
+        int[] drawBlocks = new int[draws];
+        int[] firstTargets = new int[blocks + 1];
+        for (int i = 0; i < draws; i++) {
+            drawn[i] = random.nextDouble() * sum;
+            drawBlocks[i] = block(starts, drawn[i]);
+            firstTargets[drawBlocks[i] + 1]++;
+        }
+        for (int b = 0; b < blocks; b++) {
+            firstTargets[b + 1] += firstTargets[b];
+        }
+        double[] targets = new double[draws];
+        int[] next = Arrays.copyOf(firstTargets, blocks);
+        for (int i = 0; i < draws; i++) {
+            targets[next[drawBlocks[i]]++] = drawn[i];
+        }
+
+        // Every block writes its rows from the position of its first target
+        int[] rows = new int[draws];
+        double[] weights = new double[draws];
+        int[] counts = new int[blocks];
+        pool.invoke(new SweepTask(distances, blockRows, uniform, sum, draws, starts, targets, firstTargets, rows,
+                weights, counts, 0, blocks));
+
+        int count = 0;
+        for (int b = 0; b < blocks; b++) {
+            System.arraycopy(rows, firstTargets[b], rows, count, counts[b]);
+            System.arraycopy(weights, firstTargets[b], weights, count, counts[b]);
+            count += counts[b];
+        }
+
+        DenseDataset points = new DenseDataset(count, dimension);
+        for (int c = 0; c < count; c++) {
+            System.arraycopy(dataset.getValues(), dataset.offset(rows[c]), points.getValues(), c * dimension,
+                    dimension);
+        }
+        return new Coreset(points, Arrays.copyOf(weights, count), Arrays.copyOf(rows, count));
+    }
+
+    /**
+     * @return The block whose range of probability holds a target, the last
+     * block for a target past the end by rounding
+     */
+    private static int block(double[] starts, double target) {
+        int low = 0;
+        int high = starts.length - 2;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (starts[middle] <= target) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private static double[] add(double[] a, double[] b) {
+        for (int i = 0; i < a.length; i++) {
+            a[i] += b[i];
+        }
+        return a;
+    }
+
+    /**
+     * @return the number of rows of the coreset
+     */
+    public int size() {
+        return rows.length;
+    }
+
+    /**
+     * @return the rows of the coreset
+     */
+    public DenseDataset getPoints() {
+        return points;
+    }
+
+    /**
+     * @return the weight of every row of the coreset
+     */
+    public double[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * @return the row of the data set copied to every row of the coreset
+     */
+    public int[] getRows() {
+        return rows;
+    }
+
+    /**
+     * Sums a range of blocks of rows or, once the mean is known, computes the
+     * squared distances of their rows to it and the sum of each block. The
+     * buffer of each thread holds the column sums.
+     */
+    private static class PassTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final DenseDataset            dataset;
+        private final int                     blockRows;
+        private final double[]                mean;
+        private final double[]                distances;
+        private final double[]                blockDistances;
+        private final WorkerBuffers<double[]> buffers;
+        private final int                     startBlock;
+        private final int                     endBlock;
+
+        PassTask(DenseDataset dataset, int blockRows, double[] mean, double[] distances, double[] blockDistances,
+                 WorkerBuffers<double[]> buffers, int startBlock, int endBlock) {
+            this.dataset = dataset;
+            this.blockRows = blockRows;
+            this.mean = mean;
+            this.distances = distances;
+            this.blockDistances = blockDistances;
+            this.buffers = buffers;
+            this.startBlock = startBlock;
+            this.endBlock = endBlock;
+        }
+
+        @Override
+        protected void compute() {
+            if (endBlock - startBlock > 1) {
+                int middle = (startBlock + endBlock) >>> 1;
+                invokeAll(new PassTask(dataset, blockRows, mean, distances, blockDistances, buffers, startBlock,
+                                middle),
+                        new PassTask(dataset, blockRows, mean, distances, blockDistances, buffers, middle,
+                                endBlock));
+                return;
+            }
+            double[] data = dataset.getValues();
+            int dimension = dataset.dimension();
+            int startIndex = startBlock * blockRows;
+            int endIndex = startIndex + Math.min(blockRows, dataset.size() - startIndex);
+            if (mean == null) {
+                double[] buffer = buffers.get();
+                for (int i = startIndex; i < endIndex; i++) {
+                    int offset = i * dimension;
+                    for (int j = 0; j < dimension; j++) {
+                        buffer[j] += data[offset + j];
+                    }
+                }
+            } else {
+                DistanceKernels kernels = DistanceKernels.get();
+                double total = 0;
+                for (int i = startIndex; i < endIndex; i++) {
+                    distances[i] = kernels.squaredDistance(data, i * dimension, mean, 0, dimension);
+                    total += distances[i];
+                }
+                blockDistances[startBlock] = total;
+            }
+        }
+    }
+
+    /**
+     * Resolves the draws of a range of blocks to rows. Each block sorts its
+     * targets and sweeps its rows once, a row hit by several targets is kept
+     * once with the sum of the weights.
+     */
+    private static class SweepTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] distances;
+        private final int      blockRows;
+        private final double   uniform;
+        private final double   sum;
+        private final int      draws;
+        private final double[] starts;
+        private final double[] targets;
+        private final int[]    firstTargets;
+        private final int[]    rows;
+        private final double[] weights;
+        private final int[]    counts;
+        private final int      startBlock;
+        private final int      endBlock;
+
+        SweepTask(double[] distances, int blockRows, double uniform, double sum, int draws, double[] starts,
+                  double[] targets, int[] firstTargets, int[] rows, double[] weights, int[] counts, int startBlock,
+                  int endBlock) {
+            this.distances = distances;
+            this.blockRows = blockRows;
+            this.uniform = uniform;
+            this.sum = sum;
+            this.draws = draws;
+            this.starts = starts;
+            this.targets = targets;
+            this.firstTargets = firstTargets;
+            this.rows = rows;
+            this.weights = weights;
+            this.counts = counts;
+            this.startBlock = startBlock;
+            this.endBlock = endBlock;
+        }
+
+        @Override
+        protected void compute() {
+            if (endBlock - startBlock > 1) {
+                int middle = (startBlock + endBlock) >>> 1;
+                invokeAll(new SweepTask(distances, blockRows, uniform, sum, draws, starts, targets, firstTargets,
+                                rows, weights, counts, startBlock, middle),
+                        new SweepTask(distances, blockRows, uniform, sum, draws, starts, targets, firstTargets,
+                                rows, weights, counts, middle, endBlock));
+                return;
+            }
+            int b = startBlock;
+            int t = firstTargets[b];
+            int end = firstTargets[b + 1];
+            if (t == end) {
+                return;
+            }
+            Arrays.sort(targets, t, end);
+            int startIndex = b * blockRows;
+            int endIndex = startIndex + Math.min(blockRows, distances.length - startIndex);
+            int count = firstTargets[b];
+            double cumulative = starts[b];
+            for (int i = startIndex; i < endIndex && t < end; i++) {
+                double probability = distances[i] + uniform;
+                cumulative += probability;
+                int hits = 0;
+                while (t < end && targets[t] < cumulative) {
+                    hits++;
+                    t++;
+                }
+                if (hits > 0) {
+                    rows[count] = i;
+                    weights[count] = hits * sum / (draws * probability);
+                    count++;
+                }
+            }
+            // Rounding may leave the last targets past the end of the block
+            if (t < end) {
+                int last = endIndex - 1;
+                double extra = (end - t) * sum / (draws * (distances[last] + uniform));
+                if (count > firstTargets[b] && rows[count - 1] == last) {
+                    weights[count - 1] += extra;
+                } else {
+                    rows[count] = last;
+                    weights[count] = extra;
+                    count++;
+                }
+            }
+            counts[b] = count - firstTargets[b];
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package co.com.runtime.kmeans.dense;
+
+/**
+ * Strategies of the <tt>DenseKmeansEngine</tt> to assign the rows to their
+ * nearest centroid
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.dense.DenseKmeansEngine
+ */
+public enum DenseAssignmentMode {
+    /**
+     * Computes the distance from every row to every centroid
+     */
+    PAIRWISE,
+    /**
+     * Computes the distances of tiles of rows and centroids as a blocked
+     * matrix product, pays off when both the number of rows and K are large
+     *
+     * @see co.com.runtime.kmeans.dense.BlockedAssignmentTask
+     */
+    BLOCKED,
+    /**
+     * Searches the nearest centroid in a k-d tree of the centroids rebuilt
+     * on every pass, pays off for low dimensions and large K
+     *
+     * @see co.com.runtime.kmeans.dense.CentroidKdTree
+     */
+    KD_TREE
+}
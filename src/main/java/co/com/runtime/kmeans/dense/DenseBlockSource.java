@@ -0,0 +1,36 @@
+package co.com.runtime.kmeans.dense;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Data set read from disk in blocks of rows, used to cluster data sets that
+ * do not fit in the heap. Every pass over the data set starts with
+ * <tt>rewind()</tt> and reads the blocks in the same order.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.dense.DenseKmeansEngine#cluster(DenseBlockSource, DenseCentroids,
+ * co.com.runtime.kmeans.ConvergencePolicy, int, LabelFile)
+ */
+public interface DenseBlockSource extends Closeable {
+    /**
+     * @return The number of components of each row
+     */
+    public int dimension();
+
+    /**
+     * Reads the next block of rows
+     *
+     * @param maxRows Maximum number of rows of the block
+     * @return The block, <tt>null</tt> at the end of the data set
+     * @throws IOException
+     */
+    public DenseDataset next(int maxRows) throws IOException;
+
+    /**
+     * Moves back to the first row
+     *
+     * @throws IOException
+     */
+    public void rewind() throws IOException;
+}
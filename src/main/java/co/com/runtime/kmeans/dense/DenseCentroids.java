@@ -0,0 +1,129 @@
+package co.com.runtime.kmeans.dense;
+
+import java.util.Arrays;
+
+/**
+ * Matrix of K centroids stored in a single row-major <tt>double[]</tt> block,
+ * the counterpart of a <tt>DenseDataset</tt>
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.dense.DenseDataset
+ */
+public class DenseCentroids {
+    private final int      size;
+    private final int      dimension;
+    private final double[] values;
+
+    /**
+     * Creates a matrix of centroids filled with zeros
+     *
+     * @param size      Number of centroids (K)
+     * @param dimension Number of components of each centroid
+     */
+    public DenseCentroids(int size, int dimension) {
+        this.size = size;
+        this.dimension = dimension;
+        this.values = new double[size * dimension];
+    }
+
+    /**
+     * Creates a matrix of centroids by copying rows of a data set
+     *
+     * @param dataset The data set
+     * @param rows    The rows used as centroids
+     * @return The centroids
+     */
+    public static DenseCentroids fromRows(DenseDataset dataset, int[] rows) {
+        int dimension = dataset.dimension();
+        DenseCentroids centroids = new DenseCentroids(rows.length, dimension);
+        for (int c = 0; c < rows.length; c++) {
+            System.arraycopy(dataset.getValues(), dataset.offset(rows[c]), centroids.values, c * dimension,
+                    dimension);
+        }
+        return centroids;
+    }
+
+    /**
+     * @return the number of centroids
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of components of each centroid
+     */
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * @return the row-major block backing this matrix
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    /**
+     * @return A copy of the centroids rounded to single precision, in the
+     * same row-major layout
+     */
+    public float[] toFloats() {
+        float[] floats = new float[values.length];
+        for (int i = 0; i < floats.length; i++) {
+            floats[i] = (float) values[i];
+        }
+        return floats;
+    }
+
+    /**
+     * @return The squared Euclidean norm of every centroid
+     */
+    public double[] squaredNorms() {
+        double[] norms = new double[size];
+        for (int i = 0; i < norms.length; i++) {
+            norms[i] = DistanceKernels.get().dot(values, i * dimension, values, i * dimension, dimension);
+        }
+        return norms;
+    }
+
+    public double get(int centroid, int column) {
+        return values[centroid * dimension + column];
+    }
+
+    /**
+     * Replaces every centroid by the mean of the rows assigned to it,
+     * weighted if the rows have weights. A centroid without rows keeps its
+     * value.
+     *
+     * @param sums Sum and count of the rows assigned to each centroid
+     * @return The largest Euclidean distance moved by a centroid
+     */
+    public double update(DenseSums sums) {
+        double maxShift = 0;
+        for (int c = 0; c < size; c++) {
+            double weight = sums.getWeight(c);
+            if (weight > 0) {
+                double shift = 0;
+                for (int j = 0; j < dimension; j++) {
+                    double mean = sums.getSum(c, j) / weight;
+                    double difference = mean - values[c * dimension + j];
+                    shift += difference * difference;
+                    values[c * dimension + j] = mean;
+                }
+                maxShift = Math.max(maxShift, shift);
+            }
+        }
+        return Math.sqrt(maxShift);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int c = 0; c < size; c++) {
+            sb.append(Arrays.toString(Arrays.copyOfRange(values, c * dimension, (c + 1) * dimension)));
+            sb.append(System.getProperty("line.separator"));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,121 @@
+package co.com.runtime.kmeans.dense;
+
+import co.com.runtime.kmeans.WorkerBuffers;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Represents a parallel task for the K-means algorithm over a
+ * <tt>DenseDataset</tt>, by assigning a range of rows to the nearest
+ * centroid. The distances from each row to all the centroids are computed
+ * with the block kernel of <tt>DistanceKernels</tt>, directly over the
+ * row-major blocks of the data set and the centroids.
+ * <p/>
+ * Each row is added to the sum of its centroid in the <tt>DenseSums</tt> of
+ * the worker thread, along with the number of rows whose cluster changed.
+ * When the rows carry weights, each row is added multiplied by its weight.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.ClusteringTask
+ */
+public class DenseClusteringTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private DenseDataset             dataset;
+    private double[]                 weights;
+    private DenseCentroids           centroids;
+    private int[]                    assignment;
+    private WorkerBuffers<DenseSums> buffers;
+    private int                      startIndex;
+    private int                      endIndex;
+    private int                      granularity;
+
+    /**
+     * @param dataset     The whole data set
+     * @param centroids   The current centroids
+     * @param assignment  Cluster assigned to each row, updated by the task
+     * @param buffers     Sums of each worker thread
+     * @param startIndex  First row assigned by this task (inclusive)
+     * @param endIndex    Last row assigned by this task (exclusive)
+     * @param granularity Maximum number of rows assigned without splitting the
+     *                    task in two halves
+     */
+    public DenseClusteringTask(DenseDataset dataset, DenseCentroids centroids, int[] assignment,
+                               WorkerBuffers<DenseSums> buffers, int startIndex, int endIndex, int granularity) {
+        this(dataset, null, centroids, assignment, buffers, startIndex, endIndex, granularity);
+    }
+
+    /**
+     * @param dataset     The whole data set
+     * @param weights     Weight of every row, <tt>null</tt> if the rows have
+     *                    no weight
+     * @param centroids   The current centroids
+     * @param assignment  Cluster assigned to each row, updated by the task
+     * @param buffers     Sums of each worker thread
+     * @param startIndex  First row assigned by this task (inclusive)
+     * @param endIndex    Last row assigned by this task (exclusive)
+     * @param granularity Maximum number of rows assigned without splitting the
+     *                    task in two halves
+     */
+    public DenseClusteringTask(DenseDataset dataset, double[] weights, DenseCentroids centroids, int[] assignment,
+                               WorkerBuffers<DenseSums> buffers, int startIndex, int endIndex, int granularity) {
+        this.dataset = dataset;
+        this.weights = weights;
+        this.centroids = centroids;
+        this.assignment = assignment;
+        this.buffers = buffers;
+        this.startIndex = startIndex;
+        this.endIndex = endIndex;
+        this.granularity = Math.max(1, granularity);
+    }
+
+    @Override
+    protected void compute() {
+        if (endIndex - startIndex > granularity) {
+            int middle = (startIndex + endIndex) >>> 1;
+            invokeAll(new DenseClusteringTask(dataset, weights, centroids, assignment, buffers, startIndex, middle,
+                            granularity),
+                    new DenseClusteringTask(dataset, weights, centroids, assignment, buffers, middle, endIndex,
+                            granularity));
+            return;
+        }
+
+        long started = System.nanoTime();
+        double[] data = dataset.getValues();
+        double[] centers = centroids.getValues();
+        int dimension = dataset.dimension();
+        int k = centroids.size();
+        DenseSums sums = buffers.get();
+        DistanceKernels kernels = DistanceKernels.get();
+        double[] distances = new double[k];
+        long changed = 0;
+        double inertia = 0;
+        for (int i = startIndex; i < endIndex; i++) {
+            int rowOffset = i * dimension;
+            kernels.squaredDistances(data, rowOffset, centers, 0, k, dimension, distances);
+            int nearest = 0;
+            double minDistance = Double.POSITIVE_INFINITY;
+            for (int c = 0; c < k; c++) {
+                if (distances[c] < minDistance) {
+                    minDistance = distances[c];
+                    nearest = c;
+                }
+            }
+            if (assignment[i] != nearest) {
+                assignment[i] = nearest;
+                changed++;
+            }
+            if (weights == null) {
+                sums.add(nearest, data, rowOffset);
+                inertia += minDistance;
+            } else {
+                sums.add(nearest, data, rowOffset, weights[i]);
+                inertia += weights[i] * minDistance;
+            }
+        }
+        sums.addReassigned(changed);
+        sums.addInertia(inertia);
+        sums.addEvaluations((long) (endIndex - startIndex) * k);
+        sums.addTaskNanos(System.nanoTime() - started);
+    }
+}
@@ -0,0 +1,142 @@
+package co.com.runtime.kmeans.dense;
+
+import co.com.runtime.kmeans.interfaces.DenseVector;
+
+/**
+ * Data set of fixed size numeric vectors stored in a single row-major
+ * <tt>double[]</tt> block. The components of the row <tt>i</tt> are found
+ * between the positions <tt>i * dimension</tt> (inclusive) and
+ * <tt>(i + 1) * dimension</tt> (exclusive).
+ *
+ * @author Camilo Sarmiento
+ */
+public class DenseDataset {
+    private final int      size;
+    private final int      dimension;
+    private final double[] values;
+
+    /**
+     * Creates a data set filled with zeros
+     *
+     * @param size      Number of rows
+     * @param dimension Number of components of each row
+     * @throws ArithmeticException If the block would have more than
+     *                             <tt>Integer.MAX_VALUE</tt> values
+     */
+    public DenseDataset(int size, int dimension) {
+        this(new double[Math.multiplyExact(size, dimension)], dimension);
+    }
+
+    /**
+     * Creates a data set backed by an existing row-major block
+     *
+     * @param values    The row-major block, its length must be a multiple of
+     *                  the dimension
+     * @param dimension Number of components of each row
+     */
+    public DenseDataset(double[] values, int dimension) {
+        if (dimension <= 0 || values.length % dimension != 0) {
+            throw new IllegalArgumentException("Invalid dimension " + dimension + " for " + values.length
+                    + " values");
+        }
+        this.values = values;
+        this.dimension = dimension;
+        this.size = values.length / dimension;
+    }
+
+    /**
+     * Copies an array of vectors into a new data set
+     *
+     * @param items The vectors, all of them with the same dimension
+     * @return A data set holding a copy of the vectors
+     */
+    public static DenseDataset of(DenseVector[] items) {
+        int dimension = (items.length > 0) ? items[0].dimension() : 1;
+        DenseDataset dataset = new DenseDataset(items.length, dimension);
+        for (int i = 0; i < items.length; i++) {
+            if (items[i].dimension() != dimension) {
+                throw new IllegalArgumentException("Item " + i + " has dimension " + items[i].dimension()
+                        + ", expected " + dimension);
+            }
+            items[i].copyTo(dataset.values, i * dimension);
+        }
+        return dataset;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of components of each row
+     */
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * @return the row-major block backing this data set
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    /**
+     * @param row A row
+     * @return Position of the first component of the row in the block
+     */
+    public int offset(int row) {
+        return row * dimension;
+    }
+
+    /**
+     * @return The squared Euclidean norm of every row
+     */
+    public double[] squaredNorms() {
+        double[] norms = new double[size];
+        for (int i = 0; i < norms.length; i++) {
+            norms[i] = DistanceKernels.get().dot(values, i * dimension, values, i * dimension, dimension);
+        }
+        return norms;
+    }
+
+    public double get(int row, int column) {
+        return values[row * dimension + column];
+    }
+
+    public void set(int row, int column, double value) {
+        values[row * dimension + column] = value;
+    }
+
+    /**
+     * Returns the squared Euclidean distance between a row of this data set
+     * and a centroid
+     *
+     * @param row       The row
+     * @param centroids The centroids
+     * @param centroid  The centroid index
+     * @return The squared Euclidean distance
+     */
+    public double squaredDistance(int row, DenseCentroids centroids, int centroid) {
+        return squaredDistance(values, row * dimension, centroids.getValues(), centroid * dimension, dimension);
+    }
+
+    /**
+     * Returns the squared Euclidean distance between a row of this data set
+     * and a row of another data set
+     */
+    public double squaredDistance(int row, DenseDataset other, int otherRow) {
+        return squaredDistance(values, row * dimension, other.values, otherRow * other.dimension, dimension);
+    }
+
+    /**
+     * Returns the squared Euclidean distance between two vectors stored in
+     * row-major blocks
+     */
+    static double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int dimension) {
+        return DistanceKernels.get().squaredDistance(a, aOffset, b, bOffset, dimension);
+    }
+}
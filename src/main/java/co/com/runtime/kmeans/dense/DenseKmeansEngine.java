@@ -0,0 +1,478 @@
+package co.com.runtime.kmeans.dense;
+
+import co.com.runtime.kmeans.AbstractKmeansEngine;
+import co.com.runtime.kmeans.ClusteringResult;
+import co.com.runtime.kmeans.ConvergencePolicy;
+import co.com.runtime.kmeans.CoresetPolicy;
+import co.com.runtime.kmeans.IterationStats;
+import co.com.runtime.kmeans.WorkerBuffers;
+import co.com.runtime.kmeans.seeding.PointMetrics;
+import co.com.runtime.kmeans.seeding.SeedingStrategy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * K-means engine over a <tt>DenseDataset</tt>. Membership is kept in a
+ * primitive array with the cluster of each row and distances are computed
+ * over array offsets, no object is created per row. The rows are assigned
+ * pairwise by default, as a blocked matrix product of the rows and the
+ * centroids, or by searching a k-d tree of the centroids. A data set may
+ * also be stored in single precision, as a <tt>FloatDenseDataset</tt>, to
+ * halve the memory read by each pass.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.dense.DenseClusteringTask
+ * @see co.com.runtime.kmeans.dense.DenseAssignmentMode
+ * @see co.com.runtime.kmeans.dense.FloatClusteringTask
+ */
+public class DenseKmeansEngine extends AbstractKmeansEngine {
+
+    private static Logger logger = LogManager.getLogger();
+
+    private DenseAssignmentMode assignmentMode = DenseAssignmentMode.PAIRWISE;
+
+    /**
+     * Creates an engine with its own pool, one thread per available processor
+     */
+    public DenseKmeansEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an engine with its own pool
+     *
+     * @param parallelism Number of worker threads
+     */
+    public DenseKmeansEngine(int parallelism) {
+        super(parallelism);
+    }
+
+    /**
+     * Creates an engine that runs on a pool managed by the caller
+     *
+     * @param pool The pool used to execute the clustering tasks
+     */
+    public DenseKmeansEngine(ForkJoinPool pool) {
+        super(pool);
+    }
+
+    /**
+     * Runs the K-means algorithm until no row changes of cluster or the
+     * maximum number of iterations is reached
+     *
+     * @param dataset       The data set to be clustered
+     * @param centroids     The initial centroids, updated in place
+     * @param maxIterations Maximum number of iterations
+     * @return The final centroids and the cluster of each row
+     */
+    public ClusteringResult<DenseCentroids> cluster(DenseDataset dataset, DenseCentroids centroids, int maxIterations) {
+        return cluster(dataset, centroids, new ConvergencePolicy(0, 0D, 0D, maxIterations));
+    }
+
+    /**
+     * Runs the K-means algorithm until the convergence policy stops it. The
+     * inertia is the sum of squared errors.
+     *
+     * @param dataset   The data set to be clustered
+     * @param centroids The initial centroids, updated in place
+     * @param policy    The convergence policy
+     * @return The final centroids and the cluster of each row
+     */
+    public ClusteringResult<DenseCentroids> cluster(DenseDataset dataset, DenseCentroids centroids,
+                                                    ConvergencePolicy policy) {
+        if (dataset.dimension() != centroids.dimension()) {
+            throw new IllegalArgumentException("Data set dimension " + dataset.dimension()
+                    + " does not match centroids dimension " + centroids.dimension());
+        }
+        double[] rowNorms = (assignmentMode == DenseAssignmentMode.BLOCKED) ? dataset.squaredNorms() : null;
+        return iterate(dataset.size(), centroids, policy,
+                assignment -> assign(dataset, rowNorms, centroids, assignment));
+    }
+
+    /**
+     * Runs the K-means algorithm over a data set stored in single precision
+     * until the convergence policy stops it. The centroids are kept and
+     * updated in double precision and rounded to single precision before
+     * every assignment pass. The rows are always assigned pairwise.
+     *
+     * @param dataset   The data set to be clustered
+     * @param centroids The initial centroids, updated in place
+     * @param policy    The convergence policy
+     * @return The final centroids and the cluster of each row
+     */
+    public ClusteringResult<DenseCentroids> cluster(FloatDenseDataset dataset, DenseCentroids centroids,
+                                                    ConvergencePolicy policy) {
+        if (dataset.dimension() != centroids.dimension()) {
+            throw new IllegalArgumentException("Data set dimension " + dataset.dimension()
+                    + " does not match centroids dimension " + centroids.dimension());
+        }
+        return iterate(dataset.size(), centroids, policy, assignment -> assign(dataset, centroids, assignment));
+    }
+
+    /**
+     * Runs the K-means algorithm over the weighted rows of a coreset until
+     * the convergence policy stops it. The centroids are the weighted means
+     * and the inertia is the weighted sum of squared errors.
+     *
+     * @param coreset   The coreset to be clustered
+     * @param centroids The initial centroids, updated in place
+     * @param policy    The convergence policy
+     * @return The final centroids and the cluster of each row of the coreset
+     */
+    public ClusteringResult<DenseCentroids> cluster(Coreset coreset, DenseCentroids centroids,
+                                                    ConvergencePolicy policy) {
+        DenseDataset points = coreset.getPoints();
+        if (points.dimension() != centroids.dimension()) {
+            throw new IllegalArgumentException("Data set dimension " + points.dimension()
+                    + " does not match centroids dimension " + centroids.dimension());
+        }
+        return iterate(points.size(), centroids, policy, assignment -> {
+            WorkerBuffers<DenseSums> buffers =
+                    new WorkerBuffers<>(() -> new DenseSums(centroids.size(), centroids.dimension()));
+            getPool().invoke(new DenseClusteringTask(points, coreset.getWeights(), centroids, assignment, buffers,
+                    0, points.size(), granularity(points.size())));
+            return buffers.reduce(getPool(), DenseSums::merge);
+        });
+    }
+
+    /**
+     * Clusters a data set in three phases: draws a coreset of the data set,
+     * selects the initial centroids among the weighted rows of the coreset
+     * and clusters it until convergence, and finally refines the centroids
+     * with a few iterations over the whole data set
+     *
+     * @param dataset          The data set to be clustered
+     * @param numberOfClusters Number of clusters (K)
+     * @param seeding          Selection method of the initial centroids
+     * @param policy           Size of the coreset and iterations of each
+     *                         phase
+     * @return The final centroids and the cluster of each row of the data set
+     */
+    public ClusteringResult<DenseCentroids> cluster(DenseDataset dataset, int numberOfClusters,
+                                                    SeedingStrategy seeding, CoresetPolicy policy) {
+        int draws = policy.coresetSize(dataset.size(), numberOfClusters, dataset.dimension());
+        Coreset coreset = Coreset.lightweight(dataset, draws, policy.getSeed(), getPool());
+        logger.info("Coreset of " + coreset.size() + " rows drawn from " + dataset.size());
+
+        DenseDataset points = coreset.getPoints();
+        // Outlying rows are over-sampled, their weights keep them from being
+        // over-seeded
+        int[] rows = seeding.select(PointMetrics.of(points), coreset.getWeights(),
+                Math.min(numberOfClusters, points.size()), getPool());
+        DenseCentroids centroids = DenseCentroids.fromRows(points, rows);
+        ClusteringResult<DenseCentroids> rough = cluster(coreset, centroids, policy.getCoresetConvergence());
+        logger.info("Coreset clustered in " + rough.getIterations() + " iterations");
+
+        return cluster(dataset, centroids, new ConvergencePolicy(0, 0D, 0D, policy.getRefinementIterations()));
+    }
+
+    /**
+     * Alternates assignment passes and centroid updates until the policy
+     * stops them
+     *
+     * @param size      Number of rows of the data set
+     * @param centroids The initial centroids, updated in place
+     * @param policy    The convergence policy
+     * @param pass      Assigns every row given the cluster of each row
+     * @return The final centroids and the cluster of each row
+     */
+    private ClusteringResult<DenseCentroids> iterate(int size, DenseCentroids centroids, ConvergencePolicy policy,
+                                                     Function<int[], DenseSums> pass) {
+        int[] assignment = new int[size];
+        Arrays.fill(assignment, -1);
+
+        fireClusteringStarted(size, centroids.size());
+        int iterations = 0;
+        double previousInertia = Double.NaN;
+        double maxShift = Double.POSITIVE_INFINITY;
+        long started = System.nanoTime();
+        DenseSums sums = pass.apply(assignment);
+        fireIterationCompleted(statistics(iterations, 0, System.nanoTime() - started, sums, maxShift));
+        while (!policy.hasConverged(iterations, sums.getReassigned(), previousInertia, sums.getInertia(),
+                maxShift)) {
+            started = System.nanoTime();
+            maxShift = centroids.update(sums);
+            previousInertia = sums.getInertia();
+            long updateNanos = System.nanoTime() - started;
+            started = System.nanoTime();
+            sums = pass.apply(assignment);
+            iterations++;
+            fireIterationCompleted(statistics(iterations, updateNanos, System.nanoTime() - started, sums, maxShift));
+            logger.info("Iteration " + iterations + " - Reassigned rows: " + sums.getReassigned() + " from "
+                    + size + ", inertia: " + sums.getInertia() + ", max centroid shift: " + maxShift);
+        }
+        fireClusteringEnded(iterations, sums.getInertia());
+        return new ClusteringResult<>(centroids, centroids.size(), assignment, iterations);
+    }
+
+    /**
+     * Runs the K-means algorithm over a data set read from disk on every
+     * iteration, one block of rows at a time, so only the centroids, the sums
+     * and two blocks are kept in memory. The next block is read by a
+     * background thread while the current one is assigned.
+     * <p/>
+     * The cluster of each row is spilled to a label file. Without it the
+     * previous cluster of a row is unknown and every row counts as
+     * reassigned, so the policy should rely on the inertia or the centroid
+     * shift. The labels of a previous run are discarded before the first
+     * pass.
+     *
+     * @param source    The data set, rewound on every iteration
+     * @param centroids The initial centroids, updated in place
+     * @param policy    The convergence policy
+     * @param blockRows Number of rows of each block
+     * @param labels    Receives the cluster of each row, <tt>null</tt> to not
+     *                  keep it
+     * @return The final centroids and the size of each cluster
+     * @throws IOException
+     */
+    public ClusteringResult<DenseCentroids> cluster(DenseBlockSource source, DenseCentroids centroids,
+                                                    ConvergencePolicy policy, int blockRows, LabelFile labels)
+            throws IOException {
+        if (source.dimension() != centroids.dimension()) {
+            throw new IllegalArgumentException("Data set dimension " + source.dimension()
+                    + " does not match centroids dimension " + centroids.dimension());
+        }
+        if (labels != null) {
+            labels.clear();
+        }
+        ExecutorService prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kmeans-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            fireClusteringStarted(-1, centroids.size());
+            int iterations = 0;
+            double previousInertia = Double.NaN;
+            double maxShift = Double.POSITIVE_INFINITY;
+            long started = System.nanoTime();
+            DenseSums sums = assign(source, centroids, blockRows, labels, prefetcher);
+            fireIterationCompleted(statistics(iterations, 0, System.nanoTime() - started, sums, maxShift));
+            while (!policy.hasConverged(iterations, sums.getReassigned(), previousInertia, sums.getInertia(),
+                    maxShift)) {
+                started = System.nanoTime();
+                maxShift = centroids.update(sums);
+                previousInertia = sums.getInertia();
+                long updateNanos = System.nanoTime() - started;
+                started = System.nanoTime();
+                sums = assign(source, centroids, blockRows, labels, prefetcher);
+                iterations++;
+                fireIterationCompleted(statistics(iterations, updateNanos, System.nanoTime() - started, sums,
+                        maxShift));
+                logger.info("Iteration " + iterations + " - Reassigned rows: " + sums.getReassigned()
+                        + ", inertia: " + sums.getInertia() + ", max centroid shift: " + maxShift);
+            }
+            fireClusteringEnded(iterations, sums.getInertia());
+            int[] sizes = new int[centroids.size()];
+            for (int c = 0; c < sizes.length; c++) {
+                sizes[c] = (int) sums.getCount(c);
+            }
+            return new ClusteringResult<>(centroids, sizes, iterations);
+        } finally {
+            prefetcher.shutdownNow();
+        }
+    }
+
+    /**
+     * Assigns every row of a data set read in blocks, prefetching the next
+     * block and its labels and writing the labels of the assigned block in
+     * the background
+     */
+    private DenseSums assign(DenseBlockSource source, DenseCentroids centroids, int blockRows, LabelFile labels,
+                             ExecutorService prefetcher) throws IOException {
+        WorkerBuffers<DenseSums> buffers =
+                new WorkerBuffers<>(() -> new DenseSums(centroids.size(), centroids.dimension()));
+        double[] centroidNorms = centroidNorms(centroids);
+        CentroidKdTree tree = centroidTree(centroids);
+        source.rewind();
+        Future<Block> next = prefetcher.submit(() -> Block.read(source, blockRows, labels, 0));
+        Future<?> written = null;
+        Block block;
+        while ((block = await(next)) != null) {
+            long nextRow = block.firstRow + block.rows.size();
+            next = prefetcher.submit(() -> Block.read(source, blockRows, labels, nextRow));
+
+            int size = block.rows.size();
+            getPool().invoke(assignmentTask(block.rows, null, centroids, centroidNorms, tree, block.labels,
+                    buffers));
+            if (labels != null) {
+                await(written);
+                Block assigned = block;
+                written = prefetcher.submit(() -> {
+                    labels.write(assigned.firstRow, assigned.labels, size);
+                    return null;
+                });
+            }
+        }
+        await(written);
+        return buffers.reduce(getPool(), DenseSums::merge);
+    }
+
+    /**
+     * Measures of the last pass. The distances skipped by the k-d tree are
+     * not counted as pruned.
+     */
+    private static IterationStats statistics(int iteration, long updateNanos, long assignmentNanos, DenseSums sums,
+                                             double maxShift) {
+        return new IterationStats(iteration, updateNanos, assignmentNanos, sums.getReassigned(), sums.getInertia(),
+                maxShift, sums.getEvaluations(), 0, sums.getTaskNanos(), sums.getMaxWorkerNanos(),
+                sums.getWorkers());
+    }
+
+    private static <V> V await(Future<V> future) throws IOException {
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading the data set");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * A block of rows and the previous cluster of each row
+     */
+    private static class Block {
+        final long         firstRow;
+        final DenseDataset rows;
+        final int[]        labels;
+
+        Block(long firstRow, DenseDataset rows, int[] labels) {
+            this.firstRow = firstRow;
+            this.rows = rows;
+            this.labels = labels;
+        }
+
+        static Block read(DenseBlockSource source, int maxRows, LabelFile labels, long firstRow)
+                throws IOException {
+            DenseDataset rows = source.next(maxRows);
+            if (rows == null) {
+                return null;
+            }
+            int[] previous = new int[rows.size()];
+            if (labels == null) {
+                Arrays.fill(previous, -1);
+            } else {
+                labels.read(firstRow, previous, previous.length);
+            }
+            return new Block(firstRow, rows, previous);
+        }
+    }
+
+    /**
+     * Assigns every row of the data set to its nearest centroid, summing the
+     * rows assigned to each centroid in the same pass
+     *
+     * @param dataset    The data set
+     * @param centroids  The centroids
+     * @param assignment Cluster assigned to each row, updated in place
+     * @return The sums of the rows of each centroid and the number of rows
+     * whose cluster changed
+     */
+    public DenseSums assign(DenseDataset dataset, DenseCentroids centroids, int[] assignment) {
+        return assign(dataset, null, centroids, assignment);
+    }
+
+    /**
+     * Assigns every row of a data set stored in single precision to its
+     * nearest centroid, summing the rows assigned to each centroid in double
+     * precision
+     *
+     * @see #assign(DenseDataset, DenseCentroids, int[])
+     */
+    public DenseSums assign(FloatDenseDataset dataset, DenseCentroids centroids, int[] assignment) {
+        WorkerBuffers<DenseSums> buffers =
+                new WorkerBuffers<>(() -> new DenseSums(centroids.size(), centroids.dimension()));
+        getPool().invoke(new FloatClusteringTask(dataset, centroids.toFloats(), centroids.size(), assignment,
+                buffers, 0, dataset.size(), granularity(dataset.size())));
+        return buffers.reduce(getPool(), DenseSums::merge);
+    }
+
+    private DenseSums assign(DenseDataset dataset, double[] rowNorms, DenseCentroids centroids, int[] assignment) {
+        WorkerBuffers<DenseSums> buffers =
+                new WorkerBuffers<>(() -> new DenseSums(centroids.size(), centroids.dimension()));
+        getPool().invoke(assignmentTask(dataset, rowNorms, centroids, centroidNorms(centroids),
+                centroidTree(centroids), assignment, buffers));
+        return buffers.reduce(getPool(), DenseSums::merge);
+    }
+
+    /**
+     * @return The squared norm of every centroid if the assignment is
+     * blocked, <tt>null</tt> otherwise
+     */
+    private double[] centroidNorms(DenseCentroids centroids) {
+        return (assignmentMode == DenseAssignmentMode.BLOCKED) ? centroids.squaredNorms() : null;
+    }
+
+    /**
+     * @return The k-d tree of the centroids if the assignment searches it,
+     * <tt>null</tt> otherwise
+     */
+    private CentroidKdTree centroidTree(DenseCentroids centroids) {
+        return (assignmentMode == DenseAssignmentMode.KD_TREE) ? CentroidKdTree.build(centroids, getPool()) : null;
+    }
+
+    /**
+     * Creates the task that assigns every row of a data set with the
+     * assignment mode
+     *
+     * @param rowNorms      Squared norm of every row, <tt>null</tt> if not
+     *                      computed beforehand
+     * @param centroidNorms Squared norm of every centroid, used by the blocked
+     *                      assignment
+     * @param tree          The k-d tree of the centroids, used by the
+     *                      <tt>KD_TREE</tt> assignment
+     */
+    private RecursiveAction assignmentTask(DenseDataset dataset, double[] rowNorms, DenseCentroids centroids,
+                                           double[] centroidNorms, CentroidKdTree tree, int[] assignment,
+                                           WorkerBuffers<DenseSums> buffers) {
+        int size = dataset.size();
+        switch (assignmentMode) {
+            case BLOCKED:
+                return new BlockedAssignmentTask(dataset, rowNorms, centroids, centroidNorms, assignment, buffers,
+                        0, size, Math.max(BlockedAssignmentTask.ROW_TILE, granularity(size)));
+            case KD_TREE:
+                return new IndexedClusteringTask(dataset, centroids, tree, assignment, buffers, 0, size,
+                        granularity(size));
+            default:
+                return new DenseClusteringTask(dataset, centroids, assignment, buffers, 0, size, granularity(size));
+        }
+    }
+
+    /**
+     * @return the assignment mode
+     */
+    public DenseAssignmentMode getAssignmentMode() {
+        return assignmentMode;
+    }
+
+    /**
+     * Sets how the rows are assigned to their nearest centroid. Pairwise
+     * distances are used by default. The mode applies to the data sets in
+     * double precision, held in memory or read in blocks.
+     *
+     * @param assignmentMode the assignment mode
+     */
+    public void setAssignmentMode(DenseAssignmentMode assignmentMode) {
+        this.assignmentMode = assignmentMode;
+    }
+}
@@ -0,0 +1,230 @@
+package co.com.runtime.kmeans.dense;
+
+/**
+ * Partial results of an assignment pass over a <tt>DenseDataset</tt>: the
+ * sum of the rows assigned to each centroid, stored row-major as the
+ * centroids, their count and the number of rows whose cluster changed. Rows
+ * may carry a weight, as those of a <tt>Coreset</tt>; the sums and the
+ * inertia are then weighted and the total weight of each centroid is kept
+ * apart from its count.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.dense.DenseCentroids#update(DenseSums)
+ */
+public class DenseSums {
+    private final int      dimension;
+    private final double[] sums;
+    private final long[]   counts;
+    private final double[] weights;
+    private long           reassigned;
+    private double         inertia;
+    private long           evaluations;
+    private long           taskNanos;
+    private long           maxWorkerNanos;
+    private int            workers;
+
+    /**
+     * @param size      Number of centroids (K)
+     * @param dimension Number of components of each centroid
+     */
+    public DenseSums(int size, int dimension) {
+        this.dimension = dimension;
+        this.sums = new double[size * dimension];
+        this.counts = new long[size];
+        this.weights = new double[size];
+    }
+
+    /**
+     * Creates partial results of rows without weight computed elsewhere,
+     * e.g. received from a remote worker
+     *
+     * @param dimension  Number of components of each centroid
+     * @param sums       Sum of the rows of each centroid, row-major
+     * @param counts     Number of rows of each centroid
+     * @param reassigned Number of rows whose cluster changed
+     * @param inertia    Sum of squared distances to the centroids
+     */
+    public DenseSums(int dimension, double[] sums, long[] counts, long reassigned, double inertia) {
+        if (sums.length != counts.length * dimension) {
+            throw new IllegalArgumentException(counts.length + " counts do not match " + sums.length + " sums");
+        }
+        this.dimension = dimension;
+        this.sums = sums;
+        this.counts = counts;
+        this.weights = new double[counts.length];
+        for (int c = 0; c < counts.length; c++) {
+            weights[c] = counts[c];
+        }
+        this.reassigned = reassigned;
+        this.inertia = inertia;
+    }
+
+    /**
+     * Adds a row to the sum of a centroid
+     *
+     * @param centroid The centroid
+     * @param data     Row-major block holding the row
+     * @param offset   Position of the first component of the row
+     */
+    void add(int centroid, double[] data, int offset) {
+        int sumOffset = centroid * dimension;
+        for (int j = 0; j < dimension; j++) {
+            sums[sumOffset + j] += data[offset + j];
+        }
+        counts[centroid]++;
+        weights[centroid]++;
+    }
+
+    /**
+     * Adds a weighted row to the sum of a centroid
+     *
+     * @param centroid The centroid
+     * @param data     Row-major block holding the row
+     * @param offset   Position of the first component of the row
+     * @param weight   Weight of the row
+     */
+    void add(int centroid, double[] data, int offset, double weight) {
+        int sumOffset = centroid * dimension;
+        for (int j = 0; j < dimension; j++) {
+            sums[sumOffset + j] += weight * data[offset + j];
+        }
+        counts[centroid]++;
+        weights[centroid] += weight;
+    }
+
+    /**
+     * Adds a row stored in single precision to the sum of a centroid
+     *
+     * @see #add(int, double[], int)
+     */
+    void add(int centroid, float[] data, int offset) {
+        int sumOffset = centroid * dimension;
+        for (int j = 0; j < dimension; j++) {
+            sums[sumOffset + j] += data[offset + j];
+        }
+        counts[centroid]++;
+        weights[centroid]++;
+    }
+
+    void addReassigned(long count) {
+        reassigned += count;
+    }
+
+    void addInertia(double squaredDistances) {
+        inertia += squaredDistances;
+    }
+
+    void addEvaluations(long count) {
+        evaluations += count;
+    }
+
+    /**
+     * Adds the time of a task, on the buffer of the worker thread that ran
+     * it
+     */
+    void addTaskNanos(long nanos) {
+        taskNanos += nanos;
+        maxWorkerNanos = taskNanos;
+        workers = 1;
+    }
+
+    /**
+     * Adds the partial results of another pass to these ones
+     *
+     * @param other The other partial results
+     * @return This object
+     */
+    public DenseSums merge(DenseSums other) {
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] += other.sums[i];
+        }
+        for (int c = 0; c < counts.length; c++) {
+            counts[c] += other.counts[c];
+            weights[c] += other.weights[c];
+        }
+        reassigned += other.reassigned;
+        inertia += other.inertia;
+        evaluations += other.evaluations;
+        taskNanos += other.taskNanos;
+        maxWorkerNanos = Math.max(maxWorkerNanos, other.maxWorkerNanos);
+        workers += other.workers;
+        return this;
+    }
+
+    /**
+     * @return the number of centroids
+     */
+    public int size() {
+        return counts.length;
+    }
+
+    /**
+     * @return the number of components of each centroid
+     */
+    public int dimension() {
+        return dimension;
+    }
+
+    public double getSum(int centroid, int column) {
+        return sums[centroid * dimension + column];
+    }
+
+    /**
+     * @param centroid The centroid
+     * @return the number of rows assigned to the centroid
+     */
+    public long getCount(int centroid) {
+        return counts[centroid];
+    }
+
+    /**
+     * @param centroid The centroid
+     * @return the total weight of the rows assigned to the centroid, their
+     * count if the rows have no weight
+     */
+    public double getWeight(int centroid) {
+        return weights[centroid];
+    }
+
+    /**
+     * @return the number of rows whose cluster changed
+     */
+    public long getReassigned() {
+        return reassigned;
+    }
+
+    /**
+     * @return the sum of squared distances from every row to its centroid
+     */
+    public double getInertia() {
+        return inertia;
+    }
+
+    /**
+     * @return the number of distances computed
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return the time of all the tasks
+     */
+    public long getTaskNanos() {
+        return taskNanos;
+    }
+
+    /**
+     * @return the time of the tasks of the busiest worker thread
+     */
+    public long getMaxWorkerNanos() {
+        return maxWorkerNanos;
+    }
+
+    /**
+     * @return the number of worker threads that ran tasks
+     */
+    public int getWorkers() {
+        return workers;
+    }
+}
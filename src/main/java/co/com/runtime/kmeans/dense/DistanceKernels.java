@@ -0,0 +1,316 @@
+package co.com.runtime.kmeans.dense;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Distance kernels over vectors stored in row-major blocks. Three
+ * implementations are provided:
+ * <ul>
+ * <li><tt>SCALAR</tt>: one accumulator per distance, the reference
+ * implementation</li>
+ * <li><tt>UNROLLED</tt>: four independent accumulators per distance, so
+ * consecutive components do not wait for each other, and the distances to a
+ * block of centroids are computed four centroids at a time, loading every
+ * component of the row once per four centroids</li>
+ * <li>{@link #vector()}: the same blocking written with the Vector API. It is
+ * built for Java 17 by the vector module and loaded reflectively, only when
+ * its jar is in the class path and the <tt>jdk.incubator.vector</tt> module
+ * is resolvable (run with <tt>--add-modules jdk.incubator.vector</tt>)</li>
+ * </ul>
+ * The kernels used by the dense engine are chosen once with the system
+ * property <tt>kmeans.kernels</tt> (<tt>scalar</tt>, <tt>unrolled</tt> or
+ * <tt>vector</tt>). By default the vector kernels are used when they can be
+ * loaded, the unrolled ones otherwise. The unrolled and vector distances and
+ * dot products add the components in a different order, so they may differ
+ * from the scalar ones in the last bits; the unrolled distances to a block of
+ * centroids are the same as the scalar ones.
+ *
+ * @author Camilo Sarmiento
+ */
+public abstract class DistanceKernels {
+    public static final String PROPERTY = "kmeans.kernels";
+
+    public static final DistanceKernels SCALAR   = new Scalar();
+    public static final DistanceKernels UNROLLED = new Unrolled();
+
+    private static final String VECTOR_MODULE_CLASS = "jdk.incubator.vector.DoubleVector";
+    private static final String VECTOR_CLASS        = "co.com.runtime.kmeans.dense.VectorKernels";
+
+    private static Logger logger = LogManager.getLogger();
+
+    private static final DistanceKernels VECTOR  = loadVector();
+    private static final DistanceKernels DEFAULT = select(System.getProperty(PROPERTY));
+
+    /**
+     * @return The vector kernels, <tt>null</tt> if the module is not
+     * resolvable or the kernels were not compiled
+     */
+    private static DistanceKernels loadVector() {
+        try {
+            Class.forName(VECTOR_MODULE_CLASS);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        try {
+            return (DistanceKernels) Class.forName(VECTOR_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.warn("Vector distance kernels not available: " + e);
+            return null;
+        }
+    }
+
+    private static DistanceKernels select(String name) {
+        if (name == null) {
+            return (VECTOR != null) ? VECTOR : UNROLLED;
+        }
+        if ("scalar".equalsIgnoreCase(name)) {
+            return SCALAR;
+        }
+        if ("vector".equalsIgnoreCase(name)) {
+            if (VECTOR != null) {
+                return VECTOR;
+            }
+            logger.warn("Module jdk.incubator.vector not resolvable, using the unrolled distance kernels");
+        } else if (!"unrolled".equalsIgnoreCase(name)) {
+            logger.warn("Unknown distance kernels " + name + ", using the unrolled ones");
+        }
+        return UNROLLED;
+    }
+
+    /**
+     * @return The kernels selected with the <tt>kmeans.kernels</tt> property
+     */
+    public static DistanceKernels get() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return The kernels written with the Vector API, <tt>null</tt> if the
+     * vector module is not in the class path or the
+     * <tt>jdk.incubator.vector</tt> module is not resolvable
+     */
+    public static DistanceKernels vector() {
+        return VECTOR;
+    }
+
+    /**
+     * Returns the squared Euclidean distance between two vectors
+     *
+     * @param a         Block holding the first vector
+     * @param aOffset   Position of the first component of the first vector
+     * @param b         Block holding the second vector
+     * @param bOffset   Position of the first component of the second vector
+     * @param dimension Number of components
+     * @return The squared Euclidean distance
+     */
+    public abstract double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int dimension);
+
+    /**
+     * Returns the dot product of two vectors
+     *
+     * @see #squaredDistance(double[], int, double[], int, int)
+     */
+    public abstract double dot(double[] a, int aOffset, double[] b, int bOffset, int dimension);
+
+    /**
+     * Computes the squared Euclidean distances from a vector to a block of
+     * consecutive centroids
+     *
+     * @param row           Block holding the vector
+     * @param rowOffset     Position of the first component of the vector
+     * @param centroids     Row-major block of centroids
+     * @param firstCentroid The first centroid of the block
+     * @param count         Number of centroids of the block
+     * @param dimension     Number of components
+     * @param distances     Receives the distance to each centroid of the
+     *                      block, from position zero
+     */
+    public abstract void squaredDistances(double[] row, int rowOffset, double[] centroids, int firstCentroid,
+                                          int count, int dimension, double[] distances);
+
+    /**
+     * Computes the squared Euclidean distances from a vector stored in single
+     * precision to a block of consecutive centroids, accumulating in double
+     * precision
+     *
+     * @see #squaredDistances(double[], int, double[], int, int, int, double[])
+     */
+    public abstract void squaredDistances(float[] row, int rowOffset, float[] centroids, int firstCentroid,
+                                          int count, int dimension, double[] distances);
+
+    private static final class Scalar extends DistanceKernels {
+        @Override
+        public double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int dimension) {
+            double d = 0;
+            for (int j = 0; j < dimension; j++) {
+                double difference = a[aOffset + j] - b[bOffset + j];
+                d += difference * difference;
+            }
+            return d;
+        }
+
+        @Override
+        public double dot(double[] a, int aOffset, double[] b, int bOffset, int dimension) {
+            double d = 0;
+            for (int j = 0; j < dimension; j++) {
+                d += a[aOffset + j] * b[bOffset + j];
+            }
+            return d;
+        }
+
+        @Override
+        public void squaredDistances(double[] row, int rowOffset, double[] centroids, int firstCentroid, int count,
+                                     int dimension, double[] distances) {
+            for (int c = 0; c < count; c++) {
+                distances[c] = squaredDistance(row, rowOffset, centroids, (firstCentroid + c) * dimension,
+                        dimension);
+            }
+        }
+
+        @Override
+        public void squaredDistances(float[] row, int rowOffset, float[] centroids, int firstCentroid, int count,
+                                     int dimension, double[] distances) {
+            for (int c = 0; c < count; c++) {
+                int centroidOffset = (firstCentroid + c) * dimension;
+                double d = 0;
+                for (int j = 0; j < dimension; j++) {
+                    double difference = (double) row[rowOffset + j] - centroids[centroidOffset + j];
+                    d += difference * difference;
+                }
+                distances[c] = d;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "scalar";
+        }
+    }
+
+    private static final class Unrolled extends DistanceKernels {
+        @Override
+        public double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int dimension) {
+            double s0 = 0;
+            double s1 = 0;
+            double s2 = 0;
+            double s3 = 0;
+            int j = 0;
+            for (int end = dimension - 3; j < end; j += 4) {
+                double d0 = a[aOffset + j] - b[bOffset + j];
+                double d1 = a[aOffset + j + 1] - b[bOffset + j + 1];
+                double d2 = a[aOffset + j + 2] - b[bOffset + j + 2];
+                double d3 = a[aOffset + j + 3] - b[bOffset + j + 3];
+                s0 += d0 * d0;
+                s1 += d1 * d1;
+                s2 += d2 * d2;
+                s3 += d3 * d3;
+            }
+            for (; j < dimension; j++) {
+                double d = a[aOffset + j] - b[bOffset + j];
+                s0 += d * d;
+            }
+            return (s0 + s1) + (s2 + s3);
+        }
+
+        @Override
+        public double dot(double[] a, int aOffset, double[] b, int bOffset, int dimension) {
+            double s0 = 0;
+            double s1 = 0;
+            double s2 = 0;
+            double s3 = 0;
+            int j = 0;
+            for (int end = dimension - 3; j < end; j += 4) {
+                s0 += a[aOffset + j] * b[bOffset + j];
+                s1 += a[aOffset + j + 1] * b[bOffset + j + 1];
+                s2 += a[aOffset + j + 2] * b[bOffset + j + 2];
+                s3 += a[aOffset + j + 3] * b[bOffset + j + 3];
+            }
+            for (; j < dimension; j++) {
+                s0 += a[aOffset + j] * b[bOffset + j];
+            }
+            return (s0 + s1) + (s2 + s3);
+        }
+
+        @Override
+        public void squaredDistances(double[] row, int rowOffset, double[] centroids, int firstCentroid, int count,
+                                     int dimension, double[] distances) {
+            int c = 0;
+            for (; c + 3 < count; c += 4) {
+                int o0 = (firstCentroid + c) * dimension;
+                int o1 = o0 + dimension;
+                int o2 = o1 + dimension;
+                int o3 = o2 + dimension;
+                double s0 = 0;
+                double s1 = 0;
+                double s2 = 0;
+                double s3 = 0;
+                for (int j = 0; j < dimension; j++) {
+                    double x = row[rowOffset + j];
+                    double d0 = x - centroids[o0 + j];
+                    double d1 = x - centroids[o1 + j];
+                    double d2 = x - centroids[o2 + j];
+                    double d3 = x - centroids[o3 + j];
+                    s0 += d0 * d0;
+                    s1 += d1 * d1;
+                    s2 += d2 * d2;
+                    s3 += d3 * d3;
+                }
+                distances[c] = s0;
+                distances[c + 1] = s1;
+                distances[c + 2] = s2;
+                distances[c + 3] = s3;
+            }
+            // Same order of the additions as the blocks of four
+            for (; c < count; c++) {
+                distances[c] = SCALAR.squaredDistance(row, rowOffset, centroids, (firstCentroid + c) * dimension,
+                        dimension);
+            }
+        }
+
+        @Override
+        public void squaredDistances(float[] row, int rowOffset, float[] centroids, int firstCentroid, int count,
+                                     int dimension, double[] distances) {
+            int c = 0;
+            for (; c + 3 < count; c += 4) {
+                int o0 = (firstCentroid + c) * dimension;
+                int o1 = o0 + dimension;
+                int o2 = o1 + dimension;
+                int o3 = o2 + dimension;
+                double s0 = 0;
+                double s1 = 0;
+                double s2 = 0;
+                double s3 = 0;
+                for (int j = 0; j < dimension; j++) {
+                    double x = row[rowOffset + j];
+                    double d0 = x - centroids[o0 + j];
+                    double d1 = x - centroids[o1 + j];
+                    double d2 = x - centroids[o2 + j];
+                    double d3 = x - centroids[o3 + j];
+                    s0 += d0 * d0;
+                    s1 += d1 * d1;
+                    s2 += d2 * d2;
+                    s3 += d3 * d3;
+                }
+                distances[c] = s0;
+                distances[c + 1] = s1;
+                distances[c + 2] = s2;
+                distances[c + 3] = s3;
+            }
+            for (; c < count; c++) {
+                int centroidOffset = (firstCentroid + c) * dimension;
+                double d = 0;
+                for (int j = 0; j < dimension; j++) {
+                    double difference = (double) row[rowOffset + j] - centroids[centroidOffset + j];
+                    d += difference * difference;
+                }
+                distances[c] = d;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "unrolled";
+        }
+    }
+}
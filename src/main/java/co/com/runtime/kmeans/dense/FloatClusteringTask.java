@@ -0,0 +1,98 @@
+package co.com.runtime.kmeans.dense;
+
+import co.com.runtime.kmeans.WorkerBuffers;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Represents a parallel task for the K-means algorithm over a
+ * <tt>FloatDenseDataset</tt>, by assigning a range of rows to the nearest
+ * centroid. The centroids are read from a single precision copy taken before
+ * the pass, the distances are accumulated in double precision and each row
+ * is added to the double precision sum of its centroid in the
+ * <tt>DenseSums</tt> of the worker thread.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.dense.DenseClusteringTask
+ */
+public class FloatClusteringTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private FloatDenseDataset        dataset;
+    private float[]                  centroids;
+    private int                      numberOfClusters;
+    private int[]                    assignment;
+    private WorkerBuffers<DenseSums> buffers;
+    private int                      startIndex;
+    private int                      endIndex;
+    private int                      granularity;
+
+    /**
+     * @param dataset          The whole data set
+     * @param centroids        The current centroids in single precision,
+     *                         row-major
+     * @param numberOfClusters Number of centroids (K)
+     * @param assignment       Cluster assigned to each row, updated by the
+     *                         task
+     * @param buffers          Sums of each worker thread
+     * @param startIndex       First row assigned by this task (inclusive)
+     * @param endIndex         Last row assigned by this task (exclusive)
+     * @param granularity      Maximum number of rows assigned without
+     *                         splitting the task in two halves
+     */
+    public FloatClusteringTask(FloatDenseDataset dataset, float[] centroids, int numberOfClusters, int[] assignment,
+                               WorkerBuffers<DenseSums> buffers, int startIndex, int endIndex, int granularity) {
+        this.dataset = dataset;
+        this.centroids = centroids;
+        this.numberOfClusters = numberOfClusters;
+        this.assignment = assignment;
+        this.buffers = buffers;
+        this.startIndex = startIndex;
+        this.endIndex = endIndex;
+        this.granularity = Math.max(1, granularity);
+    }
+
+    @Override
+    protected void compute() {
+        if (endIndex - startIndex > granularity) {
+            int middle = (startIndex + endIndex) >>> 1;
+            invokeAll(new FloatClusteringTask(dataset, centroids, numberOfClusters, assignment, buffers, startIndex,
+                            middle, granularity),
+                    new FloatClusteringTask(dataset, centroids, numberOfClusters, assignment, buffers, middle,
+                            endIndex, granularity));
+            return;
+        }
+
+        long started = System.nanoTime();
+        float[] data = dataset.getValues();
+        int dimension = dataset.dimension();
+        int k = numberOfClusters;
+        DenseSums sums = buffers.get();
+        DistanceKernels kernels = DistanceKernels.get();
+        double[] distances = new double[k];
+        long changed = 0;
+        double inertia = 0;
+        for (int i = startIndex; i < endIndex; i++) {
+            int rowOffset = i * dimension;
+            kernels.squaredDistances(data, rowOffset, centroids, 0, k, dimension, distances);
+            int nearest = 0;
+            double minDistance = Double.POSITIVE_INFINITY;
+            for (int c = 0; c < k; c++) {
+                if (distances[c] < minDistance) {
+                    minDistance = distances[c];
+                    nearest = c;
+                }
+            }
+            if (assignment[i] != nearest) {
+                assignment[i] = nearest;
+                changed++;
+            }
+            sums.add(nearest, data, rowOffset);
+            inertia += minDistance;
+        }
+        sums.addReassigned(changed);
+        sums.addInertia(inertia);
+        sums.addEvaluations((long) (endIndex - startIndex) * k);
+        sums.addTaskNanos(System.nanoTime() - started);
+    }
+}
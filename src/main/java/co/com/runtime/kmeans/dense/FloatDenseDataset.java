@@ -0,0 +1,99 @@
+package co.com.runtime.kmeans.dense;
+
+/**
+ * Data set of fixed size numeric vectors stored in single precision, in a
+ * single row-major <tt>float[]</tt> block laid out as in a
+ * <tt>DenseDataset</tt>. It takes half the memory of a
+ * <tt>DenseDataset</tt>, so an assignment pass reads half the bytes; the
+ * distances and the sums of the rows are still accumulated in double
+ * precision.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.dense.DenseDataset
+ */
+public class FloatDenseDataset {
+    private final int     size;
+    private final int     dimension;
+    private final float[] values;
+
+    /**
+     * Creates a data set filled with zeros
+     *
+     * @param size      Number of rows
+     * @param dimension Number of components of each row
+     * @throws ArithmeticException If the block would have more than
+     *                             <tt>Integer.MAX_VALUE</tt> values
+     */
+    public FloatDenseDataset(int size, int dimension) {
+        this(new float[Math.multiplyExact(size, dimension)], dimension);
+    }
+
+    /**
+     * Creates a data set backed by an existing row-major block
+     *
+     * @param values    The row-major block, its length must be a multiple of
+     *                  the dimension
+     * @param dimension Number of components of each row
+     */
+    public FloatDenseDataset(float[] values, int dimension) {
+        if (dimension <= 0 || values.length % dimension != 0) {
+            throw new IllegalArgumentException("Invalid dimension " + dimension + " for " + values.length
+                    + " values");
+        }
+        this.values = values;
+        this.dimension = dimension;
+        this.size = values.length / dimension;
+    }
+
+    /**
+     * Copies a data set rounding every component to single precision
+     *
+     * @param dataset The data set in double precision
+     * @return A data set in single precision
+     */
+    public static FloatDenseDataset of(DenseDataset dataset) {
+        double[] source = dataset.getValues();
+        float[] values = new float[source.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) source[i];
+        }
+        return new FloatDenseDataset(values, dataset.dimension());
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of components of each row
+     */
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * @return the row-major block backing this data set
+     */
+    public float[] getValues() {
+        return values;
+    }
+
+    /**
+     * @param row A row
+     * @return Position of the first component of the row in the block
+     */
+    public int offset(int row) {
+        return row * dimension;
+    }
+
+    public float get(int row, int column) {
+        return values[row * dimension + column];
+    }
+
+    public void set(int row, int column, float value) {
+        values[row * dimension + column] = value;
+    }
+}
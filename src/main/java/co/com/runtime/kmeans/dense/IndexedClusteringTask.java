@@ -0,0 +1,96 @@
+package co.com.runtime.kmeans.dense;
+
+import co.com.runtime.kmeans.WorkerBuffers;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Represents a parallel task for the K-means algorithm over a
+ * <tt>DenseDataset</tt> that finds the nearest centroid of each row of a
+ * range in a <tt>CentroidKdTree</tt>. The search starts from the distance to
+ * the previous centroid of the row, which after the first iterations is
+ * usually the nearest one and prunes most of the tree.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.dense.DenseClusteringTask
+ */
+public class IndexedClusteringTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private DenseDataset             dataset;
+    private DenseCentroids           centroids;
+    private CentroidKdTree           tree;
+    private int[]                    assignment;
+    private WorkerBuffers<DenseSums> buffers;
+    private int                      startIndex;
+    private int                      endIndex;
+    private int                      granularity;
+
+    /**
+     * @param dataset     The whole data set
+     * @param centroids   The current centroids
+     * @param tree        The k-d tree of the current centroids
+     * @param assignment  Cluster assigned to each row, updated by the task
+     * @param buffers     Sums of each worker thread
+     * @param startIndex  First row assigned by this task (inclusive)
+     * @param endIndex    Last row assigned by this task (exclusive)
+     * @param granularity Maximum number of rows assigned without splitting the
+     *                    task in two halves
+     */
+    public IndexedClusteringTask(DenseDataset dataset, DenseCentroids centroids, CentroidKdTree tree,
+                                 int[] assignment, WorkerBuffers<DenseSums> buffers, int startIndex, int endIndex,
+                                 int granularity) {
+        this.dataset = dataset;
+        this.centroids = centroids;
+        this.tree = tree;
+        this.assignment = assignment;
+        this.buffers = buffers;
+        this.startIndex = startIndex;
+        this.endIndex = endIndex;
+        this.granularity = Math.max(1, granularity);
+    }
+
+    @Override
+    protected void compute() {
+        if (endIndex - startIndex > granularity) {
+            int middle = (startIndex + endIndex) >>> 1;
+            invokeAll(new IndexedClusteringTask(dataset, centroids, tree, assignment, buffers, startIndex, middle,
+                            granularity),
+                    new IndexedClusteringTask(dataset, centroids, tree, assignment, buffers, middle, endIndex,
+                            granularity));
+            return;
+        }
+
+        long started = System.nanoTime();
+        double[] data = dataset.getValues();
+        double[] centers = centroids.getValues();
+        int dimension = dataset.dimension();
+        DenseSums sums = buffers.get();
+        DistanceKernels kernels = DistanceKernels.get();
+        CentroidKdTree.Query query = new CentroidKdTree.Query();
+        long known = 0;
+        long changed = 0;
+        double inertia = 0;
+        for (int i = startIndex; i < endIndex; i++) {
+            int rowOffset = i * dimension;
+            int previous = assignment[i];
+            if (previous >= 0) {
+                known++;
+            }
+            query.reset(previous, (previous < 0) ? 0
+                    : kernels.squaredDistance(data, rowOffset, centers, previous * dimension, dimension));
+            tree.nearest(data, rowOffset, query);
+            int nearest = query.getCentroid();
+            if (previous != nearest) {
+                assignment[i] = nearest;
+                changed++;
+            }
+            sums.add(nearest, data, rowOffset);
+            inertia += query.getDistance();
+        }
+        sums.addReassigned(changed);
+        sums.addInertia(inertia);
+        sums.addEvaluations(known + query.getEvaluations());
+        sums.addTaskNanos(System.nanoTime() - started);
+    }
+}
@@ -0,0 +1,114 @@
+package co.com.runtime.kmeans.dense;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Cluster of each row of an out-of-core data set, spilled to a file of
+ * little-endian <tt>int</tt> values so only the labels of the blocks being
+ * processed are kept in memory. Rows never written read as -1.
+ *
+ * @author Camilo Sarmiento
+ */
+public class LabelFile implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer  buffer;
+
+    /**
+     * Opens a label file, creating it if it does not exist. The labels of a
+     * previous run are discarded, every row reads as -1.
+     *
+     * @param f The file
+     * @throws IOException
+     */
+    public LabelFile(File f) throws IOException {
+        this.channel = FileChannel.open(f.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return The number of rows with a label
+     * @throws IOException
+     */
+    public long size() throws IOException {
+        return channel.size() / 4;
+    }
+
+    /**
+     * Discards every label, so the file can be reused by another run
+     *
+     * @throws IOException
+     */
+    public synchronized void clear() throws IOException {
+        channel.truncate(0);
+    }
+
+    /**
+     * Reads the labels of consecutive rows
+     *
+     * @param firstRow The first row
+     * @param labels   Receives the labels
+     * @param count    Number of rows
+     * @throws IOException
+     */
+    public synchronized void read(long firstRow, int[] labels, int count) throws IOException {
+        int done = 0;
+        long end = channel.size();
+        while (done < count) {
+            long position = 4 * (firstRow + done);
+            int n = Math.min(count - done, buffer.capacity() / 4);
+            if (position >= end) {
+                Arrays.fill(labels, done, count, -1);
+                return;
+            }
+            buffer.clear();
+            buffer.limit(4 * n);
+            while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+                // Read until the buffer is full or the end of the file
+            }
+            buffer.flip();
+            n = buffer.remaining() / 4;
+            buffer.asIntBuffer().get(labels, done, n);
+            done += n;
+            if (n == 0) {
+                Arrays.fill(labels, done, count, -1);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes the labels of consecutive rows
+     *
+     * @param firstRow The first row
+     * @param labels   The labels
+     * @param count    Number of rows
+     * @throws IOException
+     */
+    public synchronized void write(long firstRow, int[] labels, int count) throws IOException {
+        int done = 0;
+        while (done < count) {
+            int n = Math.min(count - done, buffer.capacity() / 4);
+            buffer.clear();
+            buffer.asIntBuffer().put(labels, done, n);
+            buffer.limit(4 * n);
+            long position = 4 * (firstRow + done);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+            done += n;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,63 @@
+package co.com.runtime.kmeans.distributed;
+
+import co.com.runtime.kmeans.dense.DenseCentroids;
+import co.com.runtime.kmeans.dense.DenseDataset;
+import co.com.runtime.kmeans.dense.DenseKmeansEngine;
+import co.com.runtime.kmeans.dense.DenseSums;
+
+import java.util.Arrays;
+
+/**
+ * Partition of a data set owned by a worker, together with the cluster of
+ * each of its rows. Every assignment runs on the pool of the worker's engine
+ * and only the per-cluster sums leave the worker.
+ *
+ * @author Camilo Sarmiento
+ */
+public class DenseWorker implements AutoCloseable {
+    private final DenseDataset      partition;
+    private final DenseKmeansEngine engine;
+    private final int[]             assignment;
+
+    /**
+     * @param partition The rows owned by the worker
+     * @param engine    The engine that assigns the rows, closed with the
+     *                  worker
+     */
+    public DenseWorker(DenseDataset partition, DenseKmeansEngine engine) {
+        this.partition = partition;
+        this.engine = engine;
+        this.assignment = new int[partition.size()];
+        Arrays.fill(assignment, -1);
+    }
+
+    public DenseDataset getPartition() {
+        return partition;
+    }
+
+    /**
+     * Assigns every row of the partition to its nearest centroid
+     *
+     * @param centroids The current centroids
+     * @return The partial results of the partition
+     */
+    public DenseSums assign(DenseCentroids centroids) {
+        if (centroids.dimension() != partition.dimension()) {
+            throw new IllegalArgumentException("Centroids dimension " + centroids.dimension()
+                    + " does not match partition dimension " + partition.dimension());
+        }
+        return engine.assign(partition, centroids, assignment);
+    }
+
+    /**
+     * @return The cluster of each row of the partition
+     */
+    public int[] getAssignment() {
+        return assignment;
+    }
+
+    @Override
+    public void close() {
+        engine.close();
+    }
+}
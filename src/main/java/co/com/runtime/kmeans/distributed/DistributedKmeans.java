@@ -0,0 +1,122 @@
+package co.com.runtime.kmeans.distributed;
+
+import co.com.runtime.kmeans.ClusteringResult;
+import co.com.runtime.kmeans.ConvergencePolicy;
+import co.com.runtime.kmeans.dense.DenseCentroids;
+import co.com.runtime.kmeans.dense.DenseSums;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Coordinator of the distributed K-means over a dense data set partitioned
+ * among workers. On every iteration the centroids are sent to all the
+ * workers, each one assigns its partition in parallel, and only the sums,
+ * counts and inertia of every cluster come back, K x (d + 1) numbers per
+ * worker whatever the size of the partitions. The coordinator merges them
+ * and computes the new centroids.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.distributed.WorkerLink
+ */
+public class DistributedKmeans {
+
+    private static Logger logger = LogManager.getLogger();
+
+    private final List<WorkerLink> workers;
+
+    /**
+     * @param workers The workers, their order is the order of the partitions
+     */
+    public DistributedKmeans(List<WorkerLink> workers) {
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("At least one worker is required");
+        }
+        this.workers = new ArrayList<>(workers);
+    }
+
+    /**
+     * Runs the K-means algorithm until the convergence policy stops it
+     *
+     * @param centroids The initial centroids, updated in place
+     * @param policy    The convergence policy
+     * @return The final centroids and the size of each cluster, the
+     * assignment stays in the workers
+     * @throws IOException If a worker fails
+     */
+    public ClusteringResult<DenseCentroids> cluster(DenseCentroids centroids, ConvergencePolicy policy)
+            throws IOException {
+        for (WorkerLink worker : workers) {
+            if (worker.dimension() != centroids.dimension()) {
+                throw new IllegalArgumentException("Partition dimension " + worker.dimension()
+                        + " does not match centroids dimension " + centroids.dimension());
+            }
+        }
+        int iterations = 0;
+        double previousInertia = Double.NaN;
+        double maxShift = Double.POSITIVE_INFINITY;
+        DenseSums sums = assign(centroids);
+        while (!policy.hasConverged(iterations, sums.getReassigned(), previousInertia, sums.getInertia(),
+                maxShift)) {
+            maxShift = centroids.update(sums);
+            previousInertia = sums.getInertia();
+            sums = assign(centroids);
+            iterations++;
+            logger.info("Iteration " + iterations + " - Reassigned rows: " + sums.getReassigned() + " from "
+                    + rows() + ", inertia: " + sums.getInertia() + ", max centroid shift: " + maxShift);
+        }
+        int[] sizes = new int[centroids.size()];
+        for (int c = 0; c < sizes.length; c++) {
+            sizes[c] = (int) sums.getCount(c);
+        }
+        return new ClusteringResult<>(centroids, sizes, iterations);
+    }
+
+    /**
+     * Sends the centroids to every worker before waiting for any result, and
+     * merges the results
+     */
+    private DenseSums assign(DenseCentroids centroids) throws IOException {
+        for (WorkerLink worker : workers) {
+            worker.sendCentroids(centroids);
+        }
+        DenseSums total = null;
+        for (WorkerLink worker : workers) {
+            DenseSums sums = worker.receiveSums();
+            total = (total == null) ? sums : total.merge(sums);
+        }
+        return total;
+    }
+
+    /**
+     * @return The number of rows of all the partitions
+     */
+    public long rows() {
+        long rows = 0;
+        for (WorkerLink worker : workers) {
+            rows += worker.rows();
+        }
+        return rows;
+    }
+
+    /**
+     * Collects the assignment of every partition, in the order of the
+     * workers
+     *
+     * @return The cluster of each row of the data set
+     * @throws IOException If a worker fails
+     */
+    public int[] fetchAssignment() throws IOException {
+        int[] assignment = new int[Math.toIntExact(rows())];
+        int position = 0;
+        for (WorkerLink worker : workers) {
+            int[] labels = worker.fetchAssignment();
+            System.arraycopy(labels, 0, assignment, position, labels.length);
+            position += labels.length;
+        }
+        return assignment;
+    }
+}
@@ -0,0 +1,68 @@
+package co.com.runtime.kmeans.distributed;
+
+import co.com.runtime.kmeans.dense.DenseCentroids;
+import co.com.runtime.kmeans.dense.DenseSums;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Link to a worker running in the same process. The assignment starts when
+ * the centroids are sent, on the pool of the worker.
+ *
+ * @author Camilo Sarmiento
+ */
+public class LocalWorkerLink implements WorkerLink {
+    private final DenseWorker            worker;
+    private CompletableFuture<DenseSums> pending;
+
+    /**
+     * @param worker The worker, closed with the link
+     */
+    public LocalWorkerLink(DenseWorker worker) {
+        this.worker = worker;
+    }
+
+    @Override
+    public int rows() {
+        return worker.getPartition().size();
+    }
+
+    @Override
+    public int dimension() {
+        return worker.getPartition().dimension();
+    }
+
+    @Override
+    public void sendCentroids(DenseCentroids centroids) {
+        pending = CompletableFuture.supplyAsync(() -> worker.assign(centroids));
+    }
+
+    @Override
+    public DenseSums receiveSums() throws IOException {
+        if (pending == null) {
+            throw new IllegalStateException("No assignment was requested");
+        }
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the worker", e);
+        } catch (ExecutionException e) {
+            throw new IOException("The worker failed", e.getCause());
+        } finally {
+            pending = null;
+        }
+    }
+
+    @Override
+    public int[] fetchAssignment() {
+        return worker.getAssignment().clone();
+    }
+
+    @Override
+    public void close() {
+        worker.close();
+    }
+}
@@ -0,0 +1,159 @@
+package co.com.runtime.kmeans.distributed;
+
+import co.com.runtime.kmeans.dense.DenseCentroids;
+import co.com.runtime.kmeans.dense.DenseSums;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+
+/**
+ * Messages exchanged between the coordinator and a worker over a stream.
+ * After connecting, the worker sends the size and dimension of its
+ * partition; then the coordinator sends requests, each one starting with its
+ * operation code, and the worker answers every request but <tt>CLOSE</tt>.
+ * Every answer starts with a status: <tt>OK</tt> followed by the result, or
+ * <tt>ERROR</tt> followed by a message.
+ *
+ * @author Camilo Sarmiento
+ */
+final class Protocol {
+    static final int MAGIC = 0x4B4D5750; // KMWP
+
+    /**
+     * Centroids to assign the partition, answered with the sums
+     */
+    static final int ASSIGN = 1;
+    /**
+     * Request of the assignment of the partition
+     */
+    static final int LABELS = 2;
+    /**
+     * End of the session
+     */
+    static final int CLOSE  = 3;
+
+    /**
+     * The request succeeded, its result follows
+     */
+    static final int OK    = 0;
+    /**
+     * The request failed, a message follows
+     */
+    static final int ERROR = -1;
+
+    /**
+     * Maximum number of centroids accepted by a worker
+     */
+    static final int MAX_CENTROIDS = 1 << 20;
+
+    private Protocol() {
+    }
+
+    static void writeCentroids(DataOutputStream out, DenseCentroids centroids) throws IOException {
+        out.writeInt(centroids.size());
+        out.writeInt(centroids.dimension());
+        for (double value : centroids.getValues()) {
+            out.writeDouble(value);
+        }
+    }
+
+    /**
+     * Reads centroids, checking their size before allocating them
+     *
+     * @param in        The stream
+     * @param dimension The dimension of the partition
+     * @return The centroids
+     * @throws ProtocolException if the size or the dimension are not valid,
+     *                           the values are left unread
+     */
+    static DenseCentroids readCentroids(DataInputStream in, int dimension) throws IOException {
+        int size = in.readInt();
+        int received = in.readInt();
+        if (received != dimension) {
+            throw new ProtocolException("Centroids dimension " + received + " does not match partition dimension "
+                    + dimension);
+        }
+        if (size <= 0 || size > MAX_CENTROIDS || (long) size * dimension > Integer.MAX_VALUE) {
+            throw new ProtocolException("Invalid number of centroids " + size);
+        }
+        DenseCentroids centroids = new DenseCentroids(size, dimension);
+        double[] values = centroids.getValues();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readDouble();
+        }
+        return centroids;
+    }
+
+    static void writeError(DataOutputStream out, String message) throws IOException {
+        out.writeInt(ERROR);
+        out.writeUTF(String.valueOf(message));
+    }
+
+    /**
+     * Reads the status of an answer
+     *
+     * @throws IOException with the message of the worker if the request
+     *                     failed
+     */
+    static void readStatus(DataInputStream in) throws IOException {
+        int status = in.readInt();
+        if (status == ERROR) {
+            throw new IOException("Worker error: " + in.readUTF());
+        }
+        if (status != OK) {
+            throw new ProtocolException("Unknown status " + status);
+        }
+    }
+
+    static void writeSums(DataOutputStream out, DenseSums sums) throws IOException {
+        out.writeInt(OK);
+        out.writeInt(sums.size());
+        out.writeInt(sums.dimension());
+        for (int c = 0; c < sums.size(); c++) {
+            for (int j = 0; j < sums.dimension(); j++) {
+                out.writeDouble(sums.getSum(c, j));
+            }
+        }
+        for (int c = 0; c < sums.size(); c++) {
+            out.writeLong(sums.getCount(c));
+        }
+        out.writeLong(sums.getReassigned());
+        out.writeDouble(sums.getInertia());
+    }
+
+    static DenseSums readSums(DataInputStream in) throws IOException {
+        readStatus(in);
+        int size = in.readInt();
+        int dimension = in.readInt();
+        double[] sums = new double[size * dimension];
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] = in.readDouble();
+        }
+        long[] counts = new long[size];
+        for (int c = 0; c < size; c++) {
+            counts[c] = in.readLong();
+        }
+        long reassigned = in.readLong();
+        double inertia = in.readDouble();
+        return new DenseSums(dimension, sums, counts, reassigned, inertia);
+    }
+
+    static void writeLabels(DataOutputStream out, int[] labels) throws IOException {
+        out.writeInt(OK);
+        out.writeInt(labels.length);
+        for (int label : labels) {
+            out.writeInt(label);
+        }
+    }
+
+    static int[] readLabels(DataInputStream in) throws IOException {
+        readStatus(in);
+        int[] labels = new int[in.readInt()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = in.readInt();
+        }
+        return labels;
+    }
+}
@@ -0,0 +1,88 @@
+package co.com.runtime.kmeans.distributed;
+
+import co.com.runtime.kmeans.dense.DenseCentroids;
+import co.com.runtime.kmeans.dense.DenseSums;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Link to a worker listening on a TCP socket, see <tt>WorkerServer</tt>
+ *
+ * @author Camilo Sarmiento
+ */
+public class SocketWorkerLink implements WorkerLink {
+    private final Socket           socket;
+    private final DataInputStream  in;
+    private final DataOutputStream out;
+    private final int              rows;
+    private final int              dimension;
+
+    /**
+     * Connects to a worker and reads the size of its partition
+     *
+     * @param address The address of the worker
+     * @throws IOException
+     */
+    public SocketWorkerLink(InetSocketAddress address) throws IOException {
+        socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(address);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (in.readInt() != Protocol.MAGIC) {
+                throw new IOException(address + " is not a k-means worker");
+            }
+            rows = in.readInt();
+            dimension = in.readInt();
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int rows() {
+        return rows;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public void sendCentroids(DenseCentroids centroids) throws IOException {
+        out.writeInt(Protocol.ASSIGN);
+        Protocol.writeCentroids(out, centroids);
+        out.flush();
+    }
+
+    @Override
+    public DenseSums receiveSums() throws IOException {
+        return Protocol.readSums(in);
+    }
+
+    @Override
+    public int[] fetchAssignment() throws IOException {
+        out.writeInt(Protocol.LABELS);
+        out.flush();
+        return Protocol.readLabels(in);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.writeInt(Protocol.CLOSE);
+            out.flush();
+        } finally {
+            socket.close();
+        }
+    }
+}
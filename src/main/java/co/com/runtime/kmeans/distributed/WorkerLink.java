@@ -0,0 +1,55 @@
+package co.com.runtime.kmeans.distributed;
+
+import co.com.runtime.kmeans.dense.DenseCentroids;
+import co.com.runtime.kmeans.dense.DenseSums;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Connection between the coordinator and a worker that owns a partition of
+ * the data set. The coordinator sends the centroids to every worker before
+ * receiving any result, so the workers assign their partitions at the same
+ * time.
+ * <p/>
+ * Implementations decide how the messages travel, e.g. over a TCP socket or
+ * within the same process.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.distributed.DistributedKmeans
+ */
+public interface WorkerLink extends Closeable {
+    /**
+     * @return The number of rows of the partition of the worker
+     */
+    public int rows();
+
+    /**
+     * @return The number of components of each row
+     */
+    public int dimension();
+
+    /**
+     * Asks the worker to assign its partition to the nearest centroids
+     *
+     * @param centroids The current centroids
+     * @throws IOException
+     */
+    public void sendCentroids(DenseCentroids centroids) throws IOException;
+
+    /**
+     * Waits for the result of the last assignment requested
+     *
+     * @return The sums of the rows of each centroid, their counts, the number
+     * of rows whose cluster changed and the inertia of the partition
+     * @throws IOException
+     */
+    public DenseSums receiveSums() throws IOException;
+
+    /**
+     * @return The cluster of each row of the partition, as of the last
+     * assignment
+     * @throws IOException
+     */
+    public int[] fetchAssignment() throws IOException;
+}
@@ -0,0 +1,173 @@
+package co.com.runtime.kmeans.distributed;
+
+import co.com.runtime.kmeans.dense.DenseCentroids;
+import co.com.runtime.kmeans.dense.DenseDataset;
+import co.com.runtime.kmeans.dense.DenseKmeansEngine;
+import co.com.runtime.kmeans.io.DatasetFile;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ProtocolException;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Worker process of the distributed K-means. Loads its partition of a dense
+ * data set file and serves one coordinator at a time over TCP, answering
+ * every set of centroids with the sums of its partition.
+ * <p/>
+ * Usage: <tt>WorkerServer &lt;port&gt; &lt;data set file&gt; &lt;partition&gt;
+ * &lt;partitions&gt; [threads] [bind address]</tt>. With port 0 a free port
+ * is chosen; the port is printed on the standard output as
+ * <tt>LISTENING &lt;port&gt;</tt> once the worker accepts connections. The
+ * worker only listens on the loopback interface unless a bind address is
+ * given.
+ * <p/>
+ * A request that fails is answered with an error and the worker keeps
+ * serving; a malformed request also ends the session.
+ *
+ * @author Camilo Sarmiento
+ */
+public class WorkerServer implements AutoCloseable {
+
+    private static Logger logger = LogManager.getLogger();
+
+    private final ServerSocket server;
+    private final DenseWorker  worker;
+
+    /**
+     * Creates a worker listening on the loopback interface
+     *
+     * @param port   The port, 0 for any free port
+     * @param worker The worker, closed with the server
+     * @throws IOException
+     */
+    public WorkerServer(int port, DenseWorker worker) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port, worker);
+    }
+
+    /**
+     * @param address The local address where the worker listens
+     * @param port    The port, 0 for any free port
+     * @param worker  The worker, closed with the server
+     * @throws IOException
+     */
+    public WorkerServer(InetAddress address, int port, DenseWorker worker) throws IOException {
+        this.server = new ServerSocket(port, 0, address);
+        this.worker = worker;
+    }
+
+    /**
+     * @return The port where the worker accepts connections
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Serves coordinators until the server is closed. A failed session is
+     * logged and the next coordinator is served.
+     */
+    public void serve() throws IOException {
+        while (!server.isClosed()) {
+            try (Socket socket = server.accept()) {
+                socket.setTcpNoDelay(true);
+                serve(socket);
+            } catch (IOException | RuntimeException e) {
+                if (!server.isClosed()) {
+                    logger.error("Session with the coordinator failed", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeInt(Protocol.MAGIC);
+        out.writeInt(worker.getPartition().size());
+        out.writeInt(worker.getPartition().dimension());
+        out.flush();
+        while (true) {
+            int operation;
+            try {
+                operation = in.readInt();
+            } catch (EOFException e) {
+                return;
+            }
+            try {
+                switch (operation) {
+                    case Protocol.ASSIGN:
+                        DenseCentroids centroids = Protocol.readCentroids(in, worker.getPartition().dimension());
+                        Protocol.writeSums(out, worker.assign(centroids));
+                        break;
+                    case Protocol.LABELS:
+                        Protocol.writeLabels(out, worker.getAssignment());
+                        break;
+                    case Protocol.CLOSE:
+                        return;
+                    default:
+                        throw new ProtocolException("Unknown operation " + operation);
+                }
+            } catch (ProtocolException e) {
+                // The rest of the request cannot be skipped, so the session ends
+                reply(out, e);
+                throw e;
+            } catch (RuntimeException e) {
+                logger.error("Request " + operation + " failed", e);
+                reply(out, e);
+            }
+            out.flush();
+        }
+    }
+
+    private static void reply(DataOutputStream out, Exception e) throws IOException {
+        Protocol.writeError(out, e.getClass().getSimpleName() + ": " + e.getMessage());
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            server.close();
+        } finally {
+            worker.close();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: WorkerServer <port> <data set file> <partition> <partitions> [threads]"
+                    + " [bind address]");
+            System.exit(1);
+        }
+        int port = Integer.parseInt(args[0]);
+        File input = new File(args[1]);
+        int partition = Integer.parseInt(args[2]);
+        int partitions = Integer.parseInt(args[3]);
+        int threads = (args.length > 4) ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        InetAddress address = (args.length > 5) ? InetAddress.getByName(args[5]) : InetAddress.getLoopbackAddress();
+
+        // Contiguous range of rows, the same split used by the clustering tasks
+        long rows = DatasetFile.denseRows(input);
+        int firstRow = (int) (rows * partition / partitions);
+        int lastRow = (int) (rows * (partition + 1) / partitions);
+        DenseDataset dataset = DatasetFile.readDense(input, firstRow, lastRow - firstRow);
+        logger.info("Partition " + partition + " of " + partitions + ": rows [" + firstRow + ", " + lastRow + ")");
+
+        try (WorkerServer server = new WorkerServer(address, port, new DenseWorker(dataset,
+                new DenseKmeansEngine(threads)))) {
+            System.out.println("LISTENING " + server.getPort());
+            System.out.flush();
+            server.serve();
+        }
+    }
+}
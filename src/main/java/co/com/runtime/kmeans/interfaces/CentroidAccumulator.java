@@ -0,0 +1,38 @@
+package co.com.runtime.kmeans.interfaces;
+
+/**
+ * Running sum of the items assigned to a cluster, used to compute the new
+ * centroid while the items are being assigned, without keeping the items
+ * 
+ * @author Camilo Sarmiento
+ * 
+ * @param <T>
+ *            Bounding Type Parameter
+ */
+public interface CentroidAccumulator<T> {
+    /**
+     * Adds an item to the sum
+     * 
+     * @param item
+     *            The item
+     */
+    public void add(T item);
+
+    /**
+     * Adds the items of another accumulator of the same type to this one
+     * 
+     * @param other
+     *            The other accumulator
+     */
+    public void merge(CentroidAccumulator<T> other);
+
+    /**
+     * @return The number of items added
+     */
+    public long count();
+
+    /**
+     * @return The mean of the items added, the new centroid
+     */
+    public T mean();
+}
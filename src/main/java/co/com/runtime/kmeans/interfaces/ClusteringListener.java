@@ -0,0 +1,42 @@
+package co.com.runtime.kmeans.interfaces;
+
+import co.com.runtime.kmeans.IterationStats;
+
+/**
+ * Receives the progress of the K-means engines. The methods are called by
+ * the thread running the clustering, between the assignment passes, never
+ * from the clustering tasks, so a listener does not slow the assignment
+ * down. The default methods do nothing.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.AbstractKmeansEngine#addListener(ClusteringListener)
+ */
+public interface ClusteringListener {
+    /**
+     * Called before the first assignment pass
+     *
+     * @param size             Number of items of the data set, -1 if it is
+     *                         read from disk and not known beforehand
+     * @param numberOfClusters Number of clusters (K)
+     */
+    public default void clusteringStarted(int size, int numberOfClusters) {
+    }
+
+    /**
+     * Called after every assignment pass. The first pass, before any
+     * centroid update, is the iteration zero.
+     *
+     * @param stats Measures of the iteration
+     */
+    public default void iterationCompleted(IterationStats stats) {
+    }
+
+    /**
+     * Called once the convergence policy stops the iterations
+     *
+     * @param iterations Number of centroid updates made
+     * @param inertia    Inertia of the last assignment
+     */
+    public default void clusteringEnded(int iterations, double inertia) {
+    }
+}
@@ -0,0 +1,26 @@
+package co.com.runtime.kmeans.interfaces;
+
+/**
+ * Contract to accomplish by items that can be represented as a fixed size
+ * vector of real numbers, so they can be stored in a
+ * <tt>DenseDataset</tt>
+ * 
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.dense.DenseDataset
+ */
+public interface DenseVector {
+    /**
+     * @return The number of components of the vector
+     */
+    public int dimension();
+
+    /**
+     * Copies the components of the vector into an array
+     * 
+     * @param destination
+     *            The destination array
+     * @param offset
+     *            Position of the first component in the destination array
+     */
+    public void copyTo(double[] destination, int offset);
+}
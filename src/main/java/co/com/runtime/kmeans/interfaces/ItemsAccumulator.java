@@ -0,0 +1,46 @@
+package co.com.runtime.kmeans.interfaces;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Default accumulator of <tt>KmeansClusterItem</tt>, keeps the items added
+ * and computes their mean with <tt>mean(T[])</tt>
+ *
+ * @param <T> The type of the items
+ * @author Camilo Sarmiento
+ */
+public class ItemsAccumulator<T> implements CentroidAccumulator<T> {
+    private final KmeansClusterItem<T> prototype;
+    private final List<T>              items = new ArrayList<>();
+
+    /**
+     * @param prototype Item used to calculate the mean
+     */
+    public ItemsAccumulator(KmeansClusterItem<T> prototype) {
+        this.prototype = prototype;
+    }
+
+    @Override
+    public void add(T item) {
+        items.add(item);
+    }
+
+    @Override
+    public void merge(CentroidAccumulator<T> other) {
+        items.addAll(((ItemsAccumulator<T>) other).items);
+    }
+
+    @Override
+    public long count() {
+        return items.size();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T mean() {
+        T[] elements = (T[]) Array.newInstance(prototype.getClass(), items.size());
+        return prototype.mean(items.toArray(elements));
+    }
+}
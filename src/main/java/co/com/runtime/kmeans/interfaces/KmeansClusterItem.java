@@ -29,6 +29,21 @@ public interface KmeansClusterItem<T> {
      */
     public double distance(T other);
 
+    /**
+     * Returns a value that orders the items exactly as
+     * {@link #distance(Object)} does, but is cheaper to compute: any monotone
+     * increasing transformation of the distance, like the squared Euclidean
+     * distance or the negative cosine. Used to select the nearest centroid,
+     * the true distance is only needed when it is reported.
+     * 
+     * @param other
+     *            The item against the distance is going to be compared
+     * @return A monotone increasing function of the distance to another item
+     */
+    public default double comparisonDistance(T other) {
+        return distance(other);
+    }
+
     /**
      * Returns the mean Item among the Map
      * 
@@ -46,4 +61,16 @@ public interface KmeansClusterItem<T> {
      * @return The mean Item
      */
     public T mean(T[] elements);
+
+    /**
+     * Returns an empty accumulator to compute the mean of items of this type.
+     * The default accumulator keeps the items and calls
+     * {@link #mean(Object[])}, implementations should return one that only
+     * keeps a running sum.
+     * 
+     * @return An empty accumulator
+     */
+    public default CentroidAccumulator<T> newAccumulator() {
+        return new ItemsAccumulator<>(this);
+    }
 }
@@ -0,0 +1,478 @@
+package co.com.runtime.kmeans.io;
+
+import co.com.runtime.kmeans.datatypes.Vocabulary;
+import co.com.runtime.kmeans.dense.DenseBlockSource;
+import co.com.runtime.kmeans.dense.DenseDataset;
+import co.com.runtime.kmeans.sparse.SparseDataset;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Binary file of an already vectorized data set, so a corpus is parsed once
+ * and then reloaded without parsing. A file holds either a dense data set, as
+ * its row-major block, or a sparse data set, as its CSR arrays followed by
+ * the terms of its vocabulary in id order.
+ * <p/>
+ * The file starts with a header of <tt>HEADER_SIZE</tt> bytes: magic number,
+ * version, kind, rows, dimension, number of terms, number of stored values,
+ * content length and the CRC32 checksum of the content. All the numbers are
+ * little-endian. The reader maps the content and copies it with bulk copies
+ * into the arrays used by the engines.
+ *
+ * @author Camilo Sarmiento
+ */
+public class DatasetFile {
+    public static final int HEADER_SIZE = 48;
+
+    private static final int MAGIC   = 0x4B4D4453; // KMDS
+    private static final int VERSION = 1;
+    private static final int DENSE   = 1;
+    private static final int SPARSE  = 2;
+
+    /**
+     * Largest region mapped at once, a multiple of 8 so values are never
+     * split between two regions
+     */
+    private static final int MAX_REGION = 1 << 30;
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private DatasetFile() {
+    }
+
+    /**
+     * @param f A file
+     * @return <tt>true</tt> if the file starts with the magic number of this
+     * format
+     * @throws IOException
+     */
+    public static boolean isDatasetFile(File f) throws IOException {
+        if (!f.isFile() || f.length() < HEADER_SIZE) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(magic, 0);
+            return magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Writes a dense data set
+     *
+     * @param dataset The data set
+     * @param f       The file, replaced if it exists
+     * @throws IOException
+     */
+    public static void write(DenseDataset dataset, File f) throws IOException {
+        try (Writer writer = new Writer(f)) {
+            writer.putDoubles(dataset.getValues());
+            writer.finish(DENSE, dataset.size(), dataset.dimension(), 0, dataset.getValues().length);
+        }
+    }
+
+    /**
+     * Writes a sparse data set and the vocabulary of its term ids
+     *
+     * @param dataset    The data set
+     * @param vocabulary The vocabulary of the term ids
+     * @param f          The file, replaced if it exists
+     * @throws IOException
+     */
+    public static void write(SparseDataset dataset, Vocabulary vocabulary, File f) throws IOException {
+        try (Writer writer = new Writer(f)) {
+            writer.putInts(dataset.getRowOffsets(), dataset.size() + 1);
+            writer.putInts(dataset.getTermIds(), dataset.nonZeros());
+            writer.putFloats(dataset.getWeights(), dataset.nonZeros());
+            int terms = vocabulary.size();
+            for (int id = 0; id < terms; id++) {
+                byte[] term = vocabulary.term(id).getBytes(StandardCharsets.UTF_8);
+                writer.putInt(term.length);
+                writer.putBytes(term);
+            }
+            writer.finish(SPARSE, dataset.size(), dataset.dimension(), terms, dataset.nonZeros());
+        }
+    }
+
+    /**
+     * Reads a dense data set
+     *
+     * @param f      The file
+     * @param verify <tt>true</tt> to check the content against the checksum
+     * @return The data set
+     * @throws IOException If the file is not a dense data set, or it is
+     *                     corrupted
+     */
+    public static DenseDataset readDense(File f, boolean verify) throws IOException {
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            Header header = Header.read(channel, f, DENSE, verify);
+            double[] values = new double[header.checkedInt(header.values, f)];
+            new Reader(channel, HEADER_SIZE).getDoubles(values);
+            return new DenseDataset(values, header.dimension);
+        }
+    }
+
+    /**
+     * Reads consecutive rows of a dense data set, e.g. the partition of a
+     * worker
+     *
+     * @param f        The file
+     * @param firstRow The first row
+     * @param count    Maximum number of rows
+     * @return The rows, fewer than <tt>count</tt> at the end of the data set
+     * @throws IOException If the file is not a dense data set
+     */
+    public static DenseDataset readDense(File f, int firstRow, int count) throws IOException {
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            DenseFileSource source = new DenseFileSource(channel, Header.read(channel, f, DENSE, false));
+            source.nextRow = Math.max(0, firstRow);
+            DenseDataset rows = source.next(count);
+            return (rows == null) ? new DenseDataset(new double[0], source.dimension()) : rows;
+        }
+    }
+
+    /**
+     * @param f A dense data set file
+     * @return The number of rows of the data set
+     * @throws IOException If the file is not a dense data set
+     */
+    public static int denseRows(File f) throws IOException {
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            return Header.read(channel, f, DENSE, false).rows;
+        }
+    }
+
+    /**
+     * Opens a dense data set to be read in blocks of rows, without loading it
+     * whole
+     *
+     * @param f      The file
+     * @param verify <tt>true</tt> to check the content against the checksum
+     *               when the file is opened
+     * @return The blocks of the data set
+     * @throws IOException If the file is not a dense data set, or it is
+     *                     corrupted
+     */
+    public static DenseBlockSource openDense(File f, boolean verify) throws IOException {
+        FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ);
+        try {
+            return new DenseFileSource(channel, Header.read(channel, f, DENSE, verify));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a sparse data set and adds its terms to a vocabulary
+     *
+     * @param f          The file
+     * @param vocabulary Receives the terms, must be empty or start with the
+     *                   same terms of the file so the term ids agree
+     * @param verify     <tt>true</tt> to check the content against the checksum
+     * @return The data set
+     * @throws IOException If the file is not a sparse data set, it is
+     *                     corrupted or its terms do not agree with the
+     *                     vocabulary
+     */
+    public static SparseDataset readSparse(File f, Vocabulary vocabulary, boolean verify) throws IOException {
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            Header header = Header.read(channel, f, SPARSE, verify);
+            int[] rowOffsets = new int[header.rows + 1];
+            int[] termIds = new int[header.checkedInt(header.values, f)];
+            float[] weights = new float[termIds.length];
+            Reader reader = new Reader(channel, HEADER_SIZE);
+            reader.getInts(rowOffsets);
+            reader.getInts(termIds);
+            reader.getFloats(weights);
+            for (int id = 0; id < header.terms; id++) {
+                byte[] term = new byte[reader.getInt()];
+                reader.getBytes(term);
+                if (vocabulary.id(new String(term, StandardCharsets.UTF_8)) != id) {
+                    throw new IOException("The vocabulary does not agree with the terms of " + f);
+                }
+            }
+            return new SparseDataset(header.dimension, rowOffsets, termIds, weights);
+        }
+    }
+
+    /**
+     * Blocks of rows of a dense data set file, each one mapped and copied on
+     * its own
+     */
+    private static class DenseFileSource implements DenseBlockSource {
+        private final FileChannel channel;
+        private final int         rows;
+        private final int         dimension;
+        private int               nextRow;
+
+        DenseFileSource(FileChannel channel, Header header) {
+            this.channel = channel;
+            this.rows = header.rows;
+            this.dimension = header.dimension;
+        }
+
+        @Override
+        public int dimension() {
+            return dimension;
+        }
+
+        @Override
+        public DenseDataset next(int maxRows) throws IOException {
+            int count = Math.min(maxRows, rows - nextRow);
+            if (count <= 0) {
+                return null;
+            }
+            double[] values = new double[count * dimension];
+            new Reader(channel, HEADER_SIZE + 8L * nextRow * dimension).getDoubles(values);
+            nextRow += count;
+            return new DenseDataset(values, dimension);
+        }
+
+        @Override
+        public void rewind() {
+            nextRow = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static class Header {
+        int  kind;
+        int  rows;
+        int  dimension;
+        int  terms;
+        long values;
+        long contentLength;
+        long checksum;
+
+        static Header read(FileChannel channel, File f, int expectedKind, boolean verify) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.size() < HEADER_SIZE || channel.read(buffer, 0) < HEADER_SIZE
+                    || buffer.getInt(0) != MAGIC) {
+                throw new IOException(f + " is not a data set file");
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported version " + buffer.getInt(4) + " of " + f);
+            }
+            Header header = new Header();
+            header.kind = buffer.getInt(8);
+            header.rows = buffer.getInt(12);
+            header.dimension = buffer.getInt(16);
+            header.terms = buffer.getInt(20);
+            header.values = buffer.getLong(24);
+            header.contentLength = buffer.getLong(32);
+            header.checksum = buffer.getLong(40);
+            if (header.kind != expectedKind) {
+                throw new IOException(f + " does not hold a " + ((expectedKind == DENSE) ? "dense" : "sparse")
+                        + " data set");
+            }
+            if (channel.size() != HEADER_SIZE + header.contentLength) {
+                throw new IOException(f + " is truncated");
+            }
+            if (verify && checksum(channel, header.contentLength) != header.checksum) {
+                throw new IOException("Checksum mismatch in " + f);
+            }
+            return header;
+        }
+
+        int checkedInt(long value, File f) throws IOException {
+            if (value < 0 || value > Integer.MAX_VALUE - 8) {
+                throw new IOException("Too many values in " + f);
+            }
+            return (int) value;
+        }
+
+        private static long checksum(FileChannel channel, long length) throws IOException {
+            CRC32 crc = new CRC32();
+            for (long position = 0; position < length; position += MAX_REGION) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + position,
+                        Math.min(MAX_REGION, length - position)));
+            }
+            return crc.getValue();
+        }
+    }
+
+    /**
+     * Reads consecutive values of the content, mapping a region at a time
+     */
+    private static class Reader {
+        private final FileChannel channel;
+        private MappedByteBuffer  region;
+        private long              regionStart;
+
+        Reader(FileChannel channel, long position) throws IOException {
+            this.channel = channel;
+            map(position);
+        }
+
+        private void map(long position) throws IOException {
+            regionStart = position;
+            region = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(MAX_REGION, channel.size() - position));
+            region.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * Maps the next region if less than some bytes are left in the
+         * current one
+         */
+        private void ensure(int bytes) throws IOException {
+            if (region.remaining() < bytes) {
+                map(regionStart + region.position());
+                if (region.remaining() < bytes) {
+                    throw new IOException("Unexpected end of the data set file");
+                }
+            }
+        }
+
+        int getInt() throws IOException {
+            ensure(4);
+            return region.getInt();
+        }
+
+        void getBytes(byte[] dst) throws IOException {
+            ensure(dst.length);
+            region.get(dst);
+        }
+
+        void getDoubles(double[] dst) throws IOException {
+            int done = 0;
+            while (done < dst.length) {
+                ensure(8);
+                int n = Math.min(dst.length - done, region.remaining() / 8);
+                region.asDoubleBuffer().get(dst, done, n);
+                region.position(region.position() + 8 * n);
+                done += n;
+            }
+        }
+
+        void getInts(int[] dst) throws IOException {
+            int done = 0;
+            while (done < dst.length) {
+                ensure(4);
+                int n = Math.min(dst.length - done, region.remaining() / 4);
+                region.asIntBuffer().get(dst, done, n);
+                region.position(region.position() + 4 * n);
+                done += n;
+            }
+        }
+
+        void getFloats(float[] dst) throws IOException {
+            int done = 0;
+            while (done < dst.length) {
+                ensure(4);
+                int n = Math.min(dst.length - done, region.remaining() / 4);
+                region.asFloatBuffer().get(dst, done, n);
+                region.position(region.position() + 4 * n);
+                done += n;
+            }
+        }
+    }
+
+    /**
+     * Writes the content through a direct buffer, updating the checksum, and
+     * then the header
+     */
+    private static class Writer implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer  buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32       crc    = new CRC32();
+        private long              contentLength;
+
+        Writer(File f) throws IOException {
+            channel = FileChannel.open(f.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            channel.position(HEADER_SIZE);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            ByteBuffer content = buffer.duplicate();
+            crc.update(content);
+            contentLength += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putBytes(byte[] values) throws IOException {
+            for (int done = 0; done < values.length; ) {
+                ensure(1);
+                int n = Math.min(values.length - done, buffer.remaining());
+                buffer.put(values, done, n);
+                done += n;
+            }
+        }
+
+        void putDoubles(double[] values) throws IOException {
+            for (int done = 0; done < values.length; ) {
+                ensure(8);
+                int n = Math.min(values.length - done, buffer.remaining() / 8);
+                buffer.asDoubleBuffer().put(values, done, n);
+                buffer.position(buffer.position() + 8 * n);
+                done += n;
+            }
+        }
+
+        void putInts(int[] values, int length) throws IOException {
+            for (int done = 0; done < length; ) {
+                ensure(4);
+                int n = Math.min(length - done, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(values, done, n);
+                buffer.position(buffer.position() + 4 * n);
+                done += n;
+            }
+        }
+
+        void putFloats(float[] values, int length) throws IOException {
+            for (int done = 0; done < length; ) {
+                ensure(4);
+                int n = Math.min(length - done, buffer.remaining() / 4);
+                buffer.asFloatBuffer().put(values, done, n);
+                buffer.position(buffer.position() + 4 * n);
+                done += n;
+            }
+        }
+
+        void finish(int kind, int rows, int dimension, int terms, long values) throws IOException {
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(kind).putInt(rows).putInt(dimension).putInt(terms)
+                    .putLong(values).putLong(contentLength).putLong(crc.getValue());
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
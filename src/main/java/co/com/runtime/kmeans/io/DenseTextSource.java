@@ -0,0 +1,82 @@
+package co.com.runtime.kmeans.io;
+
+import co.com.runtime.kmeans.dense.DenseBlockSource;
+import co.com.runtime.kmeans.dense.DenseDataset;
+import co.com.runtime.kmeans.interfaces.DenseVector;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Reads a text file with one item per line in blocks of rows, parsing only
+ * the lines of the block being read
+ *
+ * @author Camilo Sarmiento
+ */
+public class DenseTextSource implements DenseBlockSource {
+    private final File                                   file;
+    private final int                                    dimension;
+    private final Function<String, ? extends DenseVector> parser;
+    private BufferedReader                               reader;
+
+    /**
+     * @param file      The file, UTF-8 encoded
+     * @param dimension Number of components of each item
+     * @param parser    Creates the item of a line
+     * @throws IOException
+     */
+    public DenseTextSource(File file, int dimension, Function<String, ? extends DenseVector> parser)
+            throws IOException {
+        this.file = file;
+        this.dimension = dimension;
+        this.parser = parser;
+        rewind();
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public DenseDataset next(int maxRows) throws IOException {
+        double[] values = new double[Math.min(maxRows, 1024) * dimension];
+        int rows = 0;
+        String line;
+        while (rows < maxRows && (line = reader.readLine()) != null) {
+            DenseVector item = parser.apply(line);
+            if (item.dimension() != dimension) {
+                throw new IOException("Line with dimension " + item.dimension() + ", expected " + dimension);
+            }
+            if ((rows + 1) * dimension > values.length) {
+                values = Arrays.copyOf(values, Math.min(maxRows, 2 * rows) * dimension);
+            }
+            item.copyTo(values, rows * dimension);
+            rows++;
+        }
+        if (rows == 0) {
+            return null;
+        }
+        return new DenseDataset((values.length == rows * dimension) ? values : Arrays.copyOf(values,
+                rows * dimension), dimension);
+    }
+
+    @Override
+    public void rewind() throws IOException {
+        close();
+        reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package co.com.runtime.kmeans.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Loads a text file with one item per line. The file is memory-mapped in
+ * chunks that start and end at line boundaries, and the chunks are parsed in
+ * parallel straight from the mapped bytes, so files larger than 2 GB are
+ * supported as long as the number of items fits in an array.
+ * <p/>
+ * The lines are decoded as UTF-8, a trailing <tt>\r</tt> is removed, and no
+ * empty item is created after the last line terminator, as
+ * <tt>BufferedReader.readLine</tt> does.
+ *
+ * @author Camilo Sarmiento
+ */
+public class MappedLineLoader {
+    static final int MIN_CHUNK_SIZE = 1 << 20;
+    static final int MAX_CHUNK_SIZE = 64 << 20;
+
+    /**
+     * Longest line terminator search done with a single read
+     */
+    private static final int SCAN_SIZE = 8192;
+
+    private MappedLineLoader() {
+    }
+
+    /**
+     * Loads the items of a file in the order of the lines
+     *
+     * @param f      The file, one item per line
+     * @param parser Creates the item of a line
+     * @param arrays Creates the array of items
+     * @param pool   Pool where the chunks are parsed
+     * @param <T>    The type of the items
+     * @return The items of the file
+     * @throws IOException
+     */
+    public static <T> T[] load(File f, Function<String, T> parser, IntFunction<T[]> arrays, ForkJoinPool pool)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, pool.getParallelism());
+            int chunks = bounds.length - 1;
+            Object[][] parts = new Object[chunks][];
+            int[] counts = new int[chunks];
+            try {
+                pool.invoke(new ParseTask(channel, parser, bounds, parts, counts, 0, chunks));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            int[] offsets = new int[chunks + 1];
+            for (int c = 0; c < chunks; c++) {
+                long end = (long) offsets[c] + counts[c];
+                if (end > Integer.MAX_VALUE - 8) {
+                    throw new IOException("Too many lines in " + f);
+                }
+                offsets[c + 1] = (int) end;
+            }
+            T[] items = arrays.apply(offsets[chunks]);
+            pool.invoke(new CopyTask(parts, counts, offsets, items, 0, chunks));
+            return items;
+        }
+    }
+
+    /**
+     * Splits a file in chunks of similar size, moving every split after the
+     * next line terminator
+     *
+     * @return The start of each chunk plus the size of the file
+     */
+    static long[] chunkBounds(FileChannel channel, int parallelism) throws IOException {
+        long size = channel.size();
+        long chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, size / (4L * parallelism)));
+        long[] bounds = new long[(int) ((size + chunkSize - 1) / chunkSize) + 1];
+        int chunks = 0;
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_SIZE);
+        long position = 0;
+        while (position < size) {
+            bounds[chunks++] = position;
+            long split = position + chunkSize;
+            if (split >= size) {
+                break;
+            }
+            // The chunk ends after the first line terminator at or after the split
+            position = size;
+            for (long p = split - 1; p < size; p += SCAN_SIZE) {
+                scan.clear();
+                int read = channel.read(scan, p);
+                int newLine = indexOf(scan, read);
+                if (newLine >= 0) {
+                    position = p + newLine + 1;
+                    break;
+                }
+            }
+        }
+        bounds[chunks] = size;
+        return Arrays.copyOf(bounds, chunks + 1);
+    }
+
+    private static int indexOf(ByteBuffer buffer, int length) {
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Maps and parses a range of chunks
+     */
+    private static class ParseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel         channel;
+        private final Function<String, ?> parser;
+        private final long[]              bounds;
+        private final Object[][]          parts;
+        private final int[]               counts;
+        private final int                 startChunk;
+        private final int                 endChunk;
+
+        ParseTask(FileChannel channel, Function<String, ?> parser, long[] bounds, Object[][] parts, int[] counts,
+                  int startChunk, int endChunk) {
+            this.channel = channel;
+            this.parser = parser;
+            this.bounds = bounds;
+            this.parts = parts;
+            this.counts = counts;
+            this.startChunk = startChunk;
+            this.endChunk = endChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (endChunk - startChunk > 1) {
+                int middle = (startChunk + endChunk) >>> 1;
+                invokeAll(new ParseTask(channel, parser, bounds, parts, counts, startChunk, middle),
+                        new ParseTask(channel, parser, bounds, parts, counts, middle, endChunk));
+                return;
+            }
+            for (int c = startChunk; c < endChunk; c++) {
+                try {
+                    parse(c);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        private void parse(int chunk) throws IOException {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, bounds[chunk],
+                    bounds[chunk + 1] - bounds[chunk]);
+            int limit = buffer.limit();
+            Object[] items = new Object[Math.max(16, limit / 32)];
+            int count = 0;
+            byte[] line = new byte[256];
+            int start = 0;
+            while (start < limit) {
+                int end = start;
+                while (end < limit && buffer.get(end) != '\n') {
+                    end++;
+                }
+                int length = end - start;
+                if (length > 0 && buffer.get(end - 1) == '\r') {
+                    length--;
+                }
+                if (length > line.length) {
+                    line = new byte[Math.max(length, 2 * line.length)];
+                }
+                buffer.position(start);
+                buffer.get(line, 0, length);
+                if (count == items.length) {
+                    items = Arrays.copyOf(items, 2 * count);
+                }
+                items[count++] = parser.apply(new String(line, 0, length, StandardCharsets.UTF_8));
+                start = end + 1;
+            }
+            parts[chunk] = items;
+            counts[chunk] = count;
+        }
+    }
+
+    /**
+     * Copies the items of a range of chunks to their position in the result
+     */
+    private static class CopyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Object[][] parts;
+        private final int[]      counts;
+        private final int[]      offsets;
+        private final Object[]   items;
+        private final int        startChunk;
+        private final int        endChunk;
+
+        CopyTask(Object[][] parts, int[] counts, int[] offsets, Object[] items, int startChunk, int endChunk) {
+            this.parts = parts;
+            this.counts = counts;
+            this.offsets = offsets;
+            this.items = items;
+            this.startChunk = startChunk;
+            this.endChunk = endChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (endChunk - startChunk > 1) {
+                int middle = (startChunk + endChunk) >>> 1;
+                invokeAll(new CopyTask(parts, counts, offsets, items, startChunk, middle),
+                        new CopyTask(parts, counts, offsets, items, middle, endChunk));
+                return;
+            }
+            for (int c = startChunk; c < endChunk; c++) {
+                System.arraycopy(parts[c], 0, items, offsets[c], counts[c]);
+                parts[c] = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package co.com.runtime.kmeans.io;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Rearranges an array in random order using several threads. Every item is
+ * first sent to a random bucket, the buckets are laid out one after the other
+ * and finally each bucket is shuffled on its own with Fisher-Yates. As the
+ * number of items in each bucket follows the multinomial distribution and the
+ * order inside each bucket is uniform, every permutation is equally likely,
+ * like with a sequential Fisher-Yates shuffle.
+ *
+ * @author Camilo Sarmiento
+ */
+public class ParallelShuffle {
+    /**
+     * Arrays smaller than this are shuffled by the calling thread
+     */
+    static final int SEQUENTIAL_THRESHOLD = 1 << 16;
+
+    private ParallelShuffle() {
+    }
+
+    /**
+     * Rearranges the elements of an array in random order
+     *
+     * @param a    The array
+     * @param seed Seed of the random numbers, the same seed and parallelism
+     *             give the same order
+     * @param pool Pool where the array is shuffled
+     */
+    public static void shuffle(Object[] a, long seed, ForkJoinPool pool) {
+        SplittableRandom random = new SplittableRandom(seed);
+        if (a.length < SEQUENTIAL_THRESHOLD) {
+            fisherYates(a, 0, a.length, random);
+            return;
+        }
+
+        int chunks = 4 * pool.getParallelism();
+        int buckets = chunks;
+        int chunkSize = (a.length + chunks - 1) / chunks;
+        SplittableRandom[] randoms = new SplittableRandom[chunks];
+        for (int c = 0; c < chunks; c++) {
+            randoms[c] = random.split();
+        }
+
+        // Bucket of every item, and number of items of each chunk in each bucket
+        int[] bucketOf = new int[a.length];
+        int[][] counts = new int[chunks][buckets];
+        pool.invoke(new ChunkTask(a, null, bucketOf, counts, randoms, chunkSize, 0, chunks));
+
+        // Position of the first item of each chunk in each bucket
+        int[] bucketStarts = new int[buckets + 1];
+        int position = 0;
+        for (int b = 0; b < buckets; b++) {
+            bucketStarts[b] = position;
+            for (int c = 0; c < chunks; c++) {
+                int count = counts[c][b];
+                counts[c][b] = position;
+                position += count;
+            }
+        }
+        bucketStarts[buckets] = position;
+
+        Object[] scattered = new Object[a.length];
+        pool.invoke(new ChunkTask(a, scattered, bucketOf, counts, randoms, chunkSize, 0, chunks));
+        pool.invoke(new BucketTask(scattered, a, bucketStarts, randoms, 0, buckets));
+    }
+
+    private static void fisherYates(Object[] a, int start, int end, SplittableRandom random) {
+        for (int i = end - 1; i > start; i--) {
+            int r = start + random.nextInt(i - start + 1); // between start and i
+            Object temp = a[i];
+            a[i] = a[r];
+            a[r] = temp;
+        }
+    }
+
+    /**
+     * Draws the bucket of the items of a range of chunks, or, once the
+     * positions are known, copies the items to their bucket
+     */
+    private static class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Object[]           a;
+        private final Object[]           scattered;
+        private final int[]              bucketOf;
+        private final int[][]            counts;
+        private final SplittableRandom[] randoms;
+        private final int                chunkSize;
+        private final int                startChunk;
+        private final int                endChunk;
+
+        ChunkTask(Object[] a, Object[] scattered, int[] bucketOf, int[][] counts, SplittableRandom[] randoms,
+                  int chunkSize, int startChunk, int endChunk) {
+            this.a = a;
+            this.scattered = scattered;
+            this.bucketOf = bucketOf;
+            this.counts = counts;
+            this.randoms = randoms;
+            this.chunkSize = chunkSize;
+            this.startChunk = startChunk;
+            this.endChunk = endChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (endChunk - startChunk > 1) {
+                int middle = (startChunk + endChunk) >>> 1;
+                invokeAll(new ChunkTask(a, scattered, bucketOf, counts, randoms, chunkSize, startChunk, middle),
+                        new ChunkTask(a, scattered, bucketOf, counts, randoms, chunkSize, middle, endChunk));
+                return;
+            }
+            for (int c = startChunk; c < endChunk; c++) {
+                int start = Math.min(a.length, c * chunkSize);
+                int end = Math.min(a.length, start + chunkSize);
+                int[] chunkCounts = counts[c];
+                if (scattered == null) {
+                    SplittableRandom random = randoms[c];
+                    for (int i = start; i < end; i++) {
+                        int bucket = random.nextInt(chunkCounts.length);
+                        bucketOf[i] = bucket;
+                        chunkCounts[bucket]++;
+                    }
+                } else {
+                    // The counts now hold the next free position of the chunk in each bucket
+                    for (int i = start; i < end; i++) {
+                        scattered[chunkCounts[bucketOf[i]]++] = a[i];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Shuffles a range of buckets and copies them back to the array
+     */
+    private static class BucketTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Object[]           scattered;
+        private final Object[]           a;
+        private final int[]              bucketStarts;
+        private final SplittableRandom[] randoms;
+        private final int                startBucket;
+        private final int                endBucket;
+
+        BucketTask(Object[] scattered, Object[] a, int[] bucketStarts, SplittableRandom[] randoms, int startBucket,
+                   int endBucket) {
+            this.scattered = scattered;
+            this.a = a;
+            this.bucketStarts = bucketStarts;
+            this.randoms = randoms;
+            this.startBucket = startBucket;
+            this.endBucket = endBucket;
+        }
+
+        @Override
+        protected void compute() {
+            if (endBucket - startBucket > 1) {
+                int middle = (startBucket + endBucket) >>> 1;
+                invokeAll(new BucketTask(scattered, a, bucketStarts, randoms, startBucket, middle),
+                        new BucketTask(scattered, a, bucketStarts, randoms, middle, endBucket));
+                return;
+            }
+            for (int b = startBucket; b < endBucket; b++) {
+                int start = bucketStarts[b];
+                int end = bucketStarts[b + 1];
+                // The random numbers of the chunk with the same index are used again
+                fisherYates(scattered, start, end, randoms[b]);
+                System.arraycopy(scattered, start, a, start, end - start);
+            }
+        }
+    }
+}
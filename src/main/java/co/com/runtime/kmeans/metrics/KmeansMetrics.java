@@ -0,0 +1,187 @@
+package co.com.runtime.kmeans.metrics;
+
+import co.com.runtime.kmeans.IterationStats;
+import co.com.runtime.kmeans.interfaces.ClusteringListener;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of clustering metrics, fed as a <tt>ClusteringListener</tt> by
+ * any number of engines and exposed as an MBean. The totals are striped
+ * counters, so engines running at the same time on several threads update
+ * them without contention.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.AbstractKmeansEngine#addListener(ClusteringListener)
+ */
+public class KmeansMetrics implements ClusteringListener, KmeansMetricsMBean {
+    /**
+     * Domain of the object names of the registered metrics
+     */
+    public static final String DOMAIN = "co.com.runtime.kmeans";
+
+    private final LongAdder runs                      = new LongAdder();
+    private final LongAdder iterations                = new LongAdder();
+    private final LongAdder assignmentNanos           = new LongAdder();
+    private final LongAdder updateNanos               = new LongAdder();
+    private final LongAdder distanceEvaluations       = new LongAdder();
+    private final LongAdder prunedDistanceEvaluations = new LongAdder();
+    private final LongAdder reassigned                = new LongAdder();
+    private final LongAdder taskNanos                 = new LongAdder();
+
+    private final DoubleAccumulator maxWorkerSkew = new DoubleAccumulator(Math::max, 0D);
+
+    private volatile IterationStats last;
+
+    private ObjectName name;
+
+    /**
+     * Registers the metrics in the platform MBean server
+     *
+     * @param name Name of the metrics, the <tt>name</tt> key of the object
+     *             name
+     * @return This object
+     * @throws JMException If the name is not valid or already registered
+     */
+    public KmeansMetrics register(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName(DOMAIN, "name", ObjectName.quote(name));
+        if (server.isRegistered(objectName)) {
+            throw new InstanceAlreadyExistsException(objectName.toString());
+        }
+        server.registerMBean(this, objectName);
+        this.name = objectName;
+        return this;
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server, if registered
+     */
+    public void unregister() {
+        if (name != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            } catch (InstanceNotFoundException e) {
+                // Already removed
+            } catch (JMException e) {
+                throw new IllegalStateException(e);
+            }
+            name = null;
+        }
+    }
+
+    /**
+     * @return the name in the MBean server, <tt>null</tt> if not registered
+     */
+    public ObjectName getObjectName() {
+        return name;
+    }
+
+    @Override
+    public void clusteringStarted(int size, int numberOfClusters) {
+        runs.increment();
+    }
+
+    @Override
+    public void iterationCompleted(IterationStats stats) {
+        iterations.increment();
+        assignmentNanos.add(stats.getAssignmentNanos());
+        updateNanos.add(stats.getUpdateNanos());
+        distanceEvaluations.add(stats.getDistanceEvaluations());
+        prunedDistanceEvaluations.add(stats.getPrunedDistanceEvaluations());
+        reassigned.add(stats.getReassigned());
+        taskNanos.add(stats.getTaskNanos());
+        maxWorkerSkew.accumulate(stats.getWorkerSkew());
+        last = stats;
+    }
+
+    @Override
+    public long getRuns() {
+        return runs.sum();
+    }
+
+    @Override
+    public long getIterations() {
+        return iterations.sum();
+    }
+
+    @Override
+    public long getAssignmentNanos() {
+        return assignmentNanos.sum();
+    }
+
+    @Override
+    public long getUpdateNanos() {
+        return updateNanos.sum();
+    }
+
+    @Override
+    public long getDistanceEvaluations() {
+        return distanceEvaluations.sum();
+    }
+
+    @Override
+    public long getPrunedDistanceEvaluations() {
+        return prunedDistanceEvaluations.sum();
+    }
+
+    @Override
+    public long getReassigned() {
+        return reassigned.sum();
+    }
+
+    @Override
+    public long getTaskNanos() {
+        return taskNanos.sum();
+    }
+
+    @Override
+    public long getLastIterationNanos() {
+        IterationStats stats = last;
+        return (stats == null) ? 0 : stats.getWallNanos();
+    }
+
+    @Override
+    public long getLastReassigned() {
+        IterationStats stats = last;
+        return (stats == null) ? 0 : stats.getReassigned();
+    }
+
+    @Override
+    public double getLastInertia() {
+        IterationStats stats = last;
+        return (stats == null) ? Double.NaN : stats.getInertia();
+    }
+
+    @Override
+    public double getLastWorkerSkew() {
+        IterationStats stats = last;
+        return (stats == null) ? Double.NaN : stats.getWorkerSkew();
+    }
+
+    @Override
+    public double getMaxWorkerSkew() {
+        return maxWorkerSkew.get();
+    }
+
+    @Override
+    public void reset() {
+        runs.reset();
+        iterations.reset();
+        assignmentNanos.reset();
+        updateNanos.reset();
+        distanceEvaluations.reset();
+        prunedDistanceEvaluations.reset();
+        reassigned.reset();
+        taskNanos.reset();
+        maxWorkerSkew.reset();
+        last = null;
+    }
+}
@@ -0,0 +1,41 @@
+package co.com.runtime.kmeans.metrics;
+
+/**
+ * Management interface of <tt>KmeansMetrics</tt>. The totals count every
+ * iteration observed since the last reset, the last values describe the
+ * most recent iteration.
+ *
+ * @author Camilo Sarmiento
+ */
+public interface KmeansMetricsMBean {
+    public long getRuns();
+
+    public long getIterations();
+
+    public long getAssignmentNanos();
+
+    public long getUpdateNanos();
+
+    public long getDistanceEvaluations();
+
+    public long getPrunedDistanceEvaluations();
+
+    public long getReassigned();
+
+    public long getTaskNanos();
+
+    public long getLastIterationNanos();
+
+    public long getLastReassigned();
+
+    public double getLastInertia();
+
+    public double getLastWorkerSkew();
+
+    public double getMaxWorkerSkew();
+
+    /**
+     * Sets every counter to zero
+     */
+    public void reset();
+}
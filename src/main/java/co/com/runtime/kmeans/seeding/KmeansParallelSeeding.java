@@ -0,0 +1,266 @@
+package co.com.runtime.kmeans.seeding;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * k-means|| seeding (Bahmani et al., 2012). Instead of selecting one
+ * centroid per pass over the data like k-means++, every round samples
+ * independently each point with probability
+ * <tt>oversampling * d&sup2;(x) / cost</tt>, so a few parallel rounds produce
+ * a set of candidates larger than K. The candidates are weighted by the
+ * number of points nearest to them and reduced to K with weighted k-means++.
+ * <p/>
+ * The sampling of every round and the weighting of the candidates run in
+ * parallel over blocks of points.
+ *
+ * @author Camilo Sarmiento
+ */
+public class KmeansParallelSeeding implements SeedingStrategy {
+
+    private static final int DEFAULT_ROUNDS = 5;
+
+    /**
+     * Smallest block of points sampled or weighted without splitting
+     */
+    private static final int MIN_BLOCK_SIZE = 1024;
+
+    private final long   seed;
+    private final double oversamplingFactor;
+    private final int    rounds;
+
+    public KmeansParallelSeeding() {
+        this(System.currentTimeMillis());
+    }
+
+    /**
+     * Oversamples 2K points per round, during 5 rounds
+     *
+     * @param seed Seed of the pseudo-random number generator
+     */
+    public KmeansParallelSeeding(long seed) {
+        this(seed, 2D, DEFAULT_ROUNDS);
+    }
+
+    /**
+     * @param seed               Seed of the pseudo-random number generator
+     * @param oversamplingFactor Expected number of points sampled per round,
+     *                           as a multiple of K
+     * @param rounds             Number of sampling rounds
+     */
+    public KmeansParallelSeeding(long seed, double oversamplingFactor, int rounds) {
+        this.seed = seed;
+        this.oversamplingFactor = oversamplingFactor;
+        this.rounds = rounds;
+    }
+
+    @Override
+    public int[] select(PointMetric points, int numberOfClusters, ForkJoinPool pool) {
+        return select(points, null, numberOfClusters, pool);
+    }
+
+    /**
+     * Samples every point with probability proportional to its weight times
+     * its squared distance, and weights every candidate by the weight of the
+     * points nearest to it
+     */
+    @Override
+    public int[] select(final PointMetric points, double[] weights, int numberOfClusters, ForkJoinPool pool) {
+        int n = points.size();
+        int k = Math.min(numberOfClusters, n);
+        Random random = new Random(seed);
+        if (k == 0) {
+            return new int[0];
+        }
+
+        NearestCenters nearest = new NearestCenters(points, weights);
+        boolean[] selected = new boolean[n];
+        int[] candidates = new int[n];
+        int count = 0;
+
+        candidates[count++] = (weights == null) ? random.nextInt(n)
+                : KmeansPlusPlusSeeding.sampleByWeight(weights, random.nextDouble());
+        selected[candidates[0]] = true;
+        double cost = nearest.addCenters(candidates, 0, 1, pool);
+
+        double expected = oversamplingFactor * k;
+        int granularity = Math.max(MIN_BLOCK_SIZE, n / (pool.getParallelism() * 4));
+        for (int round = 0; round < rounds && cost > 0; round++) {
+            int from = count;
+            long roundSeed = random.nextLong();
+            // Each point is sampled with its own random number, derived from
+            // its position, and the blocks are concatenated in order, so the
+            // result does not depend on the threads
+            int[] sampled = pool.invoke(new SampleTask(nearest, selected, roundSeed, cost, expected, 0, n,
+                    granularity));
+            for (int point : sampled) {
+                selected[point] = true;
+                candidates[count++] = point;
+            }
+            cost = nearest.addCenters(candidates, from, count, pool);
+        }
+
+        if (count <= k) {
+            // Not enough candidates, complete them with k-means++
+            while (count < k) {
+                int point = nearest.sample(random.nextDouble());
+                if (point < 0 || selected[point]) {
+                    point = firstUnselected(selected);
+                }
+                selected[point] = true;
+                candidates[count++] = point;
+                nearest.addCenters(candidates, count - 1, count, pool);
+            }
+            return Arrays.copyOf(candidates, k);
+        }
+
+        // Weight each candidate by the (weighted) number of points nearest to
+        // it, and reduce them to K with weighted k-means++
+        final int[] reduced = Arrays.copyOf(candidates, count);
+        double[] candidateWeights = pool.invoke(new WeightTask(nearest, weights, count, 0, n, granularity));
+        PointMetric candidatePoints = new PointMetric() {
+            @Override
+            public int size() {
+                return reduced.length;
+            }
+
+            @Override
+            public double distance(int a, int b) {
+                return points.distance(reduced[a], reduced[b]);
+            }
+        };
+        int[] centers = KmeansPlusPlusSeeding.select(candidatePoints, candidateWeights, k, pool, random);
+        for (int c = 0; c < centers.length; c++) {
+            centers[c] = reduced[centers[c]];
+        }
+        return centers;
+    }
+
+    /**
+     * SplitMix64 hash of a seed and a position, as a uniform number in [0, 1)
+     */
+    private static double uniform(long seed, int position) {
+        long z = seed + (position + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Samples the unselected points of a range, each one with probability
+     * <tt>expected * w(x) d&sup2;(x) / cost</tt>
+     */
+    private static class SampleTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final NearestCenters nearest;
+        private final boolean[]      selected;
+        private final long           roundSeed;
+        private final double         cost;
+        private final double         expected;
+        private final int            startIndex;
+        private final int            endIndex;
+        private final int            granularity;
+
+        SampleTask(NearestCenters nearest, boolean[] selected, long roundSeed, double cost, double expected,
+                   int startIndex, int endIndex, int granularity) {
+            this.nearest = nearest;
+            this.selected = selected;
+            this.roundSeed = roundSeed;
+            this.cost = cost;
+            this.expected = expected;
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
+            this.granularity = granularity;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (endIndex - startIndex > granularity) {
+                int middle = (startIndex + endIndex) >>> 1;
+                SampleTask left = new SampleTask(nearest, selected, roundSeed, cost, expected, startIndex, middle,
+                        granularity);
+                left.fork();
+                int[] right = new SampleTask(nearest, selected, roundSeed, cost, expected, middle, endIndex,
+                        granularity).compute();
+                int[] first = left.join();
+                int[] both = Arrays.copyOf(first, first.length + right.length);
+                System.arraycopy(right, 0, both, first.length, right.length);
+                return both;
+            }
+            int[] sampled = new int[16];
+            int count = 0;
+            for (int i = startIndex; i < endIndex; i++) {
+                if (!selected[i] && uniform(roundSeed, i) * cost < expected * nearest.mass(i)) {
+                    if (count == sampled.length) {
+                        sampled = Arrays.copyOf(sampled, 2 * count);
+                    }
+                    sampled[count++] = i;
+                }
+            }
+            return Arrays.copyOf(sampled, count);
+        }
+    }
+
+    /**
+     * Sums the weights of the points of a range nearest to each candidate
+     */
+    private static class WeightTask extends RecursiveTask<double[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final NearestCenters nearest;
+        private final double[]       weights;
+        private final int            candidates;
+        private final int            startIndex;
+        private final int            endIndex;
+        private final int            granularity;
+
+        WeightTask(NearestCenters nearest, double[] weights, int candidates, int startIndex, int endIndex,
+                   int granularity) {
+            this.nearest = nearest;
+            this.weights = weights;
+            this.candidates = candidates;
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
+            this.granularity = granularity;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (endIndex - startIndex > granularity) {
+                int middle = (startIndex + endIndex) >>> 1;
+                WeightTask left = new WeightTask(nearest, weights, candidates, startIndex, middle, granularity);
+                left.fork();
+                double[] sums = new WeightTask(nearest, weights, candidates, middle, endIndex, granularity)
+                        .compute();
+                double[] other = left.join();
+                for (int c = 0; c < candidates; c++) {
+                    sums[c] += other[c];
+                }
+                return sums;
+            }
+            double[] sums = new double[candidates];
+            for (int i = startIndex; i < endIndex; i++) {
+                sums[nearest.nearest(i)] += (weights == null) ? 1D : weights[i];
+            }
+            return sums;
+        }
+    }
+
+    private static int firstUnselected(boolean[] selected) {
+        for (int i = 0; i < selected.length; i++) {
+            if (!selected[i]) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("All the points are selected");
+    }
+
+    @Override
+    public String toString() {
+        return "k-means||";
+    }
+}
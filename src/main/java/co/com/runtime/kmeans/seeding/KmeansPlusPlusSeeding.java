@@ -0,0 +1,116 @@
+package co.com.runtime.kmeans.seeding;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * k-means++ seeding (Arthur and Vassilvitskii, 2007). The first centroid is
+ * a uniformly random point, every next centroid is a point selected with
+ * probability proportional to its squared distance to the nearest centroid
+ * already selected. Each selection updates the distances in parallel.
+ * Every call starts a new pseudo-random generator from the seed, so the same
+ * points always give the same centroids.
+ *
+ * @author Camilo Sarmiento
+ */
+public class KmeansPlusPlusSeeding implements SeedingStrategy {
+
+    private final long seed;
+
+    public KmeansPlusPlusSeeding() {
+        this(System.currentTimeMillis());
+    }
+
+    /**
+     * @param seed Seed of the pseudo-random number generator
+     */
+    public KmeansPlusPlusSeeding(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public int[] select(PointMetric points, int numberOfClusters, ForkJoinPool pool) {
+        return select(points, null, numberOfClusters, pool, new Random(seed));
+    }
+
+    @Override
+    public int[] select(PointMetric points, double[] weights, int numberOfClusters, ForkJoinPool pool) {
+        return select(points, weights, numberOfClusters, pool, new Random(seed));
+    }
+
+    /**
+     * Weighted k-means++, the probability of selecting a point is also
+     * proportional to its weight
+     *
+     * @param points           The points
+     * @param weights          Weight of each point, <tt>null</tt> if all the
+     *                         points weigh one
+     * @param numberOfClusters Number of centroids to select (K)
+     * @param pool             Pool where the distance computations run
+     * @param random           Pseudo-random number generator
+     * @return The positions of the selected points
+     */
+    static int[] select(PointMetric points, double[] weights, int numberOfClusters, ForkJoinPool pool,
+                        Random random) {
+        int n = points.size();
+        int k = Math.min(numberOfClusters, n);
+        int[] centers = new int[k];
+        if (k == 0) {
+            return centers;
+        }
+        boolean[] selected = new boolean[n];
+        NearestCenters nearest = new NearestCenters(points, weights);
+
+        centers[0] = (weights == null) ? random.nextInt(n) : sampleByWeight(weights, random.nextDouble());
+        selected[centers[0]] = true;
+        nearest.addCenters(centers, 0, 1, pool);
+        for (int c = 1; c < k; c++) {
+            int point = nearest.sample(random.nextDouble());
+            if (point < 0 || selected[point]) {
+                // Every point coincides with a centroid, take any other one
+                point = unselected(selected, random);
+            }
+            centers[c] = point;
+            selected[point] = true;
+            nearest.addCenters(centers, c, c + 1, pool);
+        }
+        return centers;
+    }
+
+    /**
+     * Selects a point with probability proportional to its weight
+     */
+    static int sampleByWeight(double[] weights, double u) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double target = u * total;
+        for (int i = 0; i < weights.length; i++) {
+            if (target < weights[i]) {
+                return i;
+            }
+            target -= weights[i];
+        }
+        return weights.length - 1;
+    }
+
+    /**
+     * @return A random point not selected yet
+     */
+    private static int unselected(boolean[] selected, Random random) {
+        int start = random.nextInt(selected.length);
+        for (int i = 0; i < selected.length; i++) {
+            int point = (start + i) % selected.length;
+            if (!selected[point]) {
+                return point;
+            }
+        }
+        throw new IllegalStateException("All the points are selected");
+    }
+
+    @Override
+    public String toString() {
+        return "k-means++";
+    }
+}
@@ -0,0 +1,174 @@
+package co.com.runtime.kmeans.seeding;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Squared distance from every point to its nearest selected center, updated
+ * in parallel as centers are added. The squared distances are also summed
+ * per block of points, so a point can be sampled with probability
+ * proportional to its (optionally weighted) squared distance without
+ * scanning all the points.
+ *
+ * @author Camilo Sarmiento
+ */
+class NearestCenters {
+
+    private static final int BLOCK_SIZE = 1024;
+
+    private final PointMetric points;
+    private final double[]    weights;
+    private final double[]    squaredDistances;
+    private final int[]       nearest;
+    private final double[]    blockSums;
+
+    /**
+     * @param points  The points
+     * @param weights Weight of each point, <tt>null</tt> if all the points
+     *                weigh one
+     */
+    NearestCenters(PointMetric points, double[] weights) {
+        this.points = points;
+        this.weights = weights;
+        this.squaredDistances = new double[points.size()];
+        Arrays.fill(squaredDistances, Double.POSITIVE_INFINITY);
+        this.nearest = new int[points.size()];
+        Arrays.fill(nearest, -1);
+        this.blockSums = new double[(points.size() + BLOCK_SIZE - 1) / BLOCK_SIZE];
+    }
+
+    /**
+     * Updates the nearest center of every point with some new centers
+     *
+     * @param centers  All the centers selected so far
+     * @param from     Position in <tt>centers</tt> of the first new center
+     * @param to       Position in <tt>centers</tt> after the last new center
+     * @param pool     Pool where the distances are computed
+     * @return The (weighted) sum of the squared distances to the nearest
+     * center
+     */
+    double addCenters(int[] centers, int from, int to, ForkJoinPool pool) {
+        int blocksPerTask = Math.max(1, blockSums.length / (pool.getParallelism() * 4));
+        pool.invoke(new UpdateTask(centers, from, to, 0, blockSums.length, blocksPerTask));
+        return total();
+    }
+
+    double total() {
+        double total = 0;
+        for (double sum : blockSums) {
+            total += sum;
+        }
+        return total;
+    }
+
+    double squaredDistance(int point) {
+        return squaredDistances[point];
+    }
+
+    /**
+     * @return Position in the centers array of the nearest center of a point
+     */
+    int nearest(int point) {
+        return nearest[point];
+    }
+
+    /**
+     * @return The (weighted) squared distance of a point to its nearest
+     * center
+     */
+    double mass(int point) {
+        return (weights == null) ? squaredDistances[point] : weights[point] * squaredDistances[point];
+    }
+
+    /**
+     * Selects a point with probability proportional to its (weighted) squared
+     * distance
+     *
+     * @param u A uniform random number in [0, 1)
+     * @return The position of the point, or -1 if every point is at distance
+     * zero of a center
+     */
+    int sample(double u) {
+        double target = u * total();
+        if (!(target > 0)) {
+            return -1;
+        }
+        int last = -1;
+        for (int b = 0; b < blockSums.length; b++) {
+            if (blockSums[b] <= 0) {
+                continue;
+            }
+            if (target >= blockSums[b]) {
+                target -= blockSums[b];
+                last = b;
+                continue;
+            }
+            int end = Math.min(squaredDistances.length, (b + 1) * BLOCK_SIZE);
+            for (int i = b * BLOCK_SIZE; i < end; i++) {
+                double mass = mass(i);
+                if (mass > 0) {
+                    if (target < mass) {
+                        return i;
+                    }
+                    target -= mass;
+                }
+            }
+            last = b;
+        }
+        // Rounding errors, return the last point with a positive distance
+        for (int i = Math.min(squaredDistances.length, (last + 1) * BLOCK_SIZE) - 1; i >= 0; i--) {
+            if (mass(i) > 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private class UpdateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] centers;
+        private final int   from;
+        private final int   to;
+        private final int   startBlock;
+        private final int   endBlock;
+        private final int   granularity;
+
+        UpdateTask(int[] centers, int from, int to, int startBlock, int endBlock, int granularity) {
+            this.centers = centers;
+            this.from = from;
+            this.to = to;
+            this.startBlock = startBlock;
+            this.endBlock = endBlock;
+            this.granularity = granularity;
+        }
+
+        @Override
+        protected void compute() {
+            if (endBlock - startBlock > granularity) {
+                int middle = (startBlock + endBlock) >>> 1;
+                invokeAll(new UpdateTask(centers, from, to, startBlock, middle, granularity),
+                        new UpdateTask(centers, from, to, middle, endBlock, granularity));
+                return;
+            }
+            for (int b = startBlock; b < endBlock; b++) {
+                double sum = 0;
+                int end = Math.min(squaredDistances.length, (b + 1) * BLOCK_SIZE);
+                for (int i = b * BLOCK_SIZE; i < end; i++) {
+                    for (int c = from; c < to; c++) {
+                        double distance = points.distance(i, centers[c]);
+                        // A point without a defined distance is never sampled
+                        double squared = Double.isNaN(distance) ? 0D : distance * distance;
+                        if (squared < squaredDistances[i]) {
+                            squaredDistances[i] = squared;
+                            nearest[i] = c;
+                        }
+                    }
+                    sum += mass(i);
+                }
+                blockSums[b] = sum;
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package co.com.runtime.kmeans.seeding;
+
+/**
+ * Distance between the points of a data set, addressed by their position.
+ * Allows the seeding strategies to work over any data set representation.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.seeding.PointMetrics
+ */
+public interface PointMetric {
+    /**
+     * @return Number of points
+     */
+    public int size();
+
+    /**
+     * @param a Position of a point
+     * @param b Position of another point
+     * @return The distance between the points
+     */
+    public double distance(int a, int b);
+}
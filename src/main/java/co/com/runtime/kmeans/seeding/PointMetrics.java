@@ -0,0 +1,70 @@
+package co.com.runtime.kmeans.seeding;
+
+import co.com.runtime.kmeans.dense.DenseDataset;
+import co.com.runtime.kmeans.interfaces.KmeansClusterItem;
+import co.com.runtime.kmeans.sparse.SparseDataset;
+
+/**
+ * Factory of <tt>PointMetric</tt> views over the data set representations
+ *
+ * @author Camilo Sarmiento
+ */
+public final class PointMetrics {
+
+    private PointMetrics() {
+    }
+
+    /**
+     * @param items The items
+     * @return A metric using the <tt>distance</tt> of the items
+     */
+    public static <T extends KmeansClusterItem<T>> PointMetric of(final T[] items) {
+        return new PointMetric() {
+            @Override
+            public int size() {
+                return items.length;
+            }
+
+            @Override
+            public double distance(int a, int b) {
+                return items[a].distance(items[b]);
+            }
+        };
+    }
+
+    /**
+     * @param dataset A dense data set
+     * @return A metric using the Euclidean distance between rows
+     */
+    public static PointMetric of(final DenseDataset dataset) {
+        return new PointMetric() {
+            @Override
+            public int size() {
+                return dataset.size();
+            }
+
+            @Override
+            public double distance(int a, int b) {
+                return Math.sqrt(dataset.squaredDistance(a, dataset, b));
+            }
+        };
+    }
+
+    /**
+     * @param dataset A sparse data set
+     * @return A metric using the angle between rows
+     */
+    public static PointMetric of(final SparseDataset dataset) {
+        return new PointMetric() {
+            @Override
+            public int size() {
+                return dataset.size();
+            }
+
+            @Override
+            public double distance(int a, int b) {
+                return dataset.angle(a, dataset, b);
+            }
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package co.com.runtime.kmeans.seeding;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Helpers to run the <tt>SeedingStrategy</tt> implementations
+ *
+ * @author Camilo Sarmiento
+ */
+public final class SeedingStrategies {
+
+    private static Logger logger = LogManager.getLogger();
+
+    private SeedingStrategies() {
+    }
+
+    /**
+     * Selects the initial centroids, logging the strategy and the time taken
+     *
+     * @param points           The points
+     * @param numberOfClusters Number of centroids to select (K)
+     * @param seeding          The seeding strategy
+     * @param pool             Pool where the distance computations run
+     * @return The positions of the selected points
+     */
+    public static int[] selectCentroids(PointMetric points, int numberOfClusters, SeedingStrategy seeding,
+                                        ForkJoinPool pool) {
+        logger.info("Starting the selection of centroids with " + seeding);
+        long startTime = System.currentTimeMillis();
+        int[] positions = seeding.select(points, numberOfClusters, pool);
+        logger.info("Selection process of centroids ended. Time elapsed: "
+                + (System.currentTimeMillis() - startTime) + ". Centroids selected: " + positions.length);
+        return positions;
+    }
+}
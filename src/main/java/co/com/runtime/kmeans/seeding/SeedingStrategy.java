@@ -0,0 +1,37 @@
+package co.com.runtime.kmeans.seeding;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Strategy to select the initial centroids of the K-means algorithm among the
+ * points of a data set
+ *
+ * @author Camilo Sarmiento
+ */
+public interface SeedingStrategy {
+    /**
+     * Selects the initial centroids
+     *
+     * @param points           The points
+     * @param numberOfClusters Number of centroids to select (K)
+     * @param pool             Pool where the distance computations run
+     * @return The positions of the selected points, <tt>numberOfClusters</tt>
+     * distinct positions, or all the positions when there are not enough
+     * points
+     */
+    public int[] select(PointMetric points, int numberOfClusters, ForkJoinPool pool);
+
+    /**
+     * Selects the initial centroids among weighted points, a point of weight
+     * <tt>w</tt> counting as <tt>w</tt> points at the same place. Used to
+     * seed a clustering of a weighted sample, like a coreset.
+     *
+     * @param points           The points
+     * @param weights          Weight of each point, <tt>null</tt> if all the
+     *                         points weigh one
+     * @param numberOfClusters Number of centroids to select (K)
+     * @param pool             Pool where the distance computations run
+     * @return The positions of the selected points
+     */
+    public int[] select(PointMetric points, double[] weights, int numberOfClusters, ForkJoinPool pool);
+}
@@ -0,0 +1,82 @@
+package co.com.runtime.kmeans.sparse;
+
+/**
+ * Inverted index over a matrix of sparse centroids: for every term id, the
+ * centroids holding the term and the weight of the term in each one. It is
+ * the transpose of the centroids matrix, in compressed sparse column form.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.sparse.IndexedClusteringTask
+ */
+public class CentroidIndex {
+    private final SparseDataset centroids;
+    private final int[]         termOffsets;
+    private final int[]         centroidIds;
+    private final float[]       weights;
+
+    /**
+     * Builds the index of some centroids
+     *
+     * @param centroids The centroids
+     */
+    public CentroidIndex(SparseDataset centroids) {
+        this.centroids = centroids;
+        int[] rowOffsets = centroids.getRowOffsets();
+        int[] termIds = centroids.getTermIds();
+        float[] centroidWeights = centroids.getWeights();
+
+        // Count the postings of each term
+        termOffsets = new int[centroids.dimension() + 1];
+        for (int p = 0; p < centroids.nonZeros(); p++) {
+            termOffsets[termIds[p] + 1]++;
+        }
+        for (int t = 0; t < centroids.dimension(); t++) {
+            termOffsets[t + 1] += termOffsets[t];
+        }
+
+        // The centroids are visited in order, so every posting list is
+        // sorted by centroid id
+        centroidIds = new int[centroids.nonZeros()];
+        weights = new float[centroids.nonZeros()];
+        int[] next = new int[centroids.dimension()];
+        System.arraycopy(termOffsets, 0, next, 0, next.length);
+        for (int c = 0; c < centroids.size(); c++) {
+            for (int p = rowOffsets[c]; p < rowOffsets[c + 1]; p++) {
+                int position = next[termIds[p]]++;
+                centroidIds[position] = c;
+                weights[position] = centroidWeights[p];
+            }
+        }
+    }
+
+    /**
+     * @return The indexed centroids
+     */
+    public SparseDataset getCentroids() {
+        return centroids;
+    }
+
+    /**
+     * @param term A term id
+     * @return Position of the first posting of the term
+     */
+    public int start(int term) {
+        return termOffsets[term];
+    }
+
+    /**
+     * @param term A term id
+     * @return Position after the last posting of the term
+     */
+    public int end(int term) {
+        return termOffsets[term + 1];
+    }
+
+    public int[] getCentroidIds() {
+        return centroidIds;
+    }
+
+    public float[] getWeights() {
+        return weights;
+    }
+}
@@ -0,0 +1,162 @@
+package co.com.runtime.kmeans.sparse;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Sparsifies centroids by keeping only their heaviest terms, so the cost of
+ * a distance to a centroid does not grow with the population of its
+ * cluster. A centroid keeps at most <tt>maxTerms</tt> terms (zero for no
+ * limit), and only the heaviest terms that add up to <tt>massFraction</tt> of
+ * its mass (one to keep them all). The mass of a centroid is its squared
+ * norm.
+ * <p/>
+ * The mass kept and dropped by every truncation is added up, so a run can
+ * report how much of the centroids it discarded.
+ *
+ * @author Camilo Sarmiento
+ */
+public class CentroidTruncation {
+    private final int    maxTerms;
+    private final double massFraction;
+
+    private final DoubleAdder keptMass    = new DoubleAdder();
+    private final DoubleAdder droppedMass = new DoubleAdder();
+
+    /**
+     * @param maxTerms     Maximum number of terms of a centroid, zero for no
+     *                     limit
+     * @param massFraction Fraction of the mass of a centroid to keep (0-1]
+     */
+    public CentroidTruncation(int maxTerms, double massFraction) {
+        if (maxTerms < 0 || !(massFraction > 0 && massFraction <= 1)) {
+            throw new IllegalArgumentException("Invalid truncation: " + maxTerms + " terms, " + massFraction
+                    + " of the mass");
+        }
+        this.maxTerms = maxTerms;
+        this.massFraction = massFraction;
+    }
+
+    /**
+     * Keeps at most a number of terms per centroid
+     *
+     * @param maxTerms Maximum number of terms of a centroid
+     * @return The truncation
+     */
+    public static CentroidTruncation topTerms(int maxTerms) {
+        return new CentroidTruncation(maxTerms, 1D);
+    }
+
+    /**
+     * Selects the terms of a centroid to keep and records the mass kept and
+     * dropped
+     *
+     * @param weights The weights of the terms of the centroid
+     * @return Whether to keep each term, <tt>null</tt> if every term is kept
+     */
+    public boolean[] select(double[] weights) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight * weight;
+        }
+        int limit = (maxTerms == 0) ? weights.length : Math.min(maxTerms, weights.length);
+        if (limit == weights.length && massFraction >= 1) {
+            keptMass.add(total);
+            return null;
+        }
+
+        // Heaviest terms first, until the limit or the mass fraction is met
+        double[] sorted = weights.clone();
+        Arrays.sort(sorted);
+        double target = massFraction * total;
+        double kept = 0;
+        int count = 0;
+        while (count < limit && (count == 0 || kept < target)) {
+            double weight = sorted[sorted.length - 1 - count];
+            kept += weight * weight;
+            count++;
+        }
+        if (count == weights.length) {
+            keptMass.add(total);
+            return null;
+        }
+
+        // Terms lighter than the cutoff are dropped, terms equal to it are
+        // kept in order until the count is reached
+        double cutoff = sorted[sorted.length - count];
+        int ties = count;
+        for (double weight : sorted) {
+            if (weight > cutoff) {
+                ties--;
+            }
+        }
+        boolean[] keep = new boolean[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] > cutoff) {
+                keep[i] = true;
+            } else if (weights[i] == cutoff && ties > 0) {
+                keep[i] = true;
+                ties--;
+            }
+        }
+        keptMass.add(kept);
+        droppedMass.add(Math.max(0, total - kept));
+        return keep;
+    }
+
+    /**
+     * Truncates a sparse centroid stored in a range of arrays, moving the kept
+     * terms to the start of the range in their original order
+     *
+     * @param termIds Term ids
+     * @param weights Weights of the terms
+     * @param start   First position of the centroid (inclusive)
+     * @param end     Last position of the centroid (exclusive)
+     * @return The new end of the centroid
+     */
+    public int truncate(int[] termIds, float[] weights, int start, int end) {
+        double[] values = new double[end - start];
+        for (int p = start; p < end; p++) {
+            values[p - start] = weights[p];
+        }
+        boolean[] keep = select(values);
+        if (keep == null) {
+            return end;
+        }
+        int position = start;
+        for (int p = start; p < end; p++) {
+            if (keep[p - start]) {
+                termIds[position] = termIds[p];
+                weights[position] = weights[p];
+                position++;
+            }
+        }
+        return position;
+    }
+
+    public int getMaxTerms() {
+        return maxTerms;
+    }
+
+    public double getMassFraction() {
+        return massFraction;
+    }
+
+    /**
+     * @return the fraction of the mass of all the truncated centroids that
+     * has been dropped
+     */
+    public double getDroppedMassFraction() {
+        double dropped = droppedMass.sum();
+        double total = dropped + keptMass.sum();
+        return (total == 0) ? 0 : dropped / total;
+    }
+
+    /**
+     * Forgets the mass recorded so far
+     */
+    public void reset() {
+        keptMass.reset();
+        droppedMass.reset();
+    }
+}
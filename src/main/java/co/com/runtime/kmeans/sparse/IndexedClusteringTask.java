@@ -0,0 +1,149 @@
+package co.com.runtime.kmeans.sparse;
+
+import co.com.runtime.kmeans.WorkerBuffers;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Represents a parallel task for the K-means algorithm over a
+ * <tt>SparseDataset</tt> that only scores the centroids sharing a term with
+ * each row. The dot products are accumulated by walking the posting lists of
+ * a <tt>CentroidIndex</tt> for the terms of the row, in the same order as
+ * the merge-join of <tt>SparseClusteringTask</tt>, so both tasks assign every
+ * row to the same centroid.
+ * <p/>
+ * A row that shares no term with any centroid is at 90 degrees of all of
+ * them, it is assigned to the first centroid as the exhaustive scan does.
+ * The result of the task is the number of rows whose cluster changed.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.sparse.SparseClusteringTask
+ */
+public class IndexedClusteringTask extends RecursiveTask<Integer> {
+    private static final long serialVersionUID = 1L;
+
+    private SparseDataset               dataset;
+    private CentroidIndex               index;
+    private int[]                       assignment;
+    private WorkerBuffers<PassCounters> counters;
+    private int                         startIndex;
+    private int                         endIndex;
+    private int                         granularity;
+
+    /**
+     * @param dataset     The whole data set
+     * @param index       The index of the current centroids
+     * @param assignment  Cluster assigned to each row, updated by the task
+     * @param startIndex  First row assigned by this task (inclusive)
+     * @param endIndex    Last row assigned by this task (exclusive)
+     * @param granularity Maximum number of rows assigned without splitting the
+     *                    task in two halves
+     */
+    public IndexedClusteringTask(SparseDataset dataset, CentroidIndex index, int[] assignment, int startIndex,
+                                 int endIndex, int granularity) {
+        this(dataset, index, assignment, null, startIndex, endIndex, granularity);
+    }
+
+    /**
+     * @param dataset     The whole data set
+     * @param index       The index of the current centroids
+     * @param assignment  Cluster assigned to each row, updated by the task
+     * @param counters    Counters of each worker thread, <tt>null</tt> to
+     *                    not count
+     * @param startIndex  First row assigned by this task (inclusive)
+     * @param endIndex    Last row assigned by this task (exclusive)
+     * @param granularity Maximum number of rows assigned without splitting the
+     *                    task in two halves
+     */
+    public IndexedClusteringTask(SparseDataset dataset, CentroidIndex index, int[] assignment,
+                                 WorkerBuffers<PassCounters> counters, int startIndex, int endIndex,
+                                 int granularity) {
+        this.dataset = dataset;
+        this.index = index;
+        this.assignment = assignment;
+        this.counters = counters;
+        this.startIndex = startIndex;
+        this.endIndex = endIndex;
+        this.granularity = Math.max(1, granularity);
+    }
+
+    @Override
+    protected Integer compute() {
+        if (endIndex - startIndex > granularity) {
+            int middle = (startIndex + endIndex) >>> 1;
+            IndexedClusteringTask left = new IndexedClusteringTask(dataset, index, assignment, counters, startIndex,
+                    middle, granularity);
+            IndexedClusteringTask right = new IndexedClusteringTask(dataset, index, assignment, counters, middle,
+                    endIndex, granularity);
+            left.fork();
+            return right.compute() + left.join();
+        }
+
+        long started = System.nanoTime();
+        SparseDataset centroids = index.getCentroids();
+        int k = centroids.size();
+        double[] inverseNorms = new double[k];
+        for (int c = 0; c < k; c++) {
+            double norm = centroids.norm(c);
+            inverseNorms[c] = (norm == 0) ? 0 : 1 / norm;
+        }
+
+        int[] rowOffsets = dataset.getRowOffsets();
+        int[] termIds = dataset.getTermIds();
+        float[] rowWeights = dataset.getWeights();
+        int[] postingIds = index.getCentroidIds();
+        float[] postingWeights = index.getWeights();
+
+        // Dot product with every reached centroid, the reached centroids and
+        // the last row that reached each centroid
+        double[] dots = new double[k];
+        int[] reached = new int[k];
+        int[] reachedBy = new int[k];
+        Arrays.fill(reachedBy, -1);
+
+        int changed = 0;
+        long scored = 0;
+        double inertia = 0;
+        for (int i = startIndex; i < endIndex; i++) {
+            int numberReached = 0;
+            for (int p = rowOffsets[i]; p < rowOffsets[i + 1]; p++) {
+                int term = termIds[p];
+                double weight = rowWeights[p];
+                for (int q = index.start(term); q < index.end(term); q++) {
+                    int c = postingIds[q];
+                    if (reachedBy[c] != i) {
+                        reachedBy[c] = i;
+                        reached[numberReached++] = c;
+                    }
+                    dots[c] += weight * postingWeights[q];
+                }
+            }
+
+            scored += numberReached;
+            // Ties go to the lowest centroid id, as in the exhaustive scan
+            int nearest = 0;
+            double maxCosine = 0;
+            for (int r = 0; r < numberReached; r++) {
+                int c = reached[r];
+                double cosine = dots[c] * inverseNorms[c];
+                if (cosine > maxCosine || (cosine == maxCosine && c < nearest)) {
+                    maxCosine = cosine;
+                    nearest = c;
+                }
+                dots[c] = 0;
+            }
+            double norm = dataset.norm(i);
+            inertia += 1 - ((norm == 0) ? 0 : maxCosine / norm);
+            if (assignment[i] != nearest) {
+                assignment[i] = nearest;
+                changed++;
+            }
+        }
+        if (counters != null) {
+            counters.get().addTask(scored, (long) (endIndex - startIndex) * k - scored, inertia,
+                    System.nanoTime() - started);
+        }
+        return changed;
+    }
+}
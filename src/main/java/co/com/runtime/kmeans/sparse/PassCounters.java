@@ -0,0 +1,94 @@
+package co.com.runtime.kmeans.sparse;
+
+/**
+ * Counters of an assignment pass over a <tt>SparseDataset</tt>: the
+ * centroids scored and skipped, the cosine inertia and the time of the
+ * tasks. One instance per worker thread, merged once the pass ends.
+ *
+ * @author Camilo Sarmiento
+ */
+public class PassCounters {
+    private long   evaluations;
+    private long   pruned;
+    private double inertia;
+    private long   taskNanos;
+    private long   maxWorkerNanos;
+    private int    workers;
+
+    /**
+     * Adds a task run by the worker thread owning these counters
+     *
+     * @param evaluations Centroids scored
+     * @param pruned      Centroids skipped
+     * @param inertia     Cosine inertia of the rows of the task
+     * @param nanos       Time of the task
+     */
+    void addTask(long evaluations, long pruned, double inertia, long nanos) {
+        this.evaluations += evaluations;
+        this.pruned += pruned;
+        this.inertia += inertia;
+        taskNanos += nanos;
+        maxWorkerNanos = taskNanos;
+        workers = 1;
+    }
+
+    /**
+     * Adds the counters of another worker thread to these ones
+     *
+     * @param other The counters of another worker thread
+     * @return These counters
+     */
+    public PassCounters merge(PassCounters other) {
+        evaluations += other.evaluations;
+        pruned += other.pruned;
+        inertia += other.inertia;
+        taskNanos += other.taskNanos;
+        maxWorkerNanos = Math.max(maxWorkerNanos, other.maxWorkerNanos);
+        workers += other.workers;
+        return this;
+    }
+
+    /**
+     * @return the number of centroids scored
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return the number of centroids skipped because they share no term
+     * with the row
+     */
+    public long getPruned() {
+        return pruned;
+    }
+
+    /**
+     * @return the sum over the rows of one minus the cosine to their
+     * centroid
+     */
+    public double getInertia() {
+        return inertia;
+    }
+
+    /**
+     * @return the time of all the tasks
+     */
+    public long getTaskNanos() {
+        return taskNanos;
+    }
+
+    /**
+     * @return the time of the tasks of the busiest worker thread
+     */
+    public long getMaxWorkerNanos() {
+        return maxWorkerNanos;
+    }
+
+    /**
+     * @return the number of worker threads that ran tasks
+     */
+    public int getWorkers() {
+        return workers;
+    }
+}
@@ -0,0 +1,113 @@
+package co.com.runtime.kmeans.sparse;
+
+import co.com.runtime.kmeans.WorkerBuffers;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Represents a parallel task for the K-means algorithm over a
+ * <tt>SparseDataset</tt>, by assigning a range of rows to the centroid with
+ * the smallest angle. Dot products are merge-joins over the sorted term ids
+ * of the row and the centroid.
+ * <p/>
+ * The result of the task is the number of rows whose cluster changed.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.ClusteringTask
+ */
+public class SparseClusteringTask extends RecursiveTask<Integer> {
+    private static final long serialVersionUID = 1L;
+
+    private SparseDataset               dataset;
+    private SparseDataset               centroids;
+    private int[]                       assignment;
+    private WorkerBuffers<PassCounters> counters;
+    private int                         startIndex;
+    private int                         endIndex;
+    private int                         granularity;
+
+    /**
+     * @param dataset     The whole data set
+     * @param centroids   The current centroids
+     * @param assignment  Cluster assigned to each row, updated by the task
+     * @param startIndex  First row assigned by this task (inclusive)
+     * @param endIndex    Last row assigned by this task (exclusive)
+     * @param granularity Maximum number of rows assigned without splitting the
+     *                    task in two halves
+     */
+    public SparseClusteringTask(SparseDataset dataset, SparseDataset centroids, int[] assignment, int startIndex,
+                                int endIndex, int granularity) {
+        this(dataset, centroids, assignment, null, startIndex, endIndex, granularity);
+    }
+
+    /**
+     * @param dataset     The whole data set
+     * @param centroids   The current centroids
+     * @param assignment  Cluster assigned to each row, updated by the task
+     * @param counters    Counters of each worker thread, <tt>null</tt> to
+     *                    not count
+     * @param startIndex  First row assigned by this task (inclusive)
+     * @param endIndex    Last row assigned by this task (exclusive)
+     * @param granularity Maximum number of rows assigned without splitting the
+     *                    task in two halves
+     */
+    public SparseClusteringTask(SparseDataset dataset, SparseDataset centroids, int[] assignment,
+                                WorkerBuffers<PassCounters> counters, int startIndex, int endIndex,
+                                int granularity) {
+        this.dataset = dataset;
+        this.centroids = centroids;
+        this.assignment = assignment;
+        this.counters = counters;
+        this.startIndex = startIndex;
+        this.endIndex = endIndex;
+        this.granularity = Math.max(1, granularity);
+    }
+
+    @Override
+    protected Integer compute() {
+        if (endIndex - startIndex > granularity) {
+            int middle = (startIndex + endIndex) >>> 1;
+            SparseClusteringTask left = new SparseClusteringTask(dataset, centroids, assignment, counters,
+                    startIndex, middle, granularity);
+            SparseClusteringTask right = new SparseClusteringTask(dataset, centroids, assignment, counters, middle,
+                    endIndex, granularity);
+            left.fork();
+            return right.compute() + left.join();
+        }
+
+        long started = System.nanoTime();
+        // The smallest angle is the greatest cosine, and the norm of the row
+        // does not change the order of the cosines, so the nearest centroid
+        // is the one with the greatest dot product over its norm
+        int k = centroids.size();
+        double[] inverseNorms = new double[k];
+        for (int c = 0; c < k; c++) {
+            double norm = centroids.norm(c);
+            inverseNorms[c] = (norm == 0) ? 0 : 1 / norm;
+        }
+
+        int changed = 0;
+        double inertia = 0;
+        for (int i = startIndex; i < endIndex; i++) {
+            int nearest = 0;
+            double maxCosine = Double.NEGATIVE_INFINITY;
+            for (int c = 0; c < k; c++) {
+                double cosine = dataset.dot(i, centroids, c) * inverseNorms[c];
+                if (cosine > maxCosine) {
+                    maxCosine = cosine;
+                    nearest = c;
+                }
+            }
+            double norm = dataset.norm(i);
+            inertia += 1 - ((norm == 0 || k == 0) ? 0 : maxCosine / norm);
+            if (assignment[i] != nearest) {
+                assignment[i] = nearest;
+                changed++;
+            }
+        }
+        if (counters != null) {
+            counters.get().addTask((long) (endIndex - startIndex) * k, 0, inertia, System.nanoTime() - started);
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,280 @@
+package co.com.runtime.kmeans.sparse;
+
+import co.com.runtime.kmeans.datatypes.Keyword;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Sparse matrix in compressed sparse row (CSR) form. The terms of the row
+ * <tt>i</tt> are stored, sorted by term id, between the positions
+ * <tt>rowOffsets[i]</tt> (inclusive) and <tt>rowOffsets[i + 1]</tt>
+ * (exclusive) of the <tt>termIds</tt> and <tt>weights</tt> arrays. The norm of
+ * every row is computed once when the matrix is created.
+ * <p/>
+ * Used both for the keyword corpus and for the matrix of centroids.
+ *
+ * @author Camilo Sarmiento
+ */
+public class SparseDataset {
+    private final int      dimension;
+    private final int[]    rowOffsets;
+    private final int[]    termIds;
+    private final float[]  weights;
+    private final double[] norms;
+
+    /**
+     * @param dimension  Number of distinct terms (vocabulary size)
+     * @param rowOffsets Start of each row, plus the end of the last row
+     * @param termIds    Term ids of every row, sorted within each row
+     * @param weights    Weight of each term
+     */
+    public SparseDataset(int dimension, int[] rowOffsets, int[] termIds, float[] weights) {
+        this.dimension = dimension;
+        this.rowOffsets = rowOffsets;
+        this.termIds = termIds;
+        this.weights = weights;
+        this.norms = new double[rowOffsets.length - 1];
+        for (int i = 0; i < norms.length; i++) {
+            norms[i] = SparseVectors.norm(weights, rowOffsets[i], rowOffsets[i + 1]);
+        }
+    }
+
+    /**
+     * Creates the sparse representation of a set of keywords
+     *
+     * @param keywords   The keywords
+     * @param dictionary Id of each word, as created by
+     *                   <tt>DataAnalysis.createPositionDictionary</tt>. Words
+     *                   not found in the dictionary are ignored.
+     * @return The keywords as a sparse matrix, one row per keyword
+     */
+    public static SparseDataset of(Keyword[] keywords, Map<String, Integer> dictionary) {
+        int[] rowOffsets = new int[keywords.length + 1];
+        for (int i = 0; i < keywords.length; i++) {
+            rowOffsets[i + 1] = rowOffsets[i] + keywords[i].size();
+        }
+        int dimension = 0;
+        for (int id : dictionary.values()) {
+            dimension = Math.max(dimension, id + 1);
+        }
+        int[] termIds = new int[rowOffsets[keywords.length]];
+        float[] weights = new float[termIds.length];
+
+        int position = 0;
+        for (int i = 0; i < keywords.length; i++) {
+            rowOffsets[i] = position;
+            for (Map.Entry<String, Double> word : keywords[i].getWords().entrySet()) {
+                Integer id = dictionary.get(word.getKey());
+                if (id != null) {
+                    termIds[position] = id;
+                    weights[position] = word.getValue().floatValue();
+                    position++;
+                }
+            }
+            SparseVectors.sortByTerm(termIds, weights, rowOffsets[i], position);
+        }
+        rowOffsets[keywords.length] = position;
+
+        return new SparseDataset(dimension, rowOffsets, Arrays.copyOf(termIds, position),
+                Arrays.copyOf(weights, position));
+    }
+
+    /**
+     * Creates the sparse representation of a set of keywords, using the ids of
+     * their vocabulary as term ids
+     *
+     * @param keywords The keywords, all of them sharing a vocabulary
+     * @return The keywords as a sparse matrix, one row per keyword
+     */
+    public static SparseDataset of(Keyword[] keywords) {
+        int[] rowOffsets = new int[keywords.length + 1];
+        for (int i = 0; i < keywords.length; i++) {
+            if (keywords[i].getVocabulary() != keywords[0].getVocabulary()) {
+                throw new IllegalArgumentException("Keyword " + i + " has a different vocabulary");
+            }
+            rowOffsets[i + 1] = rowOffsets[i] + keywords[i].size();
+        }
+        int[] termIds = new int[rowOffsets[keywords.length]];
+        float[] weights = new float[termIds.length];
+        for (int i = 0; i < keywords.length; i++) {
+            for (int j = 0; j < keywords[i].size(); j++) {
+                termIds[rowOffsets[i] + j] = keywords[i].termId(j);
+                weights[rowOffsets[i] + j] = (float) keywords[i].weight(j);
+            }
+        }
+        int dimension = (keywords.length > 0) ? keywords[0].getVocabulary().size() : 0;
+        return new SparseDataset(dimension, rowOffsets, termIds, weights);
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int size() {
+        return rowOffsets.length - 1;
+    }
+
+    /**
+     * @return the number of distinct terms (vocabulary size)
+     */
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * @return the number of stored terms of all the rows
+     */
+    public int nonZeros() {
+        return rowOffsets[size()];
+    }
+
+    public int[] getRowOffsets() {
+        return rowOffsets;
+    }
+
+    public int[] getTermIds() {
+        return termIds;
+    }
+
+    public float[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * @param row A row
+     * @return The Euclidean norm of the row
+     */
+    public double norm(int row) {
+        return norms[row];
+    }
+
+    /**
+     * Returns the dot product between a row of this matrix and a row of
+     * another matrix
+     */
+    public double dot(int row, SparseDataset other, int otherRow) {
+        return SparseVectors.dot(termIds, weights, rowOffsets[row], rowOffsets[row + 1], other.termIds,
+                other.weights, other.rowOffsets[otherRow], other.rowOffsets[otherRow + 1]);
+    }
+
+    /**
+     * Returns the angle in degrees between a row of this matrix and a row of
+     * another matrix, the same distance used by <tt>Keyword</tt>
+     */
+    public double angle(int row, SparseDataset other, int otherRow) {
+        return SparseVectors.angle(dot(row, other, otherRow), norms[row], other.norms[otherRow]);
+    }
+
+    /**
+     * Creates a new matrix with a copy of some rows of this matrix
+     *
+     * @param rows The rows to copy
+     * @return The new matrix
+     */
+    public SparseDataset rows(int[] rows) {
+        int[] offsets = new int[rows.length + 1];
+        for (int i = 0; i < rows.length; i++) {
+            offsets[i + 1] = offsets[i] + rowOffsets[rows[i] + 1] - rowOffsets[rows[i]];
+        }
+        int[] ids = new int[offsets[rows.length]];
+        float[] values = new float[ids.length];
+        for (int i = 0; i < rows.length; i++) {
+            int start = rowOffsets[rows[i]];
+            int length = rowOffsets[rows[i] + 1] - start;
+            System.arraycopy(termIds, start, ids, offsets[i], length);
+            System.arraycopy(weights, start, values, offsets[i], length);
+        }
+        return new SparseDataset(dimension, offsets, ids, values);
+    }
+
+    /**
+     * Computes the mean of the rows assigned to each cluster. A cluster
+     * without rows keeps its previous centroid.
+     *
+     * @param data       The data set
+     * @param assignment Cluster assigned to each row of the data set
+     * @param previous   The current centroids
+     * @return The new centroids
+     */
+    public static SparseDataset means(SparseDataset data, int[] assignment, SparseDataset previous) {
+        return means(data, assignment, previous, null);
+    }
+
+    /**
+     * Computes the mean of the rows assigned to each cluster, keeping only
+     * the terms selected by a truncation. A cluster without rows keeps its
+     * previous centroid.
+     *
+     * @param data       The data set
+     * @param assignment Cluster assigned to each row of the data set
+     * @param previous   The current centroids
+     * @param truncation Selects the terms kept by each new centroid,
+     *                   <tt>null</tt> to keep them all
+     * @return The new centroids
+     */
+    public static SparseDataset means(SparseDataset data, int[] assignment, SparseDataset previous,
+                                      CentroidTruncation truncation) {
+        int k = previous.size();
+
+        // Group the rows by cluster (counting sort)
+        int[] clusterStarts = new int[k + 1];
+        for (int label : assignment) {
+            clusterStarts[label + 1]++;
+        }
+        for (int c = 0; c < k; c++) {
+            clusterStarts[c + 1] += clusterStarts[c];
+        }
+        int[] members = new int[assignment.length];
+        int[] next = Arrays.copyOf(clusterStarts, k);
+        for (int i = 0; i < assignment.length; i++) {
+            members[next[assignment[i]]++] = i;
+        }
+
+        // A centroid can not hold more terms than its members or its
+        // previous value
+        int[] offsets = new int[k + 1];
+        int[] ids = new int[data.nonZeros() + previous.nonZeros()];
+        float[] values = new float[ids.length];
+        double[] sums = new double[data.dimension];
+        boolean[] touched = new boolean[data.dimension];
+        int position = 0;
+        for (int c = 0; c < k; c++) {
+            offsets[c] = position;
+            int count = clusterStarts[c + 1] - clusterStarts[c];
+            if (count == 0) {
+                int start = previous.rowOffsets[c];
+                int length = previous.rowOffsets[c + 1] - start;
+                System.arraycopy(previous.termIds, start, ids, position, length);
+                System.arraycopy(previous.weights, start, values, position, length);
+                position += length;
+                continue;
+            }
+            int first = position;
+            for (int m = clusterStarts[c]; m < clusterStarts[c + 1]; m++) {
+                int row = members[m];
+                for (int p = data.rowOffsets[row]; p < data.rowOffsets[row + 1]; p++) {
+                    int term = data.termIds[p];
+                    if (!touched[term]) {
+                        touched[term] = true;
+                        ids[position++] = term;
+                    }
+                    sums[term] += data.weights[p];
+                }
+            }
+            Arrays.sort(ids, first, position);
+            for (int p = first; p < position; p++) {
+                int term = ids[p];
+                values[p] = (float) (sums[term] / count);
+                sums[term] = 0;
+                touched[term] = false;
+            }
+            if (truncation != null) {
+                position = truncation.truncate(ids, values, first, position);
+            }
+        }
+        offsets[k] = position;
+
+        return new SparseDataset(data.dimension, offsets, Arrays.copyOf(ids, position),
+                Arrays.copyOf(values, position));
+    }
+}
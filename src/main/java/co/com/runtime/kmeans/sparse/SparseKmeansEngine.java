@@ -0,0 +1,216 @@
+package co.com.runtime.kmeans.sparse;
+
+import co.com.runtime.kmeans.AbstractKmeansEngine;
+import co.com.runtime.kmeans.ClusteringResult;
+import co.com.runtime.kmeans.ConvergencePolicy;
+import co.com.runtime.kmeans.IterationStats;
+import co.com.runtime.kmeans.WorkerBuffers;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * K-means engine over a <tt>SparseDataset</tt>, using the angle between
+ * vectors as distance. Membership is kept in a primitive array with the
+ * cluster of each row. By default each row is only scored against the
+ * centroids sharing a term with it.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.sparse.SparseClusteringTask
+ * @see co.com.runtime.kmeans.sparse.IndexedClusteringTask
+ */
+public class SparseKmeansEngine extends AbstractKmeansEngine {
+
+    private static Logger logger = LogManager.getLogger();
+
+    /**
+     * Whether the rows are only scored against the centroids sharing a term
+     * with them, through an inverted index of the centroids
+     */
+    private boolean indexedAssignment = true;
+
+    /**
+     * Selects the terms kept by the centroids, <tt>null</tt> to keep them all
+     */
+    private CentroidTruncation centroidTruncation;
+
+    /**
+     * Creates an engine with its own pool, one thread per available processor
+     */
+    public SparseKmeansEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an engine with its own pool
+     *
+     * @param parallelism Number of worker threads
+     */
+    public SparseKmeansEngine(int parallelism) {
+        super(parallelism);
+    }
+
+    /**
+     * Creates an engine that runs on a pool managed by the caller
+     *
+     * @param pool The pool used to execute the clustering tasks
+     */
+    public SparseKmeansEngine(ForkJoinPool pool) {
+        super(pool);
+    }
+
+    /**
+     * Runs the K-means algorithm until no row changes of cluster or the
+     * maximum number of iterations is reached
+     *
+     * @param dataset       The data set to be clustered
+     * @param centroids     The initial centroids
+     * @param maxIterations Maximum number of iterations
+     * @return The final centroids and the cluster of each row
+     */
+    public ClusteringResult<SparseDataset> cluster(SparseDataset dataset, SparseDataset centroids,
+                                                   int maxIterations) {
+        return cluster(dataset, centroids, new ConvergencePolicy(0, 0D, 0D, maxIterations));
+    }
+
+    /**
+     * Runs the K-means algorithm until the convergence policy stops it. The
+     * inertia is the sum over the rows of one minus the cosine to their
+     * centroid, and the shift of a centroid is the angle in degrees between
+     * its old and new positions. Every assignment pass is reported to the
+     * listeners.
+     *
+     * @param dataset   The data set to be clustered
+     * @param centroids The initial centroids
+     * @param policy    The convergence policy
+     * @return The final centroids and the cluster of each row
+     */
+    public ClusteringResult<SparseDataset> cluster(SparseDataset dataset, SparseDataset centroids,
+                                                   ConvergencePolicy policy) {
+        int[] assignment = new int[dataset.size()];
+        Arrays.fill(assignment, -1);
+        fireClusteringStarted(dataset.size(), centroids.size());
+
+        int iterations = 0;
+        double previousInertia = Double.NaN;
+        double maxShift = Double.POSITIVE_INFINITY;
+        long started = System.nanoTime();
+        WorkerBuffers<PassCounters> counters = new WorkerBuffers<>(PassCounters::new);
+        int changed = assign(dataset, centroids, assignment, counters);
+        PassCounters pass = counters.reduce(getPool(), PassCounters::merge);
+        fireIterationCompleted(statistics(iterations, 0, System.nanoTime() - started, changed, pass, maxShift));
+        while (!policy.hasConverged(iterations, changed, previousInertia, pass.getInertia(), maxShift)) {
+            started = System.nanoTime();
+            SparseDataset previous = centroids;
+            centroids = SparseDataset.means(dataset, assignment, previous, centroidTruncation);
+            maxShift = maxShift(previous, centroids);
+            previousInertia = pass.getInertia();
+            long updateNanos = System.nanoTime() - started;
+
+            started = System.nanoTime();
+            counters = new WorkerBuffers<>(PassCounters::new);
+            changed = assign(dataset, centroids, assignment, counters);
+            pass = counters.reduce(getPool(), PassCounters::merge);
+            iterations++;
+            fireIterationCompleted(statistics(iterations, updateNanos, System.nanoTime() - started, changed, pass,
+                    maxShift));
+            logger.info("Iteration " + iterations + " - Reassigned rows: " + changed + " from " + dataset.size()
+                    + ", inertia: " + pass.getInertia() + ", max centroid shift: " + maxShift);
+        }
+        if (centroidTruncation != null) {
+            double dropped = 100 * centroidTruncation.getDroppedMassFraction();
+            logger.info("Dropped centroid mass: " + String.format("%.3f", dropped) + "%");
+        }
+        fireClusteringEnded(iterations, pass.getInertia());
+        return new ClusteringResult<>(centroids, centroids.size(), assignment, iterations);
+    }
+
+    /**
+     * @return The largest angle between the old and new position of a
+     * centroid
+     */
+    private static double maxShift(SparseDataset previous, SparseDataset centroids) {
+        double maxShift = 0;
+        for (int c = 0; c < centroids.size(); c++) {
+            // A centroid that stays without terms does not move
+            if (previous.norm(c) > 0 || centroids.norm(c) > 0) {
+                maxShift = Math.max(maxShift, previous.angle(c, centroids, c));
+            }
+        }
+        return maxShift;
+    }
+
+    /**
+     * Assigns every row of the data set to its nearest centroid. With the
+     * indexed assignment, the inverted index of the centroids is built once
+     * per call.
+     *
+     * @param dataset    The data set
+     * @param centroids  The centroids
+     * @param assignment Cluster assigned to each row, updated in place
+     * @return Number of rows whose cluster changed
+     */
+    public int assign(SparseDataset dataset, SparseDataset centroids, int[] assignment) {
+        return assign(dataset, centroids, assignment, null);
+    }
+
+    private int assign(SparseDataset dataset, SparseDataset centroids, int[] assignment,
+                       WorkerBuffers<PassCounters> counters) {
+        if (indexedAssignment) {
+            return getPool().invoke(new IndexedClusteringTask(dataset, new CentroidIndex(centroids), assignment,
+                    counters, 0, dataset.size(), granularity(dataset.size())));
+        }
+        return getPool().invoke(new SparseClusteringTask(dataset, centroids, assignment, counters, 0,
+                dataset.size(), granularity(dataset.size())));
+    }
+
+    /**
+     * @return the measures of an assignment pass
+     */
+    private IterationStats statistics(int iteration, long updateNanos, long assignmentNanos, int changed,
+                                      PassCounters pass, double maxShift) {
+        return new IterationStats(iteration, updateNanos, assignmentNanos, changed, pass.getInertia(), maxShift,
+                pass.getEvaluations(), pass.getPruned(), pass.getTaskNanos(), pass.getMaxWorkerNanos(),
+                pass.getWorkers());
+    }
+
+    /**
+     * @return the truncation of the centroids, <tt>null</tt> if they keep
+     * every term
+     */
+    public CentroidTruncation getCentroidTruncation() {
+        return centroidTruncation;
+    }
+
+    /**
+     * Bounds the number of terms of the centroids computed by the engine. The
+     * truncation records the mass dropped by every run.
+     *
+     * @param centroidTruncation the truncation, <tt>null</tt> to keep every
+     *                           term
+     */
+    public void setCentroidTruncation(CentroidTruncation centroidTruncation) {
+        this.centroidTruncation = centroidTruncation;
+    }
+
+    /**
+     * @return whether the rows are only scored against the centroids sharing
+     * a term with them
+     */
+    public boolean isIndexedAssignment() {
+        return indexedAssignment;
+    }
+
+    /**
+     * Chooses between scoring the rows only against the centroids sharing a
+     * term with them (the default) and scoring every centroid. Both assign
+     * the rows to the same centroids.
+     *
+     * @param indexedAssignment whether to use the inverted index
+     */
+    public void setIndexedAssignment(boolean indexedAssignment) {
+        this.indexedAssignment = indexedAssignment;
+    }
+}
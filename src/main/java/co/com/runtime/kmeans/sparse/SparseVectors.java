@@ -0,0 +1,101 @@
+package co.com.runtime.kmeans.sparse;
+
+/**
+ * Kernels over sparse vectors stored as sorted term ids with their weights
+ *
+ * @author Camilo Sarmiento
+ */
+public final class SparseVectors {
+
+    private static final double RADIANS_TO_DEGREES = 180 / Math.PI;
+
+    private SparseVectors() {
+    }
+
+    /**
+     * Returns the dot product of two sparse vectors by merging their sorted
+     * term ids
+     *
+     * @param aIds     Term ids of the first vector
+     * @param aWeights Weights of the first vector
+     * @param aStart   First position of the first vector (inclusive)
+     * @param aEnd     Last position of the first vector (exclusive)
+     * @param bIds     Term ids of the second vector
+     * @param bWeights Weights of the second vector
+     * @param bStart   First position of the second vector (inclusive)
+     * @param bEnd     Last position of the second vector (exclusive)
+     * @return The dot product
+     */
+    public static double dot(int[] aIds, float[] aWeights, int aStart, int aEnd, int[] bIds, float[] bWeights,
+                             int bStart, int bEnd) {
+        double result = 0;
+        int i = aStart;
+        int j = bStart;
+        while (i < aEnd && j < bEnd) {
+            int a = aIds[i];
+            int b = bIds[j];
+            if (a == b) {
+                result += (double) aWeights[i++] * bWeights[j++];
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the Euclidean norm of a sparse vector
+     *
+     * @param weights The weights
+     * @param start   First position of the vector (inclusive)
+     * @param end     Last position of the vector (exclusive)
+     * @return The norm
+     */
+    public static double norm(float[] weights, int start, int end) {
+        double squares = 0;
+        for (int i = start; i < end; i++) {
+            squares += (double) weights[i] * weights[i];
+        }
+        return Math.sqrt(squares);
+    }
+
+    /**
+     * Returns the angle in degrees between two vectors. A vector without terms
+     * is considered orthogonal to every other vector.
+     *
+     * @param dot   The dot product of the vectors
+     * @param normA The norm of the first vector
+     * @param normB The norm of the second vector
+     * @return The angle in degrees [0-180]
+     */
+    public static double angle(double dot, double normA, double normB) {
+        if (normA == 0 || normB == 0) {
+            return 90D;
+        }
+        double cosine = dot / (normA * normB);
+        // Rounding errors can push the cosine slightly out of [-1, 1]
+        cosine = Math.max(-1D, Math.min(1D, cosine));
+        return Math.acos(cosine) * RADIANS_TO_DEGREES;
+    }
+
+    /**
+     * Sorts a range of term ids in ascending order moving the weights along.
+     * Rows are short, so an insertion sort is used.
+     */
+    static void sortByTerm(int[] ids, float[] weights, int start, int end) {
+        for (int i = start + 1; i < end; i++) {
+            int id = ids[i];
+            float weight = weights[i];
+            int j = i - 1;
+            while (j >= start && ids[j] > id) {
+                ids[j + 1] = ids[j];
+                weights[j + 1] = weights[j];
+                j--;
+            }
+            ids[j + 1] = id;
+            weights[j + 1] = weight;
+        }
+    }
+}
@@ -30,7 +30,7 @@ public class BalotoDataAnalysisTest extends TestCase {
                 bw.newLine();
             }
             System.out.println("File: " + output.getAbsolutePath() + " updated");
-        } catch (IOException | InterruptedException e) {
+        } catch (IOException e) {
             fail();
             e.printStackTrace();
         } finally {
@@ -5,6 +5,7 @@ import java.util.Map;
 
 import junit.framework.TestCase;
 import co.com.runtime.kmeans.datatypes.Baloto;
+import co.com.runtime.kmeans.interfaces.CentroidAccumulator;
 
 public class BalotoTest extends TestCase {
     public void testDistance() {
@@ -18,6 +19,13 @@ public class BalotoTest extends TestCase {
         System.out.println(b1.distance(b2));
     }
 
+    public void testComparisonDistance() {
+        Baloto b1 = new Baloto("2 6 7 17 31 38");
+        Baloto b2 = new Baloto("7 9 11 19 24 42");
+
+        assertEquals(119D, b1.comparisonDistance(b2));
+    }
+
     public void testMean() {
         Baloto b1 = new Baloto("2 6 7 17 31 38");
         Baloto b2 = new Baloto("7 9 11 19 24 42");
@@ -38,6 +46,22 @@ public class BalotoTest extends TestCase {
         System.out.println(b3.mean(elements));
     }
 
+    public void testAccumulator() {
+        Baloto b1 = new Baloto("2 6 7 17 31 38");
+        Baloto b2 = new Baloto("7 9 11 19 24 42");
+        Baloto b3 = new Baloto("6 8 21 28 34 41");
+
+        CentroidAccumulator<Baloto> sum = b1.newAccumulator();
+        sum.add(b1);
+        CentroidAccumulator<Baloto> partial = b1.newAccumulator();
+        partial.add(b2);
+        partial.add(b3);
+        sum.merge(partial);
+
+        assertEquals(3, sum.count());
+        assertEquals(b1.mean(new Baloto[]{b1, b2, b3}), sum.mean());
+    }
+
     public void testEquals() {
         Baloto b1 = new Baloto("2 6 7 17 31 38");
         Baloto b2 = new Baloto("7 9 11 19 24 42");
@@ -0,0 +1,123 @@
+package co.com.runtime.kmeans.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import junit.framework.TestCase;
+import co.com.runtime.kmeans.AssignmentMode;
+import co.com.runtime.kmeans.ConvergencePolicy;
+import co.com.runtime.kmeans.IterationStats;
+import co.com.runtime.kmeans.KmeansCluster;
+import co.com.runtime.kmeans.KmeansEngine;
+import co.com.runtime.kmeans.datatypes.Baloto;
+import co.com.runtime.kmeans.interfaces.ClusteringListener;
+
+public class BoundedAssignmentTest extends TestCase {
+
+    private static final int SIZE     = 2000;
+    private static final int CLUSTERS = 15;
+
+    private Baloto[] randomResults() {
+        Random random = new Random(42);
+        Baloto[] results = new Baloto[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < 6; j++) {
+                sb.append(random.nextDouble() * 45).append(' ');
+            }
+            results[i] = new Baloto(sb.toString());
+        }
+        return results;
+    }
+
+    private List<Baloto> cluster(Baloto[] results, AssignmentMode mode, long[] counters) {
+        Map<KmeansCluster<Baloto>, Boolean> clusters = new ConcurrentHashMap<>();
+        for (int i = 0; i < CLUSTERS; i++) {
+            clusters.put(new KmeansCluster<>(results[i]), true);
+        }
+        try (KmeansEngine<Baloto> engine = new KmeansEngine<>(4)) {
+            engine.setAssignmentMode(mode);
+            engine.cluster(results, clusters);
+            counters[0] = engine.getDistanceEvaluations();
+            counters[1] = engine.getPrunedDistanceEvaluations();
+        }
+        List<Baloto> centroids = new ArrayList<>();
+        for (KmeansCluster<Baloto> cluster : clusters.keySet()) {
+            centroids.add(cluster.getCentroid());
+        }
+        return centroids;
+    }
+
+    private void assertSameCentroids(List<Baloto> expected, List<Baloto> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (Baloto centroid : expected) {
+            double nearest = Double.POSITIVE_INFINITY;
+            for (Baloto other : actual) {
+                nearest = Math.min(nearest, centroid.distance(other));
+            }
+            assertEquals(0D, nearest, 1e-9);
+        }
+    }
+
+    public void testElkanMatchesLloyd() {
+        Baloto[] results = randomResults();
+        long[] lloyd = new long[2];
+        long[] elkan = new long[2];
+        assertSameCentroids(cluster(results, AssignmentMode.LLOYD, lloyd),
+                cluster(results, AssignmentMode.ELKAN, elkan));
+        assertEquals(0, lloyd[1]);
+        assertTrue(elkan[1] > 0);
+        assertTrue(elkan[0] < lloyd[0]);
+    }
+
+    public void testHamerlyMatchesLloyd() {
+        Baloto[] results = randomResults();
+        long[] lloyd = new long[2];
+        long[] hamerly = new long[2];
+        assertSameCentroids(cluster(results, AssignmentMode.LLOYD, lloyd),
+                cluster(results, AssignmentMode.HAMERLY, hamerly));
+        assertTrue(hamerly[1] > 0);
+        assertTrue(hamerly[0] < lloyd[0]);
+    }
+
+    public void testPrunedNeverNegative() {
+        Baloto[] results = randomResults();
+        for (AssignmentMode mode : new AssignmentMode[]{AssignmentMode.ELKAN, AssignmentMode.HAMERLY}) {
+            List<IterationStats> iterations = new ArrayList<>();
+            Map<KmeansCluster<Baloto>, Boolean> clusters = new ConcurrentHashMap<>();
+            for (int i = 0; i < CLUSTERS; i++) {
+                clusters.put(new KmeansCluster<>(results[i]), true);
+            }
+            try (KmeansEngine<Baloto> engine = new KmeansEngine<>(4)) {
+                engine.addListener(new ClusteringListener() {
+                    @Override
+                    public void iterationCompleted(IterationStats stats) {
+                        iterations.add(stats);
+                    }
+                });
+                engine.setAssignmentMode(mode);
+                // The inertia is computed on every iteration
+                engine.setConvergencePolicy(new ConvergencePolicy(0, 1e-4, 0D, 300));
+                engine.cluster(results, clusters);
+
+                long pruned = 0;
+                for (IterationStats stats : iterations) {
+                    assertTrue(mode + ": " + stats.getPrunedDistanceEvaluations(),
+                            stats.getPrunedDistanceEvaluations() >= 0);
+                    assertTrue(stats.getDistanceEvaluations() + stats.getPrunedDistanceEvaluations()
+                            >= (long) SIZE * CLUSTERS);
+                    pruned += stats.getPrunedDistanceEvaluations();
+                }
+                assertEquals(engine.getPrunedDistanceEvaluations(), pruned);
+            }
+        }
+    }
+
+    public void testModeForMemoryBudget() {
+        assertEquals(AssignmentMode.ELKAN, AssignmentMode.forMemoryBudget(1000, 10, 1L << 20));
+        assertEquals(AssignmentMode.HAMERLY, AssignmentMode.forMemoryBudget(50000000, 1000, 1L << 30));
+    }
+}
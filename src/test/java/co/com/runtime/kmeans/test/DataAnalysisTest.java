@@ -26,9 +26,6 @@ public class DataAnalysisTest extends TestCase {
         } catch (IOException e) {
             fail();
             e.printStackTrace();
-        } catch (InterruptedException e) {
-            fail();
-            e.printStackTrace();
         }
     }
 
@@ -0,0 +1,261 @@
+package co.com.runtime.kmeans.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import co.com.runtime.kmeans.BalotoDataAnalysis;
+import co.com.runtime.kmeans.ClusteringResult;
+import co.com.runtime.kmeans.ConvergencePolicy;
+import co.com.runtime.kmeans.CoresetPolicy;
+import co.com.runtime.kmeans.datatypes.Baloto;
+import co.com.runtime.kmeans.dense.Coreset;
+import co.com.runtime.kmeans.dense.DenseAssignmentMode;
+import co.com.runtime.kmeans.dense.DenseBlockSource;
+import co.com.runtime.kmeans.dense.DenseCentroids;
+import co.com.runtime.kmeans.dense.DenseDataset;
+import co.com.runtime.kmeans.dense.DenseKmeansEngine;
+import co.com.runtime.kmeans.dense.DistanceKernels;
+import co.com.runtime.kmeans.dense.FloatDenseDataset;
+import co.com.runtime.kmeans.dense.LabelFile;
+import co.com.runtime.kmeans.io.DatasetFile;
+import co.com.runtime.kmeans.seeding.KmeansPlusPlusSeeding;
+import co.com.runtime.kmeans.seeding.PointMetrics;
+
+public class DenseDatasetTest extends TestCase {
+
+    public void testDistanceMatchesBaloto() {
+        Baloto b1 = new Baloto("2 6 7 17 31 38");
+        Baloto b2 = new Baloto("7 9 11 19 24 42");
+        DenseDataset dataset = DenseDataset.of(new Baloto[]{b1, b2});
+
+        assertEquals(2, dataset.size());
+        assertEquals(6, dataset.dimension());
+        assertEquals(17D, dataset.get(0, 3));
+
+        DenseCentroids centroids = DenseCentroids.fromRows(dataset, new int[]{1});
+        assertEquals(b1.distance(b2), Math.sqrt(dataset.squaredDistance(0, centroids, 0)));
+    }
+
+    public void testOversizedBlock() {
+        try {
+            new DenseDataset(1 << 16, 1 << 16);
+            fail("The block does not fit in an array");
+        } catch (ArithmeticException e) {
+            // Expected
+        }
+    }
+
+    public void testKernelsAgree() {
+        Random random = new Random(3L);
+        for (int dimension : new int[]{1, 3, 6, 7, 64, 257}) {
+            double[] row = new double[dimension];
+            double[] centroids = new double[9 * dimension];
+            for (int j = 0; j < row.length; j++) {
+                row[j] = random.nextGaussian();
+            }
+            for (int j = 0; j < centroids.length; j++) {
+                centroids[j] = random.nextGaussian();
+            }
+            double[] scalar = new double[9];
+            double[] unrolled = new double[9];
+            DistanceKernels.SCALAR.squaredDistances(row, 0, centroids, 0, 9, dimension, scalar);
+            DistanceKernels.UNROLLED.squaredDistances(row, 0, centroids, 0, 9, dimension, unrolled);
+            assertTrue(Arrays.equals(scalar, unrolled));
+            for (int c = 0; c < 9; c++) {
+                assertEquals(scalar[c], DistanceKernels.UNROLLED.squaredDistance(row, 0, centroids, c * dimension,
+                        dimension), 1e-12 * scalar[c]);
+                double dot = DistanceKernels.SCALAR.dot(row, 0, centroids, c * dimension, dimension);
+                assertEquals(dot, DistanceKernels.UNROLLED.dot(row, 0, centroids, c * dimension, dimension),
+                        1e-12 * dimension);
+            }
+        }
+    }
+
+    public void testAssignmentModes() {
+        Random random = new Random(5L);
+        for (int dimension : new int[]{3, 37}) {
+            // Uneven sizes leave partial tiles of rows and centroids
+            DenseDataset dataset = new DenseDataset(1001, dimension);
+            for (int i = 0; i < dataset.size(); i++) {
+                for (int j = 0; j < dataset.dimension(); j++) {
+                    dataset.set(i, j, random.nextGaussian());
+                }
+            }
+            int[] rows = new int[67];
+            for (int c = 0; c < rows.length; c++) {
+                rows[c] = 11 * c;
+            }
+            DenseCentroids centroids = DenseCentroids.fromRows(dataset, rows);
+
+            int[] pairwise = new int[dataset.size()];
+            try (DenseKmeansEngine engine = new DenseKmeansEngine(4)) {
+                double inertia = engine.assign(dataset, centroids, pairwise).getInertia();
+                for (DenseAssignmentMode mode : new DenseAssignmentMode[]{DenseAssignmentMode.BLOCKED,
+                        DenseAssignmentMode.KD_TREE}) {
+                    engine.setAssignmentMode(mode);
+                    int[] assignment = new int[dataset.size()];
+                    Arrays.fill(assignment, -1);
+                    assertEquals(inertia, engine.assign(dataset, centroids, assignment).getInertia(), 1e-9 * inertia);
+                    assertTrue(mode + " " + dimension, Arrays.equals(pairwise, assignment));
+                    // The previous clusters of the rows must not change the result
+                    assertEquals(0, engine.assign(dataset, centroids, assignment).getReassigned());
+                }
+            }
+        }
+    }
+
+    public void testFloatStorageMatchesDouble() {
+        Random random = new Random(9L);
+        DenseDataset dataset = new DenseDataset(4000, 10);
+        for (int i = 0; i < dataset.size(); i++) {
+            int blob = i % 8;
+            for (int j = 0; j < dataset.dimension(); j++) {
+                dataset.set(i, j, 5 * ((blob >> (j % 3)) & 1) + random.nextGaussian());
+            }
+        }
+        int[] rows = {0, 1, 2, 3, 4, 5, 6, 7};
+        ConvergencePolicy policy = new ConvergencePolicy(0, 0D, 0D, 50);
+        try (DenseKmeansEngine engine = new DenseKmeansEngine(4)) {
+            ClusteringResult<DenseCentroids> doubles = engine.cluster(dataset, DenseCentroids.fromRows(dataset, rows),
+                    policy);
+            ClusteringResult<DenseCentroids> floats = engine.cluster(FloatDenseDataset.of(dataset),
+                    DenseCentroids.fromRows(dataset, rows), policy);
+
+            int different = 0;
+            for (int i = 0; i < dataset.size(); i++) {
+                if (doubles.getAssignment()[i] != floats.getAssignment()[i]) {
+                    different++;
+                }
+            }
+            assertTrue(different + " rows assigned differently", different <= dataset.size() / 1000);
+            for (int c = 0; c < rows.length; c++) {
+                for (int j = 0; j < dataset.dimension(); j++) {
+                    assertEquals(doubles.getCentroids().get(c, j), floats.getCentroids().get(c, j), 1e-3);
+                }
+            }
+        }
+    }
+
+    public void testCoresetClustering() {
+        Random random = new Random(13L);
+        DenseDataset dataset = new DenseDataset(20000, 4);
+        for (int i = 0; i < dataset.size(); i++) {
+            int blob = i % 8;
+            for (int j = 0; j < dataset.dimension(); j++) {
+                dataset.set(i, j, 10 * ((blob >> (j % 3)) & 1) + random.nextGaussian());
+            }
+        }
+        try (DenseKmeansEngine engine = new DenseKmeansEngine(4)) {
+            Coreset coreset = Coreset.lightweight(dataset, 1000, 1L, engine.getPool());
+            double weight = 0;
+            for (double w : coreset.getWeights()) {
+                weight += w;
+            }
+            assertEquals(dataset.size(), weight, 0.15 * dataset.size());
+            // The blocks keep the rows in order, each one once
+            int[] rows = coreset.getRows();
+            for (int c = 1; c < rows.length; c++) {
+                assertTrue(rows[c - 1] < rows[c]);
+            }
+
+            ClusteringResult<DenseCentroids> sampled = engine.cluster(dataset, 8, new KmeansPlusPlusSeeding(1L),
+                    new CoresetPolicy(1000, 3, 1L));
+            ClusteringResult<DenseCentroids> full = engine.cluster(dataset, DenseCentroids.fromRows(dataset,
+                    new KmeansPlusPlusSeeding(1L).select(PointMetrics.of(dataset), 8, engine.getPool())), 100);
+            int[] assignment = new int[dataset.size()];
+            double sampledInertia = engine.assign(dataset, sampled.getCentroids(), assignment).getInertia();
+            double fullInertia = engine.assign(dataset, full.getCentroids(), assignment).getInertia();
+            assertTrue(sampledInertia + " vs " + fullInertia, sampledInertia <= 1.05 * fullInertia);
+        }
+    }
+
+    public void testClustering() {
+        double[] values = {0, 0, 0, 1, 1, 0, 10, 10, 10, 11, 11, 10};
+        DenseDataset dataset = new DenseDataset(values, 2);
+        DenseCentroids centroids = DenseCentroids.fromRows(dataset, new int[]{0, 1});
+
+        try (DenseKmeansEngine engine = new DenseKmeansEngine(2)) {
+            ClusteringResult<DenseCentroids> result = engine.cluster(dataset, centroids, 100);
+            int[] assignment = result.getAssignment();
+            assertEquals(assignment[0], assignment[1]);
+            assertEquals(assignment[0], assignment[2]);
+            assertEquals(assignment[3], assignment[4]);
+            assertEquals(assignment[3], assignment[5]);
+            assertTrue(assignment[0] != assignment[3]);
+            assertEquals(31D / 3D, result.getCentroids().get(assignment[3], 0), 1e-12);
+        }
+    }
+
+    public void testDatasetFile() throws IOException {
+        DenseDataset dataset = BalotoDataAnalysis.loadBalotoDataset(new File("baloto.txt"));
+        File binary = File.createTempFile("baloto", ".kmds");
+        binary.deleteOnExit();
+        DatasetFile.write(dataset, binary);
+
+        DenseDataset reloaded = BalotoDataAnalysis.loadBalotoDataset(binary);
+        assertEquals(dataset.dimension(), reloaded.dimension());
+        assertTrue(Arrays.equals(dataset.getValues(), reloaded.getValues()));
+
+        // A corrupted value is detected by the checksum
+        try (RandomAccessFile file = new RandomAccessFile(binary, "rw")) {
+            file.seek(DatasetFile.HEADER_SIZE + 3);
+            file.write(file.read() ^ 1);
+        }
+        try {
+            DatasetFile.readDense(binary, true);
+            fail();
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    public void testOutOfCoreMatchesInMemory() throws IOException {
+        DenseDataset dataset = BalotoDataAnalysis.loadBalotoDataset(new File("baloto.txt"));
+        File binary = File.createTempFile("baloto", ".kmds");
+        binary.deleteOnExit();
+        DatasetFile.write(dataset, binary);
+        File labelFile = File.createTempFile("baloto", ".labels");
+        labelFile.deleteOnExit();
+        // Labels of a longer, unrelated run are discarded
+        try (LabelFile stale = new LabelFile(labelFile)) {
+            int[] previous = new int[2 * dataset.size()];
+            stale.write(0, previous, previous.length);
+        }
+
+        int[] rows = {0, 100, 200, 300, 400, 500, 600, 700};
+        ConvergencePolicy policy = new ConvergencePolicy(0, 0D, 0D, 50);
+        try (DenseKmeansEngine engine = new DenseKmeansEngine(4);
+             DenseBlockSource source = DatasetFile.openDense(binary, true);
+             LabelFile labels = new LabelFile(labelFile)) {
+            ClusteringResult<DenseCentroids> inMemory = engine.cluster(dataset,
+                    DenseCentroids.fromRows(dataset, rows), policy);
+            ClusteringResult<DenseCentroids> outOfCore = engine.cluster(source,
+                    DenseCentroids.fromRows(dataset, rows), policy, 97, labels);
+
+            assertEquals(inMemory.getIterations(), outOfCore.getIterations());
+            assertTrue(Arrays.equals(inMemory.clusterSizes(), outOfCore.clusterSizes()));
+            int[] spilled = new int[dataset.size()];
+            labels.read(0, spilled, spilled.length);
+            assertTrue(Arrays.equals(inMemory.getAssignment(), spilled));
+            assertEquals(dataset.size(), labels.size());
+            for (int c = 0; c < rows.length; c++) {
+                for (int j = 0; j < dataset.dimension(); j++) {
+                    assertEquals(inMemory.getCentroids().get(c, j), outOfCore.getCentroids().get(c, j), 1e-9);
+                }
+            }
+        }
+    }
+
+    public void testBalotoDenseClustering() throws IOException {
+        ClusteringResult<DenseCentroids> result = BalotoDataAnalysis.doDenseClustering(new File("baloto.txt"), 10, 100);
+        int total = 0;
+        for (int size : result.clusterSizes()) {
+            total += size;
+        }
+        assertEquals(1450, total);
+    }
+}
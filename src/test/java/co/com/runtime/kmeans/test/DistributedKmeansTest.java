@@ -0,0 +1,115 @@
+package co.com.runtime.kmeans.test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import co.com.runtime.kmeans.BalotoDataAnalysis;
+import co.com.runtime.kmeans.ClusteringResult;
+import co.com.runtime.kmeans.ConvergencePolicy;
+import co.com.runtime.kmeans.dense.DenseCentroids;
+import co.com.runtime.kmeans.dense.DenseDataset;
+import co.com.runtime.kmeans.dense.DenseKmeansEngine;
+import co.com.runtime.kmeans.distributed.DenseWorker;
+import co.com.runtime.kmeans.distributed.DistributedKmeans;
+import co.com.runtime.kmeans.distributed.SocketWorkerLink;
+import co.com.runtime.kmeans.distributed.WorkerLink;
+import co.com.runtime.kmeans.distributed.WorkerServer;
+import co.com.runtime.kmeans.io.DatasetFile;
+
+public class DistributedKmeansTest extends TestCase {
+
+    private static final int[] INITIAL_ROWS = {0, 150, 300, 450, 600, 750, 900, 1050, 1200, 1350};
+
+    public void testWorkerProcessesMatchSingleEngine() throws IOException, InterruptedException {
+        DenseDataset dataset = BalotoDataAnalysis.loadBalotoDataset(new File("baloto.txt"));
+        File binary = File.createTempFile("baloto", ".kmds");
+        binary.deleteOnExit();
+        DatasetFile.write(dataset, binary);
+        ConvergencePolicy policy = new ConvergencePolicy(0, 0D, 0D, 100);
+
+        ClusteringResult<DenseCentroids> expected;
+        try (DenseKmeansEngine engine = new DenseKmeansEngine(2)) {
+            expected = engine.cluster(dataset, DenseCentroids.fromRows(dataset, INITIAL_ROWS), policy);
+        }
+
+        int partitions = 3;
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<Process> processes = new ArrayList<>();
+        List<WorkerLink> links = new ArrayList<>();
+        try {
+            for (int p = 0; p < partitions; p++) {
+                Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        WorkerServer.class.getName(), "0", binary.getPath(), String.valueOf(p),
+                        String.valueOf(partitions), "1").redirectError(ProcessBuilder.Redirect.INHERIT).start();
+                processes.add(process);
+                BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()));
+                String line = out.readLine();
+                while (line != null && !line.startsWith("LISTENING ")) {
+                    line = out.readLine();
+                }
+                assertNotNull(line);
+                int port = Integer.parseInt(line.substring("LISTENING ".length()).trim());
+                links.add(new SocketWorkerLink(new InetSocketAddress("localhost", port)));
+            }
+
+            DistributedKmeans coordinator = new DistributedKmeans(links);
+            assertEquals(dataset.size(), coordinator.rows());
+            ClusteringResult<DenseCentroids> result = coordinator.cluster(DenseCentroids.fromRows(dataset,
+                    INITIAL_ROWS), policy);
+
+            assertEquals(expected.getIterations(), result.getIterations());
+            assertTrue(Arrays.equals(expected.clusterSizes(), result.clusterSizes()));
+            assertTrue(Arrays.equals(expected.getAssignment(), coordinator.fetchAssignment()));
+        } finally {
+            for (WorkerLink link : links) {
+                link.close();
+            }
+            for (Process process : processes) {
+                process.destroy();
+                process.waitFor();
+            }
+        }
+    }
+
+    public void testWorkerSurvivesInvalidRequests() throws Exception {
+        DenseDataset dataset = BalotoDataAnalysis.loadBalotoDataset(new File("baloto.txt"));
+        DenseCentroids centroids = DenseCentroids.fromRows(dataset, INITIAL_ROWS);
+        try (WorkerServer server = new WorkerServer(0, new DenseWorker(dataset, new DenseKmeansEngine(1)))) {
+            Thread serving = new Thread(() -> {
+                try {
+                    server.serve();
+                } catch (IOException e) {
+                    // Closed
+                }
+            });
+            serving.start();
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+
+            // A dimension mismatch is answered with an error and ends the session
+            try (WorkerLink link = new SocketWorkerLink(address)) {
+                link.sendCentroids(new DenseCentroids(3, dataset.dimension() + 1));
+                link.receiveSums();
+                fail("Centroids of another dimension");
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("dimension"));
+            }
+
+            // The worker keeps serving
+            try (WorkerLink link = new SocketWorkerLink(address)) {
+                link.sendCentroids(centroids);
+                assertEquals(dataset.size(), link.receiveSums().getReassigned());
+                assertEquals(dataset.size(), link.fetchAssignment().length);
+            }
+            server.close();
+            serving.join();
+        }
+    }
+}
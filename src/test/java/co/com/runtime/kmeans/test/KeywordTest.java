@@ -7,6 +7,8 @@ import java.util.Map;
 
 import co.com.runtime.kmeans.DataAnalysis;
 import co.com.runtime.kmeans.datatypes.Keyword;
+import co.com.runtime.kmeans.datatypes.Vocabulary;
+import co.com.runtime.kmeans.interfaces.CentroidAccumulator;
 import junit.framework.TestCase;
 
 public class KeywordTest extends TestCase {
@@ -31,6 +33,66 @@ public class KeywordTest extends TestCase {
         System.out.println(mean);
     }
 
+    public void testAccumulator() {
+        Keyword kw0 = new Keyword("adams state college alamosa co");
+        Keyword kw1 = new Keyword("rush university college of nursing");
+        Keyword kw2 = new Keyword("rush university nurse practitioner program");
+
+        CentroidAccumulator<Keyword> sum = kw0.newAccumulator();
+        sum.add(kw0);
+        CentroidAccumulator<Keyword> partial = kw0.newAccumulator();
+        partial.add(kw1);
+        partial.add(kw2);
+        sum.merge(partial);
+
+        assertEquals(3, sum.count());
+        assertEquals(kw0.mean(new Keyword[]{kw0, kw1, kw2}), sum.mean());
+    }
+
+    public void testVocabulary() {
+        Vocabulary vocabulary = new Vocabulary();
+        Keyword kw0 = new Keyword("Rush University college of RUSH", vocabulary);
+        Keyword kw1 = new Keyword("rush nursing", vocabulary);
+
+        // "of" is removed, "rush" is interned once whatever its case
+        assertEquals(4, vocabulary.size());
+        assertEquals(3, kw0.size());
+        assertEquals(vocabulary.find("rush"), kw0.termId(0));
+        assertEquals(2D, kw0.getWords().get("rush"));
+        assertEquals(kw0.termId(0), kw1.termId(0));
+        assertEquals(-1, vocabulary.find("of"));
+
+        // The mean takes the vocabulary of the keywords averaged
+        Keyword mean = new Keyword().mean(new Keyword[]{kw0, kw1});
+        assertSame(vocabulary, mean.getVocabulary());
+        assertEquals(1.5D, mean.getWords().get("rush"));
+    }
+
+    public void testVocabularyLimit() {
+        Vocabulary vocabulary = new Vocabulary(2);
+        new Keyword("rush university", vocabulary);
+        // Known words are still found once the vocabulary is full
+        assertEquals(1, new Keyword("rush rush", vocabulary).getWords().size());
+        try {
+            new Keyword("rush nursing", vocabulary);
+            fail("Vocabulary over its limit");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        assertEquals(2, vocabulary.size());
+    }
+
+    public void testLoadsDoNotShareVocabulary() throws IOException {
+        File input = new File("IV6 - RAW keywords.txt");
+        int shared = Vocabulary.getDefault().size();
+        Keyword[] first = DataAnalysis.loadKeywords(input);
+        Keyword[] second = DataAnalysis.loadKeywords(input);
+
+        assertNotSame(first[0].getVocabulary(), second[0].getVocabulary());
+        assertEquals(first[0].getVocabulary().size(), second[0].getVocabulary().size());
+        assertEquals(shared, Vocabulary.getDefault().size());
+    }
+
     public void testTimeMeans() throws IOException {
         File input = new File(
                 "D:/workspace_kepler/ExerciseIV6/IV6 - RAW keywords.txt");
@@ -50,6 +112,17 @@ public class KeywordTest extends TestCase {
         System.out.println("Time elapsed new mean: " + elapsed);
     }
 
+    public void testComparisonDistance() {
+        Keyword kw0 = new Keyword("adams state college alamosa co");
+        Keyword kw1 = new Keyword("rush university college of nursing");
+        Keyword kw2 = new Keyword("rush university nurse practitioner program");
+
+        // The comparison distance must preserve the order of the angles
+        assertTrue(kw1.distance(kw2) < kw1.distance(kw0));
+        assertTrue(kw1.comparisonDistance(kw2) < kw1.comparisonDistance(kw0));
+        assertEquals(Math.cos(Math.toRadians(kw1.distance(kw2))), -kw1.comparisonDistance(kw2), 1e-12);
+    }
+
     public void testOrderComparator() {
         Keyword kw1 = new Keyword("rush university college of nursing");
         Keyword kw2 = new Keyword("rush university nurse practitioner program");
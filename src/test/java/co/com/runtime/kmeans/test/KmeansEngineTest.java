@@ -0,0 +1,240 @@
+package co.com.runtime.kmeans.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+import co.com.runtime.kmeans.AssignmentMode;
+import co.com.runtime.kmeans.BalotoDataAnalysis;
+import co.com.runtime.kmeans.BisectingKmeansEngine;
+import co.com.runtime.kmeans.ClusterTree;
+import co.com.runtime.kmeans.ConvergencePolicy;
+import co.com.runtime.kmeans.IterationStats;
+import co.com.runtime.kmeans.KmeansCluster;
+import co.com.runtime.kmeans.KmeansEngine;
+import co.com.runtime.kmeans.MiniBatchPolicy;
+import co.com.runtime.kmeans.datatypes.Baloto;
+import co.com.runtime.kmeans.interfaces.ClusteringListener;
+import co.com.runtime.kmeans.metrics.KmeansMetrics;
+
+public class KmeansEngineTest extends TestCase {
+
+    private Map<KmeansCluster<Baloto>, Boolean> seedClusters(Baloto[] results, int k) {
+        Map<KmeansCluster<Baloto>, Boolean> clusters = new ConcurrentHashMap<>();
+        for (int i = 0; i < k; i++) {
+            clusters.put(new KmeansCluster<>(results[i]), true);
+        }
+        return clusters;
+    }
+
+    private void assertEveryItemAssigned(Baloto[] results, Map<KmeansCluster<Baloto>, Boolean> clusters) {
+        int assigned = 0;
+        for (KmeansCluster<Baloto> cluster : clusters.keySet()) {
+            assigned += cluster.getElements().size();
+        }
+        assertEquals(results.length, assigned);
+    }
+
+    public void testEveryItemAssigned() throws IOException {
+        Baloto[] results = BalotoDataAnalysis.loadBalotoResults(new File("baloto.txt"));
+        Map<KmeansCluster<Baloto>, Boolean> clusters = seedClusters(results, 20);
+
+        try (KmeansEngine<Baloto> engine = new KmeansEngine<>(4)) {
+            engine.cluster(results, clusters);
+        }
+
+        // Repeated draws keep their own positions, so every result must be
+        // found in exactly one cluster
+        assertEveryItemAssigned(results, clusters);
+        assertEquals(20, clusters.size());
+    }
+
+    public void testDuplicatesAreKept() {
+        Baloto[] results = new Baloto[]{new Baloto("1 2 3 4 5 6"), new Baloto("1 2 3 4 5 6"),
+                new Baloto("40 41 42 43 44 45"), new Baloto("1 2 3 4 5 6")};
+        Map<KmeansCluster<Baloto>, Boolean> clusters = new ConcurrentHashMap<>();
+        KmeansCluster<Baloto> low = new KmeansCluster<>(results[0]);
+        KmeansCluster<Baloto> high = new KmeansCluster<>(results[2]);
+        clusters.put(low, true);
+        clusters.put(high, true);
+
+        try (KmeansEngine<Baloto> engine = new KmeansEngine<>(2)) {
+            engine.cluster(results, clusters);
+        }
+
+        assertEquals(3, low.getElements().size());
+        assertEquals(1, high.getElements().size());
+    }
+
+    public void testConvergencePolicy() throws IOException {
+        Baloto[] results = BalotoDataAnalysis.loadBalotoResults(new File("baloto.txt"));
+
+        try (KmeansEngine<Baloto> engine = new KmeansEngine<>(4)) {
+            engine.setConvergencePolicy(new ConvergencePolicy(-1, 0D, 0D, 2));
+            Map<KmeansCluster<Baloto>, Boolean> clusters = seedClusters(results, 20);
+            engine.cluster(results, clusters);
+            assertEquals(2, engine.getIterations());
+
+            // The inertia is the sum of squared errors of the final clusters
+            double inertia = 0;
+            for (KmeansCluster<Baloto> cluster : clusters.keySet()) {
+                for (Baloto result : cluster.getElements()) {
+                    inertia += result.comparisonDistance(cluster.getCentroid());
+                }
+            }
+            assertEquals(inertia, engine.getInertia(), 1e-6 * inertia);
+
+            // Every improvement is smaller than the whole inertia
+            engine.setConvergencePolicy(new ConvergencePolicy(-1, 1D, 0D, 100));
+            clusters = seedClusters(results, 20);
+            engine.cluster(results, clusters);
+            assertEquals(1, engine.getIterations());
+        }
+    }
+
+    public void testMiniBatch() throws IOException {
+        Baloto[] results = BalotoDataAnalysis.loadBalotoResults(new File("baloto.txt"));
+
+        try (KmeansEngine<Baloto> engine = new KmeansEngine<>(4)) {
+            Map<KmeansCluster<Baloto>, Boolean> clusters = seedClusters(results, 20);
+            engine.cluster(results, clusters);
+            double lloydInertia = engine.getInertia();
+            long lloydEvaluations = engine.getDistanceEvaluations();
+
+            List<IterationStats> steps = new ArrayList<>();
+            engine.addListener(new ClusteringListener() {
+                @Override
+                public void iterationCompleted(IterationStats stats) {
+                    steps.add(stats);
+                }
+            });
+            clusters = seedClusters(results, 20);
+            engine.clusterMiniBatch(results, clusters, new MiniBatchPolicy(100, 50, 0, 7L));
+            assertEquals(50, engine.getIterations());
+            assertEquals(50, steps.size());
+            assertEquals(0, steps.get(0).getIteration());
+            assertEquals(49, steps.get(49).getIteration());
+            assertEquals(100L * 20, steps.get(0).getDistanceEvaluations());
+            assertTrue(engine.getDistanceEvaluations() < lloydEvaluations);
+            assertTrue(engine.getInertia() < 1.25 * lloydInertia);
+
+            assertEveryItemAssigned(results, clusters);
+        }
+    }
+
+    public void testBorrowedPoolIsNotShutDown() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        KmeansEngine<Baloto> engine = new KmeansEngine<>(pool);
+        engine.close();
+        assertFalse(pool.isShutdown());
+        pool.shutdown();
+    }
+
+    public void testBisecting() throws IOException {
+        Baloto[] results = BalotoDataAnalysis.loadBalotoResults(new File("baloto.txt"));
+
+        try (BisectingKmeansEngine<Baloto> engine = new BisectingKmeansEngine<>(4)) {
+            List<IterationStats> batches = new ArrayList<>();
+            engine.addListener(new ClusteringListener() {
+                @Override
+                public void iterationCompleted(IterationStats stats) {
+                    batches.add(stats);
+                }
+            });
+            engine.setSeed(1L);
+            ClusterTree<Baloto> tree = engine.cluster(results, 16);
+
+            assertEquals(16, tree.numberOfClusters());
+            // One event per batch of parallel splits
+            assertFalse(batches.isEmpty());
+            assertTrue(batches.size() < 15);
+            long evaluations = 0;
+            for (IterationStats stats : batches) {
+                assertTrue(stats.getWorkers() > 0);
+                evaluations += stats.getDistanceEvaluations();
+            }
+            assertTrue(evaluations > 0 && evaluations <= engine.getDistanceEvaluations());
+            assertEveryItemAssigned(results, tree.toClusters());
+
+            // Every split divides the items of its node
+            for (ClusterTree.Node<Baloto> leaf : tree.getLeaves()) {
+                assertEquals(leaf.size(), tree.getMembership().size(leaf.getCluster()));
+            }
+            assertEquals(results.length, tree.getRoot().getLeft().size() + tree.getRoot().getRight().size());
+
+            // A clustered item descends to its own leaf or one close to it
+            int[] assignment = tree.getMembership().getAssignment();
+            int same = 0;
+            for (int i = 0; i < results.length; i++) {
+                if (tree.nearestCluster(results[i]) == assignment[i]) {
+                    same++;
+                }
+            }
+            assertTrue(same + " of " + results.length, same > results.length * 9 / 10);
+        }
+    }
+
+    public void testBisectingFewDistinctItems() {
+        // Most samples of the root only see duplicates of its first centroid
+        Baloto[] results = new Baloto[5000];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new Baloto((i == 2500) ? "40 41 42 43 44 45" : "1 2 3 4 5 6");
+        }
+
+        try (BisectingKmeansEngine<Baloto> engine = new BisectingKmeansEngine<>(2)) {
+            for (long seed = 0; seed < 10; seed++) {
+                engine.setSeed(seed);
+                ClusterTree<Baloto> tree = engine.cluster(results, 2);
+                assertEquals(2, tree.numberOfClusters());
+                assertEveryItemAssigned(results, tree.toClusters());
+            }
+        }
+    }
+
+    public void testListener() throws Exception {
+        Baloto[] results = BalotoDataAnalysis.loadBalotoResults(new File("baloto.txt"));
+
+        List<IterationStats> iterations = new ArrayList<>();
+        KmeansMetrics metrics = new KmeansMetrics().register("test");
+        try (KmeansEngine<Baloto> engine = new KmeansEngine<>(4)) {
+            engine.addListener(metrics);
+            engine.addListener(new ClusteringListener() {
+                @Override
+                public void iterationCompleted(IterationStats stats) {
+                    iterations.add(stats);
+                }
+            });
+            engine.setAssignmentMode(AssignmentMode.HAMERLY);
+            Map<KmeansCluster<Baloto>, Boolean> clusters = seedClusters(results, 20);
+            engine.cluster(results, clusters);
+
+            // One pass before the first update, one after every update
+            assertEquals(engine.getIterations() + 1, iterations.size());
+            long evaluations = 0;
+            long pruned = 0;
+            for (int i = 0; i < iterations.size(); i++) {
+                IterationStats stats = iterations.get(i);
+                assertEquals(i, stats.getIteration());
+                assertTrue(stats.getWorkers() > 0);
+                assertTrue(stats.getWorkerSkew() >= 1);
+                evaluations += stats.getDistanceEvaluations();
+                pruned += stats.getPrunedDistanceEvaluations();
+            }
+            assertEquals(engine.getDistanceEvaluations(), evaluations);
+            assertEquals(engine.getPrunedDistanceEvaluations(), pruned);
+
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(metrics.getObjectName(),
+                    "Runs"));
+            assertEquals(evaluations, metrics.getDistanceEvaluations());
+            assertEquals(iterations.size(), metrics.getIterations());
+        } finally {
+            metrics.unregister();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package co.com.runtime.kmeans.test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import co.com.runtime.kmeans.io.MappedLineLoader;
+import co.com.runtime.kmeans.io.ParallelShuffle;
+import junit.framework.TestCase;
+
+public class MappedLineLoaderTest extends TestCase {
+
+    public void testLoadMatchesReadLine() throws IOException {
+        // Several chunks, with Windows line terminators and no terminator at
+        // the end
+        File input = File.createTempFile("lines", ".txt");
+        input.deleteOnExit();
+        try (PrintWriter writer = new PrintWriter(input, "UTF-8")) {
+            for (int i = 0; i < 300000; i++) {
+                writer.print("l\u00ednea " + i + ((i % 7 == 0) ? "\r\n" : "\n"));
+            }
+            writer.print("last");
+        }
+
+        List<String> expected = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(input), "UTF-8"))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                expected.add(line);
+            }
+        }
+
+        String[] lines = MappedLineLoader.load(input, line -> line, String[]::new, new ForkJoinPool(4));
+        assertEquals(expected.size(), lines.length);
+        assertTrue(expected.equals(Arrays.asList(lines)));
+    }
+
+    public void testShuffleIsPermutation() {
+        Integer[] items = new Integer[200000];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = i;
+        }
+        ParallelShuffle.shuffle(items, 42L, new ForkJoinPool(4));
+
+        int moved = 0;
+        boolean[] seen = new boolean[items.length];
+        for (int i = 0; i < items.length; i++) {
+            assertFalse(seen[items[i]]);
+            seen[items[i]] = true;
+            moved += (items[i] != i) ? 1 : 0;
+        }
+        assertTrue(moved > items.length / 2);
+    }
+}
@@ -0,0 +1,114 @@
+package co.com.runtime.kmeans.test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+import co.com.runtime.kmeans.dense.DenseDataset;
+import co.com.runtime.kmeans.seeding.KmeansParallelSeeding;
+import co.com.runtime.kmeans.seeding.KmeansPlusPlusSeeding;
+import co.com.runtime.kmeans.seeding.PointMetric;
+import co.com.runtime.kmeans.seeding.PointMetrics;
+import co.com.runtime.kmeans.seeding.SeedingStrategy;
+
+public class SeedingTest extends TestCase {
+
+    private static final int BLOBS          = 4;
+    private static final int POINTS_BY_BLOB = 3000;
+
+    private ForkJoinPool pool;
+
+    @Override
+    protected void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @Override
+    protected void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Blobs of points in [0, 1) around the centers (1000 * b, 1000 * b)
+     */
+    private DenseDataset blobs() {
+        Random random = new Random(7);
+        DenseDataset dataset = new DenseDataset(BLOBS * POINTS_BY_BLOB, 2);
+        for (int i = 0; i < dataset.size(); i++) {
+            int blob = i % BLOBS;
+            dataset.set(i, 0, 1000 * blob + random.nextDouble());
+            dataset.set(i, 1, 1000 * blob + random.nextDouble());
+        }
+        return dataset;
+    }
+
+    private void assertOneSeedByBlob(SeedingStrategy seeding) {
+        int[] seeds = seeding.select(PointMetrics.of(blobs()), BLOBS, pool);
+        assertEquals(BLOBS, seeds.length);
+        Set<Integer> blobs = new HashSet<>();
+        for (int seed : seeds) {
+            blobs.add(seed % BLOBS);
+        }
+        assertEquals(BLOBS, blobs.size());
+    }
+
+    public void testKmeansPlusPlus() {
+        assertOneSeedByBlob(new KmeansPlusPlusSeeding(1));
+
+        // Every selection starts again from the seed
+        SeedingStrategy seeding = new KmeansPlusPlusSeeding(3);
+        PointMetric points = PointMetrics.of(blobs());
+        int[] expected = seeding.select(points, 40, pool);
+        assertTrue(Arrays.equals(expected, seeding.select(points, 40, pool)));
+    }
+
+    public void testKmeansParallel() {
+        assertOneSeedByBlob(new KmeansParallelSeeding(1));
+
+        // The blocks sampled in parallel do not change the seeds
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            PointMetric points = PointMetrics.of(blobs());
+            int[] expected = new KmeansParallelSeeding(3, 20D, 5).select(points, 40, single);
+            assertTrue(Arrays.equals(expected, new KmeansParallelSeeding(3, 20D, 5).select(points, 40, pool)));
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    public void testWeightedPoints() {
+        // Only two points have weight, they are the only ones worth a seed
+        DenseDataset dataset = blobs();
+        double[] weights = new double[dataset.size()];
+        weights[5] = 3;
+        weights[10] = 1;
+        for (SeedingStrategy seeding : new SeedingStrategy[]{new KmeansPlusPlusSeeding(1),
+                new KmeansParallelSeeding(1)}) {
+            int[] seeds = seeding.select(PointMetrics.of(dataset), weights, 2, pool);
+            Arrays.sort(seeds);
+            assertTrue(seeding.toString(), Arrays.equals(new int[]{5, 10}, seeds));
+        }
+    }
+
+    public void testDuplicatedPoints() {
+        DenseDataset dataset = new DenseDataset(new double[20], 2);
+        for (SeedingStrategy seeding : new SeedingStrategy[]{new KmeansPlusPlusSeeding(1),
+                new KmeansParallelSeeding(1)}) {
+            int[] seeds = seeding.select(PointMetrics.of(dataset), 5, pool);
+            Set<Integer> distinct = new HashSet<>();
+            for (int seed : seeds) {
+                distinct.add(seed);
+            }
+            assertEquals(5, distinct.size());
+        }
+    }
+
+    public void testMoreClustersThanPoints() {
+        DenseDataset dataset = new DenseDataset(new double[]{0, 1, 2}, 1);
+        assertEquals(3, new KmeansPlusPlusSeeding(1).select(PointMetrics.of(dataset), 10, pool).length);
+        assertEquals(3, new KmeansParallelSeeding(1).select(PointMetrics.of(dataset), 10, pool).length);
+    }
+}
@@ -0,0 +1,221 @@
+package co.com.runtime.kmeans.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import co.com.runtime.kmeans.ClusteringResult;
+import co.com.runtime.kmeans.ConvergencePolicy;
+import co.com.runtime.kmeans.DataAnalysis;
+import co.com.runtime.kmeans.IterationStats;
+import co.com.runtime.kmeans.datatypes.Keyword;
+import co.com.runtime.kmeans.datatypes.Vocabulary;
+import co.com.runtime.kmeans.interfaces.ClusteringListener;
+import co.com.runtime.kmeans.io.DatasetFile;
+import co.com.runtime.kmeans.sparse.CentroidTruncation;
+import co.com.runtime.kmeans.sparse.SparseDataset;
+import co.com.runtime.kmeans.sparse.SparseKmeansEngine;
+
+public class SparseDatasetTest extends TestCase {
+
+    private static final String[] PHRASES = {"adams state college alamosa co",
+            "rush university college of nursing", "rush university nurse practitioner program",
+            "lawson state community college bessemer al", "university of phonenix"};
+
+    private static Map<String, Integer> dictionary(Keyword[] keywords) {
+        Map<String, Integer> dictionary = new HashMap<>();
+        for (Keyword keyword : keywords) {
+            for (String word : keyword.getWords().keySet()) {
+                if (!dictionary.containsKey(word)) {
+                    dictionary.put(word, dictionary.size());
+                }
+            }
+        }
+        return dictionary;
+    }
+
+    public void testAngleMatchesKeyword() {
+        Keyword[] keywords = new Keyword[PHRASES.length];
+        for (int i = 0; i < PHRASES.length; i++) {
+            keywords[i] = new Keyword(PHRASES[i]);
+        }
+        SparseDataset dataset = SparseDataset.of(keywords, dictionary(keywords));
+
+        assertEquals(PHRASES.length, dataset.size());
+        for (int i = 0; i < keywords.length; i++) {
+            // Keyword gives NaN for the angle of a keyword with itself when
+            // the rounded cosine is greater than one
+            assertEquals(0D, dataset.angle(i, dataset, i), 1e-4);
+            for (int j = 0; j < keywords.length; j++) {
+                if (i != j) {
+                    assertEquals(keywords[i].distance(keywords[j]), dataset.angle(i, dataset, j), 1e-4);
+                }
+            }
+        }
+    }
+
+    public void testTermIdsSorted() {
+        Keyword[] keywords = {new Keyword("zeta alpha mu beta")};
+        Map<String, Integer> dictionary = new HashMap<>();
+        dictionary.put("zeta", 0);
+        dictionary.put("mu", 1);
+        dictionary.put("beta", 2);
+        dictionary.put("alpha", 3);
+        SparseDataset dataset = SparseDataset.of(keywords, dictionary);
+
+        int[] ids = dataset.getTermIds();
+        for (int p = 1; p < dataset.nonZeros(); p++) {
+            assertTrue(ids[p - 1] < ids[p]);
+        }
+    }
+
+    public void testMeans() {
+        Keyword[] keywords = {new Keyword("rush university college"), new Keyword("rush university nursing")};
+        SparseDataset dataset = SparseDataset.of(keywords, dictionary(keywords));
+        SparseDataset centroids = SparseDataset.means(dataset, new int[]{0, 0}, dataset.rows(new int[]{0}));
+
+        assertEquals(1, centroids.size());
+        assertEquals(4, centroids.nonZeros());
+        Keyword mean = new Keyword().mean(keywords);
+        assertEquals(mean.distance(keywords[0]), centroids.angle(0, dataset, 0), 1e-4);
+    }
+
+    public void testCentroidTruncation() {
+        Keyword[] keywords = {new Keyword("rush university college"), new Keyword("rush university nursing"),
+                new Keyword("rush state college")};
+        SparseDataset dataset = SparseDataset.of(keywords, dictionary(keywords));
+        CentroidTruncation truncation = CentroidTruncation.topTerms(2);
+        SparseDataset centroids = SparseDataset.means(dataset, new int[]{0, 0, 0}, dataset.rows(new int[]{0}),
+                truncation);
+
+        // rush (1) and one of the tied university and college (2/3) are
+        // kept, the other one, nursing and state (1/3) are dropped
+        assertEquals(2, centroids.nonZeros());
+        double total = 1 + 4 / 9D + 4 / 9D + 1 / 9D + 1 / 9D;
+        assertEquals((4 / 9D + 1 / 9D + 1 / 9D) / total, truncation.getDroppedMassFraction(), 1e-6);
+
+        Keyword mean = new Keyword().mean(keywords).truncate(CentroidTruncation.topTerms(2));
+        assertEquals(2, mean.getWords().size());
+        assertEquals(1D, mean.getWords().get("rush"));
+    }
+
+    public void testIndexedAssignmentMatchesScan() throws IOException {
+        SparseDataset dataset = DataAnalysis.loadKeywordDataset(new File("IV6 - RAW keywords.txt"));
+        int[] rows = new int[500];
+        for (int c = 0; c < rows.length; c++) {
+            rows[c] = (int) ((long) c * dataset.size() / rows.length);
+        }
+        SparseDataset centroids = dataset.rows(rows);
+
+        try (SparseKmeansEngine engine = new SparseKmeansEngine(4)) {
+            int[] scanned = new int[dataset.size()];
+            Arrays.fill(scanned, -1);
+            engine.setIndexedAssignment(false);
+            engine.assign(dataset, centroids, scanned);
+
+            int[] indexed = new int[dataset.size()];
+            Arrays.fill(indexed, -1);
+            engine.setIndexedAssignment(true);
+            engine.assign(dataset, centroids, indexed);
+
+            assertTrue(Arrays.equals(scanned, indexed));
+        }
+    }
+
+    public void testListener() throws IOException {
+        SparseDataset dataset = DataAnalysis.loadKeywordDataset(new File("IV6 - RAW keywords.txt"));
+        int[] rows = new int[50];
+        for (int c = 0; c < rows.length; c++) {
+            rows[c] = (int) ((long) c * dataset.size() / rows.length);
+        }
+
+        List<IterationStats> iterations = new ArrayList<>();
+        try (SparseKmeansEngine engine = new SparseKmeansEngine(4)) {
+            engine.addListener(new ClusteringListener() {
+                @Override
+                public void iterationCompleted(IterationStats stats) {
+                    iterations.add(stats);
+                }
+            });
+            ClusteringResult<SparseDataset> result = engine.cluster(dataset, dataset.rows(rows), 3);
+
+            // One pass before the first update, one after every update
+            assertEquals(result.getIterations() + 1, iterations.size());
+            for (int i = 0; i < iterations.size(); i++) {
+                IterationStats stats = iterations.get(i);
+                assertEquals(i, stats.getIteration());
+                assertTrue(stats.getWorkers() > 0);
+                // Every centroid of every row is either scored or skipped
+                assertEquals((long) dataset.size() * rows.length,
+                        stats.getDistanceEvaluations() + stats.getPrunedDistanceEvaluations());
+            }
+            assertEquals(dataset.size(), iterations.get(0).getReassigned());
+        }
+    }
+
+    public void testConvergencePolicy() throws IOException {
+        SparseDataset dataset = DataAnalysis.loadKeywordDataset(new File("IV6 - RAW keywords.txt"));
+        int[] rows = new int[50];
+        for (int c = 0; c < rows.length; c++) {
+            rows[c] = (int) ((long) c * dataset.size() / rows.length);
+        }
+
+        List<IterationStats> iterations = new ArrayList<>();
+        try (SparseKmeansEngine engine = new SparseKmeansEngine(4)) {
+            engine.addListener(new ClusteringListener() {
+                @Override
+                public void iterationCompleted(IterationStats stats) {
+                    iterations.add(stats);
+                }
+            });
+            ClusteringResult<SparseDataset> exact = engine.cluster(dataset, dataset.rows(rows), 100);
+            iterations.clear();
+            ClusteringResult<SparseDataset> loose = engine.cluster(dataset, dataset.rows(rows),
+                    new ConvergencePolicy(dataset.size() / 100, 1e-3, 0D, 100));
+
+            assertTrue(loose.getIterations() < exact.getIterations());
+            // The cosine inertia is between zero and one per row, and never
+            // grows from one pass to the next without truncation
+            double previous = Double.POSITIVE_INFINITY;
+            for (IterationStats stats : iterations) {
+                assertTrue(stats.getInertia() >= 0 && stats.getInertia() <= dataset.size());
+                assertTrue(stats.getInertia() <= previous + 1e-6 * dataset.size());
+                previous = stats.getInertia();
+            }
+            assertEquals(Double.POSITIVE_INFINITY, iterations.get(0).getMaxCentroidShift());
+            assertTrue(iterations.get(iterations.size() - 1).getMaxCentroidShift() < 90D);
+        }
+    }
+
+    public void testDatasetFile() throws IOException {
+        Vocabulary vocabulary = new Vocabulary();
+        SparseDataset dataset = DataAnalysis.loadKeywordDataset(new File("IV6 - RAW keywords.txt"), vocabulary);
+        File binary = File.createTempFile("keywords", ".kmds");
+        binary.deleteOnExit();
+        DatasetFile.write(dataset, vocabulary, binary);
+
+        Vocabulary reloadedVocabulary = new Vocabulary();
+        SparseDataset reloaded = DataAnalysis.loadKeywordDataset(binary, reloadedVocabulary);
+        assertEquals(dataset.dimension(), reloaded.dimension());
+        assertTrue(Arrays.equals(dataset.getRowOffsets(), reloaded.getRowOffsets()));
+        assertTrue(Arrays.equals(dataset.getTermIds(), reloaded.getTermIds()));
+        assertTrue(Arrays.equals(dataset.getWeights(), reloaded.getWeights()));
+        assertEquals(vocabulary.size(), reloadedVocabulary.size());
+        assertEquals(vocabulary.term(vocabulary.size() - 1), reloadedVocabulary.term(vocabulary.size() - 1));
+    }
+
+    public void testKeywordClustering() throws IOException {
+        ClusteringResult<SparseDataset> result = DataAnalysis.doSparseClustering(new File(
+                "IV6 - RAW keywords.txt"), 5000, 5);
+        int total = 0;
+        for (int size : result.clusterSizes()) {
+            total += size;
+        }
+        assertEquals(result.getAssignment().length, total);
+    }
+}
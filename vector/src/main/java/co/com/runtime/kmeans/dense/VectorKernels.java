@@ -0,0 +1,146 @@
+package co.com.runtime.kmeans.dense;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Distance kernels written with the Vector API of the
+ * <tt>jdk.incubator.vector</tt> module, one lane per component with the
+ * preferred vector size of the platform. The distances to a block of
+ * centroids are computed four centroids at a time, loading every vector of
+ * the row once per four centroids.
+ * <p/>
+ * This class is built by the vector module for Java 17, and only loaded by
+ * <tt>DistanceKernels</tt> when its jar is in the class path and the module
+ * is resolvable.
+ *
+ * @author Camilo Sarmiento
+ * @see co.com.runtime.kmeans.dense.DistanceKernels
+ */
+final class VectorKernels extends DistanceKernels {
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * Single precision species with as many lanes as <tt>DOUBLES</tt>, so a
+     * vector of rows in single precision widens to one of <tt>DOUBLES</tt>
+     */
+    private static final VectorSpecies<Float> FLOATS = VectorSpecies.of(float.class,
+            VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+
+    @Override
+    public double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int dimension) {
+        DoubleVector sum = DoubleVector.zero(DOUBLES);
+        int j = 0;
+        for (int end = DOUBLES.loopBound(dimension); j < end; j += DOUBLES.length()) {
+            DoubleVector difference = DoubleVector.fromArray(DOUBLES, a, aOffset + j)
+                    .sub(DoubleVector.fromArray(DOUBLES, b, bOffset + j));
+            sum = difference.fma(difference, sum);
+        }
+        double d = sum.reduceLanes(VectorOperators.ADD);
+        for (; j < dimension; j++) {
+            double difference = a[aOffset + j] - b[bOffset + j];
+            d += difference * difference;
+        }
+        return d;
+    }
+
+    @Override
+    public double dot(double[] a, int aOffset, double[] b, int bOffset, int dimension) {
+        DoubleVector sum = DoubleVector.zero(DOUBLES);
+        int j = 0;
+        for (int end = DOUBLES.loopBound(dimension); j < end; j += DOUBLES.length()) {
+            sum = DoubleVector.fromArray(DOUBLES, a, aOffset + j)
+                    .fma(DoubleVector.fromArray(DOUBLES, b, bOffset + j), sum);
+        }
+        double d = sum.reduceLanes(VectorOperators.ADD);
+        for (; j < dimension; j++) {
+            d += a[aOffset + j] * b[bOffset + j];
+        }
+        return d;
+    }
+
+    @Override
+    public void squaredDistances(double[] row, int rowOffset, double[] centroids, int firstCentroid, int count,
+                                 int dimension, double[] distances) {
+        int end = DOUBLES.loopBound(dimension);
+        int c = 0;
+        for (; c + 3 < count; c += 4) {
+            int o0 = (firstCentroid + c) * dimension;
+            int o1 = o0 + dimension;
+            int o2 = o1 + dimension;
+            int o3 = o2 + dimension;
+            DoubleVector s0 = DoubleVector.zero(DOUBLES);
+            DoubleVector s1 = s0;
+            DoubleVector s2 = s0;
+            DoubleVector s3 = s0;
+            int j = 0;
+            for (; j < end; j += DOUBLES.length()) {
+                DoubleVector x = DoubleVector.fromArray(DOUBLES, row, rowOffset + j);
+                DoubleVector d0 = x.sub(DoubleVector.fromArray(DOUBLES, centroids, o0 + j));
+                DoubleVector d1 = x.sub(DoubleVector.fromArray(DOUBLES, centroids, o1 + j));
+                DoubleVector d2 = x.sub(DoubleVector.fromArray(DOUBLES, centroids, o2 + j));
+                DoubleVector d3 = x.sub(DoubleVector.fromArray(DOUBLES, centroids, o3 + j));
+                s0 = d0.fma(d0, s0);
+                s1 = d1.fma(d1, s1);
+                s2 = d2.fma(d2, s2);
+                s3 = d3.fma(d3, s3);
+            }
+            double t0 = s0.reduceLanes(VectorOperators.ADD);
+            double t1 = s1.reduceLanes(VectorOperators.ADD);
+            double t2 = s2.reduceLanes(VectorOperators.ADD);
+            double t3 = s3.reduceLanes(VectorOperators.ADD);
+            for (; j < dimension; j++) {
+                double x = row[rowOffset + j];
+                double d0 = x - centroids[o0 + j];
+                double d1 = x - centroids[o1 + j];
+                double d2 = x - centroids[o2 + j];
+                double d3 = x - centroids[o3 + j];
+                t0 += d0 * d0;
+                t1 += d1 * d1;
+                t2 += d2 * d2;
+                t3 += d3 * d3;
+            }
+            distances[c] = t0;
+            distances[c + 1] = t1;
+            distances[c + 2] = t2;
+            distances[c + 3] = t3;
+        }
+        for (; c < count; c++) {
+            distances[c] = squaredDistance(row, rowOffset, centroids, (firstCentroid + c) * dimension, dimension);
+        }
+    }
+
+    @Override
+    public void squaredDistances(float[] row, int rowOffset, float[] centroids, int firstCentroid, int count,
+                                 int dimension, double[] distances) {
+        int end = FLOATS.loopBound(dimension);
+        for (int c = 0; c < count; c++) {
+            int centroidOffset = (firstCentroid + c) * dimension;
+            DoubleVector sum = DoubleVector.zero(DOUBLES);
+            int j = 0;
+            for (; j < end; j += FLOATS.length()) {
+                DoubleVector difference = widen(row, rowOffset + j).sub(widen(centroids, centroidOffset + j));
+                sum = difference.fma(difference, sum);
+            }
+            double d = sum.reduceLanes(VectorOperators.ADD);
+            for (; j < dimension; j++) {
+                double difference = (double) row[rowOffset + j] - centroids[centroidOffset + j];
+                d += difference * difference;
+            }
+            distances[c] = d;
+        }
+    }
+
+    private static DoubleVector widen(float[] values, int offset) {
+        return (DoubleVector) FloatVector.fromArray(FLOATS, values, offset).convertShape(VectorOperators.F2D,
+                DOUBLES, 0);
+    }
+
+    @Override
+    public String toString() {
+        return "vector";
+    }
+}
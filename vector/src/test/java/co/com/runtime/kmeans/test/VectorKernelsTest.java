@@ -0,0 +1,47 @@
+package co.com.runtime.kmeans.test;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import co.com.runtime.kmeans.dense.DistanceKernels;
+
+public class VectorKernelsTest extends TestCase {
+
+    public void testVectorKernelsAgree() {
+        DistanceKernels vector = DistanceKernels.vector();
+        assertNotNull(vector);
+        assertSame(vector, DistanceKernels.get());
+        Random random = new Random(4L);
+        for (int dimension : new int[]{1, 3, 6, 7, 64, 257}) {
+            double[] row = new double[dimension];
+            double[] centroids = new double[9 * dimension];
+            float[] floatRow = new float[dimension];
+            float[] floatCentroids = new float[centroids.length];
+            for (int j = 0; j < row.length; j++) {
+                row[j] = random.nextGaussian();
+                floatRow[j] = (float) row[j];
+            }
+            for (int j = 0; j < centroids.length; j++) {
+                centroids[j] = random.nextGaussian();
+                floatCentroids[j] = (float) centroids[j];
+            }
+            double[] expected = new double[9];
+            double[] actual = new double[9];
+            DistanceKernels.SCALAR.squaredDistances(row, 0, centroids, 0, 9, dimension, expected);
+            vector.squaredDistances(row, 0, centroids, 0, 9, dimension, actual);
+            for (int c = 0; c < 9; c++) {
+                assertEquals(expected[c], actual[c], 1e-12 * expected[c]);
+                assertEquals(expected[c], vector.squaredDistance(row, 0, centroids, c * dimension, dimension),
+                        1e-12 * expected[c]);
+                double dot = DistanceKernels.SCALAR.dot(row, 0, centroids, c * dimension, dimension);
+                assertEquals(dot, vector.dot(row, 0, centroids, c * dimension, dimension), 1e-12 * dimension);
+            }
+
+            DistanceKernels.SCALAR.squaredDistances(floatRow, 0, floatCentroids, 0, 9, dimension, expected);
+            vector.squaredDistances(floatRow, 0, floatCentroids, 0, 9, dimension, actual);
+            for (int c = 0; c < 9; c++) {
+                assertEquals(expected[c], actual[c], 1e-12 * expected[c]);
+            }
+        }
+    }
+}